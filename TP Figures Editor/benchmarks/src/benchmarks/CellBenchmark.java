@@ -0,0 +1,158 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+import application.cells.FigureCell;
+import application.cells.FigureListCell;
+import figures.Circle;
+import figures.Ellipse;
+import figures.Figure;
+import figures.Rectangle;
+import figures.Rounded_Rectangle;
+import figures.enums.LineType;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.paint.Color;
+
+/**
+ * Benchmark of figures list cells.
+ * Measures on the JavaFX application thread, for both {@link FigureCell}
+ * (loading FXML for each cell) and {@link FigureListCell} (programmatic):
+ * <ul>
+ * <li>the cell creation time</li>
+ * <li>the update time of a cell scrolling through a list of figures (as
+ * done by a {@link ListView} when scrolling)</li>
+ * </ul>
+ * Usage: {@code CellBenchmark [figures count] [cells count]}
+ * @implNote Requires a display to start the JavaFX toolkit
+ */
+public class CellBenchmark
+{
+	/**
+	 * Default number of figures in the list
+	 */
+	private static final int DEFAULT_FIGURES = 100000;
+
+	/**
+	 * Default number of created cells
+	 */
+	private static final int DEFAULT_CELLS = 1000;
+
+	/**
+	 * Benchmark main
+	 * @param args optional figures and cells counts
+	 * @throws InterruptedException if interrupted while waiting for the
+	 * benchmark to run
+	 */
+	public static void main(String[] args) throws InterruptedException
+	{
+		int figures = (args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FIGURES);
+		int cells = (args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CELLS);
+		CountDownLatch done = new CountDownLatch(1);
+		Platform.startup(() -> {
+			try
+			{
+				run(figures, cells);
+			}
+			finally
+			{
+				done.countDown();
+			}
+		});
+		done.await();
+		Platform.exit();
+	}
+
+	/**
+	 * Runs the benchmark (on the JavaFX application thread)
+	 * @param figures the number of figures in the list
+	 * @param cells the number of cells to create
+	 */
+	private static void run(int figures, int cells)
+	{
+		ListView<Figure> listView = new ListView<>(createFigures(figures));
+		System.out.printf("%d figures, %d cells%n", figures, cells);
+		for (int i = 0; i < 2; i++)	// first round is warmup
+		{
+			measure("FigureCell", FigureCell::new, listView, cells, i > 0);
+			measure("FigureListCell", FigureListCell::new, listView, cells, i > 0);
+		}
+	}
+
+	/**
+	 * Measures creation and update of cells
+	 * @param name the name of the cells kind
+	 * @param factory the cells factory
+	 * @param listView the list view containing figures
+	 * @param cells the number of cells to create
+	 * @param print whether results should be printed
+	 */
+	private static void measure(String name,
+	                            Supplier<ListCell<Figure>> factory,
+	                            ListView<Figure> listView,
+	                            int cells,
+	                            boolean print)
+	{
+		List<ListCell<Figure>> created = new ArrayList<>(cells);
+		long start = System.nanoTime();
+		for (int i = 0; i < cells; i++)
+		{
+			created.add(factory.get());
+		}
+		double creation = (System.nanoTime() - start) / 1e3 / cells;
+
+		ListCell<Figure> cell = created.get(0);
+		cell.updateListView(listView);
+		int count = listView.getItems().size();
+		start = System.nanoTime();
+		for (int i = 0; i < count; i++)
+		{
+			cell.updateIndex(i);
+		}
+		double update = (System.nanoTime() - start) / 1e3 / count;
+		if (print)
+		{
+			System.out.printf("%-16s creation %10.2f µs/cell  update %8.3f µs/item%n",
+			                  name,
+			                  creation,
+			                  update);
+		}
+	}
+
+	/**
+	 * Creates figures of all kinds
+	 * @param count the number of figures to create
+	 * @return a list of count figures
+	 */
+	private static ObservableList<Figure> createFigures(int count)
+	{
+		List<Figure> figures = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			double x = i % 1000;
+			double y = i / 1000;
+			switch (i % 4)
+			{
+				case 0:
+					figures.add(new Circle(Color.RED, Color.BLACK, LineType.SOLID, 1, null, x, y));
+					break;
+				case 1:
+					figures.add(new Ellipse(Color.GREEN, Color.BLACK, LineType.SOLID, 1, null, x, y));
+					break;
+				case 2:
+					figures.add(new Rectangle(Color.BLUE, Color.BLACK, LineType.SOLID, 1, null, x, y));
+					break;
+				default:
+					figures.add(new Rounded_Rectangle(Color.YELLOW, Color.BLACK, LineType.SOLID, 1, null, x, y));
+					break;
+			}
+		}
+		return FXCollections.observableList(figures);
+	}
+}
@@ -0,0 +1,136 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import figures.Circle;
+import figures.Figure;
+import figures.enums.LineType;
+import history.Memento;
+import javafx.scene.paint.Color;
+import logger.LoggerFactory;
+
+/**
+ * Benchmark of figures cloning and {@link Memento} creation.
+ * Measures
+ * <ul>
+ * <li>the cost of the logger lookup performed by each figure constructor:
+ * uncached lookup with
+ * {@link LoggerFactory#getLogger(Class, boolean, String, boolean, Logger, Level)}
+ * (as each figure did before loggers were cached per class) versus cached
+ * lookup with {@link LoggerFactory#getParentLogger(Class, Logger, Level)}</li>
+ * <li>the throughput of {@link Memento} creation (cloning all figures of a
+ * drawing)</li>
+ * </ul>
+ * Usage: {@code CloneBenchmark [figures count] [iterations]}
+ */
+public class CloneBenchmark
+{
+	/**
+	 * Default number of figures in the drawing
+	 */
+	private static final int DEFAULT_COUNT = 10000;
+
+	/**
+	 * Default number of measured iterations (after as many warmup iterations)
+	 */
+	private static final int DEFAULT_ITERATIONS = 20;
+
+	/**
+	 * Benchmark main
+	 * @param args optional figures count and iterations
+	 * @throws IOException if uncached logger lookup fails
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		int count = (args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_COUNT);
+		int iterations = (args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS);
+		Logger parent = LoggerFactory.getParentLogger(CloneBenchmark.class, null, Level.WARNING);
+		List<Figure> figures = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			figures.add(new Circle(Color.RED,
+			                       Color.BLACK,
+			                       LineType.values()[i % LineType.NbLineTypes],
+			                       1 + (i % 4),
+			                       parent,
+			                       i % 1000,
+			                       i / 1000));
+		}
+		System.out.printf("%d figures, %d iterations%n", count, iterations);
+
+		double uncached = median(iterations, () -> {
+			int hash = 0;
+			for (int i = 0; i < count; i++)
+			{
+				try
+				{
+					hash += LoggerFactory.getLogger(Circle.class, true, null, false, parent, null)
+					    .hashCode();
+				}
+				catch (IOException e)
+				{
+					throw new IllegalStateException(e);
+				}
+			}
+			return hash;
+		});
+		double cached = median(iterations, () -> {
+			int hash = 0;
+			for (int i = 0; i < count; i++)
+			{
+				hash += LoggerFactory.getParentLogger(Circle.class, parent, null).hashCode();
+			}
+			return hash;
+		});
+		System.out.printf("%-24s %10.3f ms (%7.1f ns/lookup)%n",
+		                  "uncached logger lookups",
+		                  uncached,
+		                  uncached * 1e6 / count);
+		System.out.printf("%-24s %10.3f ms (%7.1f ns/lookup) x%.1f%n",
+		                  "cached logger lookups",
+		                  cached,
+		                  cached * 1e6 / count,
+		                  uncached / cached);
+
+		double memento = median(iterations, () -> new Memento<Figure>(figures).getState().size());
+		System.out.printf("%-24s %10.3f ms (%7.0f clones/ms)%n",
+		                  "memento creation",
+		                  memento,
+		                  count / memento);
+	}
+
+	/**
+	 * Median time of a run after as many warmup runs
+	 * @param iterations the number of warmup and measured runs
+	 * @param run the run to measure (returning a value so it can't be
+	 * optimized away)
+	 * @return the median time in ms
+	 */
+	private static double median(int iterations, IntSupplier run)
+	{
+		long checksum = 0;
+		for (int i = 0; i < iterations; i++)
+		{
+			checksum += run.getAsInt();
+		}
+		double[] times = new double[iterations];
+		for (int i = 0; i < iterations; i++)
+		{
+			long start = System.nanoTime();
+			checksum += run.getAsInt();
+			times[i] = (System.nanoTime() - start) / 1e6;
+		}
+		if (checksum == 0)
+		{
+			System.out.println("nothing measured");
+		}
+		Arrays.sort(times);
+		return times[iterations / 2];
+	}
+}
@@ -0,0 +1,290 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import figures.Circle;
+import figures.Ellipse;
+import figures.Figure;
+import figures.FigureStyle;
+import figures.Polygon;
+import figures.Rectangle;
+import figures.Rounded_Rectangle;
+import figures.enums.LineType;
+import history.Memento;
+import javafx.scene.Group;
+import javafx.scene.paint.Color;
+import logger.LoggerFactory;
+import metrics.MemoryFootprint;
+import utils.ColorFactory;
+import utils.IconFactory;
+import utils.StrokeFactory;
+
+/**
+ * Measurement of the retained heap of figures and {@link Memento}s by object
+ * graph walking (with {@link MemoryFootprint}).
+ * For each type of figure, measures
+ * <ul>
+ * <li>the first figure alone (including objects shared by all figures but
+ * created with the first one)</li>
+ * <li>the average retained size per figure over many figures (so that
+ * shared objects are amortized), and its breakdown into the JavaFX
+ * {@link javafx.scene.shape.Shape}, the {@link javafx.scene.Group} root,
+ * the selection {@link javafx.scene.shape.Rectangle} (when figures are
+ * selected) and the figure itself. Styles, colors and strokes are shared
+ * flyweights (measured separately) and loggers are shared per class, so
+ * figures only retain a reference to them</li>
+ * </ul>
+ * then measures the retained size of {@link Memento}s of increasing numbers
+ * of figures.
+ * Usage: {@code FootprintBenchmark [figures count] [-v]} where -v details
+ * the classes with the largest footprints.
+ * @implNote Estimations are more precise when JDK collections can be
+ * walked: run with
+ * {@code --add-opens java.base/java.util=ALL-UNNAMED --add-opens java.base/java.lang=ALL-UNNAMED}
+ * (the number of opaque objects which could not be walked is reported)
+ */
+public class FootprintBenchmark
+{
+	/**
+	 * Default number of figures per type
+	 */
+	private static final int DEFAULT_COUNT = 1000;
+
+	/**
+	 * Numbers of figures of measured mementos
+	 */
+	private static final int[] MEMENTO_SIZES = new int[] {1, 10, 100, 1000, 10000};
+
+	/**
+	 * Number of classes detailed in verbose mode
+	 */
+	private static final int TOP_CLASSES = 8;
+
+	/**
+	 * Silent parent logger of figures
+	 */
+	private static final Logger LOGGER =
+	    LoggerFactory.getParentLogger(FootprintBenchmark.class, null, Level.OFF);
+
+	/**
+	 * Benchmark main
+	 * @param args optional figures count and -v
+	 */
+	public static void main(String[] args)
+	{
+		int count = DEFAULT_COUNT;
+		boolean verbose = false;
+		for (String arg : args)
+		{
+			if (arg.equals("-v"))
+			{
+				verbose = true;
+			}
+			else
+			{
+				count = Integer.parseInt(arg);
+			}
+		}
+		System.out.printf("object layout: %d bytes headers, %d bytes references, %d bytes alignment%n",
+		                  MemoryFootprint.OBJECT_HEADER,
+		                  MemoryFootprint.REFERENCE_SIZE,
+		                  MemoryFootprint.ALIGNMENT);
+		System.out.printf("%d figures per type%n%n", count);
+
+		System.out.printf("%-18s %10s %10s %10s %10s %10s %10s %8s%n",
+		                  "figure",
+		                  "first",
+		                  "average",
+		                  "shape",
+		                  "group",
+		                  "figure",
+		                  "selection",
+		                  "opaque");
+		measure("Circle", count, verbose, i -> new Circle(Color.RED,
+		                                                  Color.BLACK,
+		                                                  LineType.SOLID,
+		                                                  1,
+		                                                  LOGGER,
+		                                                  x(i),
+		                                                  y(i)));
+		measure("Ellipse", count, verbose, i -> new Ellipse(Color.GREEN,
+		                                                    Color.BLACK,
+		                                                    LineType.SOLID,
+		                                                    1,
+		                                                    LOGGER,
+		                                                    x(i),
+		                                                    y(i)));
+		measure("Rectangle", count, verbose, i -> new Rectangle(Color.BLUE,
+		                                                        Color.BLACK,
+		                                                        LineType.SOLID,
+		                                                        1,
+		                                                        LOGGER,
+		                                                        x(i),
+		                                                        y(i)));
+		measure("Rounded_Rectangle", count, verbose, i -> new Rounded_Rectangle(Color.YELLOW,
+		                                                                        Color.BLACK,
+		                                                                        LineType.SOLID,
+		                                                                        1,
+		                                                                        LOGGER,
+		                                                                        x(i),
+		                                                                        y(i)));
+		measure("Polygon", count, verbose, i -> new Polygon(Color.CYAN,
+		                                                    Color.BLACK,
+		                                                    LineType.SOLID,
+		                                                    1,
+		                                                    LOGGER,
+		                                                    x(i),
+		                                                    y(i)));
+
+		System.out.printf("%n%-18s %10s %10s %10s %8s%n",
+		                  "memento",
+		                  "total",
+		                  "per figure",
+		                  "list",
+		                  "opaque");
+		for (int size : MEMENTO_SIZES)
+		{
+			List<Figure> figures = new ArrayList<>(size);
+			for (int i = 0; i < size; i++)
+			{
+				figures.add(new Circle(Color.RED, Color.BLACK, LineType.SOLID, 1, LOGGER, x(i), y(i)));
+			}
+			Memento<Figure> memento = new Memento<Figure>(figures);
+			MemoryFootprint footprint = newFootprint(null);
+			for (Figure figure : memento.getState())
+			{
+				footprint.add(figure);
+			}
+			long clones = footprint.getBytes();
+			footprint.add(memento);
+			System.out.printf("%-18s %10s %10s %10s %8d%n",
+			                  size + " figures",
+			                  MemoryFootprint.formatBytes(footprint.getBytes()),
+			                  MemoryFootprint.formatBytes(footprint.getBytes() / size),
+			                  MemoryFootprint.formatBytes(footprint.getBytes() - clones),
+			                  footprint.getOpaqueObjects());
+			if (verbose)
+			{
+				System.out.println(footprint.summary(TOP_CLASSES));
+			}
+		}
+
+		MemoryFootprint caches = new MemoryFootprint();
+		System.out.printf("%nflyweight caches: colors %s (%d), strokes %s (%d), styles %s (%d), icons %s (%d)%n",
+		                  MemoryFootprint.formatBytes(caches.add(ColorFactory.getCache())),
+		                  ColorFactory.getCache().size(),
+		                  MemoryFootprint.formatBytes(caches.add(StrokeFactory.getCache())),
+		                  StrokeFactory.getCache().size(),
+		                  MemoryFootprint.formatBytes(caches.add(FigureStyle.getCache())),
+		                  FigureStyle.getCache().size(),
+		                  MemoryFootprint.formatBytes(caches.add(IconFactory.getCache())),
+		                  IconFactory.getCache().size());
+	}
+
+	/**
+	 * Measures figures of a type and prints their footprint
+	 * @param name the name of the type of figures
+	 * @param count the number of figures to measure
+	 * @param verbose true to print the classes with the largest footprints
+	 * @param factory the factory of figures of this type
+	 */
+	private static void measure(String name,
+	                            int count,
+	                            boolean verbose,
+	                            IntFunction<Figure> factory)
+	{
+		List<Figure> figures = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			figures.add(factory.apply(i));
+		}
+
+		MemoryFootprint first = newFootprint(null);
+		first.add(figures.get(0));
+
+		/*
+		 * Shapes reference their parent group: shapes are measured without
+		 * groups, then groups with their shapes, then whole figures
+		 */
+		MemoryFootprint shapes = newFootprint(object -> object instanceof Group);
+		MemoryFootprint groups = newFootprint(null);
+		MemoryFootprint footprint = newFootprint(null);
+		for (Figure figure : figures)
+		{
+			shapes.add(figure.getShape());
+			groups.add(figure.getRoot());
+			footprint.add(figure);
+		}
+
+		/*
+		 * Selection rectangles can only be created for figures having a
+		 * location (which is not yet the case of polygons)
+		 */
+		String selection = "-";
+		if (figures.get(0).topLeft() != null)
+		{
+			MemoryFootprint selected = newFootprint(null);
+			for (Figure figure : figures)
+			{
+				figure.setSelected(true);
+				selected.add(figure);
+			}
+			selection = MemoryFootprint.formatBytes((selected.getBytes() - footprint.getBytes()) / count);
+		}
+
+		System.out.printf("%-18s %10s %10s %10s %10s %10s %10s %8d%n",
+		                  name,
+		                  MemoryFootprint.formatBytes(first.getBytes()),
+		                  MemoryFootprint.formatBytes(footprint.getBytes() / count),
+		                  MemoryFootprint.formatBytes(shapes.getBytes() / count),
+		                  MemoryFootprint.formatBytes((groups.getBytes() - shapes.getBytes()) / count),
+		                  MemoryFootprint.formatBytes((footprint.getBytes() - groups.getBytes()) / count),
+		                  selection,
+		                  footprint.getOpaqueObjects());
+		if (verbose)
+		{
+			System.out.println(footprint.summary(TOP_CLASSES));
+		}
+	}
+
+	/**
+	 * Creates a footprint excluding flyweight caches (whose elements are
+	 * shared by all figures)
+	 * @param excluded predicate indicating other objects to exclude (or null)
+	 * @return a new footprint
+	 */
+	private static MemoryFootprint newFootprint(Predicate<Object> excluded)
+	{
+		MemoryFootprint footprint = new MemoryFootprint(excluded);
+		footprint.excludeReachable(ColorFactory.getCache());
+		footprint.excludeReachable(StrokeFactory.getCache());
+		footprint.excludeReachable(FigureStyle.getCache());
+		footprint.excludeReachable(IconFactory.getCache());
+		return footprint;
+	}
+
+	/**
+	 * X coordinate of the ith figure
+	 * @param i the index of the figure
+	 * @return the x coordinate of the figure
+	 */
+	private static double x(int i)
+	{
+		return (i * 37) % 1000;
+	}
+
+	/**
+	 * Y coordinate of the ith figure
+	 * @param i the index of the figure
+	 * @return the y coordinate of the figure
+	 */
+	private static double y(int i)
+	{
+		return (i * 53) % 700;
+	}
+}
@@ -0,0 +1,176 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import figures.enums.FigureType;
+import figures.enums.LineType;
+import figures.io.ChunkedDrawingFile;
+import figures.io.FigureRecord;
+import figures.io.ParallelDrawingLoader;
+
+/**
+ * Benchmark of drawing files decoding.
+ * Generates a drawing file containing a large number of random figures, then
+ * measures
+ * <ul>
+ * <li>single threaded decoding with {@link ChunkedDrawingFile#readAll()}
+ * (baseline)</li>
+ * <li>parallel decoding with
+ * {@link ParallelDrawingLoader#decode(ChunkedDrawingFile, ForkJoinPool)} on
+ * pools of 1, 2, 4 and 8 threads</li>
+ * </ul>
+ * and reports the median time of each and its speedup versus the baseline.
+ * Usage: {@code LoadBenchmark [figures count] [iterations]}
+ */
+public class LoadBenchmark
+{
+	/**
+	 * Default number of figures in the generated file
+	 */
+	private static final int DEFAULT_COUNT = 1000000;
+
+	/**
+	 * Default number of measured iterations (after as many warmup iterations)
+	 */
+	private static final int DEFAULT_ITERATIONS = 10;
+
+	/**
+	 * Parallelism levels to measure
+	 */
+	private static final int[] THREADS = {1, 2, 4, 8};
+
+	/**
+	 * Benchmark main
+	 * @param args optional figures count and iterations
+	 * @throws IOException if the benchmark file can't be written or read
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		int count = (args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_COUNT);
+		int iterations = (args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS);
+		Path path = Files.createTempFile("load-benchmark", ".figs");
+		try
+		{
+			FigureRecord[] records = randomRecords(count, 42L);
+			ChunkedDrawingFile.write(path, count, 1024, (int i) -> records[i]);
+			System.out.printf("%d figures (%d MB), %d iterations, %d cores%n",
+			                  count,
+			                  Files.size(path) >> 20,
+			                  iterations,
+			                  Runtime.getRuntime().availableProcessors());
+
+			try (ChunkedDrawingFile file = new ChunkedDrawingFile(path))
+			{
+				double baseline = median(iterations, () -> file.readAll());
+				System.out.printf("%-12s %10.2f ms%n", "sequential", baseline);
+				for (int threads : THREADS)
+				{
+					ForkJoinPool pool = new ForkJoinPool(threads);
+					try
+					{
+						double time = median(iterations,
+						                     () -> ParallelDrawingLoader.decode(file, pool));
+						System.out.printf("%-12s %10.2f ms  speedup x%.2f%n",
+						                  threads + " thread(s)",
+						                  time,
+						                  baseline / time);
+					}
+					finally
+					{
+						pool.shutdown();
+					}
+				}
+			}
+		}
+		finally
+		{
+			Files.deleteIfExists(path);
+		}
+	}
+
+	/**
+	 * Generates random records
+	 * @param count the number of records to generate
+	 * @param seed the random seed
+	 * @return an array of count random records
+	 */
+	static FigureRecord[] randomRecords(int count, long seed)
+	{
+		Random random = new Random(seed);
+		FigureType[] types = {FigureType.CIRCLE,
+		                      FigureType.ELLIPSE,
+		                      FigureType.RECTANGLE,
+		                      FigureType.ROUNDED_RECTANGLE};
+		LineType[] lines = LineType.values();
+		FigureRecord[] records = new FigureRecord[count];
+		for (int i = 0; i < count; i++)
+		{
+			records[i] = new FigureRecord(types[random.nextInt(types.length)],
+			                              random.nextInt() | 0xFF000000,
+			                              random.nextInt() | 0xFF000000,
+			                              1 + random.nextInt(8),
+			                              lines[random.nextInt(lines.length)],
+			                              1 + random.nextInt(3),
+			                              random.nextDouble() * 4000.0,
+			                              random.nextDouble() * 4000.0,
+			                              1.0 + (random.nextDouble() * 100.0),
+			                              1.0 + (random.nextDouble() * 100.0),
+			                              0.0,
+			                              0.0,
+			                              0.0,
+			                              1.0,
+			                              1.0);
+		}
+		return records;
+	}
+
+	/**
+	 * Decoding to measure
+	 */
+	@FunctionalInterface
+	interface Decoding
+	{
+		/**
+		 * Decodes records
+		 * @return the decoded records
+		 * @throws IOException if decoding fails
+		 */
+		List<FigureRecord> decode() throws IOException;
+	}
+
+	/**
+	 * Median time of a decoding after as many warmup runs
+	 * @param iterations the number of warmup and measured runs
+	 * @param decoding the decoding to measure
+	 * @return the median time in ms
+	 * @throws IOException if decoding fails
+	 */
+	private static double median(int iterations, Decoding decoding)
+	    throws IOException
+	{
+		long checksum = 0;
+		for (int i = 0; i < iterations; i++)
+		{
+			checksum += decoding.decode().size();
+		}
+		double[] times = new double[iterations];
+		for (int i = 0; i < iterations; i++)
+		{
+			long start = System.nanoTime();
+			checksum += decoding.decode().size();
+			times[i] = (System.nanoTime() - start) / 1e6;
+		}
+		if (checksum == 0)
+		{
+			System.out.println("nothing decoded");
+		}
+		Arrays.sort(times);
+		return times[iterations / 2];
+	}
+}
@@ -0,0 +1,218 @@
+package benchmarks;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import figures.Figure;
+import figures.enums.FigureType;
+import figures.enums.LineType;
+import figures.io.FigureRecord;
+import figures.io.FigureRecords;
+import figures.store.FigureStore;
+import figures.store.OcclusionCuller;
+import logger.LoggerFactory;
+
+/**
+ * Benchmark of occlusion culling over dense drawings of increasing sizes
+ * (with a constant density of figures): full pass versus incremental passes
+ * after moving a single row, moving a row in z-order, inserting a row or
+ * deleting rows in the middle of the drawing (rows have figures so the
+ * culler matches them by identity, as with the editor's drawing).
+ * Results of incremental passes are checked against full passes of the same
+ * stores.
+ * Usage: {@code OcclusionBenchmark [max figures count] [threads]}
+ */
+public class OcclusionBenchmark
+{
+	/**
+	 * Default max number of figures
+	 */
+	private static final int DEFAULT_MAX_COUNT = 100000;
+
+	/**
+	 * Mean number of figures per 1000 x 1000 area
+	 */
+	private static final double DENSITY = 2000.0;
+
+	/**
+	 * Number of incremental passes measured per size
+	 */
+	private static final int EDITS = 20;
+
+	/**
+	 * Silent parent logger of figures
+	 */
+	private static final Logger LOGGER =
+	    LoggerFactory.getParentLogger(OcclusionBenchmark.class, null, Level.OFF);
+
+	/**
+	 * Benchmark main
+	 * @param args optional max figures count and number of threads
+	 */
+	public static void main(String[] args)
+	{
+		int maxCount = (args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MAX_COUNT);
+		int threads = (args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors());
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		System.out.printf("%d threads%n", threads);
+		System.out.printf("%10s %10s %12s %12s %12s %12s %12s %12s%n",
+		                  "figures", "hidden", "full ms", "move ms", "z-order ms",
+		                  "insert ms", "delete ms", "tested rows");
+		for (int count = 1000; count <= maxCount; count *= 10)
+		{
+			for (int factor : new int[] {1, 5})
+			{
+				int size = count * factor;
+				if (size > maxCount)
+				{
+					break;
+				}
+				FigureStore store = createStore(size);
+				OcclusionCuller culler = new OcclusionCuller(pool);
+				long start = System.nanoTime();
+				BitSet hidden = culler.cull(store);
+				double full = (System.nanoTime() - start) / 1e6;
+
+				Random random = new Random(size);
+				double side = side(size);
+				long[] elapsed = new long[4];
+				long tested = 0;
+				for (int i = 0; i < EDITS; i++)
+				{
+					for (int edit = 0; edit < elapsed.length; edit++)
+					{
+						store = store.copy();
+						edit(store, edit, random, side);
+						start = System.nanoTime();
+						hidden = culler.update(store);
+						elapsed[edit] += System.nanoTime() - start;
+						tested += culler.getTestedRows();
+					}
+				}
+				if (!hidden.equals(new OcclusionCuller(pool).cull(store)))
+				{
+					System.out.println("incremental and full passes differ");
+				}
+				System.out.printf("%10d %10d %12.1f %12.2f %12.2f %12.2f %12.2f %12d%n",
+				                  size,
+				                  hidden.cardinality(),
+				                  full,
+				                  elapsed[0] / (EDITS * 1e6),
+				                  elapsed[1] / (EDITS * 1e6),
+				                  elapsed[2] / (EDITS * 1e6),
+				                  elapsed[3] / (EDITS * 1e6),
+				                  tested / (elapsed.length * EDITS));
+			}
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Edits a store the way the editor does: moves a row of the top tenth
+	 * of the drawing (0), moves a row in z-order (1), inserts a row (2) or
+	 * deletes a few rows (3) in the middle of the drawing
+	 * @param store the store to edit
+	 * @param edit the kind of edit
+	 * @param random the random generator
+	 * @param side the side of the area containing rows
+	 */
+	private static void edit(FigureStore store, int edit, Random random, double side)
+	{
+		int size = store.size();
+		int middle = size / 2;
+		switch (edit)
+		{
+			case 0:
+			{
+				int row = size - 1 - random.nextInt(Math.max(1, size / 10));
+				Figure figure = store.getFigure(row, LOGGER);
+				figure.getRoot().setTranslateX(figure.getRoot().getTranslateX()
+				    + (random.nextDouble() * 100.0) - 50.0);
+				figure.getRoot().setTranslateY(figure.getRoot().getTranslateY()
+				    + (random.nextDouble() * 100.0) - 50.0);
+				store.set(row, figure);
+				break;
+			}
+			case 1:
+			{
+				Figure figure = store.getFigure(middle, LOGGER);
+				store.remove(middle);
+				store.add(middle + random.nextInt(size / 4), figure);
+				break;
+			}
+			case 2:
+				store.add(middle, FigureRecords.toFigure(createRecord(random, side, size), LOGGER));
+				break;
+			default:
+			{
+				BitSet rows = new BitSet(size);
+				for (int i = 0; i < 4; i++)
+				{
+					rows.set(middle + random.nextInt(size / 4));
+				}
+				store.removeAll(rows);
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Side of the square area containing a number of figures at
+	 * {@link #DENSITY}
+	 * @param count the number of figures
+	 * @return the side of the area
+	 */
+	private static double side(int count)
+	{
+		return 1000.0 * Math.sqrt(count / DENSITY);
+	}
+
+	/**
+	 * Creates a store of rows of all rectangular kinds randomly scattered
+	 * over a square area whose size keeps a constant density, most of them
+	 * opaque and some of them rotated, with their figures
+	 * @param count the number of rows
+	 * @return a new store of count rows
+	 */
+	private static FigureStore createStore(int count)
+	{
+		Random random = new Random(count);
+		double side = side(count);
+		FigureStore store = new FigureStore(count);
+		for (int i = 0; i < count; i++)
+		{
+			store.add(FigureRecords.toFigure(createRecord(random, side, i), LOGGER));
+		}
+		return store;
+	}
+
+	/**
+	 * Creates a random record, opaque three times out of four
+	 * @param random the random generator
+	 * @param side the side of the area containing records
+	 * @param i the index of the record
+	 * @return a new random record
+	 */
+	private static FigureRecord createRecord(Random random, double side, int i)
+	{
+		int alpha = (i % 4 == 0 ? 0x80000000 : 0xFF000000);
+		return new FigureRecord(FigureType.values()[i % 4],
+		                        alpha | (random.nextInt() & 0xFFFFFF),
+		                        0xFF000000,
+		                        1.0f,
+		                        LineType.SOLID,
+		                        FigureRecord.HAS_FILL | FigureRecord.HAS_EDGE,
+		                        random.nextDouble() * side,
+		                        random.nextDouble() * side,
+		                        10 + random.nextInt(60),
+		                        10 + random.nextInt(60),
+		                        0,
+		                        0,
+		                        (i % 5 == 0 ? random.nextInt(360) : 0),
+		                        1,
+		                        1);
+	}
+}
@@ -0,0 +1,346 @@
+package benchmarks;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import figures.enums.FigureType;
+import figures.enums.LineType;
+import figures.io.FigureRecord;
+import figures.render.TiledRasterizer;
+import figures.store.FigureStore;
+import figures.store.OffHeapFigureStore;
+
+/**
+ * Benchmark of GC pauses with very large drawings kept on the heap (as
+ * {@link FigureRecord}s or in a {@link FigureStore}) or off the heap (in an
+ * {@link OffHeapFigureStore} in direct memory or in a memory mapped file).
+ * For each storage, fills the storage with the same rows, then runs an
+ * allocation churn (short lived objects and a ring of medium lived records,
+ * as an editor allocates while the drawing is displayed) and reports
+ * young/mixed GC pauses during the churn and the pause of a full GC, then
+ * the time to compute bounds, select rows visible through a viewport and
+ * load them (to materialize them as figures).
+ * Usage: {@code OffHeapBenchmark [rows count] [churn MB]}
+ * @implNote Run with a heap large enough to contain on heap storages (e.g.
+ * -Xmx3g for 4M rows) and enough direct memory for the off-heap storage
+ * (-XX:MaxDirectMemorySize)
+ */
+public class OffHeapBenchmark
+{
+	/**
+	 * Default number of rows
+	 */
+	private static final int DEFAULT_COUNT = 2000000;
+
+	/**
+	 * Default amount of memory allocated by the churn (in MB)
+	 */
+	private static final int DEFAULT_CHURN = 4096;
+
+	/**
+	 * Number of records in the ring of medium lived records of the churn
+	 */
+	private static final int RING = 1 << 16;
+
+	/**
+	 * Drawing area width and height
+	 */
+	private static final double AREA = 100000.0;
+
+	/**
+	 * Viewport of the editor (in drawing coordinates)
+	 */
+	private static final Rectangle2D VIEWPORT =
+	    new Rectangle2D.Double(AREA / 2, AREA / 2, 1600, 1000);
+
+	/**
+	 * Sum of pauses (in ms) of GCs since last reset
+	 */
+	private static final AtomicLong PAUSES = new AtomicLong();
+
+	/**
+	 * Longest pause (in ms) since last reset
+	 */
+	private static final AtomicLong MAX_PAUSE = new AtomicLong();
+
+	/**
+	 * Pause (in ms) of the last GC
+	 */
+	private static final AtomicLong LAST_PAUSE = new AtomicLong();
+
+	/**
+	 * Number of GCs since last reset
+	 */
+	private static final AtomicLong COUNT = new AtomicLong();
+
+	/**
+	 * Benchmark main
+	 * @param args optional rows count and churn size
+	 * @throws IOException if the mapped file can't be created
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		int count = (args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_COUNT);
+		long churn = (args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_CHURN) << 20;
+		listenGCs();
+		System.out.printf("%d rows, %d MB churn, max heap %d MB%n",
+		                  count,
+		                  churn >> 20,
+		                  Runtime.getRuntime().maxMemory() >> 20);
+		System.out.printf("%-10s %9s %6s %10s %10s %10s %10s %10s %10s%n",
+		                  "storage", "fill (ms)", "GCs", "total (ms)", "max (ms)",
+		                  "full (ms)", "bounds", "select", "load");
+
+		List<FigureRecord> records = new ArrayList<>(count);
+		long start = System.nanoTime();
+		for (int i = 0; i < count; i++)
+		{
+			records.add(createRecord(i));
+		}
+		double fill = (System.nanoTime() - start) / 1e6;
+		report("records", fill, churn, () -> TiledRasterizer.boundsOf(records), () -> {
+			BitSet visible = new BitSet();
+			for (int i = 0; i < records.size(); i++)
+			{
+				FigureRecord record = records.get(i);
+				if (VIEWPORT.intersects(record.getX() + record.getTranslateX(),
+				                        record.getY() + record.getTranslateY(),
+				                        record.getWidth(),
+				                        record.getHeight()))
+				{
+					visible.set(i);
+				}
+			}
+			return visible;
+		}, null);
+		records.clear();
+		((ArrayList<FigureRecord>) records).trimToSize();
+
+		start = System.nanoTime();
+		FigureStore store = new FigureStore(count);
+		for (int i = 0; i < count; i++)
+		{
+			store.add(createRecord(i));
+		}
+		fill = (System.nanoTime() - start) / 1e6;
+		report("heap store", fill, churn, store::bounds, () -> {
+			BitSet visible = new BitSet();
+			for (int i = 0; i < store.size(); i++)
+			{
+				if (VIEWPORT.intersects(store.getX(i) + store.getTranslateX(i),
+				                        store.getY(i) + store.getTranslateY(i),
+				                        store.getWidth(i),
+				                        store.getHeight(i)))
+				{
+					visible.set(i);
+				}
+			}
+			return visible;
+		}, null);
+		store.clear();
+
+		start = System.nanoTime();
+		try (OffHeapFigureStore direct = OffHeapFigureStore.allocate())
+		{
+			for (int i = 0; i < count; i++)
+			{
+				direct.add(createRecord(i));
+			}
+			fill = (System.nanoTime() - start) / 1e6;
+			report("direct", fill, churn, direct::bounds, () -> direct.select(VIEWPORT), direct);
+		}
+
+		Path file = Files.createTempFile("figures", ".rows");
+		try (OffHeapFigureStore mapped = OffHeapFigureStore.mapped(file))
+		{
+			start = System.nanoTime();
+			for (int i = 0; i < count; i++)
+			{
+				mapped.add(createRecord(i));
+			}
+			fill = (System.nanoTime() - start) / 1e6;
+			report("mapped", fill, churn, mapped::bounds, () -> mapped.select(VIEWPORT), mapped);
+		}
+		finally
+		{
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * Runs the churn and operations on a storage and prints a report line
+	 * @param storage the name of the storage
+	 * @param fill the time to fill the storage (in ms)
+	 * @param churn the number of bytes to allocate during the churn
+	 * @param bounds computation of the bounds of all rows
+	 * @param select selection of the rows visible through the viewport
+	 * @param offHeap the off-heap store to load visible rows from (or null)
+	 */
+	private static void report(String storage,
+	                           double fill,
+	                           long churn,
+	                           Supplier<Rectangle2D> bounds,
+	                           Supplier<BitSet> select,
+	                           OffHeapFigureStore offHeap)
+	{
+		fullGC();
+		reset();
+		churn(churn);
+		long gcs = COUNT.get();
+		long total = PAUSES.get();
+		long max = MAX_PAUSE.get();
+		fullGC();
+		long full = LAST_PAUSE.get();
+
+		bounds.get();
+		long start = System.nanoTime();
+		Rectangle2D rectangle = bounds.get();
+		double boundsTime = (System.nanoTime() - start) / 1e6;
+		select.get();
+		start = System.nanoTime();
+		BitSet visible = select.get();
+		double selectTime = (System.nanoTime() - start) / 1e6;
+		String load = "-";
+		if (offHeap != null)
+		{
+			start = System.nanoTime();
+			FigureStore loaded = offHeap.load(visible);
+			load = String.format("%.3f", (System.nanoTime() - start) / 1e6);
+			offHeap.store(visible, loaded);
+		}
+		System.out.printf("%-10s %9.1f %6d %10d %10d %10d %10.1f %10.1f %10s (%d visible, %.0f wide)%n",
+		                  storage,
+		                  fill,
+		                  gcs,
+		                  total,
+		                  max,
+		                  full,
+		                  boundsTime,
+		                  selectTime,
+		                  load,
+		                  visible.cardinality(),
+		                  rectangle.getWidth());
+	}
+
+	/**
+	 * Allocates short lived arrays and medium lived records replacing each
+	 * other in a ring
+	 * @param bytes the number of bytes to allocate
+	 */
+	private static void churn(long bytes)
+	{
+		FigureRecord[] ring = new FigureRecord[RING];
+		long allocated = 0;
+		long checksum = 0;
+		for (int i = 0; allocated < bytes; i++)
+		{
+			byte[] garbage = new byte[1024];
+			garbage[i & 1023] = (byte) i;
+			checksum += garbage[(i * 7) & 1023];
+			ring[i & (RING - 1)] = createRecord(i);
+			allocated += 1024 + 128;
+		}
+		if (checksum == 42)
+		{
+			System.out.println(ring[0]);
+		}
+	}
+
+	/**
+	 * Creates a record scattered over the drawing area
+	 * @param i the index of the record
+	 * @return a new record
+	 */
+	private static FigureRecord createRecord(int i)
+	{
+		double x = ((i * 7919L) % 100000L) * (AREA / 100000.0);
+		double y = ((i * 104729L) % 99991L) * (AREA / 99991.0);
+		return new FigureRecord(FigureType.values()[i % 4],
+		                        0xFF000000 | (i & 0xFFFFFF),
+		                        0xFF000000,
+		                        1.0f,
+		                        LineType.SOLID,
+		                        FigureRecord.HAS_FILL | FigureRecord.HAS_EDGE,
+		                        x,
+		                        y,
+		                        10 + (i % 50),
+		                        10 + (i % 30),
+		                        0,
+		                        0,
+		                        0,
+		                        1,
+		                        1);
+	}
+
+	/**
+	 * Runs a full GC and waits for its notification
+	 */
+	private static void fullGC()
+	{
+		long count = COUNT.get();
+		System.gc();
+		try
+		{
+			for (int i = 0; (i < 100) && (COUNT.get() == count); i++)
+			{
+				Thread.sleep(10);
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Resets GC statistics
+	 */
+	private static void reset()
+	{
+		PAUSES.set(0);
+		MAX_PAUSE.set(0);
+		COUNT.set(0);
+	}
+
+	/**
+	 * Registers a listener of GC notifications accumulating GC pauses
+	 */
+	private static void listenGCs()
+	{
+		NotificationListener listener = (Notification notification, Object handback) -> {
+			if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType()))
+			{
+				GarbageCollectionNotificationInfo info =
+				    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+				long duration = info.getGcInfo().getDuration();
+				PAUSES.addAndGet(duration);
+				LAST_PAUSE.set(duration);
+				MAX_PAUSE.accumulateAndGet(duration, Math::max);
+				COUNT.incrementAndGet();
+			}
+		};
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+		{
+			if (bean instanceof NotificationEmitter)
+			{
+				((NotificationEmitter) bean).addNotificationListener(listener, null, null);
+			}
+		}
+	}
+}
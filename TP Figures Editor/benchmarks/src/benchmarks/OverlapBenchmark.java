@@ -0,0 +1,170 @@
+package benchmarks;
+
+import java.awt.geom.Rectangle2D;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import figures.enums.FigureType;
+import figures.enums.LineType;
+import figures.io.FigureRecord;
+import figures.store.FigureStore;
+import figures.store.OverlapFinder;
+
+/**
+ * Benchmark of overlapping figures search over drawings of increasing sizes
+ * (with a constant density of figures, as imported drawings): pairwise
+ * tests of all figures bounds versus {@link OverlapFinder} sweep and prune
+ * on bounds and on exact shapes.
+ * Pairwise tests are skipped above {@link #MAX_PAIRWISE} figures.
+ * Usage: {@code OverlapBenchmark [max figures count] [threads]}
+ */
+public class OverlapBenchmark
+{
+	/**
+	 * Default max number of figures
+	 */
+	private static final int DEFAULT_MAX_COUNT = 1000000;
+
+	/**
+	 * Max number of figures tested pairwise
+	 */
+	private static final int MAX_PAIRWISE = 20000;
+
+	/**
+	 * Mean number of figures per 1000 x 1000 area
+	 */
+	private static final double DENSITY = 500.0;
+
+	/**
+	 * Benchmark main
+	 * @param args optional max figures count and number of threads
+	 */
+	public static void main(String[] args)
+	{
+		int maxCount = (args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MAX_COUNT);
+		int threads = (args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors());
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		OverlapFinder finder = new OverlapFinder(pool);
+		System.out.printf("%d threads%n", threads);
+		System.out.printf("%10s %12s %12s %12s %12s %12s%n",
+		                  "figures", "pairs", "pairwise ms", "bounds ms", "exact pairs", "exact ms");
+		for (int count = 1000; count <= maxCount; count *= 10)
+		{
+			for (int factor : new int[] {1, 5})
+			{
+				int size = count * factor;
+				if (size > maxCount)
+				{
+					break;
+				}
+				FigureStore store = createStore(size);
+				finder.find(store, false);
+
+				String pairwise = "-";
+				if (size <= MAX_PAIRWISE)
+				{
+					long start = System.nanoTime();
+					long pairs = pairwise(store);
+					pairwise = String.format("%.1f", (System.nanoTime() - start) / 1e6);
+					if (pairs != finder.find(store, false).length)
+					{
+						System.out.println("pairs mismatch: " + pairs);
+					}
+				}
+
+				long start = System.nanoTime();
+				long[] pairs = finder.find(store, false);
+				double bounds = (System.nanoTime() - start) / 1e6;
+				start = System.nanoTime();
+				long[] exactPairs = finder.find(store, true);
+				double exact = (System.nanoTime() - start) / 1e6;
+				System.out.printf("%10d %12d %12s %12.1f %12d %12.1f%n",
+				                  size,
+				                  pairs.length,
+				                  pairwise,
+				                  bounds,
+				                  exactPairs.length,
+				                  exact);
+			}
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Counts pairs of overlapping bounds by testing all pairs
+	 * @param store the store containing rows
+	 * @return the number of pairs of rows whose bounds overlap
+	 */
+	private static long pairwise(FigureStore store)
+	{
+		int size = store.size();
+		Rectangle2D[] bounds = new Rectangle2D[size];
+		for (int row = 0; row < size; row++)
+		{
+			bounds[row] = store.bounds(singleton(row));
+		}
+		long pairs = 0;
+		for (int a = 0; a < size; a++)
+		{
+			Rectangle2D boundsA = bounds[a];
+			for (int b = a + 1; b < size; b++)
+			{
+				Rectangle2D boundsB = bounds[b];
+				if ((boundsA.getMinX() <= boundsB.getMaxX())
+				    && (boundsB.getMinX() <= boundsA.getMaxX())
+				    && (boundsA.getMinY() <= boundsB.getMaxY())
+				    && (boundsB.getMinY() <= boundsA.getMaxY()))
+				{
+					pairs++;
+				}
+			}
+		}
+		return pairs;
+	}
+
+	/**
+	 * Set of a single row
+	 * @param row the index of the row
+	 * @return a new set containing only row
+	 */
+	private static BitSet singleton(int row)
+	{
+		BitSet rows = new BitSet(row + 1);
+		rows.set(row);
+		return rows;
+	}
+
+	/**
+	 * Creates a store of rows of all rectangular kinds randomly scattered
+	 * over a square area whose size keeps a constant density, some of them
+	 * rotated
+	 * @param count the number of rows
+	 * @return a new store of count rows
+	 */
+	private static FigureStore createStore(int count)
+	{
+		Random random = new Random(count);
+		double side = 1000.0 * Math.sqrt(count / DENSITY);
+		FigureStore store = new FigureStore(count);
+		for (int i = 0; i < count; i++)
+		{
+			store.add(new FigureRecord(FigureType.values()[i % 4],
+			                           0xFF000000 | random.nextInt(),
+			                           0xFF000000,
+			                           1.0f,
+			                           LineType.SOLID,
+			                           FigureRecord.HAS_FILL | FigureRecord.HAS_EDGE,
+			                           random.nextDouble() * side,
+			                           random.nextDouble() * side,
+			                           10 + random.nextInt(40),
+			                           10 + random.nextInt(40),
+			                           0,
+			                           0,
+			                           (i % 5 == 0 ? random.nextInt(360) : 0),
+			                           1,
+			                           1));
+		}
+		return store;
+	}
+}
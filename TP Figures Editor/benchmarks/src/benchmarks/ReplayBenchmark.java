@@ -0,0 +1,264 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import figures.Circle;
+import figures.Drawing;
+import figures.Ellipse;
+import figures.Figure;
+import figures.Rectangle;
+import figures.Rounded_Rectangle;
+import figures.enums.FigureType;
+import figures.enums.LineType;
+import history.HistoryManager;
+import javafx.application.Platform;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.stage.Stage;
+import logger.LoggerFactory;
+import metrics.LatencyHistogram;
+import tools.replay.Session;
+import tools.replay.SessionPlayer;
+
+/**
+ * Replays a mouse session recorded with the editor's
+ * {@code --record-session <file>} option against tools and drawing model, and
+ * reports per event latencies percentiles.
+ * Each iteration replays the whole session on a new drawing initially
+ * containing as many generated figures as the drawing contained when
+ * recording started (so that recorded targets refer to existing figures),
+ * either detached from the UI (tools directly handle recorded events) or
+ * attached to the UI (events are dispatched through the scene graph of a
+ * shown stage followed by CSS and layout passes).
+ * Usage: {@code ReplayBenchmark <session file> [--ui] [--warmup n]
+ * [--iterations n] [--figures n]}
+ * @implNote Requires a display to start the JavaFX toolkit
+ */
+public class ReplayBenchmark
+{
+	/**
+	 * Default number of warmup replays
+	 */
+	private static final int DEFAULT_WARMUP = 5;
+
+	/**
+	 * Default number of measured replays
+	 */
+	private static final int DEFAULT_ITERATIONS = 20;
+
+	/**
+	 * Size of the history of drawing states
+	 */
+	private static final int HISTORY_SIZE = 32;
+
+	/**
+	 * Silent parent logger of drawings, tools and figures
+	 */
+	private static final Logger LOGGER =
+	    LoggerFactory.getParentLogger(ReplayBenchmark.class, null, Level.OFF);
+
+	/**
+	 * Benchmark main
+	 * @param args session file and options
+	 * @throws IOException if the session file can't be read
+	 * @throws InterruptedException if interrupted while waiting for replays
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		if (args.length < 1)
+		{
+			System.err.println("usage: ReplayBenchmark <session file> [--ui] "
+			    + "[--warmup n] [--iterations n] [--figures n]");
+			System.exit(2);
+		}
+		Session session = Session.read(Paths.get(args[0]));
+		boolean attached = false;
+		int warmup = DEFAULT_WARMUP;
+		int iterations = DEFAULT_ITERATIONS;
+		int figures = session.getInitialFigures();
+		for (int i = 1; i < args.length; i++)
+		{
+			switch (args[i])
+			{
+				case "--ui":
+					attached = true;
+					break;
+				case "--warmup":
+					warmup = Integer.parseInt(args[++i]);
+					break;
+				case "--iterations":
+					iterations = Integer.parseInt(args[++i]);
+					break;
+				case "--figures":
+					figures = Integer.parseInt(args[++i]);
+					break;
+				default:
+					System.err.println("unknown option " + args[i]);
+					System.exit(2);
+			}
+		}
+		System.out.println("session: " + session);
+		System.out.println("mode: " + (attached ? "attached to UI" : "detached from UI")
+		    + ", " + figures + " initial figures, " + warmup + " warmup + "
+		    + iterations + " measured replays");
+
+		CountDownLatch started = new CountDownLatch(1);
+		Platform.startup(started::countDown);
+		started.await();
+
+		CountDownLatch done = new CountDownLatch(1);
+		final boolean ui = attached;
+		final int warmupReplays = warmup;
+		final int measuredReplays = iterations;
+		final int initialFigures = figures;
+		Throwable[] failure = new Throwable[1];
+		Platform.runLater(() -> {
+			try
+			{
+				run(session, ui, warmupReplays, measuredReplays, initialFigures);
+			}
+			catch (Throwable t)
+			{
+				failure[0] = t;
+			}
+			finally
+			{
+				done.countDown();
+			}
+		});
+		done.await();
+		Platform.exit();
+		if (failure[0] != null)
+		{
+			failure[0].printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Runs all replays (on the JavaFX application thread) and prints
+	 * latencies
+	 * @param session the session to replay
+	 * @param attached true to replay attached to the UI
+	 * @param warmup the number of warmup replays
+	 * @param iterations the number of measured replays
+	 * @param figures the number of initial figures of each drawing
+	 */
+	private static void run(Session session,
+	                        boolean attached,
+	                        int warmup,
+	                        int iterations,
+	                        int figures)
+	{
+		Stage stage = null;
+		if (attached)
+		{
+			stage = new Stage();
+			stage.setScene(new Scene(new Pane(), 1024, 768));
+			stage.show();
+		}
+		SessionPlayer player = null;
+		int finalSize = 0;
+		for (int i = 0; i < warmup + iterations; i++)
+		{
+			Pane pane = new Pane();
+			if (stage != null)
+			{
+				stage.getScene().setRoot(pane);
+			}
+			Drawing drawing = createDrawing(pane, figures);
+			ObjectProperty<FigureType> figureType = new SimpleObjectProperty<>(FigureType.RECTANGLE);
+			drawing.bindFigureTypeProperty(figureType);
+			HistoryManager<Figure> history = new HistoryManager<Figure>(drawing, HISTORY_SIZE, LOGGER);
+			player = new SessionPlayer(session,
+			                           drawing,
+			                           figureType,
+			                           SessionPlayer.defaultToolFactory(pane,
+			                                                            drawing,
+			                                                            new Label(),
+			                                                            history,
+			                                                            LOGGER),
+			                           attached);
+			if (i == warmup)
+			{
+				player.resetLatencies();
+			}
+			player.replay();
+			finalSize = drawing.size();
+		}
+		if (stage != null)
+		{
+			stage.close();
+		}
+
+		System.out.println("figures after replay: " + finalSize);
+		System.out.printf("%-28s %s%n", "latencies", "(per replayed event)");
+		for (Map.Entry<String, LatencyHistogram> entry : player.getLatencies().entrySet())
+		{
+			System.out.printf("%-28s %s%n", entry.getKey(), entry.getValue().summary());
+		}
+	}
+
+	/**
+	 * Creates a drawing shown in a list view (as in
+	 * {@link application.Controller}) with drawing properties bound to
+	 * default values
+	 * @param pane the drawing pane
+	 * @param size the number of initial figures
+	 * @return a new drawing containing size generated figures
+	 */
+	private static Drawing createDrawing(Pane pane, int size)
+	{
+		ListView<Figure> listView = new ListView<>();
+		Drawing drawing = new Drawing(pane, listView, LOGGER);
+		listView.setItems(drawing);
+		drawing.bindHasFillColorProperty(new SimpleBooleanProperty(true));
+		drawing.bindFillColorProperty(new SimpleObjectProperty<>(Color.LIGHTBLUE));
+		drawing.bindHasEdgeColorProperty(new SimpleBooleanProperty(true));
+		drawing.bindEdgeColorProperty(new SimpleObjectProperty<>(Color.BLACK));
+		drawing.bindLineTypeProperty(new SimpleObjectProperty<>(LineType.SOLID));
+		drawing.bindLineWidthProperty(new SimpleObjectProperty<>(2.0));
+		List<Figure> figures = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+		{
+			figures.add(createFigure(i));
+		}
+		drawing.setAll(figures);
+		return drawing;
+	}
+
+	/**
+	 * Creates a figure
+	 * @param i the index of the figure (determining its kind and location)
+	 * @return a new figure
+	 */
+	private static Figure createFigure(int i)
+	{
+		double x = (i * 37) % 1000;
+		double y = (i * 53) % 700;
+		switch (i % 4)
+		{
+			case 0:
+				return new Circle(Color.RED, Color.BLACK, LineType.SOLID, 1, LOGGER, x, y);
+			case 1:
+				return new Ellipse(Color.GREEN, Color.BLACK, LineType.SOLID, 1, LOGGER, x, y);
+			case 2:
+				return new Rectangle(Color.BLUE, Color.BLACK, LineType.SOLID, 1, LOGGER, x, y);
+			default:
+				return new Rounded_Rectangle(Color.YELLOW, Color.BLACK, LineType.SOLID, 1, LOGGER, x, y);
+		}
+	}
+}
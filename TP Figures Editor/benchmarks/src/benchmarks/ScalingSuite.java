@@ -0,0 +1,451 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import figures.Circle;
+import figures.Drawing;
+import figures.Ellipse;
+import figures.Figure;
+import figures.Rectangle;
+import figures.Rounded_Rectangle;
+import figures.enums.FigureType;
+import figures.enums.LineType;
+import figures.filters.CompositeFigureFilter;
+import figures.filters.FigureFilters;
+import figures.filters.FigureTypeFilter;
+import history.HistoryManager;
+import javafx.application.Platform;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import logger.LoggerFactory;
+
+/**
+ * Scaling test suite of {@link Drawing} model operations.
+ * Each operation is run over geometrically growing drawing sizes, then the
+ * growth exponent k of its run time t(n) ~ n^k is fitted (least squares fit
+ * of log(t) versus log(n)) and compared to the exponent of the operation's
+ * declared {@link Complexity}. Operations whose fitted exponent exceeds the
+ * declared one by more than a tolerance fail, so that superlinear behaviours
+ * (such as searching a figure in the whole drawing for each figure of the
+ * drawing) are flagged even if each single run looks fast enough.
+ * Measured operations:
+ * <ul>
+ * <li>clearing the selection of a fully selected drawing</li>
+ * <li>adding all figures to an empty drawing (one by one)</li>
+ * <li>moving a figure up in z-order as done by
+ * {@link application.Controller}'s move actions (clearing the drawing and
+ * adding back all figures in their new order)</li>
+ * <li>toggling a figure type filter on the drawing</li>
+ * <li>undo then redo of a drawing state</li>
+ * </ul>
+ * Usage: {@code ScalingSuite [min size] [max size] [tolerance]}
+ * Exits with status 1 if an operation scales worse than declared.
+ * @implNote Requires a display to start the JavaFX toolkit (needed by the
+ * {@link ListView} of the drawing)
+ */
+public class ScalingSuite
+{
+	/**
+	 * Default smallest drawing size
+	 */
+	private static final int DEFAULT_MIN_SIZE = 1000;
+
+	/**
+	 * Default largest drawing size
+	 */
+	private static final int DEFAULT_MAX_SIZE = 16000;
+
+	/**
+	 * Default tolerance on fitted exponents
+	 */
+	private static final double DEFAULT_TOLERANCE = 0.35;
+
+	/**
+	 * Number of measured runs per size
+	 */
+	private static final int RUNS = 5;
+
+	/**
+	 * Number of warmup runs per size
+	 */
+	private static final int WARMUP_RUNS = 2;
+
+	/**
+	 * Silent parent logger of drawings and figures
+	 */
+	private static final Logger LOGGER =
+	    LoggerFactory.getParentLogger(ScalingSuite.class, null, Level.OFF);
+
+	/**
+	 * Declared complexity classes of operations
+	 */
+	public enum Complexity
+	{
+		/**
+		 * O(1)
+		 */
+		CONSTANT(0.0),
+		/**
+		 * O(n)
+		 */
+		LINEAR(1.0),
+		/**
+		 * O(n log n): fitted exponent over a limited range of sizes is
+		 * slightly above 1
+		 */
+		LINEARITHMIC(1.15),
+		/**
+		 * O(n^2)
+		 */
+		QUADRATIC(2.0);
+
+		/**
+		 * Expected growth exponent
+		 */
+		private final double exponent;
+
+		/**
+		 * Constructor
+		 * @param exponent the expected growth exponent
+		 */
+		private Complexity(double exponent)
+		{
+			this.exponent = exponent;
+		}
+
+		/**
+		 * Expected growth exponent accessor
+		 * @return the expected growth exponent
+		 */
+		public double getExponent()
+		{
+			return exponent;
+		}
+	}
+
+	/**
+	 * A measured operation: prepares the state of a run (not measured) and
+	 * provides the operation to measure on this state
+	 */
+	private static class Operation
+	{
+		/**
+		 * Operation name
+		 */
+		final String name;
+
+		/**
+		 * Declared complexity
+		 */
+		final Complexity complexity;
+
+		/**
+		 * Prepares a run for a drawing size and provides the operation to
+		 * measure
+		 */
+		final IntFunction<Runnable> preparation;
+
+		/**
+		 * Constructor
+		 * @param name the operation name
+		 * @param complexity the declared complexity
+		 * @param preparation the run preparation
+		 */
+		Operation(String name, Complexity complexity, IntFunction<Runnable> preparation)
+		{
+			this.name = name;
+			this.complexity = complexity;
+			this.preparation = preparation;
+		}
+	}
+
+	/**
+	 * Suite main
+	 * @param args optional min size, max size and tolerance
+	 * @throws InterruptedException if interrupted while waiting for the
+	 * JavaFX toolkit to start
+	 */
+	public static void main(String[] args) throws InterruptedException
+	{
+		int minSize = (args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MIN_SIZE);
+		int maxSize = (args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAX_SIZE);
+		double tolerance = (args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE);
+		List<Integer> sizes = new ArrayList<>();
+		for (int size = minSize; size <= maxSize; size *= 2)
+		{
+			sizes.add(size);
+		}
+		if (sizes.size() < 3)
+		{
+			System.err.println("at least 3 sizes are required to fit growth");
+			System.exit(2);
+		}
+
+		CountDownLatch started = new CountDownLatch(1);
+		Platform.startup(started::countDown);
+		started.await();
+
+		List<Operation> operations = List.of(
+			new Operation("clear selection", Complexity.LINEAR, ScalingSuite::prepareClearSelection),
+			new Operation("bulk add", Complexity.LINEAR, ScalingSuite::prepareBulkAdd),
+			new Operation("z-order move", Complexity.LINEAR, ScalingSuite::prepareMove),
+			new Operation("filter toggle", Complexity.LINEAR, ScalingSuite::prepareFilter),
+			new Operation("undo / redo", Complexity.LINEAR, ScalingSuite::prepareUndoRedo));
+
+		System.out.printf("sizes %s, tolerance %.2f%n", sizes, tolerance);
+		StringBuilder header = new StringBuilder(String.format("%-16s %-12s", "operation", "declared"));
+		for (int size : sizes)
+		{
+			header.append(String.format(" %10s", "n=" + size));
+		}
+		header.append(String.format(" %8s  %s", "fitted", "status"));
+		System.out.println(header);
+
+		int failures = 0;
+		for (Operation operation : operations)
+		{
+			double[] times = new double[sizes.size()];
+			StringBuilder line = new StringBuilder(String.format("%-16s %-12s",
+			                                                     operation.name,
+			                                                     operation.complexity));
+			for (int i = 0; i < times.length; i++)
+			{
+				times[i] = measure(operation, sizes.get(i));
+				line.append(String.format(" %8.3fms", times[i]));
+			}
+			double exponent = fitExponent(sizes, times);
+			boolean failed = exponent > operation.complexity.getExponent() + tolerance;
+			if (failed)
+			{
+				failures++;
+			}
+			line.append(String.format(" %8.2f  %s", exponent, failed ? "FAIL" : "ok"));
+			System.out.println(line);
+		}
+
+		Platform.exit();
+		if (failures > 0)
+		{
+			System.out.println(failures + " operation(s) scale worse than declared");
+			System.exit(1);
+		}
+		System.out.println("all operations scale as declared");
+	}
+
+	/**
+	 * Median time of an operation for a drawing size
+	 * @param operation the operation to measure
+	 * @param size the drawing size
+	 * @return the median time (in ms) of {@link #RUNS} runs (after
+	 * {@link #WARMUP_RUNS} warmup runs)
+	 */
+	private static double measure(Operation operation, int size)
+	{
+		double[] times = new double[RUNS];
+		for (int i = 0; i < WARMUP_RUNS + RUNS; i++)
+		{
+			Runnable run = operation.preparation.apply(size);
+			System.gc();
+			long start = System.nanoTime();
+			run.run();
+			long elapsed = System.nanoTime() - start;
+			if (i >= WARMUP_RUNS)
+			{
+				times[i - WARMUP_RUNS] = elapsed / 1e6;
+			}
+		}
+		Arrays.sort(times);
+		return times[RUNS / 2];
+	}
+
+	/**
+	 * Least squares fit of the growth exponent k in t = c.n^k
+	 * @param sizes the sizes n
+	 * @param times the times t measured for each size
+	 * @return the slope of log(t) versus log(n)
+	 */
+	private static double fitExponent(List<Integer> sizes, double[] times)
+	{
+		int count = times.length;
+		double sumX = 0.0;
+		double sumY = 0.0;
+		double sumXY = 0.0;
+		double sumXX = 0.0;
+		for (int i = 0; i < count; i++)
+		{
+			double x = Math.log(sizes.get(i));
+			double y = Math.log(Math.max(times[i], 1e-6));
+			sumX += x;
+			sumY += y;
+			sumXY += x * y;
+			sumXX += x * x;
+		}
+		return ((count * sumXY) - (sumX * sumY)) / ((count * sumXX) - (sumX * sumX));
+	}
+
+	/**
+	 * Creates a figure
+	 * @param i the index of the figure (determining its kind and location)
+	 * @return a new figure
+	 */
+	private static Figure createFigure(int i)
+	{
+		double x = i % 1000;
+		double y = (i / 1000) % 1000;
+		switch (i % 4)
+		{
+			case 0:
+				return new Circle(Color.RED, Color.BLACK, LineType.SOLID, 1, LOGGER, x, y);
+			case 1:
+				return new Ellipse(Color.GREEN, Color.BLACK, LineType.SOLID, 1, LOGGER, x, y);
+			case 2:
+				return new Rectangle(Color.BLUE, Color.BLACK, LineType.SOLID, 1, LOGGER, x, y);
+			default:
+				return new Rounded_Rectangle(Color.YELLOW, Color.BLACK, LineType.SOLID, 1, LOGGER, x, y);
+		}
+	}
+
+	/**
+	 * Creates figures
+	 * @param size the number of figures
+	 * @return a new list of size figures
+	 */
+	private static List<Figure> createFigures(int size)
+	{
+		List<Figure> figures = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+		{
+			figures.add(createFigure(i));
+		}
+		return figures;
+	}
+
+	/**
+	 * Creates a drawing shown in a list view (as in
+	 * {@link application.Controller})
+	 * @param figures the figures of the drawing
+	 * @return a new drawing containing figures
+	 */
+	private static Drawing createDrawing(List<Figure> figures)
+	{
+		return createDrawing(figures, new ListView<>());
+	}
+
+	/**
+	 * Creates a drawing shown in a list view (as in
+	 * {@link application.Controller})
+	 * @param figures the figures of the drawing
+	 * @param listView the list view showing the drawing
+	 * @return a new drawing containing figures
+	 */
+	private static Drawing createDrawing(List<Figure> figures, ListView<Figure> listView)
+	{
+		Drawing drawing = new Drawing(new Pane(), listView, LOGGER);
+		listView.setItems(drawing);
+		drawing.setAll(figures);
+		return drawing;
+	}
+
+	/**
+	 * Prepares clearing the selection of a fully selected drawing
+	 * @param size the drawing size
+	 * @return the operation to measure
+	 */
+	private static Runnable prepareClearSelection(int size)
+	{
+		ListView<Figure> listView = new ListView<>();
+		Drawing drawing = createDrawing(createFigures(size), listView);
+		listView.getSelectionModel().selectAll();
+		return drawing::clearSelection;
+	}
+
+	/**
+	 * Prepares adding figures one by one to an empty drawing
+	 * @param size the number of figures to add
+	 * @return the operation to measure
+	 */
+	private static Runnable prepareBulkAdd(int size)
+	{
+		Drawing drawing = createDrawing(Collections.emptyList());
+		List<Figure> figures = createFigures(size);
+		return () -> {
+			for (Figure figure : figures)
+			{
+				drawing.add(figure);
+			}
+		};
+	}
+
+	/**
+	 * Prepares moving the first figure one step up in z-order as done by
+	 * {@link application.Controller}'s move actions
+	 * @param size the drawing size
+	 * @return the operation to measure
+	 */
+	private static Runnable prepareMove(int size)
+	{
+		Drawing drawing = createDrawing(createFigures(size));
+		return () -> {
+			List<Figure> reordered = new ArrayList<>(drawing);
+			Collections.swap(reordered, 0, 1);
+			drawing.clear();
+			for (Figure figure : reordered)
+			{
+				drawing.add(figure);
+			}
+		};
+	}
+
+	/**
+	 * Prepares toggling a figure type filter (as set up by
+	 * {@link application.Controller}) on the drawing
+	 * @param size the drawing size
+	 * @return the operation to measure
+	 */
+	private static Runnable prepareFilter(int size)
+	{
+		Drawing drawing = createDrawing(createFigures(size));
+		FigureFilters<FigureType> typesFilter = new FigureFilters<FigureType>();
+		CompositeFigureFilter filter = new CompositeFigureFilter(true);
+		filter.add(typesFilter);
+		return () -> {
+			typesFilter.add(new FigureTypeFilter(FigureType.CIRCLE));
+			Predicate<Figure> predicate = filter;
+			if (drawing.filtered(predicate).size() != (size + 3) / 4)
+			{
+				throw new IllegalStateException("unexpected filtered figures count");
+			}
+			typesFilter.removeFilterWith(FigureType.CIRCLE);
+		};
+	}
+
+	/**
+	 * Prepares undoing then redoing the addition of a figure
+	 * @param size the drawing size
+	 * @return the operation to measure
+	 */
+	private static Runnable prepareUndoRedo(int size)
+	{
+		Drawing drawing = createDrawing(createFigures(size));
+		HistoryManager<Figure> history = new HistoryManager<Figure>(drawing, 4, LOGGER);
+		history.record();
+		drawing.add(createFigure(size));
+		return () -> {
+			history.undo();
+			history.redo();
+			if (drawing.size() != size + 1)
+			{
+				throw new IllegalStateException("unexpected drawing size after redo");
+			}
+		};
+	}
+}
@@ -0,0 +1,229 @@
+package benchmarks;
+
+import java.awt.geom.Rectangle2D;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import figures.Circle;
+import figures.Ellipse;
+import figures.Figure;
+import figures.Rectangle;
+import figures.Rounded_Rectangle;
+import figures.enums.FigureType;
+import figures.enums.LineType;
+import figures.filters.FigureTypeFilter;
+import figures.io.FigureRecord;
+import figures.io.FigureRecords;
+import figures.render.TiledRasterizer;
+import figures.store.FigureStore;
+import figures.store.RowFilter;
+import history.Memento;
+import javafx.scene.paint.Color;
+import logger.LoggerFactory;
+import metrics.MemoryFootprint;
+
+/**
+ * Benchmark of bulk operations on figures versus the same operations on a
+ * columnar {@link FigureStore} containing the same figures:
+ * <ul>
+ * <li>bounds of all figures (as computed before exporting a drawing)</li>
+ * <li>filtering figures by type</li>
+ * <li>snapshot of all figures ({@link Memento} versus store copy)</li>
+ * <li>encoding all figures (as saved in drawing files)</li>
+ * </ul>
+ * and the memory retained by figures and by the store.
+ * Usage: {@code StoreBenchmark [figures count] [iterations]}
+ */
+public class StoreBenchmark
+{
+	/**
+	 * Default number of figures
+	 */
+	private static final int DEFAULT_COUNT = 20000;
+
+	/**
+	 * Default number of measured iterations (after as many warmup iterations)
+	 */
+	private static final int DEFAULT_ITERATIONS = 20;
+
+	/**
+	 * Silent parent logger of figures
+	 */
+	private static final Logger LOGGER =
+	    LoggerFactory.getParentLogger(StoreBenchmark.class, null, Level.OFF);
+
+	/**
+	 * Benchmark main
+	 * @param args optional figures count and iterations
+	 */
+	public static void main(String[] args)
+	{
+		int count = (args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_COUNT);
+		int iterations = (args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS);
+		List<Figure> figures = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			Figure figure = createFigure(i);
+			figure.getRoot().setTranslateX(i % 17);
+			figure.getRoot().setRotate(i % 90);
+			figures.add(figure);
+		}
+		FigureStore store = FigureStore.of(figures);
+		System.out.printf("%d figures, %d iterations%n", count, iterations);
+
+		Rectangle2D figuresBounds = figuresBounds(figures);
+		Rectangle2D storeBounds = store.bounds();
+		if ((Math.abs(figuresBounds.getMinX() - storeBounds.getMinX()) > 1e-6)
+		    || (Math.abs(figuresBounds.getMaxX() - storeBounds.getMaxX()) > 1e-6)
+		    || (Math.abs(figuresBounds.getMinY() - storeBounds.getMinY()) > 1e-6)
+		    || (Math.abs(figuresBounds.getMaxY() - storeBounds.getMaxY()) > 1e-6))
+		{
+			System.out.println("bounds mismatch: " + figuresBounds + " != " + storeBounds);
+		}
+
+		compare("bounds",
+		        count,
+		        median(iterations, () -> (int) figuresBounds(figures).getWidth()),
+		        median(iterations, () -> (int) store.bounds().getWidth()));
+
+		FigureTypeFilter typeFilter = new FigureTypeFilter(FigureType.ELLIPSE);
+		RowFilter rowFilter = RowFilter.ofType(FigureType.ELLIPSE);
+		compare("filter by type",
+		        count,
+		        median(iterations, () -> {
+		        	int selected = 0;
+		        	for (Figure figure : figures)
+		        	{
+		        		if (typeFilter.test(figure))
+		        		{
+		        			selected++;
+		        		}
+		        	}
+		        	return selected;
+		        }),
+		        median(iterations, () -> store.select(rowFilter).cardinality()));
+
+		compare("snapshot",
+		        count,
+		        median(iterations, () -> new Memento<Figure>(figures).getState().size()),
+		        median(iterations, () -> store.snapshot().size()));
+
+		ByteBuffer buffer = ByteBuffer.allocate(count * FigureRecord.BYTES);
+		compare("encoding",
+		        count,
+		        median(iterations, () -> {
+		        	buffer.clear();
+		        	for (Figure figure : figures)
+		        	{
+		        		FigureRecords.toRecord(figure).writeTo(buffer);
+		        	}
+		        	return buffer.position();
+		        }),
+		        median(iterations, () -> {
+		        	buffer.clear();
+		        	store.write(0, store.size(), buffer);
+		        	return buffer.position();
+		        }));
+
+		MemoryFootprint figuresFootprint = new MemoryFootprint();
+		figuresFootprint.add(figures);
+		MemoryFootprint storeFootprint = new MemoryFootprint();
+		storeFootprint.add(store.snapshot());
+		System.out.printf("%-16s %12s (%s per figure) vs %s (%s per row)%n",
+		                  "memory",
+		                  MemoryFootprint.formatBytes(figuresFootprint.getBytes()),
+		                  MemoryFootprint.formatBytes(figuresFootprint.getBytes() / count),
+		                  MemoryFootprint.formatBytes(storeFootprint.getBytes()),
+		                  MemoryFootprint.formatBytes(storeFootprint.getBytes() / count));
+	}
+
+	/**
+	 * Bounds of figures as computed before exporting a drawing (through
+	 * records)
+	 * @param figures the figures to bound
+	 * @return the bounds of all figures
+	 */
+	private static Rectangle2D figuresBounds(List<Figure> figures)
+	{
+		List<FigureRecord> records = new ArrayList<>(figures.size());
+		for (Figure figure : figures)
+		{
+			records.add(FigureRecords.toRecord(figure));
+		}
+		return TiledRasterizer.boundsOf(records);
+	}
+
+	/**
+	 * Prints the comparison of an operation on figures and on the store
+	 * @param operation the name of the operation
+	 * @param count the number of figures
+	 * @param figures the median time of the operation on figures (in ms)
+	 * @param store the median time of the operation on the store (in ms)
+	 */
+	private static void compare(String operation, int count, double figures, double store)
+	{
+		System.out.printf("%-16s %10.3f ms (%6.1f ns/figure) vs %8.3f ms (%6.1f ns/row) x%.1f%n",
+		                  operation,
+		                  figures,
+		                  figures * 1e6 / count,
+		                  store,
+		                  store * 1e6 / count,
+		                  figures / store);
+	}
+
+	/**
+	 * Creates a figure
+	 * @param i the index of the figure (determining its kind and location)
+	 * @return a new figure
+	 */
+	private static Figure createFigure(int i)
+	{
+		double x = (i * 37) % 1000;
+		double y = (i * 53) % 700;
+		switch (i % 4)
+		{
+			case 0:
+				return new Circle(Color.RED, Color.BLACK, LineType.SOLID, 1, LOGGER, x, y);
+			case 1:
+				return new Ellipse(Color.GREEN, Color.BLACK, LineType.SOLID, 1, LOGGER, x, y);
+			case 2:
+				return new Rectangle(Color.BLUE, Color.BLACK, LineType.SOLID, 1, LOGGER, x, y);
+			default:
+				return new Rounded_Rectangle(Color.YELLOW, Color.BLACK, LineType.SOLID, 1, LOGGER, x, y);
+		}
+	}
+
+	/**
+	 * Median time of a run after as many warmup runs
+	 * @param iterations the number of warmup and measured runs
+	 * @param run the run to measure (returning a value so it can't be
+	 * optimized away)
+	 * @return the median time in ms
+	 */
+	private static double median(int iterations, IntSupplier run)
+	{
+		long checksum = 0;
+		for (int i = 0; i < iterations; i++)
+		{
+			checksum += run.getAsInt();
+		}
+		double[] times = new double[iterations];
+		for (int i = 0; i < iterations; i++)
+		{
+			long start = System.nanoTime();
+			checksum += run.getAsInt();
+			times[i] = (System.nanoTime() - start) / 1e6;
+		}
+		if (checksum == 0)
+		{
+			System.out.println("nothing measured");
+		}
+		Arrays.sort(times);
+		return times[iterations / 2];
+	}
+}
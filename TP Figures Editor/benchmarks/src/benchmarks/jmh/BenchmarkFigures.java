@@ -0,0 +1,84 @@
+package benchmarks.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import figures.Circle;
+import figures.Ellipse;
+import figures.Figure;
+import figures.Rectangle;
+import figures.Rounded_Rectangle;
+import figures.enums.LineType;
+import javafx.scene.paint.Color;
+import logger.LoggerFactory;
+
+/**
+ * Figures generation for benchmarks: figures of all rectangular kinds with a
+ * few distinct styles spread on a 1000 x 1000 grid
+ */
+public class BenchmarkFigures
+{
+	/**
+	 * Silent parent logger of generated figures
+	 */
+	public static final Logger LOGGER =
+	    LoggerFactory.getParentLogger(BenchmarkFigures.class, null, Level.OFF);
+
+	/**
+	 * Fill colors of generated figures
+	 */
+	private static final Color[] FILLS = new Color[] {
+		Color.RED, Color.GREEN, Color.BLUE, Color.YELLOW, Color.ORANGE
+	};
+
+	/**
+	 * Private constructor to avoid instanciation
+	 */
+	private BenchmarkFigures()
+	{
+		// Empty
+	}
+
+	/**
+	 * Creates a figure
+	 * @param i the index of the figure (determining its kind, style and
+	 * location)
+	 * @return a new figure
+	 */
+	public static Figure create(int i)
+	{
+		Color fill = FILLS[i % FILLS.length];
+		LineType lineType = LineType.values()[i % LineType.NbLineTypes];
+		double width = 1 + (i % 3);
+		double x = i % 1000;
+		double y = (i / 1000) % 1000;
+		switch (i % 4)
+		{
+			case 0:
+				return new Circle(fill, Color.BLACK, lineType, width, LOGGER, x, y);
+			case 1:
+				return new Ellipse(fill, Color.BLACK, lineType, width, LOGGER, x, y);
+			case 2:
+				return new Rectangle(fill, Color.BLACK, lineType, width, LOGGER, x, y);
+			default:
+				return new Rounded_Rectangle(fill, Color.BLACK, lineType, width, LOGGER, x, y);
+		}
+	}
+
+	/**
+	 * Creates figures
+	 * @param count the number of figures to create
+	 * @return a new list of count figures
+	 */
+	public static List<Figure> createList(int count)
+	{
+		List<Figure> figures = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			figures.add(create(i));
+		}
+		return figures;
+	}
+}
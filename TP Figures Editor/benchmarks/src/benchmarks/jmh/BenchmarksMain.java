@@ -0,0 +1,54 @@
+package benchmarks.jmh;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Main of the benchmarks jar: runs JMH with the provided command line options
+ * and writes results in JSON to {@link #DEFAULT_RESULTS} unless another
+ * result format or file is provided with {@code -rf} / {@code -rff}
+ */
+public class BenchmarksMain
+{
+	/**
+	 * Default results file
+	 */
+	public static final String DEFAULT_RESULTS = "jmh-results.json";
+
+	/**
+	 * Benchmarks main
+	 * @param args JMH command line options (see {@code -h})
+	 * @throws CommandLineOptionException if command line options are invalid
+	 * @throws RunnerException if benchmarks can't be run
+	 * @throws IOException if benchmarks list can't be read
+	 */
+	public static void main(String[] args)
+	    throws CommandLineOptionException, RunnerException, IOException
+	{
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		if (commandLine.shouldHelp() || commandLine.shouldList()
+		    || commandLine.shouldListWithParams() || commandLine.shouldListProfilers()
+		    || commandLine.shouldListResultFormats())
+		{
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		ChainedOptionsBuilder builder = new OptionsBuilder().parent(commandLine);
+		if (!commandLine.getResultFormat().hasValue())
+		{
+			builder.resultFormat(ResultFormatType.JSON);
+			if (!commandLine.getResult().hasValue())
+			{
+				builder.result(DEFAULT_RESULTS);
+			}
+		}
+		new Runner(builder.build()).run();
+	}
+}
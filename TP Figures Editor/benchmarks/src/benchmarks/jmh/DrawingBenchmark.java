@@ -0,0 +1,120 @@
+package benchmarks.jmh;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import figures.Drawing;
+import figures.Figure;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.Pane;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of {@link Drawing} mutations on drawings of {@link #size}
+ * figures:
+ * <ul>
+ * <li>adding then removing one figure at the end or at the beginning of the
+ * drawing</li>
+ * <li>reordering all figures in a single batch with
+ * {@link Drawing#setAll(java.util.Collection)}</li>
+ * </ul>
+ * @implNote Requires a display to start the JavaFX toolkit (needed by the
+ * {@link ListView} of the drawing)
+ * @see DrawingReorderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DrawingBenchmark
+{
+	/**
+	 * Number of figures in the drawing
+	 */
+	@Param({"100", "1000", "10000", "100000", "1000000"})
+	public int size;
+
+	/**
+	 * The benchmarked drawing
+	 */
+	private Drawing drawing;
+
+	/**
+	 * Figures of the drawing in reverse order
+	 */
+	private List<Figure> reversed;
+
+	/**
+	 * Figures of the drawing in initial order
+	 */
+	private List<Figure> ordered;
+
+	/**
+	 * Extra figure added and removed
+	 */
+	private Figure extra;
+
+	/**
+	 * Creates a drawing of {@link #size} figures
+	 * @throws InterruptedException if interrupted while starting JavaFX
+	 * toolkit
+	 */
+	@Setup
+	public void setup() throws InterruptedException
+	{
+		FxToolkit.start();
+		drawing = new Drawing(new Pane(), new ListView<Figure>(), BenchmarkFigures.LOGGER);
+		ordered = BenchmarkFigures.createList(size);
+		reversed = new ArrayList<>(ordered);
+		Collections.reverse(reversed);
+		drawing.setAll(ordered);
+		extra = BenchmarkFigures.create(size);
+	}
+
+	/**
+	 * Adds then removes a figure at the end of the drawing
+	 * @return the removed figure
+	 */
+	@Benchmark
+	public Figure addRemoveLast()
+	{
+		drawing.add(extra);
+		return drawing.remove(drawing.size() - 1);
+	}
+
+	/**
+	 * Adds then removes a figure at the beginning of the drawing
+	 * @return the removed figure
+	 */
+	@Benchmark
+	public Figure addRemoveFirst()
+	{
+		drawing.add(0, extra);
+		return drawing.remove(0);
+	}
+
+	/**
+	 * Reverses the order of all figures in a single batch
+	 * @return the drawing size
+	 */
+	@Benchmark
+	public int reorderBatch()
+	{
+		drawing.setAll(drawing.get(0) == ordered.get(0) ? reversed : ordered);
+		return drawing.size();
+	}
+}
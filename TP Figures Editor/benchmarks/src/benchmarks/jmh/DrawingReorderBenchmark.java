@@ -0,0 +1,81 @@
+package benchmarks.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import figures.Drawing;
+import figures.Figure;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.Pane;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of {@link Drawing} reordering as performed by the move up / down
+ * actions of {@link application.Controller}: the drawing is cleared then all
+ * figures are added back one by one in their new order.
+ * Each addition checks whether the figure is already contained, so this
+ * reordering is quadratic and sizes are limited to 10000 figures (see
+ * {@link DrawingBenchmark#reorderBatch()} for larger sizes).
+ * @implNote Requires a display to start the JavaFX toolkit
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DrawingReorderBenchmark
+{
+	/**
+	 * Number of figures in the drawing
+	 */
+	@Param({"100", "1000", "10000"})
+	public int size;
+
+	/**
+	 * The benchmarked drawing
+	 */
+	private Drawing drawing;
+
+	/**
+	 * Creates a drawing of {@link #size} figures
+	 * @throws InterruptedException if interrupted while starting JavaFX
+	 * toolkit
+	 */
+	@Setup
+	public void setup() throws InterruptedException
+	{
+		FxToolkit.start();
+		drawing = new Drawing(new Pane(), new ListView<Figure>(), BenchmarkFigures.LOGGER);
+		drawing.setAll(BenchmarkFigures.createList(size));
+	}
+
+	/**
+	 * Moves the first figure to the end of the drawing by clearing the drawing
+	 * and adding back each figure
+	 * @return the drawing size
+	 */
+	@Benchmark
+	public int reorderOneByOne()
+	{
+		List<Figure> copy = new ArrayList<>(drawing);
+		drawing.clear();
+		for (int i = 1; i < copy.size(); i++)
+		{
+			drawing.add(copy.get(i));
+		}
+		drawing.add(copy.get(0));
+		return drawing.size();
+	}
+}
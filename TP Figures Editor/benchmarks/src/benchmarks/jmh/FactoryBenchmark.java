@@ -0,0 +1,124 @@
+package benchmarks.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import javafx.scene.paint.Color;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.ColorFactory;
+import utils.FlyweightFactory;
+
+/**
+ * Benchmarks of colors lookups (of already known colors) in
+ * {@link ColorFactory} and in the deprecated {@link FlyweightFactory} for
+ * {@link #distinct} distinct colors
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FactoryBenchmark
+{
+	/**
+	 * Number of distinct looked up colors
+	 */
+	@Param({"16", "256", "4096"})
+	public int distinct;
+
+	/**
+	 * Colors to look up (equal to but not the same instances as those held by
+	 * factories)
+	 */
+	private Color[] colors;
+
+	/**
+	 * Colors names to look up
+	 */
+	private String[] names;
+
+	/**
+	 * Flyweight factory holding {@link #colors}
+	 */
+	@SuppressWarnings("deprecation")
+	private FlyweightFactory<Color> flyweights;
+
+	/**
+	 * Index of the next color to look up
+	 */
+	private int next;
+
+	/**
+	 * Fills factories with {@link #distinct} colors
+	 */
+	@Setup
+	@SuppressWarnings("deprecation")
+	public void setup()
+	{
+		colors = new Color[distinct];
+		names = new String[distinct];
+		flyweights = new FlyweightFactory<Color>();
+		for (int i = 0; i < distinct; i++)
+		{
+			Color color = Color.rgb(i % 256, (i / 256) % 256, (i * 7) % 256);
+			names[i] = color.toString();
+			ColorFactory.getColor(color);
+			ColorFactory.getColor(names[i]);
+			flyweights.get(color);
+			colors[i] = Color.color(color.getRed(), color.getGreen(), color.getBlue());
+		}
+		next = 0;
+	}
+
+	/**
+	 * Index of the next color to look up
+	 * @return the index of the next color to look up
+	 */
+	private int nextIndex()
+	{
+		int index = next;
+		next = (index + 1 == distinct ? 0 : index + 1);
+		return index;
+	}
+
+	/**
+	 * Looks up a color in {@link ColorFactory}
+	 * @return the shared color
+	 */
+	@Benchmark
+	public Color colorFactory()
+	{
+		return ColorFactory.getColor(colors[nextIndex()]);
+	}
+
+	/**
+	 * Looks up a color by name in {@link ColorFactory}
+	 * @return the shared color
+	 */
+	@Benchmark
+	public Color colorFactoryByName()
+	{
+		return ColorFactory.getColor(names[nextIndex()]);
+	}
+
+	/**
+	 * Looks up a color in a {@link FlyweightFactory}
+	 * @return the shared color
+	 */
+	@Benchmark
+	@SuppressWarnings("deprecation")
+	public Color flyweightFactory()
+	{
+		return flyweights.get(colors[nextIndex()]);
+	}
+}
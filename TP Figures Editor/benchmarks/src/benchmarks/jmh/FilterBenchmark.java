@@ -0,0 +1,84 @@
+package benchmarks.jmh;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import figures.Figure;
+import figures.enums.FigureType;
+import figures.filters.CompositeFigureFilter;
+import figures.filters.FigureFilters;
+import figures.filters.FigureTypeFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of {@link CompositeFigureFilter#test(Figure)} over drawings of
+ * {@link #size} figures with the filters set up as in
+ * {@link application.Controller}: an exclusive composite filter containing a
+ * non exclusive collection of figure types filters
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark
+{
+	/**
+	 * Number of filtered figures
+	 */
+	@Param({"100", "1000", "10000", "100000", "1000000"})
+	public int size;
+
+	/**
+	 * Filtered figures
+	 */
+	private List<Figure> figures;
+
+	/**
+	 * The benchmarked filter (accepting circles and rectangles)
+	 */
+	private CompositeFigureFilter filter;
+
+	/**
+	 * Creates figures and filters
+	 */
+	@Setup
+	public void setup()
+	{
+		figures = BenchmarkFigures.createList(size);
+		FigureFilters<FigureType> typesFilter = new FigureFilters<FigureType>();
+		typesFilter.add(new FigureTypeFilter(FigureType.CIRCLE));
+		typesFilter.add(new FigureTypeFilter(FigureType.RECTANGLE));
+		filter = new CompositeFigureFilter(true);
+		filter.add(typesFilter);
+	}
+
+	/**
+	 * Counts figures matching {@link #filter}
+	 * @return the number of matching figures
+	 */
+	@Benchmark
+	public int test()
+	{
+		int matches = 0;
+		for (Figure figure : figures)
+		{
+			if (filter.test(figure))
+			{
+				matches++;
+			}
+		}
+		return matches;
+	}
+}
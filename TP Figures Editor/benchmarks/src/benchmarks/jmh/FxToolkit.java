@@ -0,0 +1,50 @@
+package benchmarks.jmh;
+
+import java.util.concurrent.CountDownLatch;
+
+import javafx.application.Platform;
+
+/**
+ * Starts the JavaFX toolkit (once) for benchmarks using JavaFX controls
+ * @implNote Requires a display
+ */
+public class FxToolkit
+{
+	/**
+	 * Flag indicating the toolkit has been started
+	 */
+	private static boolean started = false;
+
+	/**
+	 * Private constructor to avoid instanciation
+	 */
+	private FxToolkit()
+	{
+		// Empty
+	}
+
+	/**
+	 * Starts the JavaFX toolkit if not started yet
+	 * @throws InterruptedException if interrupted while waiting for the
+	 * toolkit to start
+	 */
+	public static synchronized void start() throws InterruptedException
+	{
+		if (started)
+		{
+			return;
+		}
+		CountDownLatch latch = new CountDownLatch(1);
+		try
+		{
+			Platform.startup(latch::countDown);
+			latch.await();
+		}
+		catch (IllegalStateException e)
+		{
+			// Toolkit already started
+		}
+		Platform.setImplicitExit(false);
+		started = true;
+	}
+}
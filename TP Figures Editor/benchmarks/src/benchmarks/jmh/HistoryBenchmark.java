@@ -0,0 +1,123 @@
+package benchmarks.jmh;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import figures.Figure;
+import history.HistoryManager;
+import history.Memento;
+import history.Originator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of {@link HistoryManager} record, undo and redo on states of
+ * {@link #size} figures.
+ * The originator is a plain list of figures (rather than a
+ * {@link figures.Drawing}) so these benchmarks measure history management
+ * (states creation and comparison) without scene graph updates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBenchmark
+{
+	/**
+	 * Maximum number of states in history (kept low so that largest sizes
+	 * fit in memory)
+	 */
+	private static final int HISTORY_SIZE = 4;
+
+	/**
+	 * Number of figures in states
+	 */
+	@Param({"100", "1000", "10000", "100000", "1000000"})
+	public int size;
+
+	/**
+	 * Originator whose state is a list of figures
+	 */
+	private static class ListOriginator implements Originator<Figure>
+	{
+		/**
+		 * Current state
+		 */
+		private List<Figure> figures;
+
+		/**
+		 * Constructor
+		 * @param figures the initial state
+		 */
+		ListOriginator(List<Figure> figures)
+		{
+			this.figures = figures;
+		}
+
+		@Override
+		public Memento<Figure> createMemento()
+		{
+			return new Memento<Figure>(figures);
+		}
+
+		@Override
+		public void setMemento(Memento<Figure> memento)
+		{
+			figures = memento.getState();
+		}
+	}
+
+	/**
+	 * The benchmarked history
+	 */
+	private HistoryManager<Figure> history;
+
+	/**
+	 * Creates the history of an originator of {@link #size} figures
+	 */
+	@Setup
+	public void setup()
+	{
+		ListOriginator originator =
+		    new ListOriginator(BenchmarkFigures.createList(size));
+		history = new HistoryManager<Figure>(originator,
+		                                     HISTORY_SIZE,
+		                                     BenchmarkFigures.LOGGER);
+		history.record();
+	}
+
+	/**
+	 * Records current state (which is equal to the last recorded one so it
+	 * is not pushed again)
+	 * @return the number of states in undo stack
+	 */
+	@Benchmark
+	public int record()
+	{
+		history.record();
+		return history.undoSize();
+	}
+
+	/**
+	 * Undoes then redoes last recorded state
+	 * @return the number of states in undo stack
+	 */
+	@Benchmark
+	public int undoRedo()
+	{
+		history.undo();
+		history.redo();
+		return history.undoSize();
+	}
+}
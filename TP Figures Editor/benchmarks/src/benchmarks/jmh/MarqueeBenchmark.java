@@ -0,0 +1,164 @@
+package benchmarks.jmh;
+
+import java.awt.geom.Rectangle2D;
+import java.util.concurrent.TimeUnit;
+
+import figures.enums.FigureType;
+import figures.enums.LineType;
+import figures.io.FigureRecord;
+import figures.store.FigureStore;
+import figures.store.HitTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of bulk hit-testing queries of a {@link FigureStore} of
+ * {@link #size} rows with the scalar kernels of {@link HitTester} and with
+ * the Vector API kernels of {@link VectorHitTester}: marquee selection
+ * (rows intersecting or contained in a rectangle), point hit-testing (rows
+ * under the mouse) and bounds of all rows.
+ * Forked VMs add the {@code jdk.incubator.vector} module; if it is not
+ * available, the vector kernels fall back to the scalar kernels.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class MarqueeBenchmark
+{
+	/**
+	 * Drawing area width and height
+	 */
+	private static final double AREA = 10000.0;
+
+	/**
+	 * Number of rows
+	 */
+	@Param({"1000000"})
+	public int size;
+
+	/**
+	 * Kernels: "scalar" or "vector"
+	 */
+	@Param({"scalar", "vector"})
+	public String kernels;
+
+	/**
+	 * The benchmarked hit tester
+	 */
+	private HitTester tester;
+
+	/**
+	 * The marquee of the selection
+	 */
+	private Rectangle2D marquee;
+
+	/**
+	 * Indicates if the Vector API module is available in this VM
+	 * @return true if {@code jdk.incubator.vector} has been added to this VM
+	 */
+	public static boolean isVectorAvailable()
+	{
+		return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+	}
+
+	/**
+	 * Creates rows of all rectangular kinds scattered over the drawing area
+	 * with various rotations and scales, and the hit tester
+	 * @throws IllegalStateException if vector kernels results differ from
+	 * scalar kernels results
+	 */
+	@Setup
+	public void setup() throws IllegalStateException
+	{
+		FigureStore store = new FigureStore(size);
+		for (int i = 0; i < size; i++)
+		{
+			store.add(new FigureRecord(FigureType.values()[i % 4],
+			                           0xFF000000 | (i & 0xFFFFFF),
+			                           0xFF000000,
+			                           1 + (i % 3),
+			                           LineType.SOLID,
+			                           FigureRecord.HAS_FILL | FigureRecord.HAS_EDGE,
+			                           ((i * 7919L) % 100003L) * (AREA / 100003.0),
+			                           ((i * 104729L) % 99991L) * (AREA / 99991.0),
+			                           10 + (i % 50),
+			                           10 + (i % 30),
+			                           0,
+			                           0,
+			                           (i % 8 == 0 ? i % 360 : 0),
+			                           1,
+			                           (i % 16 == 0 ? 2 : 1)));
+		}
+		marquee = new Rectangle2D.Double(AREA / 3, AREA / 3, 500, 300);
+		HitTester scalar = new HitTester(store);
+		if (kernels.equals("vector") && isVectorAvailable())
+		{
+			tester = new VectorHitTester(store);
+			double x = marquee.getCenterX();
+			double y = marquee.getCenterY();
+			if (!tester.intersecting(marquee).equals(scalar.intersecting(marquee))
+			    || !tester.containedIn(marquee).equals(scalar.containedIn(marquee))
+			    || !tester.hits(x, y).equals(scalar.hits(x, y))
+			    || !tester.bounds().equals(scalar.bounds()))
+			{
+				throw new IllegalStateException("vector and scalar kernels results differ");
+			}
+		}
+		else
+		{
+			tester = scalar;
+		}
+	}
+
+	/**
+	 * Marquee selection of rows intersecting the marquee
+	 * @return the number of selected rows
+	 */
+	@Benchmark
+	public int intersecting()
+	{
+		return tester.intersecting(marquee).cardinality();
+	}
+
+	/**
+	 * Marquee selection of rows contained in the marquee
+	 * @return the number of selected rows
+	 */
+	@Benchmark
+	public int containedIn()
+	{
+		return tester.containedIn(marquee).cardinality();
+	}
+
+	/**
+	 * Topmost row under a point
+	 * @return the index of the topmost row under the center of the marquee
+	 */
+	@Benchmark
+	public int topmost()
+	{
+		return tester.topmost(marquee.getCenterX(), marquee.getCenterY());
+	}
+
+	/**
+	 * Bounds of all rows
+	 * @return the bounds of all rows
+	 */
+	@Benchmark
+	public Rectangle2D bounds()
+	{
+		return tester.bounds();
+	}
+}
@@ -0,0 +1,101 @@
+package benchmarks.jmh;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import figures.Figure;
+import history.Memento;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of {@link Memento} construction (cloning all figures) and
+ * comparison (performed by {@link history.HistoryManager} before each push)
+ * for states of {@link #size} figures
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MementoBenchmark
+{
+	/**
+	 * Number of figures in states
+	 */
+	@Param({"100", "1000", "10000", "100000", "1000000"})
+	public int size;
+
+	/**
+	 * Figures to save
+	 */
+	private List<Figure> figures;
+
+	/**
+	 * A state of {@link #figures}
+	 */
+	private Memento<Figure> memento;
+
+	/**
+	 * Another state equal to {@link #memento}
+	 */
+	private Memento<Figure> equalMemento;
+
+	/**
+	 * A state differing from {@link #memento} by its last figure
+	 */
+	private Memento<Figure> differentMemento;
+
+	/**
+	 * Creates figures and states
+	 */
+	@Setup
+	public void setup()
+	{
+		figures = BenchmarkFigures.createList(size);
+		memento = new Memento<Figure>(figures);
+		equalMemento = new Memento<Figure>(figures);
+		figures.set(size - 1, BenchmarkFigures.create(size));
+		differentMemento = new Memento<Figure>(figures);
+	}
+
+	/**
+	 * Creates a state (cloning all figures)
+	 * @return the new state
+	 */
+	@Benchmark
+	public Memento<Figure> create()
+	{
+		return new Memento<Figure>(figures);
+	}
+
+	/**
+	 * Compares two equal states (comparing all figures)
+	 * @return the comparison result
+	 */
+	@Benchmark
+	public boolean equalsSame()
+	{
+		return memento.equals(equalMemento);
+	}
+
+	/**
+	 * Compares two states differing by their last figure
+	 * @return the comparison result
+	 */
+	@Benchmark
+	public boolean equalsDifferent()
+	{
+		return memento.equals(differentMemento);
+	}
+}
@@ -0,0 +1,140 @@
+package benchmarks.jmh;
+
+import figures.store.FigureStore;
+import figures.store.HitTester;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link HitTester} whose kernels are explicitly vectorized with the
+ * incubating Vector API ({@code jdk.incubator.vector}, which requires
+ * {@code --add-modules jdk.incubator.vector} to compile and run): each
+ * iteration tests as many rows as lanes of the preferred species, and the
+ * resulting lane masks are packed into the words of results. Remaining rows
+ * are tested by the scalar kernels.
+ * This class can't be loaded when the Vector API module is not available:
+ * check {@link MarqueeBenchmark#isVectorAvailable()} first and fall back to
+ * the scalar {@link HitTester}.
+ */
+public class VectorHitTester extends HitTester
+{
+	/**
+	 * Preferred species of double vectors on this platform
+	 */
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	/**
+	 * Number of lanes of {@link #SPECIES} (a power of 2 not larger than 64 so
+	 * lane masks never overlap two words)
+	 */
+	private static final int LANES = SPECIES.length();
+
+	/**
+	 * Constructor deriving the geometry of all rows of a store
+	 * @param store the store to hit-test
+	 */
+	public VectorHitTester(FigureStore store)
+	{
+		super(store);
+	}
+
+	@Override
+	protected void hits(int from, int to, double x, double y, long[] words)
+	{
+		int bound = from + SPECIES.loopBound(to - from);
+		int i = from;
+		for (; i < bound; i += LANES)
+		{
+			DoubleVector dx = DoubleVector.fromArray(SPECIES, centerXs, i).neg().add(x);
+			DoubleVector dy = DoubleVector.fromArray(SPECIES, centerYs, i).neg().add(y);
+			DoubleVector cos = DoubleVector.fromArray(SPECIES, cosines, i);
+			DoubleVector sin = DoubleVector.fromArray(SPECIES, sines, i);
+			DoubleVector localX = dx.mul(cos).add(dy.mul(sin));
+			DoubleVector localY = dy.mul(cos).sub(dx.mul(sin));
+			DoubleVector a = DoubleVector.fromArray(SPECIES, halfWidths, i);
+			DoubleVector b = DoubleVector.fromArray(SPECIES, halfHeights, i);
+			DoubleVector a2 = a.mul(a);
+			DoubleVector b2 = b.mul(b);
+			VectorMask<Double> inEllipse = localX.mul(localX).mul(b2)
+			    .add(localY.mul(localY).mul(a2))
+			    .compare(VectorOperators.LE, a2.mul(b2));
+			VectorMask<Double> inBox = localX.abs().compare(VectorOperators.LE, a)
+			    .and(localY.abs().compare(VectorOperators.LE, b));
+			VectorMask<Double> ellipse = VectorMask.fromArray(SPECIES, ellipses, i);
+			VectorMask<Double> hit = inEllipse.and(ellipse).or(inBox.andNot(ellipse));
+			words[i >>> 6] |= hit.toLong() << i;
+		}
+		super.hits(i, to, x, y, words);
+	}
+
+	@Override
+	protected void intersecting(int from,
+	                            int to,
+	                            double minX,
+	                            double minY,
+	                            double maxX,
+	                            double maxY,
+	                            long[] words)
+	{
+		int bound = from + SPECIES.loopBound(to - from);
+		int i = from;
+		for (; i < bound; i += LANES)
+		{
+			VectorMask<Double> hit = DoubleVector.fromArray(SPECIES, minXs, i)
+			    .compare(VectorOperators.LE, maxX)
+			    .and(DoubleVector.fromArray(SPECIES, maxXs, i).compare(VectorOperators.GE, minX))
+			    .and(DoubleVector.fromArray(SPECIES, minYs, i).compare(VectorOperators.LE, maxY))
+			    .and(DoubleVector.fromArray(SPECIES, maxYs, i).compare(VectorOperators.GE, minY));
+			words[i >>> 6] |= hit.toLong() << i;
+		}
+		super.intersecting(i, to, minX, minY, maxX, maxY, words);
+	}
+
+	@Override
+	protected void containedIn(int from,
+	                           int to,
+	                           double minX,
+	                           double minY,
+	                           double maxX,
+	                           double maxY,
+	                           long[] words)
+	{
+		int bound = from + SPECIES.loopBound(to - from);
+		int i = from;
+		for (; i < bound; i += LANES)
+		{
+			VectorMask<Double> hit = DoubleVector.fromArray(SPECIES, minXs, i)
+			    .compare(VectorOperators.GE, minX)
+			    .and(DoubleVector.fromArray(SPECIES, maxXs, i).compare(VectorOperators.LE, maxX))
+			    .and(DoubleVector.fromArray(SPECIES, minYs, i).compare(VectorOperators.GE, minY))
+			    .and(DoubleVector.fromArray(SPECIES, maxYs, i).compare(VectorOperators.LE, maxY));
+			words[i >>> 6] |= hit.toLong() << i;
+		}
+		super.containedIn(i, to, minX, minY, maxX, maxY, words);
+	}
+
+	@Override
+	protected void bounds(int from, int to, double[] bounds)
+	{
+		int bound = from + SPECIES.loopBound(to - from);
+		DoubleVector minX = DoubleVector.broadcast(SPECIES, bounds[0]);
+		DoubleVector minY = DoubleVector.broadcast(SPECIES, bounds[1]);
+		DoubleVector maxX = DoubleVector.broadcast(SPECIES, bounds[2]);
+		DoubleVector maxY = DoubleVector.broadcast(SPECIES, bounds[3]);
+		int i = from;
+		for (; i < bound; i += LANES)
+		{
+			minX = minX.min(DoubleVector.fromArray(SPECIES, minXs, i));
+			minY = minY.min(DoubleVector.fromArray(SPECIES, minYs, i));
+			maxX = maxX.max(DoubleVector.fromArray(SPECIES, maxXs, i));
+			maxY = maxY.max(DoubleVector.fromArray(SPECIES, maxYs, i));
+		}
+		bounds[0] = minX.reduceLanes(VectorOperators.MIN);
+		bounds[1] = minY.reduceLanes(VectorOperators.MIN);
+		bounds[2] = maxX.reduceLanes(VectorOperators.MAX);
+		bounds[3] = maxY.reduceLanes(VectorOperators.MAX);
+		super.bounds(i, to, bounds);
+	}
+}
@@ -0,0 +1,22 @@
+/**
+ * JMH benchmarks of the editor hot paths: {@link figures.Drawing} mutations,
+ * {@link history.Memento} and {@link history.HistoryManager} operations,
+ * {@link figures.filters.CompositeFigureFilter} evaluation and colors
+ * factories lookups, over drawings of 100 to 1M figures, and scalar versus
+ * Vector API hit-testing kernels ({@link benchmarks.jmh.MarqueeBenchmark})
+ * over 1M rows.
+ * <p>
+ * Build and run from the benchmarks directory with:
+ * <pre>
+ * mvn -B package
+ * java -jar target/benchmarks.jar                       # all benchmarks
+ * java -jar target/benchmarks.jar Memento -p size=1000  # some of them
+ * </pre>
+ * Results are written in JSON to {@value benchmarks.jmh.BenchmarksMain#DEFAULT_RESULTS}
+ * (unless {@code -rf} / {@code -rff} options are provided) so results of two
+ * versions can be compared.
+ * Largest sizes require a large heap (e.g. {@code -jvmArgsAppend -Xmx16g})
+ * and {@link benchmarks.jmh.DrawingBenchmark} requires a display to start the
+ * JavaFX toolkit.
+ */
+package benchmarks.jmh;
@@ -0,0 +1,407 @@
+package application;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import figures.io.ChunkedDrawingFile;
+import figures.io.FigureRecord;
+import figures.io.ParallelDrawingLoader;
+import figures.render.SvgRenderer;
+import figures.render.TiledRasterizer;
+
+/**
+ * Command line batch renderer of drawing files (without display).
+ * Renders each drawing file (*.figs) of a directory into PNG and/or SVG
+ * images using headless renderers ({@link TiledRasterizer} and
+ * {@link SvgRenderer}).
+ * Files are processed concurrently by a bounded number of jobs, and each job
+ * must first acquire an estimation of the memory it requires from a memory
+ * budget so that concurrently rendered files never exceed this budget:
+ * memory of decoded figures is acquired before decoding, then memory of
+ * the image (whose size is known once figures are decoded) before
+ * rendering (jobs which have to wait for it drop their decoded figures and
+ * decode them again afterwards).
+ * Usage:
+ * <pre>
+ * BatchRenderer [options] directory
+ * 	-f | --format png|svg|both : output format (default png)
+ * 	-o | --output dir : output directory (default: input directory)
+ * 	-j | --jobs n : number of files rendered concurrently (default: number of cores)
+ * 	-m | --memory MB : memory budget (default: half of max heap)
+ * 	-s | --size pixels : max width or height of images (thumbnails), 0 for
+ * 	full size (default 0)
+ * </pre>
+ */
+public class BatchRenderer
+{
+	/**
+	 * Estimated heap bytes per figure when rendering (decoded record, list
+	 * reference and tiles bins)
+	 */
+	private static final long BYTES_PER_FIGURE = 256L;
+
+	/**
+	 * Estimated heap bytes per pixel of image width when rasterizing (strip
+	 * pixels, tiles images rendered in parallel, filtered and compressed
+	 * bands for a full strip of tiles)
+	 */
+	private static final long BYTES_PER_COLUMN =
+	    4L * 4L * TiledRasterizer.DEFAULT_TILE_SIZE;
+
+	/**
+	 * Background color of rendered images
+	 */
+	private static final int BACKGROUND = 0xFFFFFFFF;
+
+	/**
+	 * Render PNG images
+	 */
+	private boolean png = true;
+
+	/**
+	 * Render SVG images
+	 */
+	private boolean svg = false;
+
+	/**
+	 * Input directory
+	 */
+	private Path input = null;
+
+	/**
+	 * Output directory (or null to write images beside drawing files)
+	 */
+	private Path output = null;
+
+	/**
+	 * Number of concurrent jobs
+	 */
+	private int jobs = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Memory budget (in MB)
+	 */
+	private int memory = (int) (Runtime.getRuntime().maxMemory() >> 21);
+
+	/**
+	 * Max size of images (0 for full size)
+	 */
+	private int size = 0;
+
+	/**
+	 * Memory budget permits (in MB)
+	 */
+	private Semaphore budget;
+
+	/**
+	 * Main program
+	 * @param args main program arguments (see class documentation)
+	 */
+	public static void main(String[] args)
+	{
+		System.setProperty("java.awt.headless", "true");
+		BatchRenderer renderer = new BatchRenderer();
+		try
+		{
+			renderer.setAttributes(args);
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.err.println(e.getMessage());
+			System.err.println("Usage: BatchRenderer [--format png|svg|both] "
+			    + "[--output dir] [--jobs n] [--memory MB] [--size pixels] directory");
+			System.exit(2);
+		}
+		System.exit(renderer.run() ? 0 : 1);
+	}
+
+	/**
+	 * Sets attributes values based on argument parsing
+	 * @param args the arguments to parse
+	 * @throws IllegalArgumentException if arguments are invalid
+	 */
+	protected void setAttributes(String[] args) throws IllegalArgumentException
+	{
+		for (Iterator<String> argIt = List.of(args).iterator(); argIt.hasNext();)
+		{
+			String arg = argIt.next();
+			if (arg.startsWith("-")) // option argument
+			{
+				if (!argIt.hasNext())
+				{
+					throw new IllegalArgumentException("missing value for " + arg);
+				}
+				String value = argIt.next();
+				try
+				{
+					if (arg.equals("--format") || arg.equals("-f"))
+					{
+						png = value.equals("png") || value.equals("both");
+						svg = value.equals("svg") || value.equals("both");
+						if (!png && !svg)
+						{
+							throw new IllegalArgumentException("unknown format " + value);
+						}
+					}
+					else if (arg.equals("--output") || arg.equals("-o"))
+					{
+						output = Paths.get(value);
+					}
+					else if (arg.equals("--jobs") || arg.equals("-j"))
+					{
+						jobs = Math.max(1, Integer.parseInt(value));
+					}
+					else if (arg.equals("--memory") || arg.equals("-m"))
+					{
+						memory = Math.max(1, Integer.parseInt(value));
+					}
+					else if (arg.equals("--size") || arg.equals("-s"))
+					{
+						size = Math.max(0, Integer.parseInt(value));
+					}
+					else
+					{
+						throw new IllegalArgumentException("unknown option " + arg);
+					}
+				}
+				catch (NumberFormatException e)
+				{
+					throw new IllegalArgumentException("invalid value for " + arg
+					    + ": " + value);
+				}
+			}
+			else
+			{
+				input = Paths.get(arg);
+			}
+		}
+		if ((input == null) || !Files.isDirectory(input))
+		{
+			throw new IllegalArgumentException("missing or invalid input directory");
+		}
+	}
+
+	/**
+	 * Renders all drawing files of {@link #input} directory
+	 * @return true if all files have been rendered successfully
+	 */
+	public boolean run()
+	{
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(input, "*.figs"))
+		{
+			for (Path file : stream)
+			{
+				files.add(file);
+			}
+			if (output != null)
+			{
+				Files.createDirectories(output);
+			}
+		}
+		catch (IOException e)
+		{
+			System.err.println("Unable to list " + input + ": " + e.getMessage());
+			return false;
+		}
+		Collections.sort(files);
+
+		budget = new Semaphore(memory);
+		ExecutorService executor = Executors.newFixedThreadPool(jobs);
+		long start = System.nanoTime();
+		List<Future<Boolean>> results = new ArrayList<>(files.size());
+		for (Path file : files)
+		{
+			results.add(executor.submit(() -> render(file)));
+		}
+		int failed = 0;
+		for (Future<Boolean> result : results)
+		{
+			try
+			{
+				if (!result.get())
+				{
+					failed++;
+				}
+			}
+			catch (InterruptedException | ExecutionException e)
+			{
+				failed++;
+			}
+		}
+		executor.shutdown();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d files (%d failed) in %.2f s: %.2f files/s%n",
+		                  files.size(),
+		                  failed,
+		                  seconds,
+		                  (seconds > 0 ? files.size() / seconds : 0.0));
+		return failed == 0;
+	}
+
+	/**
+	 * Renders a single drawing file within memory budget
+	 * @param file the drawing file to render
+	 * @return true if file has been rendered successfully
+	 */
+	private boolean render(Path file)
+	{
+		long start = System.nanoTime();
+		String name = file.getFileName().toString();
+		int permits = 0;
+		try
+		{
+			int count;
+			try (ChunkedDrawingFile drawing = new ChunkedDrawingFile(file))
+			{
+				count = drawing.getFigureCount();
+				int required = estimateMB(count, 0);
+				budget.acquire(required);
+				permits = required;
+				List<FigureRecord> records =
+				    ParallelDrawingLoader.decode(drawing, ForkJoinPool.commonPool());
+
+				Rectangle2D bounds = TiledRasterizer.boundsOf(records);
+				double originX = Math.floor(bounds.getMinX());
+				double originY = Math.floor(bounds.getMinY());
+				double drawingWidth = Math.max(1.0, Math.ceil(bounds.getMaxX() - originX));
+				double drawingHeight = Math.max(1.0, Math.ceil(bounds.getMaxY() - originY));
+				double scale = 1.0;
+				if (size > 0)
+				{
+					scale = Math.min(1.0, size / Math.max(drawingWidth, drawingHeight));
+				}
+				int width = Math.max(1, (int) Math.ceil(drawingWidth * scale));
+				int height = Math.max(1, (int) Math.ceil(drawingHeight * scale));
+				required = estimateMB(count, (png ? width : 0));
+				if ((required > permits) && !budget.tryAcquire(required - permits))
+				{
+					/*
+					 * Held permits cover decoded records: records are
+					 * dropped before releasing them, then decoded again once
+					 * all required permits are available (so that jobs
+					 * holding permits never wait for each other)
+					 */
+					records = null;
+					budget.release(permits);
+					permits = 0;
+					budget.acquire(required);
+					permits = required;
+					records = ParallelDrawingLoader.decode(drawing, ForkJoinPool.commonPool());
+				}
+				else
+				{
+					permits = Math.max(permits, required);
+				}
+				render(records, baseName(name), originX, originY, scale, width, height);
+			}
+			System.out.printf("%-32s %9d figures %10.1f ms%n",
+			                  name,
+			                  count,
+			                  (System.nanoTime() - start) / 1e6);
+			return true;
+		}
+		catch (IOException | RuntimeException e)
+		{
+			System.err.printf("%-32s failed: %s%n", name, e.getMessage());
+			return false;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		finally
+		{
+			budget.release(permits);
+		}
+	}
+
+	/**
+	 * Renders decoded records into requested formats
+	 * @param records the records to render
+	 * @param baseName the name of images without extension
+	 * @param originX the x coordinate of the drawing shown at the left of
+	 * images
+	 * @param originY the y coordinate of the drawing shown at the top of
+	 * images
+	 * @param scale the scale factor from drawing to image coordinates
+	 * @param width the images width
+	 * @param height the images height
+	 * @throws IOException if images can't be written
+	 */
+	private void render(List<FigureRecord> records,
+	                    String baseName,
+	                    double originX,
+	                    double originY,
+	                    double scale,
+	                    int width,
+	                    int height)
+	    throws IOException
+	{
+		Path directory = (output != null ? output : input);
+
+		if (png)
+		{
+			new TiledRasterizer(TiledRasterizer.DEFAULT_TILE_SIZE,
+			                    BACKGROUND,
+			                    ForkJoinPool.commonPool()).render(records,
+			                                                      originX,
+			                                                      originY,
+			                                                      scale,
+			                                                      width,
+			                                                      height,
+			                                                      directory.resolve(baseName + ".png"));
+		}
+		if (svg)
+		{
+			SvgRenderer.render(records,
+			                   originX,
+			                   originY,
+			                   scale,
+			                   width,
+			                   height,
+			                   BACKGROUND,
+			                   directory.resolve(baseName + ".svg"));
+		}
+	}
+
+	/**
+	 * Estimates the memory (in MB) required to render a drawing, bounded by
+	 * the whole memory budget (so huge drawings are rendered alone)
+	 * @param count the number of figures of the drawing
+	 * @param width the width of the rasterized image (or 0 if drawing is
+	 * not rasterized or not decoded yet)
+	 * @return the estimated memory in MB
+	 */
+	private int estimateMB(int count, int width)
+	{
+		long bytes = (count * BYTES_PER_FIGURE) + (width * BYTES_PER_COLUMN);
+		return (int) Math.min(memory, Math.max(1L, bytes >> 20));
+	}
+
+	/**
+	 * Name of a file without its extension
+	 * @param name the file name
+	 * @return the name without its extension
+	 */
+	private static String baseName(String name)
+	{
+		int dot = name.lastIndexOf('.');
+		return (dot > 0 ? name.substring(0, dot) : name);
+	}
+}
@@ -1,15 +1,24 @@
 package application;
 
+import java.awt.geom.Rectangle2D;
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import application.cells.FigureCell;
+import application.cells.FigureListCell;
 import application.panels.InfoPanelController;
+import application.panels.PerformanceHud;
 import figures.Drawing;
 import figures.Figure;
 import figures.enums.FigureType;
@@ -17,16 +26,30 @@ import figures.enums.LineType;
 import figures.filters.CompositeFigureFilter;
 import figures.filters.FigureFilters;
 import figures.filters.FigureTypeFilter;
+import figures.io.DrawingFiles;
+import figures.io.FigureRecord;
+import figures.io.FigureRecords;
+import figures.io.ParallelDrawingLoader;
+import figures.render.TiledRasterizer;
+import figures.store.FigureStore;
+import figures.store.OcclusionCuller;
+import figures.store.OverlapFinder;
 import history.HistoryManager;
+import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.Property;
 import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.ListChangeListener;
 import javafx.collections.transformation.FilteredList;
 import javafx.event.ActionEvent;
 import javafx.event.Event;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.ColorPicker;
@@ -46,10 +69,15 @@ import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Pane;
+import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.stage.WindowEvent;
 import logger.LoggerFactory;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import metrics.StartupProfiler;
 import tools.AbstractTool;
 import tools.CursorTool;
 import tools.SelectionTool;
@@ -71,6 +99,19 @@ public class Controller implements Initializable
 	// -------------------------------------------------------------------------
 	// internal attributes
 	// -------------------------------------------------------------------------
+	/**
+	 * Latencies of filters evaluations (figures list filtering)
+	 * @see #onFilterChangedAction(ActionEvent)
+	 */
+	private static final LatencyHistogram FILTER_LATENCY =
+	    MetricsRegistry.histogram("controller.filter");
+
+	/**
+	 * Maximum number of overlapping pairs listed in logs
+	 * @see #onSelectOverlapsAction(ActionEvent)
+	 */
+	private static final int LOGGED_OVERLAPS = 100;
+
 	/**
 	 * Logger to show debug message or only log them in a file
 	 */
@@ -92,6 +133,13 @@ public class Controller implements Initializable
 	 */
 	private Drawing drawingModel = null;
 
+	/**
+	 * The file {@link #drawingModel} has last been saved to (or loaded from).
+	 * Saving again into this file only rewrites modified chunks.
+	 * @see DrawingFiles#save(Drawing, java.nio.file.Path, boolean)
+	 */
+	private File drawingFile = null;
+
 	/**
 	 * Inclusive Composite {@link Figure}s filter to filter Figures based on
 	 * their {@link FigureType}s.
@@ -128,6 +176,98 @@ public class Controller implements Initializable
 	 */
 	private HistoryManager<Figure> historyManager = null;
 
+	/**
+	 * Performance overlay shown on top of {@link #drawingPane} (lazily
+	 * created when first shown)
+	 * @see #onTogglePerformanceHudAction(ActionEvent)
+	 */
+	private PerformanceHud performanceHud = null;
+
+	/**
+	 * Culler of figures fully hidden by opaque figures above them (or null
+	 * when occluded figures are shown)
+	 * @see #onHideOccludedAction(ActionEvent)
+	 */
+	private OcclusionCuller occlusionCuller = null;
+
+	/**
+	 * Single background thread running occlusion passes in order (lazily
+	 * created when occluded figures are first hidden)
+	 */
+	private ExecutorService occlusionExecutor = null;
+
+	/**
+	 * Store mirroring {@link #drawingModel} while occluded figures are
+	 * hidden (or null otherwise): kept up to date row by row so that each
+	 * occlusion pass only needs a copy of it
+	 */
+	private FigureStore occlusionStore = null;
+
+	/**
+	 * Listener applying figures added, removed, replaced or permuted in
+	 * {@link #drawingModel} to {@link #occlusionStore} and scheduling an
+	 * occlusion pass
+	 */
+	private final ListChangeListener<Figure> occlusionListener = change -> {
+		while (change.next())
+		{
+			int from = change.getFrom();
+			if (change.wasPermutated() || change.wasUpdated())
+			{
+				for (int row = from; row < change.getTo(); row++)
+				{
+					occlusionStore.set(row, change.getList().get(row));
+				}
+				continue;
+			}
+			if (change.wasRemoved())
+			{
+				BitSet rows = new BitSet();
+				rows.set(from, from + change.getRemovedSize());
+				occlusionStore.removeAll(rows);
+			}
+			if (change.wasAdded())
+			{
+				List<? extends Figure> added = change.getAddedSubList();
+				for (int i = 0; i < added.size(); i++)
+				{
+					occlusionStore.add(from + i, added.get(i));
+				}
+			}
+		}
+		scheduleOcclusion();
+	};
+
+	/**
+	 * Listener applying figures moved or restyled in {@link #drawingModel}
+	 * to {@link #occlusionStore} and scheduling an occlusion pass
+	 * @see Drawing#editsProperty()
+	 */
+	private final ChangeListener<Number> occlusionEditsListener = (observable, oldValue, newValue) -> {
+		int row = drawingModel.getLastEdited();
+		if ((row >= 0) && (row < occlusionStore.size()))
+		{
+			occlusionStore.set(row, drawingModel.get(row));
+			scheduleOcclusion();
+		}
+	};
+
+	/**
+	 * Indicates an occlusion pass has been scheduled for next pulse
+	 */
+	private boolean occlusionScheduled = false;
+
+	/**
+	 * State of {@link #drawingModel} culled by the last applied occlusion
+	 * pass (or null if there is none)
+	 */
+	private FigureStore occludedStore = null;
+
+	/**
+	 * Indices of hidden figures of {@link #occludedStore}
+	 */
+	private BitSet occludedRows = null;
+
 	/**
 	 * Current Tool attached to {@link #drawingPane} and {@link #drawingModel}
 	 */
@@ -160,6 +300,25 @@ public class Controller implements Initializable
 	@FXML
 	private Pane drawingPane;
 
+	/**
+	 * Stack pane containing the scroll pane of {@link #drawingPane} so that
+	 * overlays such as {@link #performanceHud} can be shown on top of it
+	 */
+	@FXML
+	private StackPane drawingStackPane;
+
+	/**
+	 * CheckMenuItem to toggle {@link #performanceHud}
+	 */
+	@FXML
+	private CheckMenuItem performanceHudCheckMenuItem;
+
+	/**
+	 * CheckMenuItem to hide figures fully occluded by opaque figures
+	 */
+	@FXML
+	private CheckMenuItem hideOccludedCheckMenuItem;
+
 	/**
 	 * Toolbar "MoveDown" Button
 	 * @implSpec Should be part of {@link #styleableButtons}
@@ -505,6 +664,8 @@ public class Controller implements Initializable
 	@Override
 	public void initialize(URL location, ResourceBundle resources)
 	{
+		StartupProfiler.begin("controller initialize");
+
 		/*
 		 * DONE Controller#initialize: setting up #drawingModel
 		 * with
@@ -640,7 +801,7 @@ public class Controller implements Initializable
 		/*
 		 * DONE Controller#initialize: Setup #figuresListView with
 		 * 	- content from #drawingModel
-		 * 	- CellFactory as FigureCell
+		 * 	- CellFactory as FigureListCell
 		 * Note: #figuresListView has already been set up in Drawing constructor
 		 * with:
 		 * 	- multiple selections
@@ -648,7 +809,7 @@ public class Controller implements Initializable
 		 */
 		
 		figuresListView.setItems(drawingModel);
-		figuresListView.setCellFactory(data -> new FigureCell());
+		figuresListView.setCellFactory(data -> new FigureListCell());
 		
 		/*
 		 * DONE Controller#initialize: Setup #messagesLabel with empty or null message
@@ -729,6 +890,8 @@ public class Controller implements Initializable
 		 */
 		
 		setTools(false);
+
+		StartupProfiler.end("controller initialize");
 	}
 
 	/**
@@ -774,6 +937,167 @@ public class Controller implements Initializable
 
 	}
 
+	/**
+	 * Action to load a drawing file into {@link #drawingModel} (replacing
+	 * current figures).
+	 * File chunks are decoded in parallel.
+	 * @param event event associated with this action
+	 * @see ParallelDrawingLoader#load(java.nio.file.Path, Drawing, Logger)
+	 */
+	@FXML
+	public void onLoadAction(ActionEvent event)
+	{
+		logger.info("Load Action triggered");
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Load drawing");
+		chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Drawings", "*.figs"));
+		if (drawingFile != null)
+		{
+			chooser.setInitialDirectory(drawingFile.getParentFile());
+		}
+		File file = chooser.showOpenDialog(parentStage);
+		if (file == null)
+		{
+			return;
+		}
+
+		try
+		{
+			long start = System.nanoTime();
+			int count = ParallelDrawingLoader.load(file.toPath(), drawingModel, logger);
+			long elapsed = (System.nanoTime() - start) / 1000000;
+			drawingFile = file;
+			messagesLabel.setText(String.format("Loaded %d figures from %s in %d ms",
+			                                    count,
+			                                    file.getName(),
+			                                    elapsed));
+		}
+		catch (IOException e)
+		{
+			logger.severe("Unable to load " + file + ": " + e.getLocalizedMessage());
+			messagesLabel.setText("Unable to load " + file.getName());
+		}
+	}
+
+	/**
+	 * Action to save {@link #drawingModel} into a file.
+	 * If the drawing has already been saved into (or loaded from) the chosen
+	 * file, only chunks modified since then are rewritten.
+	 * @param event event associated with this action
+	 */
+	@FXML
+	public void onSaveAction(ActionEvent event)
+	{
+		logger.info("Save Action triggered");
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Save drawing");
+		chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Drawings", "*.figs"));
+		if (drawingFile != null)
+		{
+			chooser.setInitialDirectory(drawingFile.getParentFile());
+			chooser.setInitialFileName(drawingFile.getName());
+		}
+		File file = chooser.showSaveDialog(parentStage);
+		if (file == null)
+		{
+			return;
+		}
+
+		boolean incremental = file.equals(drawingFile);
+		try
+		{
+			long start = System.nanoTime();
+			int chunks = DrawingFiles.save(drawingModel, file.toPath(), incremental);
+			long elapsed = (System.nanoTime() - start) / 1000000;
+			drawingFile = file;
+			messagesLabel.setText(String.format("Saved %d figures into %s (%d chunks written in %d ms)",
+			                                    drawingModel.size(),
+			                                    file.getName(),
+			                                    chunks,
+			                                    elapsed));
+		}
+		catch (IOException e)
+		{
+			logger.severe("Unable to save " + file + ": " + e.getLocalizedMessage());
+			messagesLabel.setText("Unable to save " + file.getName());
+		}
+	}
+
+	/**
+	 * Action to export {@link #drawingModel} into a PNG image.
+	 * Figures are converted into headless records and rendered by tiles in
+	 * a background thread (so large images don't freeze the UI nor require the
+	 * whole image in memory).
+	 * Figures hidden because they are fully occluded are skipped.
+	 * @param event event associated with this action
+	 * @see TiledRasterizer
+	 */
+	@FXML
+	public void onExportAction(ActionEvent event)
+	{
+		logger.info("Export Action triggered");
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Export drawing");
+		chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PNG Images", "*.png"));
+		File file = chooser.showSaveDialog(parentStage);
+		if (file == null)
+		{
+			return;
+		}
+
+		List<FigureRecord> records = new ArrayList<>(drawingModel.size());
+		for (Figure figure : drawingModel)
+		{
+			if (figure.getRoot().isVisible())
+			{
+				records.add(FigureRecords.toRecord(figure));
+			}
+		}
+		/*
+		 * Image covers the drawing pane (and figures outside of it if any)
+		 */
+		Rectangle2D bounds = TiledRasterizer.boundsOf(records);
+		bounds.add(new Rectangle2D.Double(0.0,
+		                                   0.0,
+		                                   drawingPane.getWidth(),
+		                                   drawingPane.getHeight()));
+		double originX = Math.floor(bounds.getMinX());
+		double originY = Math.floor(bounds.getMinY());
+		int width = (int) Math.ceil(bounds.getMaxX() - originX);
+		int height = (int) Math.ceil(bounds.getMaxY() - originY);
+		messagesLabel.setText("Exporting " + file.getName() + "...");
+
+		Thread exporter = new Thread(() -> {
+			String message;
+			try
+			{
+				long start = System.nanoTime();
+				new TiledRasterizer(TiledRasterizer.DEFAULT_TILE_SIZE,
+				                    0xFFFFFFFF,
+				                    ForkJoinPool.commonPool()).render(records,
+				                                                      originX,
+				                                                      originY,
+				                                                      width,
+				                                                      height,
+				                                                      file.toPath());
+				message = String.format("Exported %dx%d image into %s in %d ms",
+				                        width,
+				                        height,
+				                        file.getName(),
+				                        (System.nanoTime() - start) / 1000000);
+			}
+			catch (IOException | IllegalArgumentException e)
+			{
+				logger.severe("Unable to export " + file + ": " + e.getLocalizedMessage());
+				message = "Unable to export " + file.getName();
+			}
+			String result = message;
+			Platform.runLater(() -> messagesLabel.setText(result));
+		}, "PNG export");
+		exporter.setDaemon(true);
+		exporter.start();
+	}
+
 	/**
 	 * Action to Clear all figures in {@link #drawingModel}
 	 * @param event event associated with this action
@@ -1103,14 +1427,20 @@ public class Controller implements Initializable
 	{
 		logger.info("ApplyStyle Action triggered");
 		// DONE Controller#onApplyStyleAction ...
-		for (Figure figure : drawingModel)
+		/*
+		 * Figures are iterated by index so that marking them dirty doesn't
+		 * search them in the drawing
+		 */
+		for (int index = 0; index < drawingModel.size(); index++)
 		{
+			Figure figure = drawingModel.get(index);
 			if (figure.isSelected())
 			{
 				figure.setFillColor(drawingModel.getFillColor());
 				figure.setEdgeColor(drawingModel.getEdgeColor());
 				figure.setLineType(drawingModel.getLineType());
 				figure.setLineWidth(drawingModel.getLineWidth());
+				drawingModel.markDirty(index);
 			}
 		}
 	}
@@ -1280,8 +1610,10 @@ public class Controller implements Initializable
 		if (filteringProperty.get())
 		{
 			logger.info("filters = " + figuresFilter);
+			long start = System.nanoTime();
 			FilteredList<Figure> filteredList = drawingModel.filtered(figuresFilter);
 			figuresListView.setItems(filteredList);
+			FILTER_LATENCY.recordSince(start);
 			logger.info("filtered figures = " + filteredList);
 		}
 	}
@@ -1506,6 +1838,187 @@ public class Controller implements Initializable
 		logger.setLevel(Level.OFF);
 	}
 
+	/**
+	 * Action to show or hide the {@link #performanceHud} on top of
+	 * {@link #drawingPane} according to {@link #performanceHudCheckMenuItem}
+	 * @param event event associated with this action
+	 */
+	@FXML
+	public void onTogglePerformanceHudAction(ActionEvent event)
+	{
+		boolean show = performanceHudCheckMenuItem.isSelected();
+		logger.info((show ? "Show" : "Hide") + " performance overlay");
+		if (show)
+		{
+			if (performanceHud == null)
+			{
+				performanceHud = new PerformanceHud(drawingModel, historyManager);
+			}
+			performanceHud.show(drawingStackPane);
+		}
+		else if (performanceHud != null)
+		{
+			performanceHud.hide();
+		}
+	}
+
+	/**
+	 * Action to estimate the memory retained by {@link #drawingModel}, the
+	 * undo / redo stacks of {@link #historyManager} and the flyweight caches.
+	 * The full report is logged and its summary is displayed in
+	 * {@link #messagesLabel}
+	 * @param event event associated with this action
+	 * @see MemoryReport
+	 */
+	@FXML
+	public void onMemoryReportAction(ActionEvent event)
+	{
+		logger.info("Memory Report Action triggered");
+		MemoryReport report = new MemoryReport(drawingModel, historyManager, this);
+		logger.info(report.toString());
+		messagesLabel.setText(report.summary());
+	}
+
+	/**
+	 * Action to find all pairs of overlapping figures of
+	 * {@link #drawingModel} (whose exact shapes intersect) in a background
+	 * thread with an {@link OverlapFinder}, then select all overlapping
+	 * figures in {@link #figuresListView} (e.g. to clean up imported drawings).
+	 * The first overlapping pairs are listed in logs.
+	 * @param event event associated with this action
+	 */
+	@FXML
+	public void onSelectOverlapsAction(ActionEvent event)
+	{
+		logger.info("Select Overlaps Action triggered");
+		FigureStore store = FigureStore.of(drawingModel);
+		messagesLabel.setText("Searching overlapping figures...");
+
+		Thread finder = new Thread(() -> {
+			long start = System.nanoTime();
+			long[] pairs = new OverlapFinder(ForkJoinPool.commonPool()).find(store, true);
+			long elapsed = (System.nanoTime() - start) / 1000000;
+			BitSet rows = OverlapFinder.rowsOf(pairs);
+			Platform.runLater(() -> {
+				/*
+				 * Rows are indices and states of figures in the drawing when
+				 * the search started: figures may have been added, removed,
+				 * moved or resized since
+				 */
+				for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1))
+				{
+					if ((row >= drawingModel.size()) || !store.matches(row, drawingModel.get(row)))
+					{
+						messagesLabel.setText("Drawing changed while searching overlapping figures");
+						return;
+					}
+				}
+				for (int i = 0; i < Math.min(pairs.length, LOGGED_OVERLAPS); i++)
+				{
+					logger.info(drawingModel.get(OverlapFinder.first(pairs[i])) + " overlaps "
+					    + drawingModel.get(OverlapFinder.second(pairs[i])));
+				}
+				drawingModel.select(rows);
+				messagesLabel.setText(String.format("%d overlapping pairs of %d figures found in %d ms",
+				                                    pairs.length,
+				                                    rows.cardinality(),
+				                                    elapsed));
+			});
+		}, "Overlaps finder");
+		finder.setDaemon(true);
+		finder.start();
+	}
+
+	/**
+	 * Action to toggle hiding of figures fully occluded by opaque figures
+	 * above them in {@link #drawingModel} (so they are not rendered).
+	 * While enabled, occlusion is updated incrementally in a background thread
+	 * whenever figures are added, removed, moved or restyled.
+	 * @param event event associated with this action
+	 * @see OcclusionCuller
+	 */
+	@FXML
+	public void onHideOccludedAction(ActionEvent event)
+	{
+		boolean hide = hideOccludedCheckMenuItem.isSelected();
+		logger.info((hide ? "Hide" : "Show") + " occluded figures");
+		if (hide)
+		{
+			if (occlusionExecutor == null)
+			{
+				occlusionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+					Thread thread = new Thread(runnable, "Occlusion culler");
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+			occlusionCuller = new OcclusionCuller(ForkJoinPool.commonPool());
+			occlusionStore = FigureStore.of(drawingModel);
+			drawingModel.addListener(occlusionListener);
+			drawingModel.editsProperty().addListener(occlusionEditsListener);
+			messagesLabel.setText("Searching occluded figures...");
+			scheduleOcclusion();
+		}
+		else
+		{
+			drawingModel.removeListener(occlusionListener);
+			drawingModel.editsProperty().removeListener(occlusionEditsListener);
+			occlusionCuller = null;
+			occlusionStore = null;
+			occludedStore = null;
+			occludedRows = null;
+			for (Figure figure : drawingModel)
+			{
+				figure.getRoot().setVisible(true);
+			}
+			messagesLabel.setText("All figures shown");
+		}
+	}
+
+	/**
+	 * Action to delete figures fully occluded by opaque figures above them
+	 * (as found by the last occlusion pass) after confirmation
+	 * @param event event associated with this action
+	 * @see #onHideOccludedAction(ActionEvent)
+	 */
+	@FXML
+	public void onDeleteHiddenAction(ActionEvent event)
+	{
+		logger.info("Delete Hidden Action triggered");
+		if ((occludedRows == null)
+		    || !isStateOf(occludedStore, allRows(occludedStore)))
+		{
+			messagesLabel.setText("Occluded figures are not up to date: hide occluded figures first"
+			                      + " or wait for the current search");
+			return;
+		}
+		BitSet rows = occludedRows;
+		int count = rows.cardinality();
+		if (count == 0)
+		{
+			messagesLabel.setText("No hidden figures to delete");
+			return;
+		}
+		Alert alert = new Alert(AlertType.CONFIRMATION,
+		                        count + " figures are fully hidden by opaque figures above them."
+		                        + " Delete them?",
+		                        ButtonType.OK,
+		                        ButtonType.CANCEL);
+		alert.setHeaderText("Delete hidden figures");
+		alert.initOwner(parentStage);
+		Optional<ButtonType> answer = alert.showAndWait();
+		if (!answer.isPresent() || (answer.get() != ButtonType.OK))
+		{
+			return;
+		}
+
+		historyManager.record();
+		drawingModel.removeAll(rows);
+		occludedStore = null;
+		occludedRows = null;
+		messagesLabel.setText(count + " hidden figures deleted");
+	}
+
 	/**
 	 * Action to set the number of Undo / Redos in {@link #historyManager}
 	 * @param event event associated with this action
@@ -1622,6 +2135,114 @@ public class Controller implements Initializable
 	}
 	*/
 
+	/**
+	 * Schedules an occlusion pass of {@link #drawingModel}: a copy of
+	 * {@link #occlusionStore} is taken on next pulse (so that successive
+	 * changes lead to a single pass), then culled incrementally by {@link #occlusionCuller} in
+	 * {@link #occlusionExecutor} and hidden figures are finally applied on the
+	 * JavaFX Application Thread
+	 */
+	private void scheduleOcclusion()
+	{
+		if (occlusionScheduled)
+		{
+			return;
+		}
+		occlusionScheduled = true;
+		Platform.runLater(() -> {
+			occlusionScheduled = false;
+			OcclusionCuller culler = occlusionCuller;
+			if (culler == null)
+			{
+				return;
+			}
+			FigureStore store = occlusionStore.copy();
+			occlusionExecutor.execute(() -> {
+				long start = System.nanoTime();
+				BitSet hidden = culler.update(store);
+				int tested = culler.getTestedRows();
+				long elapsed = (System.nanoTime() - start) / 1000000;
+				Platform.runLater(() -> applyOcclusion(culler, store, hidden, tested, elapsed));
+			});
+		});
+	}
+
+	/**
+	 * Hides figures found hidden by an occlusion pass and shows others,
+	 * unless occluded figures are no longer hidden or the drawing changed
+	 * since the pass started (in which case another pass has been scheduled)
+	 * @param culler the culler which performed the pass
+	 * @param store the culled state of {@link #drawingModel}
+	 * @param hidden the indices of hidden figures
+	 * @param tested the number of figures tested by the pass
+	 * @param elapsed the duration of the pass in ms
+	 */
+	private void applyOcclusion(OcclusionCuller culler,
+	                            FigureStore store,
+	                            BitSet hidden,
+	                            int tested,
+	                            long elapsed)
+	{
+		if ((culler != occlusionCuller) || !isStateOf(store, hidden))
+		{
+			return;
+		}
+		for (int row = 0; row < store.size(); row++)
+		{
+			drawingModel.get(row).getRoot().setVisible(!hidden.get(row));
+		}
+		occludedStore = store;
+		occludedRows = hidden;
+		messagesLabel.setText(String.format("%d occluded figures hidden (%d figures tested in %d ms)",
+		                                    hidden.cardinality(),
+		                                    tested,
+		                                    elapsed));
+	}
+
+	/**
+	 * Checks a store still contains the figures of {@link #drawingModel} and
+	 * that some of them have not been moved or restyled since the store was
+	 * written
+	 * @param store the store created from {@link #drawingModel}
+	 * @param rows the rows whose figures must still be in the state of the
+	 * store
+	 * @return true if the store contains the figures of {@link #drawingModel}
+	 * in the same order and figures of rows are unchanged
+	 * @see FigureStore#matches(int, Figure)
+	 */
+	private boolean isStateOf(FigureStore store, BitSet rows)
+	{
+		if ((store == null) || (store.size() != drawingModel.size()))
+		{
+			return false;
+		}
+		for (int row = 0; row < store.size(); row++)
+		{
+			Figure figure = drawingModel.get(row);
+			if (!store.hasFigure(row) || (store.getFigure(row, logger) != figure)
+			    || (rows.get(row) && !store.matches(row, figure)))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * All rows of a store
+	 * @param store the store (or null)
+	 * @return the set of all rows of the store (empty if store is null)
+	 */
+	private static BitSet allRows(FigureStore store)
+	{
+		BitSet rows = new BitSet();
+		if (store != null)
+		{
+			rows.set(0, store.size());
+		}
+		return rows;
+	}
+
 	/**
 	 * Binds two properties bi-directionnaly so when one property changes the
 	 * other is also changed and vice-versa.
@@ -1,19 +1,32 @@
 package application;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Iterator;
 import java.util.List;
+import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.SceneAntialiasing;
 import javafx.scene.image.Image;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
+import logger.AsyncHandler;
 import logger.LoggerFactory;
+import metrics.MetricsRegistry;
+import metrics.StartupProfiler;
+import tools.replay.SessionRecorder;
+import utils.AssetPreloader;
+import utils.ColorFactory;
+import utils.IconFactory;
+import utils.StrokeFactory;
 
 
 /**
@@ -29,6 +42,50 @@ public class Main extends Application
 	 */
 	private boolean verbose = true;
 
+	/**
+	 * Status indicating if icons should be preloaded in background by
+	 * {@link AssetPreloader} during startup
+	 */
+	private boolean preload = true;
+
+	/**
+	 * File to dump all metrics of the {@link MetricsRegistry} to when the
+	 * application stops (or null if metrics should not be dumped)
+	 */
+	private Path metricsFile = null;
+
+	/**
+	 * File to record the mouse session to (or null if the mouse session
+	 * should not be recorded)
+	 * @see SessionRecorder
+	 */
+	private Path sessionFile = null;
+
+	/**
+	 * File to write the startup profile to once the first frame has been
+	 * rendered (or null if startup profile should not be written)
+	 * @see StartupProfiler
+	 */
+	private Path startupProfileFile = null;
+
+	/**
+	 * Startup benchmark mode: the application exits after the first frame of
+	 * the last startup run and prints a summary of each run
+	 */
+	private boolean startupBenchmark = false;
+
+	/**
+	 * Number of startup runs in startup benchmark mode: the first one is cold
+	 * and the following ones are warm (FXML, controller and scene are loaded
+	 * again in the same JVM)
+	 */
+	private int startupRuns = 1;
+
+	/**
+	 * Name of the startup phase ending with the first frame
+	 */
+	private static final String FIRST_FRAME = "first frame";
+
 	/**
 	 * Logger used to display debug or info messages
 	 * @implNote Needs to be initialized {@link #init()}
@@ -42,6 +99,7 @@ public class Main extends Application
 	@Override
 	public void init() throws Exception
 	{
+		StartupProfiler.begin("Application.init");
 		super.init();
 
 		Application.Parameters appParameters = getParameters();
@@ -61,6 +119,7 @@ public class Main extends Application
 		    (verbose ? null : runningClass.getSimpleName() + ".log");
 		Logger parent = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
 		Level level = (verbose ? Level.ALL : Level.INFO);
+		StartupProfiler.begin("logger setup");
 		try
 		{
 			logger = LoggerFactory.getLogger(runningClass,
@@ -75,8 +134,42 @@ public class Main extends Application
 			ex.printStackTrace();
 			System.exit(ex.hashCode());
 		}
+		StartupProfiler.end("logger setup");
 
 		setAttributes(rawParameters);
+
+		/*
+		 * Exports operation metrics as JMX MBeans
+		 */
+		StartupProfiler.begin("metrics registration");
+		registerMetrics();
+		StartupProfiler.end("metrics registration");
+
+		/*
+		 * Starts recording mouse events received by tools (the drawing is
+		 * empty at startup)
+		 */
+		if (sessionFile != null)
+		{
+			try
+			{
+				SessionRecorder.start(sessionFile, 0, logger);
+			}
+			catch (IOException e)
+			{
+				logger.severe("Can't record mouse session to " + sessionFile
+				    + " : " + e.getMessage());
+			}
+		}
+
+		/*
+		 * Starts decoding icons in background while FXML file loads
+		 */
+		if (preload)
+		{
+			AssetPreloader.start();
+		}
+		StartupProfiler.end("Application.init");
 	}
 
 	/**
@@ -92,6 +185,7 @@ public class Main extends Application
 		// Loads Scene from FXML
 		// --------------------------------------------------------------------
 		logger.info("Loading FXML file ...");
+		StartupProfiler.begin("FXML load");
 		FXMLLoader loader = new FXMLLoader(getClass().getResource("EditorFrame.fxml"));
 		BorderPane root = null;
 		try
@@ -109,6 +203,7 @@ public class Main extends Application
 			logger.severe("Can't load FXML file " + e.getMessage());
 			System.exit(e.hashCode());
 		}
+		StartupProfiler.end("FXML load");
 
 		// --------------------------------------------------------------------
 		// Get controller's instance and get/set some values such as
@@ -124,6 +219,7 @@ public class Main extends Application
 		// Finally launch GUI
 		// --------------------------------------------------------------------
 		logger.info("Setting up GUI...");
+		StartupProfiler.begin("scene setup");
 		Scene scene = new Scene(root, 800, 600, true, SceneAntialiasing.BALANCED);
 		scene.getStylesheets().add(getClass().getResource("application.css").toExternalForm());
 		primaryStage.setScene(scene);
@@ -148,7 +244,99 @@ public class Main extends Application
 		 * the window instead of properly quitting
 		 */
 		primaryStage.setOnCloseRequest(controller::quitActionImpl);
+		reportFirstFrame(scene, primaryStage);
+		StartupProfiler.end("scene setup");
+		StartupProfiler.begin("stage show");
 		primaryStage.show();
+		StartupProfiler.end("stage show");
+		StartupProfiler.begin("first pulse");
+	}
+
+	/**
+	 * Logs the time to first frame (since JVM start) as soon as the first
+	 * pulse of the scene has been processed, then ends the startup run
+	 * @param scene the scene to be shown
+	 * @param stage the stage showing the scene
+	 * @see #startupRunEnded(Stage)
+	 */
+	private void reportFirstFrame(Scene scene, Stage stage)
+	{
+		Runnable listener = new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				scene.removePostLayoutPulseListener(this);
+				long elapsed = System.currentTimeMillis()
+				    - ManagementFactory.getRuntimeMXBean().getStartTime();
+				double preloadTime = AssetPreloader.getPreloadTime();
+				logger.info("Time to first frame: " + elapsed + " ms ("
+				    + (AssetPreloader.isStarted() ?
+				       (preloadTime >= 0 ?
+				        String.format("icons preloaded in %.1f ms", preloadTime) :
+				        "icons still preloading") :
+				       "no icons preloading")
+				    + ")");
+				StartupProfiler.end("first pulse");
+				StartupProfiler.mark(FIRST_FRAME);
+				Platform.runLater(() -> startupRunEnded(stage));
+			}
+		};
+		scene.addPostLayoutPulseListener(listener);
+	}
+
+	/**
+	 * Ends a startup run once its first frame has been rendered:
+	 * <ul>
+	 * <li>In startup benchmark mode, prints a summary of the run and starts
+	 * another (warm) run if required</li>
+	 * <li>Otherwise stops recording startup phases, writes the startup
+	 * profile (if required) and exits in startup benchmark mode</li>
+	 * </ul>
+	 * @param stage the primary stage
+	 */
+	private void startupRunEnded(Stage stage)
+	{
+		if (!StartupProfiler.isRecording())
+		{
+			return;
+		}
+		int run = StartupProfiler.getRuns() - 1;
+		String summary = StartupProfiler.summary(run, FIRST_FRAME);
+		if (startupBenchmark)
+		{
+			System.out.println(summary);
+			if ((run + 1) < startupRuns)
+			{
+				stage.hide();
+				StartupProfiler.newRun();
+				start(stage);
+				return;
+			}
+		}
+		else
+		{
+			logger.fine(summary);
+		}
+
+		StartupProfiler.finish();
+		if (startupProfileFile != null)
+		{
+			try
+			{
+				StartupProfiler.report(startupProfileFile);
+				logger.info("Startup profile written to " + startupProfileFile.toAbsolutePath());
+			}
+			catch (IOException e)
+			{
+				logger.severe("Can't write startup profile to " + startupProfileFile
+				    + " : " + e.getMessage());
+			}
+		}
+		if (startupBenchmark)
+		{
+			Platform.exit();
+		}
 	}
 
 	/**
@@ -162,9 +350,47 @@ public class Main extends Application
 		/*
 		 * Cleanup before quitting (if required)
 		 */
+		SessionRecorder.stop();
+		if (metricsFile != null)
+		{
+			try
+			{
+				MetricsRegistry.dump(metricsFile);
+				logger.info("Metrics dumped to " + metricsFile.toAbsolutePath());
+			}
+			catch (IOException e)
+			{
+				logger.severe("Can't dump metrics to " + metricsFile + " : "
+				    + e.getMessage());
+			}
+		}
 		super.stop();
 	}
 
+	/**
+	 * Registers gauges of caches and asynchronous log handlers into the
+	 * {@link MetricsRegistry} and exports all metrics as JMX MBeans
+	 */
+	private void registerMetrics()
+	{
+		MetricsRegistry.gauge("cache.colors.size", () -> ColorFactory.getCache().size());
+		MetricsRegistry.gauge("cache.colors.hitRatio", () -> ColorFactory.getCache().getHitRatio());
+		MetricsRegistry.gauge("cache.strokes.size", () -> StrokeFactory.getCache().size());
+		MetricsRegistry.gauge("cache.icons.size", () -> IconFactory.getCache().size());
+		MetricsRegistry.gauge("cache.icons.hitRatio", () -> IconFactory.getCache().getHitRatio());
+		for (Handler handler : logger.getHandlers())
+		{
+			if (handler instanceof AsyncHandler)
+			{
+				AsyncHandler asyncHandler = (AsyncHandler) handler;
+				MetricsRegistry.gauge("logger.async.queued", asyncHandler::getQueued);
+				MetricsRegistry.gauge("logger.async.written", asyncHandler::getWritten);
+				MetricsRegistry.gauge("logger.async.dropped", asyncHandler::getDropped);
+			}
+		}
+		MetricsRegistry.registerMBeans();
+	}
+
 	/**
 	 * Main program to launch Application
 	 * @param args main program arguments
@@ -189,6 +415,13 @@ public class Main extends Application
 		/*
 		 * Arguments parsing
 		 * 	-v | --verbose : for verbose setting
+		 * 	--no-preload : don't preload icons in background
+		 * 	--metrics <file> : dump metrics to file on exit
+		 * 	--record-session <file> : record mouse session to file
+		 * 	--startup-profile <file> : write startup profile to file
+		 * 	--startup-benchmark : exit after first frame
+		 * 	--startup-runs <n> : number of startup runs (1 cold + n-1 warm)
+		 * 	in startup benchmark mode
 		 */
 		for (Iterator<String> argIt = args.iterator(); argIt.hasNext();)
 		{
@@ -200,6 +433,64 @@ public class Main extends Application
 					logger.info("Setting verbose on");
 					verbose = true;
 				}
+				else if (arg.equals("--no-preload"))
+				{
+					logger.info("Setting icons preloading off");
+					preload = false;
+				}
+				else if (arg.equals("--metrics"))
+				{
+					if (argIt.hasNext())
+					{
+						metricsFile = Paths.get(argIt.next());
+						logger.info("Setting metrics dump to " + metricsFile);
+					}
+					else
+					{
+						logger.warning("missing metrics file name");
+					}
+				}
+				else if (arg.equals("--record-session"))
+				{
+					if (argIt.hasNext())
+					{
+						sessionFile = Paths.get(argIt.next());
+						logger.info("Setting mouse session recording to " + sessionFile);
+					}
+					else
+					{
+						logger.warning("missing session file name");
+					}
+				}
+				else if (arg.equals("--startup-profile"))
+				{
+					if (argIt.hasNext())
+					{
+						startupProfileFile = Paths.get(argIt.next());
+						logger.info("Setting startup profile to " + startupProfileFile);
+					}
+					else
+					{
+						logger.warning("missing startup profile file name");
+					}
+				}
+				else if (arg.equals("--startup-benchmark"))
+				{
+					logger.info("Setting startup benchmark mode on");
+					startupBenchmark = true;
+				}
+				else if (arg.equals("--startup-runs"))
+				{
+					try
+					{
+						startupRuns = Math.max(1, Integer.parseInt(argIt.next()));
+						logger.info("Setting startup runs to " + startupRuns);
+					}
+					catch (RuntimeException e)
+					{
+						logger.warning("missing or invalid number of startup runs");
+					}
+				}
 			}
 		}
 	}
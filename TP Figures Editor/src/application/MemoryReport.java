@@ -0,0 +1,347 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import figures.Drawing;
+import figures.Figure;
+import figures.FigureStyle;
+import history.HistoryManager;
+import history.Memento;
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+import metrics.MemoryFootprint;
+import utils.ColorFactory;
+import utils.ConcurrentCache;
+import utils.IconFactory;
+import utils.StrokeFactory;
+
+/**
+ * Estimation of the heap retained by the editor's model:
+ * <ul>
+ * <li>the {@link Drawing} (its figures and their nodes in the drawing pane),
+ * excluding the rest of the UI (nodes outside of the drawing pane)</li>
+ * <li>the undo and redo stacks of the {@link HistoryManager} (states of the
+ * drawing cloned in {@link Memento}s)</li>
+ * <li>the flyweight caches shared by figures (colors, strokes, styles and
+ * icons), which are excluded from the two previous estimations</li>
+ * </ul>
+ * Estimations are computed by walking object graphs with
+ * {@link MemoryFootprint} when the report is created, so the report should
+ * be created on the JavaFX application thread while the drawing is not
+ * modified.
+ */
+public class MemoryReport
+{
+	/**
+	 * Number of classes with the largest footprints detailed for the drawing
+	 * and each history stack
+	 */
+	public static final int TOP_CLASSES = 5;
+
+	/**
+	 * Number of figures in the drawing
+	 */
+	private final int figures;
+
+	/**
+	 * Footprint of the drawing
+	 */
+	private final MemoryFootprint drawingFootprint;
+
+	/**
+	 * Footprint of the undo stack
+	 */
+	private final MemoryFootprint undoFootprint;
+
+	/**
+	 * Footprint of the redo stack
+	 */
+	private final MemoryFootprint redoFootprint;
+
+	/**
+	 * Number of figures in all states of the undo stack
+	 */
+	private final int undoFigures;
+
+	/**
+	 * Number of figures in all states of the redo stack
+	 */
+	private final int redoFigures;
+
+	/**
+	 * Number of states in the undo stack
+	 */
+	private final int undoStates;
+
+	/**
+	 * Number of states in the redo stack
+	 */
+	private final int redoStates;
+
+	/**
+	 * Size of each flyweight cache (in bytes) by cache name
+	 */
+	private final Map<String, Long> cachesBytes;
+
+	/**
+	 * Number of elements of each flyweight cache by cache name
+	 */
+	private final Map<String, Integer> cachesSizes;
+
+	/**
+	 * Time spent computing this report (in ns)
+	 */
+	private final long elapsed;
+
+	/**
+	 * Constructor computing all estimations
+	 * @param drawing the drawing model
+	 * @param history the history manager of the drawing model (or null)
+	 * @param shared other objects which might be referenced by the drawing
+	 * (e.g. through listeners) but are not retained by it (such as the
+	 * controller)
+	 */
+	public MemoryReport(Drawing drawing,
+	                    HistoryManager<Figure> history,
+	                    Object... shared)
+	{
+		long start = System.nanoTime();
+		Map<String, ConcurrentCache<?, ?>> caches = sharedCaches();
+
+		cachesBytes = new LinkedHashMap<>();
+		cachesSizes = new LinkedHashMap<>();
+		MemoryFootprint cachesFootprint = new MemoryFootprint();
+		for (Map.Entry<String, ConcurrentCache<?, ?>> entry : caches.entrySet())
+		{
+			cachesBytes.put(entry.getKey(), cachesFootprint.add(entry.getValue()));
+			cachesSizes.put(entry.getKey(), entry.getValue().size());
+		}
+
+		Pane pane = drawing.getRoot();
+		figures = drawing.size();
+		drawingFootprint = new MemoryFootprint(object -> isOutside(object, pane));
+		for (ConcurrentCache<?, ?> cache : caches.values())
+		{
+			drawingFootprint.excludeReachable(cache);
+		}
+		drawingFootprint.exclude(history);
+		for (Object object : shared)
+		{
+			drawingFootprint.exclude(object);
+		}
+		drawingFootprint.add(drawing);
+
+		Collection<Memento<Figure>> undo = new ArrayList<>();
+		Collection<Memento<Figure>> redo = new ArrayList<>();
+		if (history != null)
+		{
+			undo.addAll(history.getUndoStates());
+			redo.addAll(history.getRedoStates());
+		}
+		undoStates = undo.size();
+		redoStates = redo.size();
+		undoFigures = count(undo);
+		redoFigures = count(redo);
+		undoFootprint = new MemoryFootprint();
+		redoFootprint = new MemoryFootprint();
+		for (MemoryFootprint footprint : List.of(undoFootprint, redoFootprint))
+		{
+			for (ConcurrentCache<?, ?> cache : caches.values())
+			{
+				footprint.excludeReachable(cache);
+			}
+			footprint.exclude(drawing);
+		}
+		for (Memento<Figure> state : undo)
+		{
+			undoFootprint.add(state);
+		}
+		/*
+		 * States popped from the undo stack might still be referenced by
+		 * the redo stack (and conversely): don't count them twice
+		 */
+		redoFootprint.excludeReachable(undo);
+		for (Memento<Figure> state : redo)
+		{
+			redoFootprint.add(state);
+		}
+		elapsed = System.nanoTime() - start;
+	}
+
+	/**
+	 * Flyweight caches shared by figures, which should be excluded from
+	 * estimations of figures
+	 * @return the flyweight caches by name
+	 */
+	public static Map<String, ConcurrentCache<?, ?>> sharedCaches()
+	{
+		Map<String, ConcurrentCache<?, ?>> caches = new LinkedHashMap<>();
+		caches.put("colors", ColorFactory.getCache());
+		caches.put("strokes", StrokeFactory.getCache());
+		caches.put("styles", FigureStyle.getCache());
+		caches.put("icons", IconFactory.getCache());
+		return caches;
+	}
+
+	/**
+	 * Total estimated size
+	 * @return the estimated size of the drawing, history stacks and caches
+	 * (in bytes)
+	 */
+	public long getTotalBytes()
+	{
+		long total = drawingFootprint.getBytes()
+		    + undoFootprint.getBytes()
+		    + redoFootprint.getBytes();
+		for (long bytes : cachesBytes.values())
+		{
+			total += bytes;
+		}
+		return total;
+	}
+
+	/**
+	 * Drawing footprint accessor
+	 * @return the footprint of the drawing
+	 */
+	public MemoryFootprint getDrawingFootprint()
+	{
+		return drawingFootprint;
+	}
+
+	/**
+	 * Undo stack footprint accessor
+	 * @return the footprint of the undo stack
+	 */
+	public MemoryFootprint getUndoFootprint()
+	{
+		return undoFootprint;
+	}
+
+	/**
+	 * Redo stack footprint accessor
+	 * @return the footprint of the redo stack
+	 */
+	public MemoryFootprint getRedoFootprint()
+	{
+		return redoFootprint;
+	}
+
+	/**
+	 * One line summary of this report (e.g. for a status message)
+	 * @return a summary containing the estimated sizes of the drawing,
+	 * history and caches
+	 */
+	public String summary()
+	{
+		long caches = 0L;
+		for (long bytes : cachesBytes.values())
+		{
+			caches += bytes;
+		}
+		return String.format("Memory: drawing %s (%d figures), history %s (%d states), caches %s",
+		                     MemoryFootprint.formatBytes(drawingFootprint.getBytes()),
+		                     figures,
+		                     MemoryFootprint.formatBytes(undoFootprint.getBytes()
+		                         + redoFootprint.getBytes()),
+		                     undoStates + redoStates,
+		                     MemoryFootprint.formatBytes(caches));
+	}
+
+	/**
+	 * Full report
+	 * @return a multi-line report detailing each estimation with the classes
+	 * with the largest footprints
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Memory report (estimated retained heap, computed in %.1f ms)",
+		                        elapsed / 1e6));
+		sb.append(String.format("%nDrawing: %d figures, %s per figure: %s",
+		                        figures,
+		                        perElement(drawingFootprint, figures),
+		                        drawingFootprint.summary(TOP_CLASSES)));
+		sb.append(String.format("%nUndo stack: %d states, %d figures, %s per figure: %s",
+		                        undoStates,
+		                        undoFigures,
+		                        perElement(undoFootprint, undoFigures),
+		                        undoFootprint.summary(TOP_CLASSES)));
+		sb.append(String.format("%nRedo stack: %d states, %d figures, %s per figure: %s",
+		                        redoStates,
+		                        redoFigures,
+		                        perElement(redoFootprint, redoFigures),
+		                        redoFootprint.summary(TOP_CLASSES)));
+		for (Map.Entry<String, Long> entry : cachesBytes.entrySet())
+		{
+			sb.append(String.format("%nCache %s: %d elements, %s",
+			                        entry.getKey(),
+			                        cachesSizes.get(entry.getKey()),
+			                        MemoryFootprint.formatBytes(entry.getValue())));
+		}
+		Runtime runtime = Runtime.getRuntime();
+		sb.append(String.format("%nTotal: %s (heap used %s of %s)",
+		                        MemoryFootprint.formatBytes(getTotalBytes()),
+		                        MemoryFootprint.formatBytes(runtime.totalMemory() - runtime.freeMemory()),
+		                        MemoryFootprint.formatBytes(runtime.maxMemory())));
+		return sb.toString();
+	}
+
+	/**
+	 * Indicates if an object is a node outside of the drawing pane
+	 * @param object the object to test
+	 * @param pane the drawing pane
+	 * @return true if object is a node which is neither the drawing pane nor
+	 * one of its descendants
+	 */
+	private static boolean isOutside(Object object, Pane pane)
+	{
+		if (!(object instanceof Node))
+		{
+			return false;
+		}
+		for (Node node = (Node) object; node != null; node = node.getParent())
+		{
+			if (node == pane)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Total number of figures in states
+	 * @param states the states to count figures in
+	 * @return the total number of figures in states
+	 */
+	private static int count(Collection<Memento<Figure>> states)
+	{
+		int count = 0;
+		for (Memento<Figure> state : states)
+		{
+			count += state.getState().size();
+		}
+		return count;
+	}
+
+	/**
+	 * Formatted average size per element of a footprint
+	 * @param footprint the footprint
+	 * @param elements the number of elements in the footprint
+	 * @return the formatted average size or "-" if there is no elements
+	 */
+	private static String perElement(MemoryFootprint footprint, int elements)
+	{
+		if (elements == 0)
+		{
+			return "-";
+		}
+		return MemoryFootprint.formatBytes(footprint.getBytes() / elements);
+	}
+}
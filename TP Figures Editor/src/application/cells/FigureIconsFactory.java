@@ -52,6 +52,19 @@ public class FigureIconsFactory
 	 */
 	private static Image starIcon = IconFactory.getIcon("Star");
 
+	/**
+	 * Icons by figure class (so the {@link FigureType} of each figure class is
+	 * only determined once)
+	 */
+	private static final ClassValue<Image> classIcons = new ClassValue<Image>()
+	{
+		@Override
+		protected Image computeValue(Class<?> type)
+		{
+			return getIconFromType(FigureType.fromClass(type.asSubclass(Figure.class)));
+		}
+	};
+
 	/**
 	 * Logger to use
 	 */
@@ -76,7 +89,7 @@ public class FigureIconsFactory
 			throw new NullPointerException(message);
 		}
 
-		return getIconFromType(FigureType.fromFigure(figure));
+		return classIcons.get(figure.getClass());
 	}
 
 	/**
@@ -0,0 +1,80 @@
+package application.cells;
+
+import figures.Figure;
+import javafx.scene.control.ListCell;
+import javafx.scene.image.ImageView;
+
+/**
+ * Lightweight cell to display {@link Figure}s in a
+ * {@link javafx.scene.control.ListView}.
+ * Unlike {@link FigureCell} which loads FigureCell.fxml for each cell, this
+ * cell builds its graphic (an {@link ImageView} shown beside the cell's text)
+ * once in its constructor and reuses it across {@link #updateItem(Figure, boolean)}
+ * calls. Icons are shared per figure class by
+ * {@link FigureIconsFactory#getIconFromInstance(Figure)} and figure names are
+ * cached by {@link Figure#toString()}.
+ * Example:
+ * {@code myListView.setCellFactory(listView -> new FigureListCell());}
+ */
+public class FigureListCell extends ListCell<Figure>
+{
+	/**
+	 * Size of icons shown in cells
+	 */
+	public static final double ICON_SIZE = 32.0;
+
+	/**
+	 * The icon view (reused for all items shown in this cell)
+	 */
+	private final ImageView iconView;
+
+	/**
+	 * The figure currently shown in this cell (to avoid updating text and
+	 * icon when the same figure is shown again)
+	 */
+	private Figure shownFigure;
+
+	/**
+	 * Default constructor.
+	 * Builds the graphic of this cell.
+	 */
+	public FigureListCell()
+	{
+		iconView = new ImageView();
+		iconView.setFitWidth(ICON_SIZE);
+		iconView.setFitHeight(ICON_SIZE);
+		iconView.setPreserveRatio(true);
+		shownFigure = null;
+	}
+
+	/**
+	 * Cell update
+	 * @param item to display in this cell
+	 * @param empty indicates if this cell represents data or not
+	 */
+	@Override
+	protected void updateItem(Figure item, boolean empty)
+	{
+		super.updateItem(item, empty);
+
+		if (empty || (item == null))
+		{
+			shownFigure = null;
+			setText(null);
+			setGraphic(null);
+		}
+		else
+		{
+			if (item != shownFigure)
+			{
+				shownFigure = item;
+				setText(item.toString());
+				iconView.setImage(FigureIconsFactory.getIconFromInstance(item));
+			}
+			if (getGraphic() != iconView)
+			{
+				setGraphic(iconView);
+			}
+		}
+	}
+}
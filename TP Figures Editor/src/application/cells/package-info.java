@@ -2,6 +2,7 @@
  * Package containing custom cells rendering for:
  * <ul>
  * 	<li>Custom cell to display {@link figures.Figure}s in a {@link javafx.scene.control.ListView}: {@link application.cells.FigureCell} and {@link application.cells.FigureCellController}</li>
+ * 	<li>Lightweight programmatic cell to display {@link figures.Figure}s in a {@link javafx.scene.control.ListView}: {@link application.cells.FigureListCell}</li>
  * 	<li>Custom cell to display {@link figures.enums.FigureType}s in a {@link javafx.scene.control.ComboBox}: {@link application.cells.FigureTypeCell} and {@link application.cells.FigureTypeCellController}</li>
  * 	<li>Custom cell to display {@link figures.enums.LineType}s in a {@link javafx.scene.control.ComboBox}: {@link application.cells.LineTypeCell} and {@link application.cells.LineTypeCellController}</li>
  * </ul>
@@ -0,0 +1,410 @@
+package application.panels;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import application.MemoryReport;
+import figures.Drawing;
+import figures.Figure;
+import history.HistoryManager;
+import history.Memento;
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.layout.StackPane;
+import metrics.LatencyHistogram;
+import metrics.MemoryFootprint;
+import metrics.MetricsRegistry;
+import utils.ConcurrentCache;
+
+/**
+ * Overlay label showing live performance figures of the editor:
+ * <ul>
+ * <li>frames per second (pulses per second)</li>
+ * <li>pulse duration (from the start of the pulse, when animation timers are
+ * run, to the end of CSS and layout passes)</li>
+ * <li>estimated number of nodes in the drawing's scene graph (from the
+ * number of nodes of a figure, so the scene graph is not walked)</li>
+ * <li>number of figures in the {@link Drawing}</li>
+ * <li>{@link HistoryManager} depth and estimated memory (from the measured
+ * size of a sample of the figures of the newest history state)</li>
+ * <li>latency of the last editor operation (as recorded by the
+ * {@link MetricsRegistry})</li>
+ * </ul>
+ * Pulses are sampled once per pulse by an {@link AnimationTimer} and a post
+ * layout pulse listener, but the text of the overlay is only updated every
+ * {@link #REFRESH_PERIOD} so the overlay itself does not trigger a layout on
+ * each pulse.
+ * The overlay should be shown on top of the drawing area in a
+ * {@link StackPane} with {@link #show(StackPane)} and removed with
+ * {@link #hide()}.
+ */
+public class PerformanceHud extends Label
+{
+	/**
+	 * Period between two updates of the displayed values (in ns)
+	 */
+	public static final long REFRESH_PERIOD = TimeUnit.MILLISECONDS.toNanos(500);
+
+	/**
+	 * Max number of figures of a history state measured to estimate the size
+	 * of figures clones stored in history states
+	 */
+	public static final int SAMPLED_CLONES = 32;
+
+	/**
+	 * Names of the {@link MetricsRegistry} histograms of editor operations
+	 * whose last latency is shown
+	 */
+	private static final String[] OPERATIONS = new String[] {
+		"drawing.add",
+		"drawing.remove",
+		"drawing.setMemento",
+		"history.record",
+		"history.undo",
+		"history.redo",
+		"controller.filter"
+	};
+
+	/**
+	 * The drawing model
+	 */
+	private final Drawing drawing;
+
+	/**
+	 * The history manager of the drawing model
+	 */
+	private final HistoryManager<Figure> history;
+
+	/**
+	 * The node containing the figures shapes (whose nodes are counted)
+	 */
+	private final Parent drawingRoot;
+
+	/**
+	 * Histograms of editor operations
+	 */
+	private final List<LatencyHistogram> operations;
+
+	/**
+	 * Timer sampling each pulse start
+	 */
+	private final AnimationTimer timer;
+
+	/**
+	 * Post layout pulse listener sampling each pulse end
+	 */
+	private final Runnable pulseListener;
+
+	/**
+	 * The scene {@link #pulseListener} is registered to (or null if this
+	 * overlay is not shown)
+	 */
+	private Scene scene;
+
+	/**
+	 * Start time of the current pulse (in ns) or 0 if there is no pulse in
+	 * progress
+	 */
+	private long pulseStart;
+
+	/**
+	 * Number of pulses since last refresh
+	 */
+	private int frames;
+
+	/**
+	 * Sum of pulses durations since last refresh (in ns)
+	 */
+	private long pulsesDuration;
+
+	/**
+	 * Maximum pulse duration since last refresh (in ns)
+	 */
+	private long maxPulseDuration;
+
+	/**
+	 * Time of last refresh (in ns)
+	 */
+	private long lastRefresh;
+
+	/**
+	 * The history state whose figures have been measured to estimate
+	 * {@link #cloneBytes} (or null if none has been measured yet)
+	 */
+	private Memento<Figure> measuredState;
+
+	/**
+	 * Estimated size (in bytes) of a figure clone stored in history states
+	 */
+	private long cloneBytes;
+
+	/**
+	 * Constructor
+	 * @param drawing the drawing model
+	 * @param history the history manager of the drawing model
+	 */
+	public PerformanceHud(Drawing drawing, HistoryManager<Figure> history)
+	{
+		this.drawing = drawing;
+		this.history = history;
+		drawingRoot = drawing.getRoot();
+		operations = new ArrayList<>(OPERATIONS.length);
+		for (String name : OPERATIONS)
+		{
+			operations.add(MetricsRegistry.histogram(name));
+		}
+		scene = null;
+		measuredState = null;
+		cloneBytes = 0L;
+		timer = new AnimationTimer()
+		{
+			@Override
+			public void handle(long now)
+			{
+				pulseStarted(now);
+			}
+		};
+		pulseListener = this::pulseEnded;
+
+		setMouseTransparent(true);
+		setFocusTraversable(false);
+		setPadding(new Insets(4.0));
+		setStyle("-fx-background-color: rgba(0, 0, 0, 0.6);"
+		    + "-fx-text-fill: white;"
+		    + "-fx-font-family: monospace;"
+		    + "-fx-font-size: 11px;");
+		StackPane.setAlignment(this, Pos.TOP_RIGHT);
+		StackPane.setMargin(this, new Insets(8.0, 24.0, 8.0, 8.0));
+		setText("Measuring ...");
+	}
+
+	/**
+	 * Shows this overlay on top of other children of a stack pane and starts
+	 * sampling pulses
+	 * @param container the stack pane containing the drawing area
+	 */
+	public void show(StackPane container)
+	{
+		if (!container.getChildren().contains(this))
+		{
+			container.getChildren().add(this);
+		}
+		scene = container.getScene();
+		if (scene != null)
+		{
+			scene.addPostLayoutPulseListener(pulseListener);
+		}
+		resetSamples(System.nanoTime());
+		timer.start();
+	}
+
+	/**
+	 * Stops sampling pulses and removes this overlay from its stack pane
+	 */
+	public void hide()
+	{
+		timer.stop();
+		if (scene != null)
+		{
+			scene.removePostLayoutPulseListener(pulseListener);
+			scene = null;
+		}
+		if (getParent() instanceof StackPane)
+		{
+			((StackPane) getParent()).getChildren().remove(this);
+		}
+	}
+
+	/**
+	 * Indicates if this overlay is currently shown
+	 * @return true if this overlay is shown
+	 */
+	public boolean isShown()
+	{
+		return getParent() != null;
+	}
+
+	/**
+	 * Samples the start of a pulse (called by {@link #timer})
+	 * @param now the pulse time (as returned by {@link System#nanoTime()})
+	 */
+	private void pulseStarted(long now)
+	{
+		if ((now - lastRefresh) >= REFRESH_PERIOD)
+		{
+			refresh(now);
+		}
+		pulseStart = now;
+		frames++;
+	}
+
+	/**
+	 * Samples the end of a pulse (called after CSS and layout passes)
+	 */
+	private void pulseEnded()
+	{
+		if (pulseStart != 0L)
+		{
+			long duration = System.nanoTime() - pulseStart;
+			pulsesDuration += duration;
+			maxPulseDuration = Math.max(maxPulseDuration, duration);
+			pulseStart = 0L;
+		}
+	}
+
+	/**
+	 * Resets pulses samples
+	 * @param now the current time (in ns)
+	 */
+	private void resetSamples(long now)
+	{
+		lastRefresh = now;
+		frames = 0;
+		pulsesDuration = 0L;
+		maxPulseDuration = 0L;
+		pulseStart = 0L;
+	}
+
+	/**
+	 * Updates displayed values
+	 * @param now the current time (in ns)
+	 */
+	private void refresh(long now)
+	{
+		double elapsed = (now - lastRefresh) / 1e9;
+		double fps = frames / elapsed;
+		double meanPulse = (frames > 0 ? pulsesDuration / 1e6 / frames : 0.0);
+		double maxPulse = maxPulseDuration / 1e6;
+		int undos = (history != null ? history.undoSize() : 0);
+		int redos = (history != null ? history.redoSize() : 0);
+		long historyBytes = (history != null ? history.elementsCount() * cloneBytes() : 0L);
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("FPS        %6.1f%n", fps));
+		sb.append(String.format("Pulse      %6.2f ms (max %.2f ms)%n", meanPulse, maxPulse));
+		sb.append(String.format("Nodes     ~%6d%n", estimateNodes()));
+		sb.append(String.format("Figures    %6d%n", drawing.size()));
+		sb.append(String.format("History    %6d undo / %d redo (~%.1f MB)%n",
+		                        undos,
+		                        redos,
+		                        historyBytes / (1024.0 * 1024.0)));
+		sb.append(lastOperation());
+		setText(sb.toString());
+		resetSamples(now);
+	}
+
+	/**
+	 * Description of the last recorded editor operation
+	 * @return a description of the last recorded operation and its latency
+	 */
+	private String lastOperation()
+	{
+		LatencyHistogram last = null;
+		for (LatencyHistogram histogram : operations)
+		{
+			if ((histogram.getLastTime() != 0L)
+			    && ((last == null) || (histogram.getLastTime() - last.getLastTime() > 0L)))
+			{
+				last = histogram;
+			}
+		}
+		if (last == null)
+		{
+			return "Last op         -";
+		}
+		return String.format("Last op    %6.2f ms (%s)",
+		                     last.getLastNanos() / 1e6,
+		                     last.getName());
+	}
+
+	/**
+	 * Estimates the number of nodes of the drawing's scene graph without
+	 * walking it: all figures are assumed to have as many nodes as the first
+	 * one and other children of the drawing root to be single nodes
+	 * @return the estimated number of nodes in the drawing's scene graph
+	 * (including its root)
+	 */
+	private int estimateNodes()
+	{
+		int figures = drawing.size();
+		int others = Math.max(0, drawingRoot.getChildrenUnmodifiable().size() - figures);
+		int perFigure = (figures > 0 ? countNodes(drawing.get(0).getRoot()) : 0);
+		return 1 + others + (figures * perFigure);
+	}
+
+	/**
+	 * Estimated size of a figure clone stored in history states.
+	 * A sample of the figures of the newest history state is measured (with
+	 * {@link MemoryFootprint}, excluding flyweight caches and the drawing)
+	 * whenever the newest state changes.
+	 * @return the estimated size of a figure clone (in bytes)
+	 */
+	private long cloneBytes()
+	{
+		Memento<Figure> newest = newestState();
+		if ((newest == null) || (newest == measuredState))
+		{
+			return cloneBytes;
+		}
+		List<Figure> figures = newest.getState();
+		int samples = Math.min(SAMPLED_CLONES, figures.size());
+		if (samples > 0)
+		{
+			MemoryFootprint footprint = new MemoryFootprint();
+			for (ConcurrentCache<?, ?> cache : MemoryReport.sharedCaches().values())
+			{
+				footprint.excludeReachable(cache);
+			}
+			footprint.exclude(drawing);
+			for (int i = 0; i < samples; i++)
+			{
+				footprint.add(figures.get((int) (((long) i * figures.size()) / samples)));
+			}
+			cloneBytes = footprint.getBytes() / samples;
+		}
+		measuredState = newest;
+		return cloneBytes;
+	}
+
+	/**
+	 * Newest state of the history
+	 * @return the most recent undo state, or the most recent redo state if
+	 * there is no undo state, or null if the history is empty
+	 */
+	private Memento<Figure> newestState()
+	{
+		Iterator<Memento<Figure>> undos = history.getUndoStates().iterator();
+		if (undos.hasNext())
+		{
+			return undos.next();
+		}
+		Iterator<Memento<Figure>> redos = history.getRedoStates().iterator();
+		return (redos.hasNext() ? redos.next() : null);
+	}
+
+	/**
+	 * Recursively counts nodes under a node
+	 * @param node the node to start from
+	 * @return the number of nodes in the sub scene graph starting at node
+	 * (including node)
+	 */
+	private static int countNodes(Node node)
+	{
+		int count = 1;
+		if (node instanceof Parent)
+		{
+			for (Node child : ((Parent) node).getChildrenUnmodifiable())
+			{
+				count += countNodes(child);
+			}
+		}
+		return count;
+	}
+}
@@ -10,7 +10,7 @@ import javafx.scene.control.SpinnerValueFactory;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.HBox;
 import javafx.util.Callback;
-import utils.IconFactory;
+import utils.AssetPreloader;
 
 /**
  * A simple dialog providing an {@link Integer} value.
@@ -77,7 +77,7 @@ public class SizeDialogPane<T extends Number> extends Dialog<T>
 	 * 	<li>Creates a {@link HBox}</li>
 	 * 	<li>Creates a {@link Label}</li>
 	 * 	<li>Evt adds an {@link ImageView} as the graphic of previous label with
-	 * 	{@link IconFactory#getIcon(String)}</li>
+	 * 	{@link AssetPreloader#createImageView(String)}</li>
 	 * 	<li>Creates a {@link Spinner} with value from {@link #valueProperty},
 	 * 	min value as 0, max value as 64 and step value as 1</li>
 	 * 	<li>Binds {@link #valueProperty} to value property of the spinner</li>
@@ -100,7 +100,7 @@ public class SizeDialogPane<T extends Number> extends Dialog<T>
 	{
 		HBox content = new HBox();
 		Label sizeLabel = new Label("Size: ");
-		ImageView iconView = new ImageView(IconFactory.getIcon("clock"));
+		ImageView iconView = AssetPreloader.createImageView("clock");
 		iconView.setFitWidth(32);
 		iconView.setFitHeight(32);
 		sizeLabel.setGraphic(iconView);
@@ -1,6 +1,13 @@
 package figures;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.Vector;
 import java.util.function.Predicate;
 import java.util.logging.Level;
@@ -13,6 +20,8 @@ import history.Originator;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.Property;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.ReadOnlyProperty;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -28,6 +37,12 @@ import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Shape;
 import logger.LoggerFactory;
+import logger.ThrottledLogger;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import metrics.jfr.DrawingChangeEvent;
+import metrics.jfr.FilterEvent;
 
 /**
  * Drawing class contains our Data which mainly consists in a list of
@@ -63,6 +78,41 @@ import logger.LoggerFactory;
 public class Drawing extends ModifiableObservableListBase<Figure>
     implements Originator<Figure>, ListChangeListener<Figure>
 {
+	/**
+	 * Number of consecutive {@link Figure}s grouped in a chunk when saved into
+	 * a {@link figures.io.ChunkedDrawingFile}.
+	 * @see #getDirtyChunks()
+	 */
+	public static final int CHUNK_SIZE = 1024;
+
+	/**
+	 * Latencies of figures additions
+	 * @see #doAdd(int, Figure)
+	 */
+	private static final LatencyHistogram ADD_LATENCY =
+	    MetricsRegistry.histogram("drawing.add");
+
+	/**
+	 * Number of rejected (null or already contained) figures additions
+	 * @see #doAdd(int, Figure)
+	 */
+	private static final Counter ADD_REJECTED =
+	    MetricsRegistry.counter("drawing.add.rejected");
+
+	/**
+	 * Latencies of figures removals
+	 * @see #doRemove(int)
+	 */
+	private static final LatencyHistogram REMOVE_LATENCY =
+	    MetricsRegistry.histogram("drawing.remove");
+
+	/**
+	 * Latencies of states restorations
+	 * @see #setMemento(Memento)
+	 */
+	private static final LatencyHistogram SET_MEMENTO_LATENCY =
+	    MetricsRegistry.histogram("drawing.setMemento");
+
 	/**
 	 * The root node which will be parent to all Drawing's {@link Figure#shape}.
 	 * Drawing figures will only consists in adding or removing
@@ -96,6 +146,16 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 	 */
 	private List<Figure> figures = null;
 
+	/**
+	 * Identity set of {@link #figures} so that checking whether a figure is
+	 * already contained in {@link #doAdd(int, Figure)} takes constant time
+	 * (rather than comparing the figure with all others).
+	 * Figures are compared by identity since the same figure can't be drawn
+	 * twice in {@link #root}, whereas equal (copied) figures can.
+	 * @implSpec should always contain exactly the figures of {@link #figures}
+	 */
+	private Set<Figure> members = null;
+
 	/**
 	 * Current {@link FigureType} property to apply on new {@link Figure}s.
 	 * To be bound from {@link javafx.scene.control.ComboBox#valueProperty()} for instance.
@@ -139,11 +199,43 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 	 */
 	private ObjectProperty<Double> lineWidthProperty = null;
 
+	/**
+	 * Indices of chunks of {@link #CHUNK_SIZE} figures which have been
+	 * modified since last save (or load) so that saving can be performed
+	 * incrementally by rewriting only these chunks.
+	 * @see #markDirty(int)
+	 * @see #getDirtyChunks()
+	 * @see #clearDirtyChunks()
+	 */
+	private BitSet dirtyChunks;
+
+	/**
+	 * Number of in place modifications of figures notified with
+	 * {@link #markDirty(int)} (which are not notified to the
+	 * {@link javafx.collections.ListChangeListener}s of this list) so that
+	 * views depending on figures geometry can be refreshed
+	 * @see #editsProperty()
+	 */
+	private ReadOnlyLongWrapper editsProperty;
+
+	/**
+	 * Index of the figure notified by the last call to
+	 * {@link #markDirty(int)} (or -1 if there is none)
+	 * @see #getLastEdited()
+	 */
+	private int lastEdited;
+
 	/**
 	 * Logger to display messages
 	 */
 	private Logger logger;
 
+	/**
+	 * Rate limited logger (on top of {@link #logger}) for messages issued by
+	 * frequently called methods such as getters
+	 */
+	private ThrottledLogger throttledLogger;
+
 	/**
 	 * Constructor
 	 * @param root The {@link Pane} to draw all {@link Figure#shape}s in
@@ -162,6 +254,7 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 		                                       parentLogger,
 		                                       (parentLogger == null ?
 		                                    	Level.INFO : null)); // null level to inherit parent logger's level
+		throttledLogger = new ThrottledLogger(logger);
 		if (root == null)
 		{
 			String message = getClass() + "(null root)";
@@ -171,6 +264,10 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 
 		this.root = root;
 		figures = new Vector<Figure>();
+		members = Collections.newSetFromMap(new IdentityHashMap<>());
+		dirtyChunks = new BitSet();
+		editsProperty = new ReadOnlyLongWrapper(0L);
+		lastEdited = -1;
 
 		if (view == null)
 		{
@@ -206,6 +303,11 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 		lineTypeProperty = new SimpleObjectProperty<LineType>();
 		lineWidthProperty = new SimpleObjectProperty<Double>();
 
+		/*
+		 * Reports changes of this list (with their batch sizes) as JFR events
+		 */
+		addListener((ListChangeListener<Figure>) this::emitChangeEvent);
+
 		logger.info("Drawing model created");
 	}
 
@@ -345,7 +447,7 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 	{
 		if (!figureTypeProperty.isBound())
 		{
-			logger.warning("Figure Type Property is not bound yet");
+			throttledLogger.warning("Figure Type Property is not bound yet");
 		}
 		return figureTypeProperty.get();
 	}
@@ -360,7 +462,7 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 	{
 		if (!hasFillColorProperty.isBound())
 		{
-			logger.warning("Has Fill Property is not bound yet");
+			throttledLogger.warning("Has Fill Property is not bound yet");
 		}
 		return hasFillColorProperty.get();
 	}
@@ -375,7 +477,7 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 	{
 		if (!fillColorProperty.isBound())
 		{
-			logger.warning("Fill Color property is not bound yet");
+			throttledLogger.warning("Fill Color property is not bound yet");
 		}
 		return fillColorProperty.get();
 	}
@@ -390,7 +492,7 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 	{
 		if (!hasEdgeColorProperty.isBound())
 		{
-			logger.warning("Has Edge Property is not bound yet");
+			throttledLogger.warning("Has Edge Property is not bound yet");
 		}
 		return hasEdgeColorProperty.get();
 	}
@@ -405,7 +507,7 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 	{
 		if (!edgeColorProperty.isBound())
 		{
-			logger.warning("Edge Color property is not bound yet");
+			throttledLogger.warning("Edge Color property is not bound yet");
 		}
 		return edgeColorProperty.get();
 	}
@@ -420,7 +522,7 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 	{
 		if (!lineTypeProperty.isBound())
 		{
-			logger.warning("Line Type property is not bound yet");
+			throttledLogger.warning("Line Type property is not bound yet");
 		}
 		return lineTypeProperty.get();
 	}
@@ -435,7 +537,7 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 	{
 		if (!lineWidthProperty.isBound())
 		{
-			logger.warning("Line Width property is not bound yet");
+			throttledLogger.warning("Line Width property is not bound yet");
 		}
 		return lineWidthProperty.get();
 	}
@@ -528,10 +630,21 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 	public void clearSelection()
 	{
 		// DONE Drawing#clearSelection ...
+		/*
+		 * Clears the whole selection model at once (a single change notified
+		 * to #onChanged) rather than index by index, then deselects figures
+		 * which may still be selected
+		 */
+		if (view != null)
+		{
+			view.getSelectionModel().clearSelection();
+		}
 		for (Figure figure : figures)
 		{
-			int index = figures.indexOf(figure);
-			updateSelection(index, false);
+			if (figure.isSelected())
+			{
+				figure.setSelected(false);
+			}
 		}
 	}
 
@@ -558,8 +671,9 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 			return;
 		}
 
-		logger.info("Modify selection model at index " + index + " with "
-		    + (selected ? "true" : "false"));
+		throttledLogger.info("Modify selection model",
+		                     () -> "Modify selection model at index " + index
+		                         + " with " + (selected ? "true" : "false"));
 
 		/*
 		 * DONE Drawing#updateSelection ...
@@ -579,6 +693,30 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 		
 	}
 
+	/**
+	 * Replaces the selection of {@link #view} with a set of figures at once
+	 * (e.g. figures found by an analysis of the drawing): the selection is
+	 * cleared then all figures are selected, which triggers two
+	 * {@link #onChanged(javafx.collections.ListChangeListener.Change)}
+	 * (rather than one per figure)
+	 * @param indices the indices of the figures to select
+	 */
+	public void select(BitSet indices)
+	{
+		if (view == null)
+		{
+			logger.severe("Can't change null view");
+			return;
+		}
+		int[] selected = indices.stream().filter(i -> i < size()).toArray();
+		view.getSelectionModel().clearSelection();
+		if (selected.length > 0)
+		{
+			view.getSelectionModel().selectIndices(selected[0],
+			                                       Arrays.copyOfRange(selected, 1, selected.length));
+		}
+	}
+
 	/**
 	 * Refresh all JavaFX elements in {@link #root} by clearing all elements
 	 * and re-adding each {@link Figure#root} in {@link #root}
@@ -586,9 +724,12 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 	public void refresh()
 	{
 		// DONE Drawing#refresh() ...
-		ObservableList<Node> children = root.getChildren();
-		children.clear();
-		children.add(root);
+		List<Node> nodes = new ArrayList<>(figures.size());
+		for (Figure figure : figures)
+		{
+			nodes.add(figure.getRoot());
+		}
+		root.getChildren().setAll(nodes);
 	}
 
 	/**
@@ -657,21 +798,27 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 	@Override
 	protected void doAdd(int index, Figure element)
 	{
+		long start = System.nanoTime();
 		if (element == null)
 		{
 			logger.warning("null figure");
+			ADD_REJECTED.increment();
 			return;
 		}
 
-		if (figures.contains(element))
+		if (members.contains(element))
 		{
 			logger.warning("figure already contained");
+			ADD_REJECTED.increment();
 			return;
 		}
 
 		logger.info("adding figure " + element + " at index " + index);
 		figures.add(index, element);
+		members.add(element);
 		root.getChildren().add(index, element.getRoot());
+		markDirtyFrom(index);
+		ADD_LATENCY.recordSince(start);
 	}
 
 	/**
@@ -705,7 +852,10 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 		}
 
 		Figure oldFigure = figures.set(index, element);
+		members.remove(oldFigure);
+		members.add(element);
 		root.getChildren().set(index, element.getRoot());
+		markDirty(index);
 		return oldFigure;
 	}
 
@@ -723,15 +873,122 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 	@Override
 	protected Figure doRemove(int index)
 	{
+		long start = System.nanoTime();
 		Figure removedFigure = figures.remove(index);
+		members.remove(removedFigure);
 		Node removedNode = root.getChildren().remove(index);
 		if (removedNode == null)
 		{
 			logger.severe("null removed Node");
 		}
+		markDirtyFrom(index);
+		REMOVE_LATENCY.recordSince(start);
 		return removedFigure;
 	}
 
+	/**
+	 * Replaces all figures of this list with the provided figures in one
+	 * batch: {@link #figures} and {@link #root} children are replaced at once
+	 * and a single change is notified to listeners.
+	 * This avoids {@link #doAdd(int, Figure)}'s per figure checks, logs and
+	 * scene graph updates when setting a large number of figures (when
+	 * loading a drawing for instance).
+	 * @param col the figures to set. Null figures and figures appearing
+	 * several times are only added once.
+	 * @return true
+	 */
+	@Override
+	public boolean setAll(Collection<? extends Figure> col)
+	{
+		beginChange();
+		try
+		{
+			List<Figure> removed = new ArrayList<>(figures);
+			Set<Figure> added = Collections.newSetFromMap(new IdentityHashMap<>(col.size()));
+			List<Node> nodes = new ArrayList<>(col.size());
+			figures.clear();
+			for (Figure figure : col)
+			{
+				if ((figure != null) && added.add(figure))
+				{
+					figures.add(figure);
+					nodes.add(figure.getRoot());
+				}
+			}
+			members = added;
+			root.getChildren().setAll(nodes);
+			logger.info("set " + figures.size() + " figures");
+
+			if (!removed.isEmpty())
+			{
+				nextRemove(0, removed);
+			}
+			if (!figures.isEmpty())
+			{
+				nextAdd(0, figures.size());
+			}
+			markDirtyFrom(0);
+		}
+		finally
+		{
+			endChange();
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the figures at the specified indices in one batch:
+	 * {@link #figures} and {@link #root} children are replaced at once
+	 * and a single change is notified to listeners.
+	 * This avoids shifting following figures and nodes once per removed
+	 * figure as {@link #doRemove(int)} does when removing many figures (e.g.
+	 * hidden figures).
+	 * @param indices the indices of the figures to remove (indices out of
+	 * range are ignored)
+	 * @return the number of removed figures
+	 */
+	public int removeAll(BitSet indices)
+	{
+		int first = indices.nextSetBit(0);
+		if ((first < 0) || (first >= figures.size()))
+		{
+			return 0;
+		}
+		long start = System.nanoTime();
+		beginChange();
+		try
+		{
+			List<Figure> kept = new ArrayList<>(figures.size());
+			List<Node> nodes = new ArrayList<>(figures.size());
+			for (int index = 0; index < figures.size(); index++)
+			{
+				Figure figure = figures.get(index);
+				if (indices.get(index))
+				{
+					members.remove(figure);
+					nextRemove(kept.size(), figure);
+				}
+				else
+				{
+					kept.add(figure);
+					nodes.add(figure.getRoot());
+				}
+			}
+			int removed = figures.size() - kept.size();
+			figures.clear();
+			figures.addAll(kept);
+			root.getChildren().setAll(nodes);
+			logger.info("removed " + removed + " figures");
+			markDirtyFrom(first);
+			REMOVE_LATENCY.recordSince(start);
+			return removed;
+		}
+		finally
+		{
+			endChange();
+		}
+	}
+
     /**
      * Creates a {@link FilteredList} wrapper of this list using
      * the specified predicate.
@@ -743,8 +1000,115 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 	@Override
 	public FilteredList<Figure> filtered(Predicate<Figure> predicate)
 	{
+		FilterEvent event = new FilterEvent();
+		event.begin();
 		refresh(predicate);
-		return super.filtered(predicate);
+		FilteredList<Figure> filteredList = super.filtered(predicate);
+		event.end();
+		if (event.shouldCommit())
+		{
+			event.filter = String.valueOf(predicate);
+			event.figures = figures.size();
+			event.matches = filteredList.size();
+			event.commit();
+		}
+		return filteredList;
+	}
+
+	// ------------------------------------------------------------------------
+	// Dirty chunks management (for incremental saves)
+	// ------------------------------------------------------------------------
+	/**
+	 * Marks the chunk containing the figure at the specified index as
+	 * modified since last save.
+	 * This should be called whenever a figure is modified in place (moved,
+	 * restyled, ...) since such changes are not notified to this list.
+	 * @param index the index of the modified figure
+	 */
+	public void markDirty(int index)
+	{
+		if (index >= 0)
+		{
+			dirtyChunks.set(index / CHUNK_SIZE);
+			lastEdited = index;
+			editsProperty.set(editsProperty.get() + 1L);
+		}
+	}
+
+	/**
+	 * Marks the chunk containing the specified figure as modified since last
+	 * save.
+	 * Searching the figure takes linear time: prefer {@link #markDirty(int)}
+	 * when the index of the figure is known (e.g. in loops over figures).
+	 * @param figure the modified figure
+	 * @see #markDirty(int)
+	 */
+	public void markDirty(Figure figure)
+	{
+		if (members.contains(figure))
+		{
+			for (int index = 0; index < figures.size(); index++)
+			{
+				if (figures.get(index) == figure)
+				{
+					markDirty(index);
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Marks all chunks from the one containing the specified index up to the
+	 * last one as modified since last save.
+	 * Inserting or removing a figure shifts all following figures, so all
+	 * chunks after index are modified (only the last chunk when appending)
+	 * @param index the index of the first shifted figure
+	 */
+	private void markDirtyFrom(int index)
+	{
+		int lastChunk = Math.max(figures.size() - 1, index) / CHUNK_SIZE;
+		dirtyChunks.set(index / CHUNK_SIZE, lastChunk + 1);
+	}
+
+	/**
+	 * Indices of the chunks modified since last save
+	 * @return a copy of the indices of the chunks modified since last save
+	 */
+	public BitSet getDirtyChunks()
+	{
+		return (BitSet) dirtyChunks.clone();
+	}
+
+	/**
+	 * Clears modified chunks (after a save or a load)
+	 * @post no chunks are considered as modified
+	 */
+	public void clearDirtyChunks()
+	{
+		dirtyChunks.clear();
+	}
+
+	/**
+	 * Property counting in place modifications of figures notified with
+	 * {@link #markDirty(int)}: listeners of this property are notified
+	 * whenever a figure is moved or restyled
+	 * @return the read only property counting in place modifications
+	 */
+	public ReadOnlyLongProperty editsProperty()
+	{
+		return editsProperty.getReadOnlyProperty();
+	}
+
+	/**
+	 * Index of the last figure modified in place (so that listeners of
+	 * {@link #editsProperty()} can update only this figure)
+	 * @return the index of the figure notified by the last call to
+	 * {@link #markDirty(int)} or -1 if there is none
+	 */
+	public int getLastEdited()
+	{
+		return lastEdited;
 	}
 
 	// ------------------------------------------------------------------------
@@ -775,12 +1139,14 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 			return;
 		}
 
+		long start = System.nanoTime();
 		List<Figure> savedFigures = memento.getState();
 		logger.info(savedFigures.toString());
 
 		clear();
 		addAll(savedFigures);
 		refresh(); // might not be necessary
+		SET_MEMENTO_LATENCY.recordSince(start);
 	}
 
 	// ------------------------------------------------------------------------
@@ -803,25 +1169,58 @@ public class Drawing extends ModifiableObservableListBase<Figure>
 	@Override
 	public void onChanged(Change<? extends Figure> c)
 	{
-		logger.info("List Change Listener triggered with change=" + c);
-		while (c.next())
+		throttledLogger.info("List Change Listener triggered",
+		                     () -> "List Change Listener triggered with change=" + c);
+		if (!c.next())
 		{
-			// Selected Figures in #listView
-			List<? extends Figure> selection = c.getList();
+			return;
+		}
 
-			/*
-			 * DONE Drawing#onChanged ...
-			 * Changes #figures figure selected states according to selection
-			 */
-			
-			for (Figure figure : figures)
+		/*
+		 * DONE Drawing#onChanged ...
+		 * Changes #figures figure selected states according to selection
+		 * (once for all sub changes since only the resulting selection
+		 * matters). Selected figures are first gathered in an identity set so
+		 * each figure's state is obtained in constant time
+		 */
+		Set<Figure> selection = Collections.newSetFromMap(new IdentityHashMap<>());
+		selection.addAll(c.getList());
+		for (Figure figure : figures)
+		{
+			boolean selected = selection.contains(figure);
+			if (figure.isSelected() != selected)
 			{
-				if (selection.contains(figure))
-				{
-					figure.setSelected(!figure.isSelected());;
-				}
+				figure.setSelected(selected);
+			}
+		}
+	}
+
+	/**
+	 * Emits a {@link DrawingChangeEvent} summarizing a change of this list
+	 * (if such events are recorded)
+	 * @param c the change notified to this list's listeners
+	 */
+	private void emitChangeEvent(Change<? extends Figure> c)
+	{
+		DrawingChangeEvent event = new DrawingChangeEvent();
+		if (!event.shouldCommit())
+		{
+			return;
+		}
+		while (c.next())
+		{
+			event.subChanges++;
+			if (c.wasPermutated() || c.wasUpdated())
+			{
+				event.permuted++;
+			}
+			else
+			{
+				event.added += c.getAddedSize();
+				event.removed += c.getRemovedSize();
 			}
-			
 		}
+		event.size = size();
+		event.commit();
 	}
 }
@@ -1,6 +1,5 @@
 package figures;
 
-import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -12,10 +11,9 @@ import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.shape.Shape;
-import javafx.scene.shape.StrokeLineCap;
-import javafx.scene.shape.StrokeLineJoin;
 import logger.LoggerFactory;
 import utils.ColorFactory;
+import utils.StrokeStyle;
 
 /**
  * Abstract Base class for all figures.
@@ -32,15 +30,9 @@ import utils.ColorFactory;
  * 	<li>a {@link #shape} {@link Shape} representing this figure to draw</li>
  * 	<li>a {@link #selectionRectangle} {@link Rectangle} representing this
  * 	figure's selection state</li>
- * 	<li>a optional {@link #fillColor} {@link Color} to apply on the
- * 	{@link #shape} (if {@link #fillColor} is empty, then {@link #edgeColor} shold
- * 	not be empty)</li>
- * 	<li>an optional {@link #edgeColor} {@link Color} to apply on the
- * 	{@link #shape} (if {@link #edgeColor} is empty then {@link #fillColor} should
- * 	not be empty)</li>
- * 	<li>a {@link #lineType} {@link LineType} to select the kind of edge to apply
- * 	on the {@link #shape}</li>
- * 	<li>a {@link #lineWidth} to select the edge width of the {@link #shape}</li>
+ * 	<li>a shared {@link #style} {@link FigureStyle} containing the optional
+ * 	fill and edge {@link Color}s, the {@link LineType} and the line width to
+ * 	apply on the {@link #shape} (fill and edge colors can't be both empty)</li>
  * 	<li>a {@link #selected} flag indicating this figure is selected (also
  * 	triggering the addition of {@link #selectionRectangle} to the
  * 	{@link #root})</li>
@@ -80,31 +72,13 @@ public abstract class Figure implements Prototype<Figure>
 	protected Rectangle selectionRectangle;
 
 	/**
-	 * The optional fill color for this figure.
-	 * If this figure has no fill Color then this optional is empty.
-	 * However if this fill Color is empty then the {@link #edgeColor} shall not
-	 * be empty as well (and vice versa).
+	 * The style of this figure: optional fill and edge colors (which can't be
+	 * both empty), line type and line width.
+	 * Styles are immutable and interned by {@link FigureStyle}, so figures with
+	 * the same style share the same instance which is replaced (and never
+	 * modified) whenever one of the style mutators is called.
 	 */
-	protected Optional<Color> fillColor;
-
-	/**
-	 * The optional edge color for this figure.
-	 * If this figure has no edge Color then this optional is empty.
-	 * However if this edge Color is empty then the {@link #fillColor} shall not
-	 * be empty as well (and vice versa)
-	 */
-	protected Optional<Color> edgeColor;
-
-	/**
-	 * The line type of the edge of this figure {@link LineType#SOLID},
-	 * {@link LineType#DASHED} or {@link LineType#NONE}
-	 */
-	protected LineType lineType;
-
-	/**
-	 * The line width of the edge of this figure
-	 */
-	protected double lineWidth;
+	protected FigureStyle style;
 
 	/**
 	 * Instance number of this figure.
@@ -123,6 +97,12 @@ public abstract class Figure implements Prototype<Figure>
 	 */
 	protected Logger logger;
 
+	/**
+	 * Cached name of this figure (see {@link #toString()}) or null if not
+	 * computed yet
+	 */
+	private String name;
+
 	/**
 	 * Minimum threshold to compare figures attributes such as distances, width,
 	 * heights, etc. to be used in {@link #equals(Figure)} methods of sub-classes.
@@ -158,20 +138,13 @@ public abstract class Figure implements Prototype<Figure>
 		                                       (parentLogger == null ?
 		                                    	Level.INFO : null)); // null level to inherit parent logger's level
 
-		this.fillColor = (fillColor != null ?
-			Optional.of(ColorFactory.getColor(fillColor)) :
-			Optional.empty());
-		if (!this.fillColor.isPresent() && (edgeColor == null))
+		if ((fillColor == null) && (edgeColor == null))
 		{
 			String message = "both fill & edge are null";
 			logger.severe(message);
 			throw new IllegalStateException(message);
 		}
-		this.edgeColor = (edgeColor != null ?
-			Optional.of(ColorFactory.getColor(edgeColor)) :
-			Optional.empty());
-		this.lineType = (edgeColor != null ? lineType : LineType.NONE);
-		this.lineWidth = (edgeColor != null ? Math.abs(lineWidth) : 0);
+		style = FigureStyle.of(fillColor, edgeColor, lineType, lineWidth);
 
 		root = new Group();
 		shape = null;	// Must be set in sub-classes and added to #root
@@ -192,10 +165,10 @@ public abstract class Figure implements Prototype<Figure>
 		 * Note: the provided figure is supposed to be in a consistant state:
 		 * Meaning it can not have both edge and fill colors as nulls.
 		 */
-		this(figure.getFillColor(),
-		     figure.getEdgeColor(),
-		     figure.lineType,
-		     figure.lineWidth,
+		this(figure.style.getFillColor(),
+		     figure.style.getEdgeColor(),
+		     figure.style.getLineType(),
+		     figure.style.getLineWidth(),
 		     figure.logger.getParent());
 		instanceNumber = figure.instanceNumber;
 		if (figure.shape == null)
@@ -263,14 +236,23 @@ public abstract class Figure implements Prototype<Figure>
 		return root;
 	}
 
+	/**
+	 * Style accessor
+	 * @return the (shared) style of this figure
+	 */
+	public FigureStyle getStyle()
+	{
+		return style;
+	}
+
 	/**
 	 * Indicates if this figure has a fill color
-	 * @return true if {@link #fillColor} has data
+	 * @return true if {@link #style} has a fill color
 	 */
 	public boolean hasFillColor()
 	{
 		// DONE Figure#hasFillColor ...
-		return fillColor.isPresent();
+		return style.hasFillColor();
 	}
 
 	/**
@@ -280,39 +262,44 @@ public abstract class Figure implements Prototype<Figure>
 	public Color getFillColor()
 	{
 		// DONE Figure#getFillColor
-		return fillColor.get();
+		return style.getFillColor();
 	}
 
 	/**
 	 * Fill color mutator.
-	 * Sets both {@link #fillColor} and {@link #shape} with
+	 * Sets both {@link #style} and {@link #shape} with
 	 * {@link Shape#setFill(javafx.scene.paint.Paint)}
 	 * @param fillColor the new fillColor to set. If provided fillColor is null
-	 * then the {@link #fillColor} shall be set to shall be set to empty
+	 * then the fill color shall be set to empty
 	 * and internal shape color to {@link Color#TRANSPARENT}
-	 * @implNote Only one of {@link #fillColor} and {@link #edgeColor} can be
-	 * empty
+	 * @implNote Only one of fill and edge colors can be empty
 	 * @throws IllegalStateException if we try to set a null fillColor when
-	 * internal {@link #edgeColor} is already empty
+	 * internal edge color is already empty
 	 */
 	public void setFillColor(Color fillColor) throws IllegalStateException
 	{
 		// DONE Figure#setFillColor ...
-		if (! (fillColor instanceof Color)) 
+		if ((fillColor == null) && !style.hasEdgeColor())
+		{
+			String message = "can't remove fill color: no edge color";
+			logger.severe(message);
+			throw new IllegalStateException(message);
+		}
+		style = style.withFillColor(fillColor);
+		if (shape != null)
 		{
-			throw new IllegalStateException("fillColor is not a color");
+			shape.setFill(style.hasFillColor() ? style.getFillColor() : Color.TRANSPARENT);
 		}
-		Optional.of(fillColor);
 	}
 
 	/**
 	 * Indicates if this figure has an edge color
-	 * @return true if {@link #edgeColor} has data
+	 * @return true if {@link #style} has an edge color
 	 */
 	public boolean hasEdgeColor()
 	{
 		// DONE Figure#hasEdgeColor ...
-		return edgeColor.isPresent();
+		return style.hasEdgeColor();
 	}
 
 	/**
@@ -322,29 +309,34 @@ public abstract class Figure implements Prototype<Figure>
 	public Color getEdgeColor()
 	{
 		// DONE Figure#getEdgeColor ...
-		return edgeColor.get();
+		return style.getEdgeColor();
 	}
 
 	/**
 	 * Edge color mutator
-	 * Sets both {@link #edgeColor} and {@link #shape} with
+	 * Sets both {@link #style} and {@link #shape} with
 	 * {@link Shape#setStroke(javafx.scene.paint.Paint)}
 	 * @param edgeColor the new edgeColor to set. If provided edgeColor is null
-	 * then the {@link #edgeColor} shall be set to empty
+	 * then the edge color shall be set to empty
 	 * and internal shape color to {@link Color#TRANSPARENT}
-	 * @implNote Only one of {@link #edgeColor} and {@link #fillColor} can be
-	 * empty.
+	 * @implNote Only one of edge and fill colors can be empty.
 	 * @throws IllegalStateException if we try to set a null edgeColor when
-	 * internal {@link #fillColor} is already empty
+	 * internal fill color is already empty
 	 */
 	public void setEdgeColor(Color edgeColor) throws IllegalStateException
 	{
 		// DONE Figure#setEdgeColor ...
-		if (! (edgeColor instanceof Color)) 
+		if ((edgeColor == null) && !style.hasFillColor())
 		{
-			throw new IllegalStateException("edgeColor n'est pas une couleur");
+			String message = "can't remove edge color: no fill color";
+			logger.severe(message);
+			throw new IllegalStateException(message);
+		}
+		style = style.withEdgeColor(edgeColor);
+		if (shape != null)
+		{
+			style.getStrokeStyle().applyTo(shape, style.getEdgeColor());
 		}
-		Optional.of(edgeColor);
 	}
 
 	/**
@@ -353,27 +345,25 @@ public abstract class Figure implements Prototype<Figure>
 	 */
 	public LineType getLineType()
 	{
-		return lineType;
+		return style.getLineType();
 	}
 
 	/**
 	 * Line Type setter.
-	 * Sets both {@link #lineType} and {@link #shape} with
-	 * {@link Shape#getStrokeDashArray()}
+	 * Sets both {@link #style} and {@link #shape} with the corresponding
+	 * shared {@link StrokeStyle}
 	 * @param lineType the lineType to set
 	 */
 	public void setLineType(LineType lineType)
 	{
-		this.lineType = lineType;
+		style = style.withLineType(lineType);
 		/*
 		 * DONE Figure#setLineType ...
 		 * 	- if NONE set internal shape stroke to Color#TRANSPARENT
 		 * 	- if SOLID then clears internal shape StrokeDashArray
 		 * 	- if DASHED then setup internal shape StrokeDashArray
 		 */
-		shape.setStroke(Color.TRANSPARENT);
-		shape.getStrokeDashArray().clear();
-		shape.getStrokeDashArray().setAll(30d, 10d);
+		style.getStrokeStyle().applyTo(shape, style.getEdgeColor());
 	}
 
 	/**
@@ -382,7 +372,7 @@ public abstract class Figure implements Prototype<Figure>
 	 */
 	public double getLineWidth()
 	{
-		return lineWidth;
+		return style.getLineWidth();
 	}
 
 	/**
@@ -391,10 +381,10 @@ public abstract class Figure implements Prototype<Figure>
 	 */
 	public void setLineWidth(double lineWidth)
 	{
-		this.lineWidth = lineWidth;
+		style = style.withLineWidth(lineWidth);
 
 		// DONE Figure#setLineWidth ...
-		shape.setStrokeWidth(lineWidth);
+		style.getStrokeStyle().applyTo(shape, style.getEdgeColor());
 	}
 
 	/**
@@ -495,8 +485,7 @@ public abstract class Figure implements Prototype<Figure>
 	 * @param x the x coordinate of the initial point where to create the new shape
 	 * @param y the y coordinate of the initial point where to create the new shape
 	 * @post a new {@link #shape} has been created with a new
-	 * {@link #instanceNumber} with {@link #fillColor}, {@link #edgeColor},
-	 * {@link #lineType} & {@link #lineWidth} applied with
+	 * {@link #instanceNumber} with {@link #style} applied with
 	 * {@link #applyParameters(Shape)}
 	 */
 	public abstract void createShape(double x, double y);
@@ -541,13 +530,7 @@ public abstract class Figure implements Prototype<Figure>
 		{
 			shape.setFill(Color.TRANSPARENT);
 		}
-		if (this.hasEdgeColor()) 
-		{
-			shape.setStroke(this.getEdgeColor());
-		}
-		shape.setStrokeLineJoin(StrokeLineJoin.ROUND);
-		shape.setStrokeLineCap(StrokeLineCap.ROUND);
-		shape.setStrokeWidth(lineWidth);
+		style.getStrokeStyle().applyTo(shape, style.getEdgeColor());
 	}
 
 	/**
@@ -595,8 +578,7 @@ public abstract class Figure implements Prototype<Figure>
 	 * Compares this figure with another one.
 	 * @param figure the other figure to compare with
 	 * @return true if the other figure is not null, has the same class
-	 * and features the same content (except for {@link #fillColor},
-	 * {@link #edgeColor}, {@link #lineType} and {@link #lineWidth} which are
+	 * and features the same content (except for {@link #style} which is
 	 * checked in {@link #equals(Object)} and {@link #instanceNumber} and
 	 * {@link #selected} which are not taken into account)
 	 */
@@ -605,9 +587,8 @@ public abstract class Figure implements Prototype<Figure>
 	/**
 	 * Base algorithm to compare with another object
 	 * @return true if the other figure is not null, has the same class
-	 * and features the same {@link #fillColor}, {@link #edgeColor},
-	 * {@link #lineType} and {@link #lineWidth} (± {@link #threshold})
-	 * and {@link #equals(Figure)} returns true.
+	 * and features the same {@link #style} and {@link #equals(Figure)} returns
+	 * true.
 	 * @see #equals(Figure)
 	 */
 	@Override
@@ -622,8 +603,8 @@ public abstract class Figure implements Prototype<Figure>
 		 * 		- edgeColor
 		 * 		- lineType
 		 * 		- lineWidth up to threshold
-		 * Note: Since colors should be provided by ColorFactory comparing
-		 * colors with == should be enough
+		 * Note: Since styles are interned by FigureStyle (with colors
+		 * provided by ColorFactory) comparing styles with == is enough
 		 */
 		
 		if (obj == this)
@@ -641,10 +622,7 @@ public abstract class Figure implements Prototype<Figure>
 			Figure f = (Figure) obj;
 			if (this.equals(f))
 			{
-				return (f.getFillColor() == this.getFillColor())
-						&& (f.getEdgeColor() == this.getEdgeColor()) 
-						&& (f.getLineType() == this.getLineType()) 
-						&& (f.getLineWidth() == this.getLineWidth());
+				return f.style == this.style;
 			}
 		}
 		
@@ -652,8 +630,7 @@ public abstract class Figure implements Prototype<Figure>
 	}
 
 	/**
-	 * <b>Partial</b> hashCode based solely on {@link #fillColor},
-	 * {@link #edgeColor}, {@link #lineType} and {@link #lineWidth}.
+	 * <b>Partial</b> hashCode based solely on {@link #style}.
 	 * Meaning this method can NOT be used alone to compute figure hashCode: It
 	 * has to be used in sub-classes overloads of this method.
 	 * @return a <b>Partial</b> hashCode based on the fields declared in this
@@ -664,22 +641,24 @@ public abstract class Figure implements Prototype<Figure>
 	{
 		final int prime = 31;
 		int result = 1;
-		result = (prime * result) + ((fillColor == null) ? 0 : fillColor.hashCode());
-		result = (prime * result) + ((edgeColor == null) ? 0 : edgeColor.hashCode());
-		result = (prime * result) + ((lineType == null) ? 0 : lineType.hashCode());
-		long temp;
-		temp = Double.doubleToLongBits(lineWidth);
-		result = (prime * result) + (int) (temp ^ (temp >>> 32));
+		result = (prime * result) + ((style == null) ? 0 : style.hashCode());
 		return result;
 	}
 
 	/**
 	 * String representation of this figure.
-	 * @return a new String containg the actual class name and instance number (e.g. "Circle 2")
+	 * @return a String containg the actual class name and instance number (e.g. "Circle 2")
+	 * @implNote The name is computed once (since {@link #instanceNumber} does
+	 * not change after construction) as it is frequently requested by list
+	 * cells
 	 */
 	@Override
 	public String toString()
 	{
-		return new String(getClass().getSimpleName() + " " + instanceNumber);
+		if (name == null)
+		{
+			name = new String(getClass().getSimpleName() + " " + instanceNumber);
+		}
+		return name;
 	}
 }
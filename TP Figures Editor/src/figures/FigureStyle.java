@@ -0,0 +1,283 @@
+package figures;
+
+import figures.enums.LineType;
+import javafx.scene.paint.Color;
+import utils.ColorFactory;
+import utils.ConcurrentCache;
+import utils.InterningCache;
+import utils.StrokeStyle;
+
+/**
+ * Immutable style of {@link Figure}s: fill color, edge color, line type and
+ * line width.
+ * Styles can only be obtained through
+ * {@link #of(Color, Color, LineType, double)} (or the derivation methods such
+ * as {@link #withFillColor(Color)}) which intern them, so that all figures
+ * sharing the same style share the same {@link FigureStyle} instance.
+ * Therefore styles can be compared with == (and {@link Figure#equals(Object)}
+ * does so).
+ * @implNote Since real drawings only use a handful of distinct styles, this
+ * avoids storing fill, edge, line type and width in each figure.
+ */
+public final class FigureStyle
+{
+	/**
+	 * Interned styles
+	 */
+	private static final InterningCache<FigureStyle> styles = new InterningCache<>();
+
+	/**
+	 * Fill color (from {@link ColorFactory}) or null if there is no fill
+	 * color
+	 */
+	private final Color fillColor;
+
+	/**
+	 * Edge color (from {@link ColorFactory}) or null if there is no edge
+	 * color
+	 */
+	private final Color edgeColor;
+
+	/**
+	 * Line type ({@link LineType#NONE} if there is no edge color)
+	 */
+	private final LineType lineType;
+
+	/**
+	 * Line width (0 if there is no edge color)
+	 */
+	private final double lineWidth;
+
+	/**
+	 * Shared stroke style corresponding to {@link #lineType} and
+	 * {@link #lineWidth}
+	 */
+	private final StrokeStyle strokeStyle;
+
+	/**
+	 * Private constructor (styles are obtained from
+	 * {@link #of(Color, Color, LineType, double)})
+	 * @param fillColor the fill color or null
+	 * @param edgeColor the edge color or null
+	 * @param lineType the line type
+	 * @param lineWidth the line width
+	 */
+	private FigureStyle(Color fillColor,
+	                    Color edgeColor,
+	                    LineType lineType,
+	                    double lineWidth)
+	{
+		this.fillColor = fillColor;
+		this.edgeColor = edgeColor;
+		this.lineType = lineType;
+		this.lineWidth = lineWidth;
+		strokeStyle = StrokeStyle.of(lineType, lineWidth);
+	}
+
+	/**
+	 * Obtains the unique style with the specified parameters
+	 * @param fillColor the fill color (or null if there is no fill color)
+	 * @param edgeColor the edge color (or null if there is no edge color)
+	 * @param lineType the line type (ignored and set to {@link LineType#NONE}
+	 * if there is no edge color)
+	 * @param lineWidth the line width (ignored and set to 0 if there is no
+	 * edge color)
+	 * @return the unique style with these parameters
+	 * @throws IllegalStateException if both fillColor and edgeColor are null
+	 */
+	public static FigureStyle of(Color fillColor,
+	                             Color edgeColor,
+	                             LineType lineType,
+	                             double lineWidth)
+	    throws IllegalStateException
+	{
+		if ((fillColor == null) && (edgeColor == null))
+		{
+			throw new IllegalStateException("both fill & edge are null");
+		}
+		FigureStyle style = new FigureStyle(ColorFactory.getColor(fillColor),
+		                                    ColorFactory.getColor(edgeColor),
+		                                    (edgeColor != null ? lineType : LineType.NONE),
+		                                    (edgeColor != null ? Math.abs(lineWidth) : 0));
+		return styles.intern(style);
+	}
+
+	/**
+	 * Number of distinct styles obtained so far
+	 * @return the number of distinct styles obtained so far
+	 */
+	public static int count()
+	{
+		return styles.size();
+	}
+
+	/**
+	 * Styles cache accessor (e.g. to obtain its statistics or estimate its
+	 * memory footprint)
+	 * @return the cache containing all distinct styles obtained so far
+	 */
+	public static ConcurrentCache<FigureStyle, FigureStyle> getCache()
+	{
+		return styles;
+	}
+
+	/**
+	 * Indicates if this style has a fill color
+	 * @return true if this style has a fill color
+	 */
+	public boolean hasFillColor()
+	{
+		return fillColor != null;
+	}
+
+	/**
+	 * Fill color accessor
+	 * @return the fill color or null if there is no fill color
+	 */
+	public Color getFillColor()
+	{
+		return fillColor;
+	}
+
+	/**
+	 * Indicates if this style has an edge color
+	 * @return true if this style has an edge color
+	 */
+	public boolean hasEdgeColor()
+	{
+		return edgeColor != null;
+	}
+
+	/**
+	 * Edge color accessor
+	 * @return the edge color or null if there is no edge color
+	 */
+	public Color getEdgeColor()
+	{
+		return edgeColor;
+	}
+
+	/**
+	 * Line type accessor
+	 * @return the line type
+	 */
+	public LineType getLineType()
+	{
+		return lineType;
+	}
+
+	/**
+	 * Line width accessor
+	 * @return the line width
+	 */
+	public double getLineWidth()
+	{
+		return lineWidth;
+	}
+
+	/**
+	 * Stroke style accessor
+	 * @return the shared stroke style (dashes, caps, joins and width)
+	 * corresponding to the line type and width of this style
+	 */
+	public StrokeStyle getStrokeStyle()
+	{
+		return strokeStyle;
+	}
+
+	/**
+	 * Style identical to this one except for fill color
+	 * @param fillColor the new fill color (or null)
+	 * @return the unique style with this new fill color
+	 * @throws IllegalStateException if fillColor is null and this style has no
+	 * edge color
+	 */
+	public FigureStyle withFillColor(Color fillColor) throws IllegalStateException
+	{
+		return of(fillColor, edgeColor, lineType, lineWidth);
+	}
+
+	/**
+	 * Style identical to this one except for edge color
+	 * @param edgeColor the new edge color (or null)
+	 * @return the unique style with this new edge color
+	 * @throws IllegalStateException if edgeColor is null and this style has no
+	 * fill color
+	 */
+	public FigureStyle withEdgeColor(Color edgeColor) throws IllegalStateException
+	{
+		return of(fillColor, edgeColor, lineType, lineWidth);
+	}
+
+	/**
+	 * Style identical to this one except for line type
+	 * @param lineType the new line type
+	 * @return the unique style with this new line type
+	 */
+	public FigureStyle withLineType(LineType lineType)
+	{
+		return of(fillColor, edgeColor, lineType, lineWidth);
+	}
+
+	/**
+	 * Style identical to this one except for line width
+	 * @param lineWidth the new line width
+	 * @return the unique style with this new line width
+	 */
+	public FigureStyle withLineWidth(double lineWidth)
+	{
+		return of(fillColor, edgeColor, lineType, lineWidth);
+	}
+
+	/**
+	 * Hash code based on all style parameters
+	 * @return a hash code for this style
+	 */
+	@Override
+	public int hashCode()
+	{
+		final int prime = 31;
+		int result = 1;
+		result = (prime * result) + ((fillColor == null) ? 0 : fillColor.hashCode());
+		result = (prime * result) + ((edgeColor == null) ? 0 : edgeColor.hashCode());
+		result = (prime * result) + lineType.hashCode();
+		long temp = Double.doubleToLongBits(lineWidth);
+		result = (prime * result) + (int) (temp ^ (temp >>> 32));
+		return result;
+	}
+
+	/**
+	 * Value comparison with another object (only used for interning: interned
+	 * styles can be compared with ==)
+	 * @param obj the object to compare
+	 * @return true if obj is a style with the same parameters
+	 */
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj == this)
+		{
+			return true;
+		}
+		if (!(obj instanceof FigureStyle))
+		{
+			return false;
+		}
+		FigureStyle other = (FigureStyle) obj;
+		return (lineType == other.lineType)
+		    && (Double.doubleToLongBits(lineWidth) == Double.doubleToLongBits(other.lineWidth))
+		    && ((fillColor == null) ? (other.fillColor == null) : fillColor.equals(other.fillColor))
+		    && ((edgeColor == null) ? (other.edgeColor == null) : edgeColor.equals(other.edgeColor));
+	}
+
+	/**
+	 * String representation of this style
+	 * @return a String representing this style
+	 */
+	@Override
+	public String toString()
+	{
+		return new String("Style[fill=" + fillColor + ", edge=" + edgeColor
+		    + ", " + lineType + ", " + lineWidth + "]");
+	}
+}
@@ -44,10 +44,10 @@ public class Polygon extends Figure
 	 * The edge color set in this Polygon shall be set from {@link ColorFactory}.
 	 * @param lineType line type (Either {@link LineType#SOLID},
 	 * {@link LineType#DASHED} or {@link LineType#NONE}). If there is no edge
-	 * color provided the internal {@link #lineType} shall be set to
+	 * color provided the internal line type shall be set to
 	 * {@link LineType#NONE}
 	 * @param lineWidth line width of this Polygon. If there is no edge
-	 * color provided the internal {@link #lineType} shall be set to 0
+	 * color provided the internal line type shall be set to 0
 	 * @param parentLogger a parent logger used to initialize the current logger
 	 * @param x the initial x coordinate in the drawing panel where to create this Polygon
 	 * @param y the initial y coordinate in the drawing panel where to create this Polygon
@@ -80,10 +80,10 @@ public class Polygon extends Figure
 	 * The edge color set in this Polygon shall be set from {@link ColorFactory}.
 	 * @param lineType line type (Either {@link LineType#SOLID},
 	 * {@link LineType#DASHED} or {@link LineType#NONE}). If there is no edge
-	 * color provided the internal {@link #lineType} shall be set to
+	 * color provided the internal line type shall be set to
 	 * {@link LineType#NONE}
 	 * @param lineWidth line width of this Polygon. If there is no edge
-	 * color provided the internal {@link #lineType} shall be set to 0
+	 * color provided the internal line type shall be set to 0
 	 * @param parentLogger a parent logger used to initialize the current logger
 	 * @param x the initial x coordinate in the drawing panel where to create this Polygon
 	 * @param y the initial y coordinate in the drawing panel where to create this Polygon
@@ -145,8 +145,7 @@ public class Polygon extends Figure
 	 * @param x the x coordinate of the initial point where to create the new shape
 	 * @param y the y coordinate of the initial point where to create the new shape
 	 * @post a new {@link #shape} has been created with a new
-	 * {@link #instanceNumber} with {@link #fillColor}, {@link #edgeColor},
-	 * {@link #lineType} & {@link #lineWidth} applied with
+	 * {@link #instanceNumber} with {@link #style} applied with
 	 * {@link #applyParameters(Shape)}
 	 */
 	@Override
@@ -174,9 +173,7 @@ public class Polygon extends Figure
 	 * Compare this Polygon to another figure
 	 * @return true if the other figure is also a Polygon with the same
 	 * position and size (with 1e-6 threhold), false otherwise.
-	 * Other parameters, such as {@link Figure#fillColor},
-	 * {@link Figure#edgeColor}, {@link Figure#lineType} and
-	 * {@link Figure#lineWidth} are checked in {@link Figure#equals(Object)}
+	 * Other parameters, such as {@link Figure#style} are checked in {@link Figure#equals(Object)}
 	 * @see Figure#equals(Object)
 	 */
 	@Override
@@ -41,10 +41,10 @@ public class Rounded_Rectangle extends Figure
 	 * The edge color set in this Rectangle shall be set from {@link ColorFactory}.
 	 * @param lineType line type (Either {@link LineType#SOLID},
 	 * {@link LineType#DASHED} or {@link LineType#NONE}). If there is no edge
-	 * color provided the internal {@link #lineType} shall be set to
+	 * color provided the internal line type shall be set to
 	 * {@link LineType#NONE}
 	 * @param lineWidth line width of this Rectangle. If there is no edge
-	 * color provided the internal {@link #lineType} shall be set to 0
+	 * color provided the internal line type shall be set to 0
 	 * @param parentLogger a parent logger used to initialize the current logger
 	 * @param x the initial x coordinate in the drawing panel where to create this Rectangle
 	 * @param y the initial y coordinate in the drawing panel where to create this Rectangle
@@ -77,10 +77,10 @@ public class Rounded_Rectangle extends Figure
 	 * The edge color set in this Rectangle shall be set from {@link ColorFactory}.
 	 * @param lineType line type (Either {@link LineType#SOLID},
 	 * {@link LineType#DASHED} or {@link LineType#NONE}). If there is no edge
-	 * color provided the internal {@link #lineType} shall be set to
+	 * color provided the internal line type shall be set to
 	 * {@link LineType#NONE}
 	 * @param lineWidth line width of this Rectangle. If there is no edge
-	 * color provided the internal {@link #lineType} shall be set to 0
+	 * color provided the internal line type shall be set to 0
 	 * @param parentLogger a parent logger used to initialize the current logger
 	 * @param x the initial x coordinate in the drawing panel where to create this Rectangle
 	 * @param y the initial y coordinate in the drawing panel where to create this Rectangle
@@ -204,8 +204,7 @@ public class Rounded_Rectangle extends Figure
 	 * @param x the x coordinate of the initial point where to create the new shape
 	 * @param y the y coordinate of the initial point where to create the new shape
 	 * @post a new {@link #shape} has been created with a new
-	 * {@link #instanceNumber} with {@link #fillColor}, {@link #edgeColor},
-	 * {@link #lineType} & {@link #lineWidth} applied with
+	 * {@link #instanceNumber} with {@link #style} applied with
 	 * {@link #applyParameters(Shape)}
 	 */
 	@Override
@@ -251,9 +250,7 @@ public class Rounded_Rectangle extends Figure
 	 * Compare this Rectangle to another figure
 	 * @return true if the other figure is also a Rectangle with the same
 	 * position and size (with {@link Figure#threshold}), false otherwise.
-	 * Other parameters, such as {@link Figure#fillColor},
-	 * {@link Figure#edgeColor}, {@link Figure#lineType},
-	 * {@link Figure#lineWidth}, and transformations
+	 * Other parameters, such as {@link Figure#style}, and transformations
 	 * are checked in {@link Figure#equals(Object)}
 	 */
 	@Override
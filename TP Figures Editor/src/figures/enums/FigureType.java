@@ -274,8 +274,18 @@ public enum FigureType
 	 */
 	public static FigureType fromFigure(Figure f)
 	{
-		Class<? extends Figure> type = f.getClass();
+		return fromClass(f.getClass());
+	}
 
+	/**
+	 * Converts Figure class to FigureType
+	 * @param type the class of figure to investigate
+	 * @return the type of figure corresponding to provided figure class
+	 * @throws AssertionError if {@link FigureType} can't be determined from
+	 * provided {@link Figure} class
+	 */
+	public static FigureType fromClass(Class<? extends Figure> type)
+	{
 		if (type == Circle.class)
 		{
 			return CIRCLE;
@@ -320,7 +330,7 @@ public enum FigureType
 		 */
 		
 		throw new AssertionError(FigureType.class.getSimpleName()
-		    + ".fromFigure(" + f.getClass().getSimpleName()
+		    + ".fromClass(" + type.getSimpleName()
 		    + ") unknown Figure class: " + type);
 	}
 
@@ -0,0 +1,581 @@
+package figures.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Chunked binary drawing file.
+ * Figures are stored as fixed size {@link FigureRecord}s grouped into chunks
+ * of {@link #getChunkCapacity()} records. Each chunk occupies a fixed size
+ * slot in the file so that any chunk can be rewritten in place without
+ * moving the others:
+ * <pre>
+ * [header][chunk 0 slot][chunk 1 slot] ... [chunk n-1 slot][index]
+ * </pre>
+ * <ul>
+ * <li>header ({@link #HEADER_BYTES} bytes): {@link #MAGIC},
+ * {@link #VERSION}, record size, chunk capacity, chunk count, figure count
+ * and index offset</li>
+ * <li>chunk slot i starts at {@link #HEADER_BYTES} + i * chunk capacity *
+ * {@link FigureRecord#BYTES}</li>
+ * <li>index: for each chunk, the number of records it contains and the CRC32
+ * checksum of these records</li>
+ * </ul>
+ * Saving can then be either:
+ * <ul>
+ * <li>a full save with {@link #write(Path, int, int, IntFunction)} which
+ * writes a new file aside and then replaces the target file</li>
+ * <li>an incremental save with
+ * {@link #update(Path, int, int, IntFunction, BitSet)} which only rewrites
+ * dirty chunks in place, then the index block and the header. So saving an
+ * edit is proportional to the number of modified chunks and not to the size
+ * of the file.</li>
+ * </ul>
+ * Opened instances of this class are readers allowing to read the whole file
+ * with {@link #readAll()} or any chunk with {@link #readChunk(int)}. Since
+ * chunks are read with positional reads, different chunks can be read
+ * concurrently on the same instance.
+ */
+public class ChunkedDrawingFile implements AutoCloseable
+{
+	/**
+	 * Magic number at the beginning of drawing files ("FIGS")
+	 */
+	public static final int MAGIC = 0x46494753;
+
+	/**
+	 * Current version of the file format
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Size of the header block
+	 */
+	public static final int HEADER_BYTES = 64;
+
+	/**
+	 * Size of each index entry (records count + CRC32)
+	 */
+	public static final int INDEX_ENTRY_BYTES = 8;
+
+	/**
+	 * The channel to read from
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * Number of records per (full) chunk
+	 */
+	private final int chunkCapacity;
+
+	/**
+	 * Total number of figure records in file
+	 */
+	private final int figureCount;
+
+	/**
+	 * Number of records in each chunk (read from index)
+	 */
+	private final int[] counts;
+
+	/**
+	 * CRC32 checksum of each chunk (read from index)
+	 */
+	private final int[] checksums;
+
+	/**
+	 * Opens a drawing file for reading and reads its header and index.
+	 * @param path the path of the file to read
+	 * @throws IOException if the file can't be read or is not a valid
+	 * drawing file
+	 */
+	public ChunkedDrawingFile(Path path) throws IOException
+	{
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		try
+		{
+			ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+			if (header.getInt() != MAGIC)
+			{
+				throw new IOException(path + " is not a drawing file");
+			}
+			int version = header.getInt();
+			if (version != VERSION)
+			{
+				throw new IOException("unsupported drawing file version "
+				    + version);
+			}
+			int recordBytes = header.getInt();
+			if (recordBytes != FigureRecord.BYTES)
+			{
+				throw new IOException("unexpected record size " + recordBytes);
+			}
+			chunkCapacity = header.getInt();
+			int chunkCount = header.getInt();
+			figureCount = header.getInt();
+			long indexOffset = header.getLong();
+			if ((chunkCapacity <= 0) || (chunkCount < 0) || (figureCount < 0)
+			    || (indexOffset != slotOffset(chunkCount, chunkCapacity)))
+			{
+				throw new IOException("corrupted header in " + path);
+			}
+
+			counts = new int[chunkCount];
+			checksums = new int[chunkCount];
+			ByteBuffer index = readFully(channel,
+			                             indexOffset,
+			                             chunkCount * INDEX_ENTRY_BYTES);
+			int total = 0;
+			for (int i = 0; i < chunkCount; i++)
+			{
+				counts[i] = index.getInt();
+				checksums[i] = index.getInt();
+				/*
+				 * Only the last chunk may be partially filled since first
+				 * indices of chunks are computed from their capacity
+				 */
+				if ((counts[i] < 0) || (counts[i] > chunkCapacity)
+				    || ((i < (chunkCount - 1)) && (counts[i] != chunkCapacity)))
+				{
+					throw new IOException("corrupted index in " + path);
+				}
+				total += counts[i];
+			}
+			if (total != figureCount)
+			{
+				throw new IOException("inconsistent index in " + path);
+			}
+		}
+		catch (IOException | RuntimeException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Number of records per (full) chunk
+	 * @return the number of records per chunk
+	 */
+	public int getChunkCapacity()
+	{
+		return chunkCapacity;
+	}
+
+	/**
+	 * Number of chunks in this file
+	 * @return the number of chunks in this file
+	 */
+	public int getChunkCount()
+	{
+		return counts.length;
+	}
+
+	/**
+	 * Total number of figures in this file
+	 * @return the total number of figures in this file
+	 */
+	public int getFigureCount()
+	{
+		return figureCount;
+	}
+
+	/**
+	 * Index of the first figure of a chunk in the drawing
+	 * @param chunk the chunk index
+	 * @return the index of the first figure of this chunk
+	 */
+	public int getFirstIndex(int chunk)
+	{
+		return chunk * chunkCapacity;
+	}
+
+	/**
+	 * Reads raw content of a chunk and checks its checksum
+	 * @param chunk the index of the chunk to read
+	 * @return a buffer containing all the records of this chunk
+	 * @throws IOException if chunk can't be read or if its checksum doesn't
+	 * match the one in the index
+	 * @throws IndexOutOfBoundsException if chunk is not a valid chunk index
+	 */
+	public ByteBuffer readChunkBuffer(int chunk)
+	    throws IOException, IndexOutOfBoundsException
+	{
+		ByteBuffer buffer = readFully(channel,
+		                              slotOffset(chunk, chunkCapacity),
+		                              counts[chunk] * FigureRecord.BYTES);
+		if (checksum(buffer) != checksums[chunk])
+		{
+			throw new IOException("checksum mismatch in chunk " + chunk);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Reads and decodes all records of a chunk
+	 * @param chunk the index of the chunk to read
+	 * @return the list of records contained in this chunk
+	 * @throws IOException if chunk can't be read, is corrupted or contains
+	 * invalid records
+	 * @throws IndexOutOfBoundsException if chunk is not a valid chunk index
+	 */
+	public List<FigureRecord> readChunk(int chunk)
+	    throws IOException, IndexOutOfBoundsException
+	{
+		ByteBuffer buffer = readChunkBuffer(chunk);
+		List<FigureRecord> records = new ArrayList<>(counts[chunk]);
+		try
+		{
+			while (buffer.hasRemaining())
+			{
+				records.add(FigureRecord.readFrom(buffer));
+			}
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new IOException("invalid record in chunk " + chunk, e);
+		}
+		return records;
+	}
+
+	/**
+	 * Reads and decodes all records of this file (sequentially)
+	 * @return the list of all records contained in this file
+	 * @throws IOException if a chunk can't be read, is corrupted or contains
+	 * invalid records
+	 */
+	public List<FigureRecord> readAll() throws IOException
+	{
+		List<FigureRecord> records = new ArrayList<>(figureCount);
+		for (int i = 0; i < counts.length; i++)
+		{
+			records.addAll(readChunk(i));
+		}
+		return records;
+	}
+
+	/**
+	 * Closes the underlying channel
+	 * @throws IOException if channel can't be closed
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+
+	/**
+	 * Writes a complete drawing file.
+	 * The file is first written aside in a temporary file which then replaces
+	 * the target file so that a failed save never leaves a half written file.
+	 * @param path the path of the file to write
+	 * @param count the number of records to write
+	 * @param chunkCapacity the number of records per chunk
+	 * @param records function providing the record at each index in
+	 * [0..count[
+	 * @throws IOException if file can't be written
+	 * @throws IllegalArgumentException if chunkCapacity is not positive
+	 */
+	public static void write(Path path,
+	                         int count,
+	                         int chunkCapacity,
+	                         IntFunction<FigureRecord> records)
+	    throws IOException, IllegalArgumentException
+	{
+		checkCapacity(chunkCapacity);
+		Path absolute = path.toAbsolutePath();
+		Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+		try
+		{
+			try (FileChannel out = FileChannel.open(temp,
+			                                        StandardOpenOption.CREATE,
+			                                        StandardOpenOption.WRITE,
+			                                        StandardOpenOption.TRUNCATE_EXISTING))
+			{
+				int chunkCount = chunkCount(count, chunkCapacity);
+				int[] counts = new int[chunkCount];
+				int[] checksums = new int[chunkCount];
+				for (int i = 0; i < chunkCount; i++)
+				{
+					writeChunk(out, i, count, chunkCapacity, records, counts, checksums);
+				}
+				writeIndexAndHeader(out, count, chunkCapacity, counts, checksums);
+				out.force(true);
+			}
+			Files.move(temp,
+			           absolute,
+			           StandardCopyOption.REPLACE_EXISTING,
+			           StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally
+		{
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Incrementally updates an existing drawing file by rewriting only dirty
+	 * chunks in place, then the index block and the header.
+	 * Chunks beyond the end of the previously saved drawing are always
+	 * written. If the file doesn't exist or has been saved with a different
+	 * chunk capacity, a full {@link #write(Path, int, int, IntFunction)} is
+	 * performed instead.
+	 * @param path the path of the file to update
+	 * @param count the number of records of the drawing
+	 * @param chunkCapacity the number of records per chunk
+	 * @param records function providing the record at each index in
+	 * [0..count[ (only called for indices within dirty chunks)
+	 * @param dirtyChunks the indices of chunks modified since last save
+	 * @return the number of chunks actually written
+	 * @throws IOException if file can't be read or written
+	 * @throws IllegalArgumentException if chunkCapacity is not positive
+	 */
+	public static int update(Path path,
+	                         int count,
+	                         int chunkCapacity,
+	                         IntFunction<FigureRecord> records,
+	                         BitSet dirtyChunks)
+	    throws IOException, IllegalArgumentException
+	{
+		checkCapacity(chunkCapacity);
+		int chunkCount = chunkCount(count, chunkCapacity);
+		int[] counts = new int[chunkCount];
+		int[] checksums = new int[chunkCount];
+		int oldChunkCount;
+
+		if (Files.exists(path))
+		{
+			try (ChunkedDrawingFile previous = new ChunkedDrawingFile(path))
+			{
+				if (previous.chunkCapacity != chunkCapacity)
+				{
+					oldChunkCount = -1;
+				}
+				else
+				{
+					oldChunkCount = previous.getChunkCount();
+					int kept = Math.min(oldChunkCount, chunkCount);
+					System.arraycopy(previous.counts, 0, counts, 0, kept);
+					System.arraycopy(previous.checksums, 0, checksums, 0, kept);
+				}
+			}
+			catch (IOException e)
+			{
+				// Unreadable previous file: rewrite everything
+				oldChunkCount = -1;
+			}
+		}
+		else
+		{
+			oldChunkCount = -1;
+		}
+
+		if (oldChunkCount < 0)
+		{
+			write(path, count, chunkCapacity, records);
+			return chunkCount;
+		}
+
+		int written = 0;
+		try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE))
+		{
+			for (int i = 0; i < chunkCount; i++)
+			{
+				/*
+				 * Expected count of the last chunk may have changed without
+				 * being marked dirty (e.g. after removals at the end)
+				 */
+				int expected = Math.min(chunkCapacity, count - (i * chunkCapacity));
+				if ((i >= oldChunkCount) || dirtyChunks.get(i)
+				    || (counts[i] != expected))
+				{
+					writeChunk(out, i, count, chunkCapacity, records, counts, checksums);
+					written++;
+				}
+			}
+			writeIndexAndHeader(out, count, chunkCapacity, counts, checksums);
+			out.force(true);
+		}
+		return written;
+	}
+
+	/**
+	 * Offset of a chunk slot in the file
+	 * @param chunk the chunk index
+	 * @param chunkCapacity the number of records per chunk
+	 * @return the offset of the chunk slot in the file
+	 */
+	private static long slotOffset(int chunk, int chunkCapacity)
+	{
+		return HEADER_BYTES + ((long) chunk * chunkCapacity * FigureRecord.BYTES);
+	}
+
+	/**
+	 * Number of chunks required to store records
+	 * @param count the number of records
+	 * @param chunkCapacity the number of records per chunk
+	 * @return the number of chunks required to store count records
+	 */
+	private static int chunkCount(int count, int chunkCapacity)
+	{
+		return (count + chunkCapacity - 1) / chunkCapacity;
+	}
+
+	/**
+	 * Checks chunk capacity validity
+	 * @param chunkCapacity the chunk capacity to check
+	 * @throws IllegalArgumentException if chunkCapacity is not positive
+	 */
+	private static void checkCapacity(int chunkCapacity)
+	    throws IllegalArgumentException
+	{
+		if (chunkCapacity <= 0)
+		{
+			throw new IllegalArgumentException("invalid chunk capacity "
+			    + chunkCapacity);
+		}
+	}
+
+	/**
+	 * Encodes and writes a chunk into its slot
+	 * @param out the channel to write to
+	 * @param chunk the chunk index
+	 * @param count the total number of records
+	 * @param chunkCapacity the number of records per chunk
+	 * @param records function providing records
+	 * @param counts the records count of each chunk to update
+	 * @param checksums the checksum of each chunk to update
+	 * @throws IOException if chunk can't be written
+	 */
+	private static void writeChunk(FileChannel out,
+	                               int chunk,
+	                               int count,
+	                               int chunkCapacity,
+	                               IntFunction<FigureRecord> records,
+	                               int[] counts,
+	                               int[] checksums)
+	    throws IOException
+	{
+		int first = chunk * chunkCapacity;
+		int last = Math.min(count, first + chunkCapacity);
+		ByteBuffer buffer = ByteBuffer.allocate((last - first) * FigureRecord.BYTES);
+		for (int i = first; i < last; i++)
+		{
+			records.apply(i).writeTo(buffer);
+		}
+		buffer.flip();
+		counts[chunk] = last - first;
+		checksums[chunk] = checksum(buffer);
+		writeFully(out, slotOffset(chunk, chunkCapacity), buffer);
+	}
+
+	/**
+	 * Writes the index block after the last chunk slot, then the header and
+	 * truncates any remaining data after the index.
+	 * @param out the channel to write to
+	 * @param count the total number of records
+	 * @param chunkCapacity the number of records per chunk
+	 * @param counts the records count of each chunk
+	 * @param checksums the checksum of each chunk
+	 * @throws IOException if index or header can't be written
+	 */
+	private static void writeIndexAndHeader(FileChannel out,
+	                                        int count,
+	                                        int chunkCapacity,
+	                                        int[] counts,
+	                                        int[] checksums)
+	    throws IOException
+	{
+		int chunkCount = counts.length;
+		long indexOffset = slotOffset(chunkCount, chunkCapacity);
+		ByteBuffer index = ByteBuffer.allocate(chunkCount * INDEX_ENTRY_BYTES);
+		for (int i = 0; i < chunkCount; i++)
+		{
+			index.putInt(counts[i]);
+			index.putInt(checksums[i]);
+		}
+		index.flip();
+		writeFully(out, indexOffset, index);
+		out.truncate(indexOffset + (chunkCount * INDEX_ENTRY_BYTES));
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		header.putInt(MAGIC);
+		header.putInt(VERSION);
+		header.putInt(FigureRecord.BYTES);
+		header.putInt(chunkCapacity);
+		header.putInt(chunkCount);
+		header.putInt(count);
+		header.putLong(indexOffset);
+		header.position(0);
+		writeFully(out, 0, header);
+	}
+
+	/**
+	 * CRC32 checksum of the remaining bytes of a buffer (without changing its
+	 * position)
+	 * @param buffer the buffer to checksum
+	 * @return the CRC32 checksum of the buffer's content
+	 */
+	private static int checksum(ByteBuffer buffer)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(buffer.duplicate());
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Reads exactly length bytes at position in channel
+	 * @param channel the channel to read from
+	 * @param position the position to read from
+	 * @param length the number of bytes to read
+	 * @return a flipped buffer containing the bytes read
+	 * @throws IOException if the bytes can't be read or end of file has been
+	 * reached before reading all bytes
+	 */
+	private static ByteBuffer readFully(FileChannel channel,
+	                                    long position,
+	                                    int length)
+	    throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining())
+		{
+			int read = channel.read(buffer, position + buffer.position());
+			if (read < 0)
+			{
+				throw new IOException("unexpected end of file");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Writes the remaining bytes of buffer at position in channel
+	 * @param channel the channel to write to
+	 * @param position the position to write at
+	 * @param buffer the buffer to write
+	 * @throws IOException if the bytes can't be written
+	 */
+	private static void writeFully(FileChannel channel,
+	                               long position,
+	                               ByteBuffer buffer)
+	    throws IOException
+	{
+		long offset = position - buffer.position();
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer, offset + buffer.position());
+		}
+	}
+}
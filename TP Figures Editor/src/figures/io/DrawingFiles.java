@@ -0,0 +1,106 @@
+package figures.io;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.logging.Logger;
+
+import figures.Drawing;
+import figures.Figure;
+
+/**
+ * Saving and loading of {@link Drawing}s into / from
+ * {@link ChunkedDrawingFile}s.
+ */
+public class DrawingFiles
+{
+	/**
+	 * Private constructor to prevent instantiation
+	 */
+	private DrawingFiles()
+	{
+	}
+
+	/**
+	 * Saves a drawing into a file.
+	 * @param drawing the drawing to save
+	 * @param path the file to save the drawing into
+	 * @param incremental if true and path already contains a previous save
+	 * of this drawing, only chunks modified since last save (according to
+	 * {@link Drawing#getDirtyChunks()}) are rewritten. Otherwise the whole
+	 * file is written.
+	 * @return the number of chunks written
+	 * @throws IOException if the file can't be written
+	 * @post drawing dirty chunks have been cleared
+	 */
+	public static int save(Drawing drawing, Path path, boolean incremental)
+	    throws IOException
+	{
+		int count = drawing.size();
+		int written;
+		if (incremental)
+		{
+			BitSet dirty = drawing.getDirtyChunks();
+			written = ChunkedDrawingFile.update(path,
+			                                    count,
+			                                    Drawing.CHUNK_SIZE,
+			                                    (int i) -> FigureRecords.toRecord(drawing.get(i)),
+			                                    dirty);
+		}
+		else
+		{
+			ChunkedDrawingFile.write(path,
+			                         count,
+			                         Drawing.CHUNK_SIZE,
+			                         (int i) -> FigureRecords.toRecord(drawing.get(i)));
+			written = (count + Drawing.CHUNK_SIZE - 1) / Drawing.CHUNK_SIZE;
+		}
+		drawing.clearDirtyChunks();
+		return written;
+	}
+
+	/**
+	 * Loads figures from a drawing file.
+	 * @param path the file to read
+	 * @param parentLogger the parent logger of loaded figures
+	 * @return the list of figures read from the file
+	 * @throws IOException if the file can't be read, is corrupted or
+	 * contains figures which can't be created
+	 */
+	public static List<Figure> load(Path path, Logger parentLogger)
+	    throws IOException
+	{
+		try (ChunkedDrawingFile file = new ChunkedDrawingFile(path))
+		{
+			List<FigureRecord> records = file.readAll();
+			List<Figure> figures = new ArrayList<>(records.size());
+			for (FigureRecord record : records)
+			{
+				figures.add(toFigure(record, parentLogger));
+			}
+			return figures;
+		}
+	}
+
+	/**
+	 * Converts a record read from a file into a figure
+	 * @param record the record to convert
+	 * @param parentLogger the parent logger of the new figure
+	 * @return a new figure
+	 * @throws IOException if the record can't be converted into a figure
+	 */
+	static Figure toFigure(FigureRecord record, Logger parentLogger)
+	    throws IOException
+	{
+		try
+		{
+			return FigureRecords.toFigure(record, parentLogger);
+		}
+		catch (IllegalArgumentException | IllegalStateException e)
+		{
+			throw new IOException("invalid figure " + record, e);
+		}
+	}
+}
@@ -0,0 +1,379 @@
+package figures.io;
+
+import java.nio.ByteBuffer;
+
+import figures.enums.FigureType;
+import figures.enums.LineType;
+
+/**
+ * Headless, immutable description of a {@link figures.Figure} containing only
+ * primitive values (no JavaFX nodes), so it can be encoded in / decoded from
+ * drawing files, rendered or analyzed outside of the JavaFX Application Thread.
+ * Each record is encoded on exactly {@link #BYTES} bytes:
+ * <pre>
+ * offset  size  content
+ *      0     4  figure type ordinal ({@link FigureType#ordinal()})
+ *      4     4  fill color (packed ARGB)
+ *      8     4  edge color (packed ARGB)
+ *     12     4  line width (float)
+ *     16     1  line type ({@link LineType#intValue()})
+ *     17     1  flags ({@link #HAS_FILL} | {@link #HAS_EDGE})
+ *     18     6  reserved
+ *     24     8  x (top left corner of the shape)
+ *     32     8  y
+ *     40     8  width
+ *     48     8  height
+ *     56     8  translate x (of the figure's root group)
+ *     64     8  translate y
+ *     72     8  rotation (degrees)
+ *     80     8  scale x
+ *     88     8  scale y
+ * </pre>
+ */
+public final class FigureRecord
+{
+	/**
+	 * Number of bytes used to encode a record
+	 */
+	public static final int BYTES = 96;
+
+	/**
+	 * Flag bit indicating the record has a fill color
+	 */
+	public static final int HAS_FILL = 1;
+
+	/**
+	 * Flag bit indicating the record has an edge color
+	 */
+	public static final int HAS_EDGE = 2;
+
+	/**
+	 * The type of figure
+	 */
+	private final FigureType type;
+
+	/**
+	 * Packed ARGB fill color (meaningless if {@link #hasFill()} is false)
+	 */
+	private final int fillArgb;
+
+	/**
+	 * Packed ARGB edge color (meaningless if {@link #hasEdge()} is false)
+	 */
+	private final int edgeArgb;
+
+	/**
+	 * Line width of the edge
+	 */
+	private final float lineWidth;
+
+	/**
+	 * Line type of the edge
+	 */
+	private final LineType lineType;
+
+	/**
+	 * Combination of {@link #HAS_FILL} and {@link #HAS_EDGE}
+	 */
+	private final int flags;
+
+	/**
+	 * Shape geometry (top left corner, width and height) before any
+	 * transformation of the figure's root group
+	 */
+	private final double x, y, width, height;
+
+	/**
+	 * Transformations of the figure's root group
+	 */
+	private final double translateX, translateY, rotate, scaleX, scaleY;
+
+	/**
+	 * Valued constructor
+	 * @param type the type of figure
+	 * @param fillArgb packed ARGB fill color
+	 * @param edgeArgb packed ARGB edge color
+	 * @param lineWidth line width
+	 * @param lineType line type
+	 * @param flags combination of {@link #HAS_FILL} and {@link #HAS_EDGE}
+	 * @param x top left corner x coordinate of the shape
+	 * @param y top left corner y coordinate of the shape
+	 * @param width width of the shape
+	 * @param height height of the shape
+	 * @param translateX x translation of the figure
+	 * @param translateY y translation of the figure
+	 * @param rotate rotation of the figure (in degrees)
+	 * @param scaleX x scale of the figure
+	 * @param scaleY y scale of the figure
+	 * @throws NullPointerException if type or lineType is null
+	 */
+	public FigureRecord(FigureType type,
+	                    int fillArgb,
+	                    int edgeArgb,
+	                    float lineWidth,
+	                    LineType lineType,
+	                    int flags,
+	                    double x,
+	                    double y,
+	                    double width,
+	                    double height,
+	                    double translateX,
+	                    double translateY,
+	                    double rotate,
+	                    double scaleX,
+	                    double scaleY)
+	    throws NullPointerException
+	{
+		if ((type == null) || (lineType == null))
+		{
+			throw new NullPointerException("null type or line type");
+		}
+		this.type = type;
+		this.fillArgb = fillArgb;
+		this.edgeArgb = edgeArgb;
+		this.lineWidth = lineWidth;
+		this.lineType = lineType;
+		this.flags = flags & (HAS_FILL | HAS_EDGE);
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+		this.translateX = translateX;
+		this.translateY = translateY;
+		this.rotate = rotate;
+		this.scaleX = scaleX;
+		this.scaleY = scaleY;
+	}
+
+	/**
+	 * Figure type accessor
+	 * @return the type of figure
+	 */
+	public FigureType getType()
+	{
+		return type;
+	}
+
+	/**
+	 * Indicates if this record has a fill color
+	 * @return true if this record has a fill color
+	 */
+	public boolean hasFill()
+	{
+		return (flags & HAS_FILL) != 0;
+	}
+
+	/**
+	 * Packed ARGB fill color
+	 * @return the packed ARGB fill color
+	 */
+	public int getFillArgb()
+	{
+		return fillArgb;
+	}
+
+	/**
+	 * Indicates if this record has an edge color
+	 * @return true if this record has an edge color
+	 */
+	public boolean hasEdge()
+	{
+		return (flags & HAS_EDGE) != 0;
+	}
+
+	/**
+	 * Packed ARGB edge color
+	 * @return the packed ARGB edge color
+	 */
+	public int getEdgeArgb()
+	{
+		return edgeArgb;
+	}
+
+	/**
+	 * Line width accessor
+	 * @return the line width
+	 */
+	public float getLineWidth()
+	{
+		return lineWidth;
+	}
+
+	/**
+	 * Line type accessor
+	 * @return the line type
+	 */
+	public LineType getLineType()
+	{
+		return lineType;
+	}
+
+	/**
+	 * Flags accessor
+	 * @return combination of {@link #HAS_FILL} and {@link #HAS_EDGE}
+	 */
+	public int getFlags()
+	{
+		return flags;
+	}
+
+	/**
+	 * Top left corner x coordinate of the (untransformed) shape
+	 * @return the top left corner x coordinate
+	 */
+	public double getX()
+	{
+		return x;
+	}
+
+	/**
+	 * Top left corner y coordinate of the (untransformed) shape
+	 * @return the top left corner y coordinate
+	 */
+	public double getY()
+	{
+		return y;
+	}
+
+	/**
+	 * Width of the (untransformed) shape
+	 * @return the width
+	 */
+	public double getWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * Height of the (untransformed) shape
+	 * @return the height
+	 */
+	public double getHeight()
+	{
+		return height;
+	}
+
+	/**
+	 * X translation of the figure
+	 * @return the x translation
+	 */
+	public double getTranslateX()
+	{
+		return translateX;
+	}
+
+	/**
+	 * Y translation of the figure
+	 * @return the y translation
+	 */
+	public double getTranslateY()
+	{
+		return translateY;
+	}
+
+	/**
+	 * Rotation of the figure around its center
+	 * @return the rotation in degrees
+	 */
+	public double getRotate()
+	{
+		return rotate;
+	}
+
+	/**
+	 * X scale of the figure around its center
+	 * @return the x scale
+	 */
+	public double getScaleX()
+	{
+		return scaleX;
+	}
+
+	/**
+	 * Y scale of the figure around its center
+	 * @return the y scale
+	 */
+	public double getScaleY()
+	{
+		return scaleY;
+	}
+
+	/**
+	 * Encodes this record at the current position of the provided buffer
+	 * @param buffer the buffer to write to (with at least {@link #BYTES}
+	 * remaining bytes)
+	 * @post buffer position has been advanced by {@link #BYTES}
+	 */
+	public void writeTo(ByteBuffer buffer)
+	{
+		buffer.putInt(type.ordinal());
+		buffer.putInt(fillArgb);
+		buffer.putInt(edgeArgb);
+		buffer.putFloat(lineWidth);
+		buffer.put((byte) lineType.intValue());
+		buffer.put((byte) flags);
+		buffer.putShort((short) 0);
+		buffer.putInt(0);
+		buffer.putDouble(x);
+		buffer.putDouble(y);
+		buffer.putDouble(width);
+		buffer.putDouble(height);
+		buffer.putDouble(translateX);
+		buffer.putDouble(translateY);
+		buffer.putDouble(rotate);
+		buffer.putDouble(scaleX);
+		buffer.putDouble(scaleY);
+	}
+
+	/**
+	 * Decodes a record at the current position of the provided buffer
+	 * @param buffer the buffer to read from (with at least {@link #BYTES}
+	 * remaining bytes)
+	 * @return a new record decoded from the buffer
+	 * @throws IllegalArgumentException if the encoded figure type is unknown
+	 * @post buffer position has been advanced by {@link #BYTES}
+	 */
+	public static FigureRecord readFrom(ByteBuffer buffer)
+	    throws IllegalArgumentException
+	{
+		int typeIndex = buffer.getInt();
+		FigureType[] types = FigureType.values();
+		if ((typeIndex < 0) || (typeIndex >= types.length))
+		{
+			throw new IllegalArgumentException("unknown figure type " + typeIndex);
+		}
+		int fill = buffer.getInt();
+		int edge = buffer.getInt();
+		float width = buffer.getFloat();
+		LineType line = LineType.fromInteger(buffer.get());
+		int flags = buffer.get();
+		buffer.getShort();
+		buffer.getInt();
+		return new FigureRecord(types[typeIndex],
+		                        fill,
+		                        edge,
+		                        width,
+		                        line,
+		                        flags,
+		                        buffer.getDouble(),
+		                        buffer.getDouble(),
+		                        buffer.getDouble(),
+		                        buffer.getDouble(),
+		                        buffer.getDouble(),
+		                        buffer.getDouble(),
+		                        buffer.getDouble(),
+		                        buffer.getDouble(),
+		                        buffer.getDouble());
+	}
+
+	/**
+	 * String representation of this record (for debug purposes)
+	 * @return a String representing this record
+	 */
+	@Override
+	public String toString()
+	{
+		return new String(type + "[" + x + ", " + y + ", " + width + ", "
+		    + height + "]");
+	}
+}
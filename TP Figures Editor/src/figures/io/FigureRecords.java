@@ -0,0 +1,190 @@
+package figures.io;
+
+import java.util.logging.Logger;
+
+import figures.Circle;
+import figures.Ellipse;
+import figures.Figure;
+import figures.Rectangle;
+import figures.Rounded_Rectangle;
+import figures.enums.FigureType;
+import javafx.geometry.Point2D;
+import javafx.scene.Group;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Shape;
+import utils.ColorFactory;
+
+/**
+ * Conversions between JavaFX {@link Figure}s and headless
+ * {@link FigureRecord}s.
+ * Converting a record to a figure creates JavaFX nodes, but doesn't require
+ * to be performed on the JavaFX Application Thread as long as the figure is
+ * not yet attached to a displayed scene.
+ */
+public class FigureRecords
+{
+	/**
+	 * Private constructor to prevent instantiation
+	 */
+	private FigureRecords()
+	{
+	}
+
+	/**
+	 * Creates a record describing the provided figure
+	 * @param figure the figure to describe
+	 * @return a new record describing this figure
+	 * @throws AssertionError if figure's type is unknown
+	 */
+	public static FigureRecord toRecord(Figure figure) throws AssertionError
+	{
+		Point2D topLeft = figure.topLeft();
+		Shape shape = figure.getShape();
+		Group root = figure.getRoot();
+		int flags = 0;
+		int fill = 0;
+		int edge = 0;
+		if (figure.hasFillColor())
+		{
+			flags |= FigureRecord.HAS_FILL;
+			fill = toArgb(figure.getFillColor());
+		}
+		if (figure.hasEdgeColor())
+		{
+			flags |= FigureRecord.HAS_EDGE;
+			edge = toArgb(figure.getEdgeColor());
+		}
+
+		return new FigureRecord(FigureType.fromFigure(figure),
+		                        fill,
+		                        edge,
+		                        (float) figure.getLineWidth(),
+		                        figure.getLineType(),
+		                        flags,
+		                        topLeft.getX() + shape.getTranslateX(),
+		                        topLeft.getY() + shape.getTranslateY(),
+		                        figure.width(),
+		                        figure.height(),
+		                        root.getTranslateX(),
+		                        root.getTranslateY(),
+		                        root.getRotate(),
+		                        root.getScaleX(),
+		                        root.getScaleY());
+	}
+
+	/**
+	 * Creates a new figure from the provided record
+	 * @param record the record describing the figure to create
+	 * @param parentLogger the parent logger of the new figure
+	 * @return a new figure corresponding to the record
+	 * @throws IllegalArgumentException if the record's figure type can't be
+	 * created yet
+	 * @throws IllegalStateException if the record has neither fill nor edge
+	 * color
+	 */
+	public static Figure toFigure(FigureRecord record, Logger parentLogger)
+	    throws IllegalArgumentException, IllegalStateException
+	{
+		Color fill = (record.hasFill() ? toColor(record.getFillArgb()) : null);
+		Color edge = (record.hasEdge() ? toColor(record.getEdgeArgb()) : null);
+		double x = record.getX();
+		double y = record.getY();
+		double width = record.getWidth();
+		double height = record.getHeight();
+		Figure figure;
+
+		switch (record.getType())
+		{
+			case CIRCLE:
+				figure = new Circle(fill,
+				                    edge,
+				                    record.getLineType(),
+				                    record.getLineWidth(),
+				                    parentLogger,
+				                    x + (width / 2.0),
+				                    y + (height / 2.0),
+				                    width / 2.0);
+				break;
+			case ELLIPSE:
+				figure = new Ellipse(fill,
+				                     edge,
+				                     record.getLineType(),
+				                     record.getLineWidth(),
+				                     parentLogger,
+				                     x + (width / 2.0),
+				                     y + (height / 2.0),
+				                     width / 2.0,
+				                     height / 2.0);
+				break;
+			case RECTANGLE:
+				figure = new Rectangle(fill,
+				                       edge,
+				                       record.getLineType(),
+				                       record.getLineWidth(),
+				                       parentLogger,
+				                       x,
+				                       y,
+				                       width,
+				                       height);
+				break;
+			case ROUNDED_RECTANGLE:
+				figure = new Rounded_Rectangle(fill,
+				                               edge,
+				                               record.getLineType(),
+				                               record.getLineWidth(),
+				                               parentLogger,
+				                               x,
+				                               y,
+				                               width,
+				                               height);
+				break;
+			default:
+				throw new IllegalArgumentException(record.getType()
+				    + " figures can not be loaded yet");
+		}
+
+		Group root = figure.getRoot();
+		root.setTranslateX(record.getTranslateX());
+		root.setTranslateY(record.getTranslateY());
+		root.setRotate(record.getRotate());
+		root.setScaleX(record.getScaleX());
+		root.setScaleY(record.getScaleY());
+		return figure;
+	}
+
+	/**
+	 * Packs a color into an ARGB int
+	 * @param color the color to pack
+	 * @return the packed ARGB value of this color
+	 */
+	public static int toArgb(Color color)
+	{
+		return (component(color.getOpacity()) << 24)
+		    | (component(color.getRed()) << 16)
+		    | (component(color.getGreen()) << 8)
+		    | component(color.getBlue());
+	}
+
+	/**
+	 * Unpacks an ARGB int into a color obtained from {@link ColorFactory}
+	 * @param argb the packed ARGB value
+	 * @return the corresponding color
+	 */
+	public static Color toColor(int argb)
+	{
+		return ColorFactory.getColor(Color.rgb((argb >> 16) & 0xFF,
+		                                       (argb >> 8) & 0xFF,
+		                                       argb & 0xFF,
+		                                       ((argb >>> 24) & 0xFF) / 255.0));
+	}
+
+	/**
+	 * Converts a [0..1] color component to [0..255]
+	 * @param value the color component value in [0..1]
+	 * @return the color component value in [0..255]
+	 */
+	private static int component(double value)
+	{
+		return (int) Math.round(value * 255.0);
+	}
+}
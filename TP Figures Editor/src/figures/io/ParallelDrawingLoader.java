@@ -0,0 +1,202 @@
+package figures.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Logger;
+
+import figures.Drawing;
+import figures.Figure;
+
+/**
+ * Parallel loader of {@link ChunkedDrawingFile}s.
+ * Since each chunk of a drawing file is independently readable and
+ * decodable, chunks are decoded in parallel by a {@link ForkJoinPool} into
+ * headless {@link FigureRecord}s stored directly at their final (z-order)
+ * position so no merge step is required. Figures are then created from
+ * records and set into a {@link Drawing} in one batch.
+ */
+public class ParallelDrawingLoader
+{
+	/**
+	 * Number of chunks below which a decoding task is not split anymore
+	 */
+	private static final int SEQUENTIAL_CHUNKS = 1;
+
+	/**
+	 * Private constructor to prevent instantiation
+	 */
+	private ParallelDrawingLoader()
+	{
+	}
+
+	/**
+	 * Decodes all records of a drawing file in parallel
+	 * @param file the opened file to decode
+	 * @param pool the pool to decode chunks with
+	 * @return the list of all records of the file in drawing (z) order
+	 * @throws IOException if a chunk can't be read, is corrupted or contains
+	 * invalid records
+	 */
+	public static List<FigureRecord> decode(ChunkedDrawingFile file,
+	                                        ForkJoinPool pool)
+	    throws IOException
+	{
+		FigureRecord[] records = new FigureRecord[file.getFigureCount()];
+		try
+		{
+			pool.invoke(new DecodeTask(file, records, 0, file.getChunkCount()));
+		}
+		catch (UncheckedIOException e)
+		{
+			throw e.getCause();
+		}
+		return Arrays.asList(records);
+	}
+
+	/**
+	 * Decodes all records of a drawing file in parallel
+	 * @param path the path of the file to decode
+	 * @param pool the pool to decode chunks with
+	 * @return the list of all records of the file in drawing (z) order
+	 * @throws IOException if the file can't be read, is corrupted or contains
+	 * invalid records
+	 */
+	public static List<FigureRecord> decode(Path path, ForkJoinPool pool)
+	    throws IOException
+	{
+		try (ChunkedDrawingFile file = new ChunkedDrawingFile(path))
+		{
+			return decode(file, pool);
+		}
+	}
+
+	/**
+	 * Loads a drawing file into a drawing, replacing its current figures.
+	 * Chunks are decoded in parallel with the common {@link ForkJoinPool},
+	 * then figures are created and set into the drawing in one batch with
+	 * {@link Drawing#setAll(java.util.Collection)}.
+	 * @param path the path of the file to load
+	 * @param drawing the drawing to load figures into
+	 * @param parentLogger the parent logger of loaded figures
+	 * @return the number of loaded figures
+	 * @throws IOException if the file can't be read, is corrupted or contains
+	 * figures which can't be created
+	 * @implNote Since figures are JavaFX nodes attached to the displayed
+	 * drawing, this method should be called on the JavaFX Application Thread
+	 * @post drawing dirty chunks have been cleared
+	 */
+	public static int load(Path path, Drawing drawing, Logger parentLogger)
+	    throws IOException
+	{
+		List<FigureRecord> records = decode(path, ForkJoinPool.commonPool());
+		List<Figure> figures = new ArrayList<>(records.size());
+		for (FigureRecord record : records)
+		{
+			figures.add(DrawingFiles.toFigure(record, parentLogger));
+		}
+		drawing.setAll(figures);
+		drawing.clearDirtyChunks();
+		return figures.size();
+	}
+
+	/**
+	 * Fork/Join task decoding a range of chunks: ranges are split in halves
+	 * until they contain at most {@link #SEQUENTIAL_CHUNKS} chunks.
+	 */
+	private static class DecodeTask extends RecursiveAction
+	{
+		/**
+		 * Serial version UID
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The file to read chunks from
+		 */
+		private final ChunkedDrawingFile file;
+
+		/**
+		 * The records array to decode records into
+		 */
+		private final FigureRecord[] records;
+
+		/**
+		 * First chunk (inclusive) and last chunk (exclusive) to decode
+		 */
+		private final int from, to;
+
+		/**
+		 * Constructor
+		 * @param file the file to read chunks from
+		 * @param records the records array to decode records into
+		 * @param from the first chunk (inclusive) to decode
+		 * @param to the last chunk (exclusive) to decode
+		 */
+		public DecodeTask(ChunkedDrawingFile file,
+		                  FigureRecord[] records,
+		                  int from,
+		                  int to)
+		{
+			this.file = file;
+			this.records = records;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Decodes chunks in [from..to[ or split range
+		 * @throws UncheckedIOException if a chunk can't be decoded
+		 */
+		@Override
+		protected void compute() throws UncheckedIOException
+		{
+			if ((to - from) <= SEQUENTIAL_CHUNKS)
+			{
+				for (int chunk = from; chunk < to; chunk++)
+				{
+					decodeChunk(chunk);
+				}
+			}
+			else
+			{
+				int middle = (from + to) >>> 1;
+				invokeAll(new DecodeTask(file, records, from, middle),
+				          new DecodeTask(file, records, middle, to));
+			}
+		}
+
+		/**
+		 * Decodes a single chunk at its position in {@link #records}
+		 * @param chunk the index of the chunk to decode
+		 * @throws UncheckedIOException if the chunk can't be decoded
+		 */
+		private void decodeChunk(int chunk) throws UncheckedIOException
+		{
+			int index = file.getFirstIndex(chunk);
+			try
+			{
+				ByteBuffer buffer = file.readChunkBuffer(chunk);
+				while (buffer.hasRemaining())
+				{
+					records[index++] = FigureRecord.readFrom(buffer);
+				}
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+			catch (IllegalArgumentException e)
+			{
+				throw new UncheckedIOException(new IOException("invalid record in chunk "
+				    + chunk, e));
+			}
+		}
+	}
+}
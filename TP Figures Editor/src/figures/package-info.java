@@ -5,6 +5,7 @@
  * 	<li>The {@link figures.Drawing} model managing the figures.
  * 	<li>enums package defining Figure types and Line types</li>
  * 	<li>filters package containing {@link figures.Figure} filters to apply on {@link figures.Drawing} to filter figures</li>
+ * 	<li>store package containing a columnar store of figures for bulk operations on very large drawings</li>
  * 	<li></li>
  * </ul>
  */
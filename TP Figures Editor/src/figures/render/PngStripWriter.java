@@ -0,0 +1,340 @@
+package figures.render;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Streaming PNG (RGBA, 8 bits per channel) writer receiving the image as
+ * successive strips of rows so that the whole image never needs to be in
+ * memory.
+ * Each strip is split into bands of {@link #BAND_ROWS} rows which are
+ * filtered and compressed in parallel as independent deflate segments (each
+ * ending with a sync flush so they can be concatenated into a single zlib
+ * stream). Each band is then written as an IDAT chunk, and the zlib Adler32
+ * checksum of the whole stream is obtained by combining bands checksums.
+ */
+public class PngStripWriter implements Closeable
+{
+	/**
+	 * PNG signature
+	 */
+	private static final byte[] SIGNATURE =
+	    {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+	/**
+	 * zlib stream header (deflate, 32K window, default compression)
+	 */
+	private static final byte[] ZLIB_HEADER = {0x78, (byte) 0x9C};
+
+	/**
+	 * Number of rows in each independently compressed band
+	 */
+	public static final int BAND_ROWS = 32;
+
+	/**
+	 * Adler32 modulus
+	 */
+	private static final long ADLER_BASE = 65521L;
+
+	/**
+	 * The stream to write to
+	 */
+	private final DataOutputStream out;
+
+	/**
+	 * Image width
+	 */
+	private final int width;
+
+	/**
+	 * Image height
+	 */
+	private final int height;
+
+	/**
+	 * The pool used to compress bands
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Compression level (see {@link Deflater})
+	 */
+	private final int level;
+
+	/**
+	 * Number of rows written so far
+	 */
+	private int rowsWritten;
+
+	/**
+	 * Adler32 checksum of uncompressed data written so far
+	 */
+	private long adler;
+
+	/**
+	 * Constructor. Writes PNG signature and header chunk.
+	 * @param out the stream to write to
+	 * @param width the image width
+	 * @param height the image height
+	 * @param pool the pool used to compress bands in parallel
+	 * @param level the compression level ({@link Deflater#BEST_SPEED} to
+	 * {@link Deflater#BEST_COMPRESSION})
+	 * @throws IOException if header can't be written
+	 * @throws IllegalArgumentException if width or height is not positive
+	 */
+	public PngStripWriter(OutputStream out,
+	                      int width,
+	                      int height,
+	                      ForkJoinPool pool,
+	                      int level)
+	    throws IOException, IllegalArgumentException
+	{
+		if ((width <= 0) || (height <= 0))
+		{
+			throw new IllegalArgumentException("invalid image size " + width
+			    + "x" + height);
+		}
+		this.out = new DataOutputStream(out);
+		this.width = width;
+		this.height = height;
+		this.pool = pool;
+		this.level = level;
+		rowsWritten = 0;
+		adler = 1L;
+
+		this.out.write(SIGNATURE);
+		ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+		DataOutputStream data = new DataOutputStream(header);
+		data.writeInt(width);
+		data.writeInt(height);
+		data.writeByte(8);	// bit depth
+		data.writeByte(6);	// color type: RGBA
+		data.writeByte(0);	// compression: deflate
+		data.writeByte(0);	// filter method: adaptive
+		data.writeByte(0);	// interlace: none
+		writeChunk("IHDR", header.toByteArray(), 0, header.size());
+	}
+
+	/**
+	 * Writes a strip of rows
+	 * @param argb (non premultiplied) ARGB pixels of the strip (row by row,
+	 * with {@link #width} pixels per row)
+	 * @param rows the number of rows in the strip
+	 * @throws IOException if strip can't be written
+	 * @throws IllegalStateException if writing these rows would exceed image
+	 * height
+	 */
+	public void writeRows(int[] argb, int rows)
+	    throws IOException, IllegalStateException
+	{
+		if ((rowsWritten + rows) > height)
+		{
+			throw new IllegalStateException("too many rows: "
+			    + (rowsWritten + rows) + " > " + height);
+		}
+		List<ForkJoinTask<Band>> tasks = new ArrayList<>();
+		for (int first = 0; first < rows; first += BAND_ROWS)
+		{
+			int from = first;
+			int to = Math.min(rows, first + BAND_ROWS);
+			boolean firstBand = (rowsWritten == 0) && (from == 0);
+			boolean lastBand = (rowsWritten + to) == height;
+			tasks.add(pool.submit(() -> compress(argb, from, to, firstBand, lastBand)));
+		}
+		for (ForkJoinTask<Band> task : tasks)
+		{
+			Band band = task.join();
+			writeChunk("IDAT", band.data, 0, band.data.length);
+			adler = combineAdler(adler, band.adler, band.length);
+			rowsWritten += band.rows;
+		}
+	}
+
+	/**
+	 * Writes zlib checksum and PNG end chunk
+	 * @throws IOException if all rows have not been written or if the end of
+	 * the file can't be written
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (rowsWritten != height)
+		{
+			throw new IOException("incomplete image: " + rowsWritten + " / "
+			    + height + " rows");
+		}
+		byte[] checksum = {(byte) (adler >>> 24),
+		                   (byte) (adler >>> 16),
+		                   (byte) (adler >>> 8),
+		                   (byte) adler};
+		writeChunk("IDAT", checksum, 0, checksum.length);
+		writeChunk("IEND", new byte[0], 0, 0);
+		out.flush();
+	}
+
+	/**
+	 * A compressed band of rows
+	 */
+	private static class Band
+	{
+		/**
+		 * Compressed data
+		 */
+		final byte[] data;
+
+		/**
+		 * Adler32 checksum of uncompressed data
+		 */
+		final long adler;
+
+		/**
+		 * Length of uncompressed data
+		 */
+		final long length;
+
+		/**
+		 * Number of rows in this band
+		 */
+		final int rows;
+
+		/**
+		 * Constructor
+		 * @param data compressed data
+		 * @param adler Adler32 checksum of uncompressed data
+		 * @param length length of uncompressed data
+		 * @param rows number of rows in this band
+		 */
+		Band(byte[] data, long adler, long length, int rows)
+		{
+			this.data = data;
+			this.adler = adler;
+			this.length = length;
+			this.rows = rows;
+		}
+	}
+
+	/**
+	 * Filters (with the "Sub" filter) and compresses rows [from..to[ of a strip
+	 * @param argb the strip pixels
+	 * @param from the first row (inclusive)
+	 * @param to the last row (exclusive)
+	 * @param first whether these are the first rows of the image (in which
+	 * case compressed data starts with zlib header)
+	 * @param last whether these are the last rows of the image (in which case
+	 * deflate stream is finished)
+	 * @return the compressed band
+	 */
+	private Band compress(int[] argb,
+	                      int from,
+	                      int to,
+	                      boolean first,
+	                      boolean last)
+	{
+		int stride = 1 + (width * 4);
+		byte[] raw = new byte[(to - from) * stride];
+		int o = 0;
+		for (int row = from; row < to; row++)
+		{
+			raw[o++] = 1;	// Sub filter
+			int p = row * width;
+			int previous = 0;
+			for (int x = 0; x < width; x++)
+			{
+				int pixel = argb[p + x];
+				raw[o++] = (byte) ((pixel >>> 16) - (previous >>> 16));
+				raw[o++] = (byte) ((pixel >>> 8) - (previous >>> 8));
+				raw[o++] = (byte) (pixel - previous);
+				raw[o++] = (byte) ((pixel >>> 24) - (previous >>> 24));
+				previous = pixel;
+			}
+		}
+
+		Adler32 checksum = new Adler32();
+		checksum.update(raw, 0, raw.length);
+
+		Deflater deflater = new Deflater(level, true);
+		deflater.setInput(raw);
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4);
+		if (first)
+		{
+			compressed.write(ZLIB_HEADER, 0, ZLIB_HEADER.length);
+		}
+		byte[] buffer = new byte[65536];
+		if (last)
+		{
+			deflater.finish();
+			while (!deflater.finished())
+			{
+				int n = deflater.deflate(buffer);
+				compressed.write(buffer, 0, n);
+			}
+		}
+		else
+		{
+			int n;
+			do
+			{
+				n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+				compressed.write(buffer, 0, n);
+			}
+			while (n == buffer.length);
+		}
+		deflater.end();
+		return new Band(compressed.toByteArray(),
+		                checksum.getValue(),
+		                raw.length,
+		                to - from);
+	}
+
+	/**
+	 * Combines two Adler32 checksums (as zlib's adler32_combine)
+	 * @param adler1 checksum of the first sequence
+	 * @param adler2 checksum of the second sequence
+	 * @param length2 length of the second sequence
+	 * @return the checksum of the concatenation of both sequences
+	 */
+	private static long combineAdler(long adler1, long adler2, long length2)
+	{
+		long remainder = length2 % ADLER_BASE;
+		long sum1 = adler1 & 0xFFFF;
+		long sum2 = (remainder * sum1) % ADLER_BASE;
+		sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+		sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF)
+		    + ADLER_BASE - remainder;
+		sum1 %= ADLER_BASE;
+		sum2 %= ADLER_BASE;
+		return sum1 | (sum2 << 16);
+	}
+
+	/**
+	 * Writes a PNG chunk
+	 * @param type the chunk type
+	 * @param data the chunk data
+	 * @param offset the offset of chunk data
+	 * @param length the length of chunk data
+	 * @throws IOException if chunk can't be written
+	 */
+	private void writeChunk(String type, byte[] data, int offset, int length)
+	    throws IOException
+	{
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, offset, length);
+		out.writeInt(length);
+		out.write(typeBytes);
+		out.write(data, offset, length);
+		out.writeInt((int) crc.getValue());
+	}
+}
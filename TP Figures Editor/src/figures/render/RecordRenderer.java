@@ -0,0 +1,129 @@
+package figures.render;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+
+import figures.io.FigureRecord;
+import utils.StrokeStyle;
+
+/**
+ * Java2D rendering of headless {@link FigureRecord}s.
+ * Mimics the way JavaFX draws {@link figures.Figure}s: figure's shape is
+ * filled then stroked (with the same {@link StrokeStyle}s as figures) and
+ * transformed by the figure's root group translation, then rotation and
+ * scale around the center of the shape.
+ */
+public class RecordRenderer
+{
+	/**
+	 * Arc size of rounded rectangles (see {@link figures.Rounded_Rectangle})
+	 */
+	public static final double ROUNDED_ARC = 50.0;
+
+	/**
+	 * Private constructor to prevent instantiation
+	 */
+	private RecordRenderer()
+	{
+	}
+
+	/**
+	 * Untransformed Java2D shape of a record
+	 * @param record the record to get the shape of
+	 * @return the untransformed shape of the record or null if record's type
+	 * can't be rendered yet
+	 */
+	public static Shape shapeOf(FigureRecord record)
+	{
+		double x = record.getX();
+		double y = record.getY();
+		double w = record.getWidth();
+		double h = record.getHeight();
+		switch (record.getType())
+		{
+			case CIRCLE:
+			case ELLIPSE:
+				return new Ellipse2D.Double(x, y, w, h);
+			case RECTANGLE:
+				return new Rectangle2D.Double(x, y, w, h);
+			case ROUNDED_RECTANGLE:
+				return new RoundRectangle2D.Double(x, y, w, h, ROUNDED_ARC, ROUNDED_ARC);
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Transform of a record: translation, then rotation and scale around the
+	 * center of the record's shape (as JavaFX Node transforms do)
+	 * @param record the record to get the transform of
+	 * @return the transform of the record
+	 */
+	public static AffineTransform transformOf(FigureRecord record)
+	{
+		double cx = record.getX() + (record.getWidth() / 2.0);
+		double cy = record.getY() + (record.getHeight() / 2.0);
+		AffineTransform transform =
+		    AffineTransform.getTranslateInstance(record.getTranslateX() + cx,
+		                                         record.getTranslateY() + cy);
+		transform.rotate(Math.toRadians(record.getRotate()));
+		transform.scale(record.getScaleX(), record.getScaleY());
+		transform.translate(-cx, -cy);
+		return transform;
+	}
+
+	/**
+	 * Bounds of a record once transformed, including its edge
+	 * @param record the record to get the bounds of
+	 * @return the bounds of the transformed record (including edge width)
+	 */
+	public static Rectangle2D boundsOf(FigureRecord record)
+	{
+		double half = (record.hasEdge() ? record.getLineWidth() / 2.0 : 0.0);
+		Rectangle2D outer = new Rectangle2D.Double(record.getX() - half,
+		                                           record.getY() - half,
+		                                           record.getWidth() + (2 * half),
+		                                           record.getHeight() + (2 * half));
+		return transformOf(record).createTransformedShape(outer).getBounds2D();
+	}
+
+	/**
+	 * Paints a record into a graphics context.
+	 * The graphics context's transform is left unchanged.
+	 * @param g2d the graphics context to paint into
+	 * @param record the record to paint
+	 */
+	public static void paint(Graphics2D g2d, FigureRecord record)
+	{
+		Shape shape = shapeOf(record);
+		if (shape == null)
+		{
+			return;
+		}
+		AffineTransform saved = g2d.getTransform();
+		g2d.transform(transformOf(record));
+		if (record.hasFill())
+		{
+			g2d.setColor(new Color(record.getFillArgb(), true));
+			g2d.fill(shape);
+		}
+		if (record.hasEdge())
+		{
+			BasicStroke stroke = StrokeStyle.of(record.getLineType(),
+			                                    record.getLineWidth()).getAwtStroke();
+			if (stroke != null)
+			{
+				g2d.setColor(new Color(record.getEdgeArgb(), true));
+				g2d.setStroke(stroke);
+				g2d.draw(shape);
+			}
+		}
+		g2d.setTransform(saved);
+	}
+}
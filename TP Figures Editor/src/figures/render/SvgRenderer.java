@@ -0,0 +1,220 @@
+package figures.render;
+
+import java.awt.geom.AffineTransform;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+import figures.enums.FigureType;
+import figures.enums.LineType;
+import figures.io.FigureRecord;
+import utils.StrokeStyle;
+
+/**
+ * Headless renderer of {@link FigureRecord}s into SVG documents.
+ * Records are streamed one element at a time, so the document is never built
+ * in memory.
+ */
+public class SvgRenderer
+{
+	/**
+	 * Private constructor to prevent instantiation
+	 */
+	private SvgRenderer()
+	{
+	}
+
+	/**
+	 * Renders records into an SVG file
+	 * @param records the records to render (in drawing order)
+	 * @param originX the x coordinate of the drawing shown at the left of the
+	 * image
+	 * @param originY the y coordinate of the drawing shown at the top of the
+	 * image
+	 * @param scale the scale factor from drawing to image coordinates
+	 * @param width the image width
+	 * @param height the image height
+	 * @param background the background color (packed ARGB)
+	 * @param path the SVG file to write
+	 * @throws IOException if the file can't be written
+	 */
+	public static void render(List<FigureRecord> records,
+	                          double originX,
+	                          double originY,
+	                          double scale,
+	                          int width,
+	                          int height,
+	                          int background,
+	                          Path path)
+	    throws IOException
+	{
+		try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8))
+		{
+			render(records, originX, originY, scale, width, height, background, out);
+		}
+	}
+
+	/**
+	 * Renders records into an SVG stream
+	 * @param records the records to render (in drawing order)
+	 * @param originX the x coordinate of the drawing shown at the left of the
+	 * image
+	 * @param originY the y coordinate of the drawing shown at the top of the
+	 * image
+	 * @param scale the scale factor from drawing to image coordinates
+	 * @param width the image width
+	 * @param height the image height
+	 * @param background the background color (packed ARGB)
+	 * @param out the writer to write the SVG document to (not closed)
+	 * @throws IOException if the document can't be written
+	 */
+	public static void render(List<FigureRecord> records,
+	                          double originX,
+	                          double originY,
+	                          double scale,
+	                          int width,
+	                          int height,
+	                          int background,
+	                          Writer out)
+	    throws IOException
+	{
+		Writer writer = (out instanceof BufferedWriter ? out : new BufferedWriter(out));
+		writer.write(String.format(Locale.ROOT,
+		                           "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+		                               + "<svg xmlns=\"http://www.w3.org/2000/svg\" "
+		                               + "width=\"%d\" height=\"%d\" viewBox=\"%s %s %s %s\">\n",
+		                           width,
+		                           height,
+		                           number(originX),
+		                           number(originY),
+		                           number(width / scale),
+		                           number(height / scale)));
+		writer.write(String.format(Locale.ROOT,
+		                           "<rect x=\"%s\" y=\"%s\" width=\"%s\" height=\"%s\" %s/>\n",
+		                           number(originX),
+		                           number(originY),
+		                           number(width / scale),
+		                           number(height / scale),
+		                           paint("fill", background)));
+		for (FigureRecord record : records)
+		{
+			String element = element(record);
+			if (element != null)
+			{
+				writer.write(element);
+			}
+		}
+		writer.write("</svg>\n");
+		writer.flush();
+	}
+
+	/**
+	 * SVG element of a record
+	 * @param record the record to convert
+	 * @return the SVG element of the record or null if record's type can't
+	 * be rendered yet
+	 */
+	private static String element(FigureRecord record)
+	{
+		StringBuilder builder = new StringBuilder(256);
+		double x = record.getX();
+		double y = record.getY();
+		double w = record.getWidth();
+		double h = record.getHeight();
+		switch (record.getType())
+		{
+			case CIRCLE:
+			case ELLIPSE:
+				builder.append("<ellipse cx=\"").append(number(x + (w / 2.0)))
+				    .append("\" cy=\"").append(number(y + (h / 2.0)))
+				    .append("\" rx=\"").append(number(w / 2.0))
+				    .append("\" ry=\"").append(number(h / 2.0)).append('"');
+				break;
+			case RECTANGLE:
+			case ROUNDED_RECTANGLE:
+				builder.append("<rect x=\"").append(number(x))
+				    .append("\" y=\"").append(number(y))
+				    .append("\" width=\"").append(number(w))
+				    .append("\" height=\"").append(number(h)).append('"');
+				if (record.getType() == FigureType.ROUNDED_RECTANGLE)
+				{
+					String radius = number(RecordRenderer.ROUNDED_ARC / 2.0);
+					builder.append(" rx=\"").append(radius)
+					    .append("\" ry=\"").append(radius).append('"');
+				}
+				break;
+			default:
+				return null;
+		}
+
+		AffineTransform transform = RecordRenderer.transformOf(record);
+		if (!transform.isIdentity())
+		{
+			builder.append(" transform=\"matrix(")
+			    .append(number(transform.getScaleX())).append(' ')
+			    .append(number(transform.getShearY())).append(' ')
+			    .append(number(transform.getShearX())).append(' ')
+			    .append(number(transform.getScaleY())).append(' ')
+			    .append(number(transform.getTranslateX())).append(' ')
+			    .append(number(transform.getTranslateY())).append(")\"");
+		}
+
+		builder.append(' ');
+		builder.append(record.hasFill() ? paint("fill", record.getFillArgb()) : "fill=\"none\"");
+		if (record.hasEdge() && (record.getLineType() != LineType.NONE))
+		{
+			float width = record.getLineWidth();
+			builder.append(' ').append(paint("stroke", record.getEdgeArgb()))
+			    .append(" stroke-width=\"").append(number(width))
+			    .append("\" stroke-linecap=\"round\" stroke-linejoin=\"round\"");
+			List<Double> dashes = StrokeStyle.of(record.getLineType(), width).getDashes();
+			if (!dashes.isEmpty())
+			{
+				builder.append(" stroke-dasharray=\"");
+				for (int i = 0; i < dashes.size(); i++)
+				{
+					builder.append(i > 0 ? " " : "").append(number(dashes.get(i)));
+				}
+				builder.append('"');
+			}
+		}
+		builder.append("/>\n");
+		return builder.toString();
+	}
+
+	/**
+	 * SVG paint attributes (color and opacity)
+	 * @param attribute the attribute name ("fill" or "stroke")
+	 * @param argb the packed ARGB color
+	 * @return the SVG attributes for this color
+	 */
+	private static String paint(String attribute, int argb)
+	{
+		int alpha = (argb >>> 24) & 0xFF;
+		String color = String.format("%s=\"#%06x\"", attribute, argb & 0xFFFFFF);
+		if (alpha == 0xFF)
+		{
+			return color;
+		}
+		return color + " " + attribute + "-opacity=\"" + number(alpha / 255.0) + "\"";
+	}
+
+	/**
+	 * Compact locale independent representation of a number
+	 * @param value the value to format
+	 * @return the formatted value
+	 */
+	private static String number(double value)
+	{
+		if (value == Math.rint(value) && (Math.abs(value) < 1e15))
+		{
+			return Long.toString((long) value);
+		}
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+}
@@ -0,0 +1,469 @@
+package figures.render;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.Deflater;
+
+import figures.io.FigureRecord;
+
+/**
+ * Headless parallel rasterizer of {@link FigureRecord}s into PNG images.
+ * The image is divided into square tiles of {@link #getTileSize()} pixels:
+ * <ol>
+ * <li>records are first binned into the tiles their bounds overlap (keeping
+ * drawing order in each tile)</li>
+ * <li>then each strip (row of tiles) is rendered by rendering all of its tiles
+ * in parallel with Java2D on a {@link ForkJoinPool}</li>
+ * <li>and the strip is then compressed (in parallel) and appended to the PNG
+ * stream by a {@link PngStripWriter}</li>
+ * </ol>
+ * Only one strip of pixels is in memory at any time, so large images (e.g.
+ * 20000 x 20000) can be exported without ever holding the full image in
+ * heap.
+ */
+public class TiledRasterizer
+{
+	/**
+	 * Default tile size
+	 */
+	public static final int DEFAULT_TILE_SIZE = 512;
+
+	/**
+	 * Size of the (square) tiles
+	 */
+	private final int tileSize;
+
+	/**
+	 * Background color (packed ARGB)
+	 */
+	private final int background;
+
+	/**
+	 * The pool used to render tiles and compress strips
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor
+	 * @param tileSize the size of the (square) tiles
+	 * @param background the background color (packed ARGB)
+	 * @param pool the pool used to render tiles and compress strips
+	 * @throws IllegalArgumentException if tileSize is not positive
+	 */
+	public TiledRasterizer(int tileSize, int background, ForkJoinPool pool)
+	    throws IllegalArgumentException
+	{
+		if (tileSize <= 0)
+		{
+			throw new IllegalArgumentException("invalid tile size " + tileSize);
+		}
+		this.tileSize = tileSize;
+		this.background = background;
+		this.pool = pool;
+	}
+
+	/**
+	 * Tile size accessor
+	 * @return the size of the (square) tiles
+	 */
+	public int getTileSize()
+	{
+		return tileSize;
+	}
+
+	/**
+	 * Bounds of all records (including their edges)
+	 * @param records the records to get the bounds of
+	 * @return the union of all records bounds or an empty rectangle if there
+	 * is no records
+	 */
+	public static Rectangle2D boundsOf(List<FigureRecord> records)
+	{
+		Rectangle2D bounds = null;
+		for (FigureRecord record : records)
+		{
+			Rectangle2D recordBounds = RecordRenderer.boundsOf(record);
+			if (bounds == null)
+			{
+				bounds = recordBounds;
+			}
+			else
+			{
+				bounds.add(recordBounds);
+			}
+		}
+		return (bounds != null ? bounds : new Rectangle2D.Double());
+	}
+
+	/**
+	 * Renders records into a PNG file
+	 * @param records the records to render (in drawing order)
+	 * @param originX the x coordinate of the drawing shown at the left of the
+	 * image
+	 * @param originY the y coordinate of the drawing shown at the top of the
+	 * image
+	 * @param width the image width
+	 * @param height the image height
+	 * @param path the PNG file to write
+	 * @throws IOException if image can't be written
+	 */
+	public void render(List<FigureRecord> records,
+	                   double originX,
+	                   double originY,
+	                   int width,
+	                   int height,
+	                   Path path)
+	    throws IOException
+	{
+		render(records, originX, originY, 1.0, width, height, path);
+	}
+
+	/**
+	 * Renders scaled records into a PNG file
+	 * @param records the records to render (in drawing order)
+	 * @param originX the x coordinate of the drawing shown at the left of the
+	 * image
+	 * @param originY the y coordinate of the drawing shown at the top of the
+	 * image
+	 * @param scale the scale factor from drawing to image coordinates (e.g.
+	 * &lt; 1 for thumbnails)
+	 * @param width the image width
+	 * @param height the image height
+	 * @param path the PNG file to write
+	 * @throws IOException if image can't be written
+	 */
+	public void render(List<FigureRecord> records,
+	                   double originX,
+	                   double originY,
+	                   double scale,
+	                   int width,
+	                   int height,
+	                   Path path)
+	    throws IOException
+	{
+		try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))
+		{
+			render(records, originX, originY, scale, width, height, out);
+		}
+	}
+
+	/**
+	 * Renders records into a PNG stream
+	 * @param records the records to render (in drawing order)
+	 * @param originX the x coordinate of the drawing shown at the left of the
+	 * image
+	 * @param originY the y coordinate of the drawing shown at the top of the
+	 * image
+	 * @param width the image width
+	 * @param height the image height
+	 * @param out the stream to write the PNG image to (not closed)
+	 * @throws IOException if image can't be written
+	 */
+	public void render(List<FigureRecord> records,
+	                   double originX,
+	                   double originY,
+	                   int width,
+	                   int height,
+	                   OutputStream out)
+	    throws IOException
+	{
+		render(records, originX, originY, 1.0, width, height, out);
+	}
+
+	/**
+	 * Renders scaled records into a PNG stream
+	 * @param records the records to render (in drawing order)
+	 * @param originX the x coordinate of the drawing shown at the left of the
+	 * image
+	 * @param originY the y coordinate of the drawing shown at the top of the
+	 * image
+	 * @param scale the scale factor from drawing to image coordinates (e.g.
+	 * &lt; 1 for thumbnails)
+	 * @param width the image width
+	 * @param height the image height
+	 * @param out the stream to write the PNG image to (not closed)
+	 * @throws IOException if image can't be written
+	 */
+	public void render(List<FigureRecord> records,
+	                   double originX,
+	                   double originY,
+	                   double scale,
+	                   int width,
+	                   int height,
+	                   OutputStream out)
+	    throws IOException
+	{
+		int columns = (width + tileSize - 1) / tileSize;
+		int rows = (height + tileSize - 1) / tileSize;
+		int[][] bins = bin(records, originX, originY, scale, width, height, columns, rows);
+
+		PngStripWriter writer = new PngStripWriter(out,
+		                                           width,
+		                                           height,
+		                                           pool,
+		                                           Deflater.BEST_SPEED);
+		int[] strip = new int[width * Math.min(tileSize, height)];
+		for (int row = 0; row < rows; row++)
+		{
+			int stripHeight = Math.min(tileSize, height - (row * tileSize));
+			pool.invoke(new StripTask(records,
+			                          bins,
+			                          strip,
+			                          originX,
+			                          originY,
+			                          scale,
+			                          width,
+			                          columns,
+			                          row,
+			                          stripHeight,
+			                          0,
+			                          columns));
+			writer.writeRows(strip, stripHeight);
+		}
+		writer.close();
+	}
+
+	/**
+	 * Bins records indices into the tiles their bounds overlap
+	 * @param records the records to bin
+	 * @param originX x coordinate of the image origin in the drawing
+	 * @param originY y coordinate of the image origin in the drawing
+	 * @param scale the scale factor from drawing to image coordinates
+	 * @param width the image width
+	 * @param height the image height
+	 * @param columns the number of tiles columns
+	 * @param rows the number of tiles rows
+	 * @return for each tile (row by row), the indices of overlapping records in
+	 * drawing order
+	 */
+	private int[][] bin(List<FigureRecord> records,
+	                    double originX,
+	                    double originY,
+	                    double scale,
+	                    int width,
+	                    int height,
+	                    int columns,
+	                    int rows)
+	{
+		int[][] bins = new int[columns * rows][];
+		int[] sizes = new int[columns * rows];
+		int index = 0;
+		for (FigureRecord record : records)
+		{
+			Rectangle2D bounds = RecordRenderer.boundsOf(record);
+			double minX = ((bounds.getMinX() - originX) * scale) - 1.0;
+			double minY = ((bounds.getMinY() - originY) * scale) - 1.0;
+			double maxX = ((bounds.getMaxX() - originX) * scale) + 1.0;
+			double maxY = ((bounds.getMaxY() - originY) * scale) + 1.0;
+			if ((maxX >= 0) && (maxY >= 0) && (minX < width) && (minY < height))
+			{
+				int c0 = Math.max(0, (int) (minX / tileSize));
+				int c1 = Math.min(columns - 1, (int) (maxX / tileSize));
+				int r0 = Math.max(0, (int) (minY / tileSize));
+				int r1 = Math.min(rows - 1, (int) (maxY / tileSize));
+				for (int r = r0; r <= r1; r++)
+				{
+					for (int c = c0; c <= c1; c++)
+					{
+						int tile = (r * columns) + c;
+						if (bins[tile] == null)
+						{
+							bins[tile] = new int[8];
+						}
+						else if (sizes[tile] == bins[tile].length)
+						{
+							bins[tile] = Arrays.copyOf(bins[tile], sizes[tile] * 2);
+						}
+						bins[tile][sizes[tile]++] = index;
+					}
+				}
+			}
+			index++;
+		}
+		for (int tile = 0; tile < bins.length; tile++)
+		{
+			bins[tile] = (bins[tile] == null ? new int[0] : Arrays.copyOf(bins[tile], sizes[tile]));
+		}
+		return bins;
+	}
+
+	/**
+	 * Fork/Join task rendering a range of tiles of a strip into the strip
+	 * pixels array: ranges are split in halves until they contain a single
+	 * tile.
+	 */
+	private class StripTask extends RecursiveAction
+	{
+		/**
+		 * Serial version UID
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The records to render
+		 */
+		private final List<FigureRecord> records;
+
+		/**
+		 * Records indices binned per tile
+		 */
+		private final int[][] bins;
+
+		/**
+		 * Strip pixels
+		 */
+		private final int[] strip;
+
+		/**
+		 * Image origin in drawing
+		 */
+		private final double originX, originY;
+
+		/**
+		 * Scale factor from drawing to image coordinates
+		 */
+		private final double scale;
+
+		/**
+		 * Image width
+		 */
+		private final int width;
+
+		/**
+		 * Number of tiles per strip
+		 */
+		private final int columns;
+
+		/**
+		 * Strip index
+		 */
+		private final int row;
+
+		/**
+		 * Strip height
+		 */
+		private final int stripHeight;
+
+		/**
+		 * Range of tiles columns to render [from..to[
+		 */
+		private final int from, to;
+
+		/**
+		 * Constructor
+		 * @param records the records to render
+		 * @param bins records indices binned per tile
+		 * @param strip the strip pixels
+		 * @param originX x coordinate of image origin in drawing
+		 * @param originY y coordinate of image origin in drawing
+		 * @param scale scale factor from drawing to image coordinates
+		 * @param width the image width
+		 * @param columns the number of tiles per strip
+		 * @param row the strip index
+		 * @param stripHeight the strip height
+		 * @param from the first tile column (inclusive)
+		 * @param to the last tile column (exclusive)
+		 */
+		public StripTask(List<FigureRecord> records,
+		                 int[][] bins,
+		                 int[] strip,
+		                 double originX,
+		                 double originY,
+		                 double scale,
+		                 int width,
+		                 int columns,
+		                 int row,
+		                 int stripHeight,
+		                 int from,
+		                 int to)
+		{
+			this.records = records;
+			this.bins = bins;
+			this.strip = strip;
+			this.originX = originX;
+			this.originY = originY;
+			this.scale = scale;
+			this.width = width;
+			this.columns = columns;
+			this.row = row;
+			this.stripHeight = stripHeight;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Renders tiles in [from..to[ or split range
+		 */
+		@Override
+		protected void compute()
+		{
+			if ((to - from) <= 1)
+			{
+				for (int column = from; column < to; column++)
+				{
+					renderTile(column);
+				}
+			}
+			else
+			{
+				int middle = (from + to) >>> 1;
+				invokeAll(new StripTask(records, bins, strip, originX, originY, scale,
+				                        width, columns, row, stripHeight, from, middle),
+				          new StripTask(records, bins, strip, originX, originY, scale,
+				                        width, columns, row, stripHeight, middle, to));
+			}
+		}
+
+		/**
+		 * Renders a single tile and copies its pixels into the strip
+		 * @param column the tile column
+		 */
+		private void renderTile(int column)
+		{
+			int x0 = column * tileSize;
+			int tileWidth = Math.min(tileSize, width - x0);
+			BufferedImage tile = new BufferedImage(tileWidth,
+			                                       stripHeight,
+			                                       BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g2d = tile.createGraphics();
+			try
+			{
+				g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				                     RenderingHints.VALUE_ANTIALIAS_ON);
+				g2d.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL,
+				                     RenderingHints.VALUE_STROKE_PURE);
+				g2d.setBackground(new Color(background, true));
+				g2d.clearRect(0, 0, tileWidth, stripHeight);
+				g2d.translate(-x0, -row * tileSize);
+				g2d.scale(scale, scale);
+				g2d.translate(-originX, -originY);
+				for (int index : bins[(row * columns) + column])
+				{
+					RecordRenderer.paint(g2d, records.get(index));
+				}
+			}
+			finally
+			{
+				g2d.dispose();
+			}
+			int[] pixels = ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+			for (int y = 0; y < stripHeight; y++)
+			{
+				System.arraycopy(pixels, y * tileWidth, strip, (y * width) + x0, tileWidth);
+			}
+		}
+	}
+}
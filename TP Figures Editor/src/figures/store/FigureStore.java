@@ -0,0 +1,1196 @@
+package figures.store;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Logger;
+
+import figures.Figure;
+import figures.enums.FigureType;
+import figures.enums.LineType;
+import figures.io.ChunkedDrawingFile;
+import figures.io.FigureRecord;
+import figures.io.FigureRecords;
+import figures.render.RecordRenderer;
+
+/**
+ * Columnar (structure of arrays) store of figures: each property of figures
+ * is stored in its own primitive array indexed by rows, so that bulk
+ * operations (bounds, filters, export or snapshots) are linear scans over
+ * primitive arrays instead of walks through {@link Figure}s and their JavaFX
+ * nodes.
+ * Columns contain the same values as {@link FigureRecord}s:
+ * <ul>
+ * <li>{@code double[]}: x, y, width, height (of the shape), translation,
+ * rotation and scale (of the figure's root group)</li>
+ * <li>{@code int[]}: figure type ordinal, packed ARGB fill and edge
+ * colors</li>
+ * <li>{@code byte[]}: line type and flags ({@link FigureRecord#HAS_FILL} |
+ * {@link FigureRecord#HAS_EDGE})</li>
+ * <li>{@code float[]}: line width</li>
+ * </ul>
+ * Rows can be accessed without allocation through the store accessors or
+ * through {@link FigureView}s (reusable cursors over rows), or materialized
+ * as {@link FigureRecord}s (e.g. to save a store with
+ * {@link ChunkedDrawingFile#write(java.nio.file.Path, int, int, java.util.function.IntFunction)}
+ * and {@link #record(int)}) or JavaFX {@link Figure}s.
+ * Figures are lazily created handles over rows: they are created on first
+ * request and kept until their row is replaced or removed. Changes made to a handle (e.g. by
+ * tools) are not reflected in its row until written back with
+ * {@link #set(int, Figure)}.
+ * @implNote This store is not thread safe: concurrent bulk reads are safe
+ * as long as the store is not modified.
+ */
+public class FigureStore
+{
+	/**
+	 * Default initial capacity
+	 */
+	public static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * Figure types (indexed by ordinals)
+	 */
+	private static final FigureType[] TYPES = FigureType.values();
+
+	/**
+	 * Number of rows
+	 */
+	private int size;
+
+	/**
+	 * Figure type ordinals
+	 */
+	private int[] types;
+
+	/**
+	 * Packed ARGB fill colors (meaningless without {@link FigureRecord#HAS_FILL})
+	 */
+	private int[] fills;
+
+	/**
+	 * Packed ARGB edge colors (meaningless without {@link FigureRecord#HAS_EDGE})
+	 */
+	private int[] edges;
+
+	/**
+	 * Line widths
+	 */
+	private float[] lineWidths;
+
+	/**
+	 * Line types ({@link LineType#intValue()})
+	 */
+	private byte[] lineTypes;
+
+	/**
+	 * Flags ({@link FigureRecord#HAS_FILL} | {@link FigureRecord#HAS_EDGE})
+	 */
+	private byte[] flags;
+
+	/**
+	 * Top left corners x coordinates
+	 */
+	private double[] xs;
+
+	/**
+	 * Top left corners y coordinates
+	 */
+	private double[] ys;
+
+	/**
+	 * Widths
+	 */
+	private double[] widths;
+
+	/**
+	 * Heights
+	 */
+	private double[] heights;
+
+	/**
+	 * Translations along x axis
+	 */
+	private double[] translateXs;
+
+	/**
+	 * Translations along y axis
+	 */
+	private double[] translateYs;
+
+	/**
+	 * Rotations (in degrees)
+	 */
+	private double[] rotations;
+
+	/**
+	 * Scales along x axis
+	 */
+	private double[] scaleXs;
+
+	/**
+	 * Scales along y axis
+	 */
+	private double[] scaleYs;
+
+	/**
+	 * Lazily created figures of rows (null for rows without handle)
+	 */
+	private Figure[] handles;
+
+	/**
+	 * Constructor of an empty store
+	 * @param capacity the initial capacity
+	 * @throws IllegalArgumentException if capacity is negative
+	 */
+	public FigureStore(int capacity) throws IllegalArgumentException
+	{
+		if (capacity < 0)
+		{
+			throw new IllegalArgumentException("negative capacity " + capacity);
+		}
+		size = 0;
+		allocate(capacity);
+	}
+
+	/**
+	 * Default constructor of an empty store
+	 */
+	public FigureStore()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Copy constructor (e.g. to take a snapshot of a store): copies all
+	 * columns but no handles
+	 * @param store the store to copy
+	 */
+	public FigureStore(FigureStore store)
+	{
+		size = store.size;
+		int capacity = Math.max(size, 1);
+		types = Arrays.copyOf(store.types, capacity);
+		fills = Arrays.copyOf(store.fills, capacity);
+		edges = Arrays.copyOf(store.edges, capacity);
+		lineWidths = Arrays.copyOf(store.lineWidths, capacity);
+		lineTypes = Arrays.copyOf(store.lineTypes, capacity);
+		flags = Arrays.copyOf(store.flags, capacity);
+		xs = Arrays.copyOf(store.xs, capacity);
+		ys = Arrays.copyOf(store.ys, capacity);
+		widths = Arrays.copyOf(store.widths, capacity);
+		heights = Arrays.copyOf(store.heights, capacity);
+		translateXs = Arrays.copyOf(store.translateXs, capacity);
+		translateYs = Arrays.copyOf(store.translateYs, capacity);
+		rotations = Arrays.copyOf(store.rotations, capacity);
+		scaleXs = Arrays.copyOf(store.scaleXs, capacity);
+		scaleYs = Arrays.copyOf(store.scaleYs, capacity);
+		handles = new Figure[capacity];
+	}
+
+	/**
+	 * Creates a store containing rows describing figures (which become the
+	 * handles of their rows)
+	 * @param figures the figures to store
+	 * @return a new store containing a row per figure
+	 */
+	public static FigureStore of(Collection<? extends Figure> figures)
+	{
+		FigureStore store = new FigureStore(figures.size());
+		for (Figure figure : figures)
+		{
+			store.add(figure);
+		}
+		return store;
+	}
+
+	/**
+	 * Creates a store containing all records of a drawing file, decoded
+	 * directly into columns (without creating {@link FigureRecord}s)
+	 * @param file the drawing file to read
+	 * @return a new store containing a row per record of the file
+	 * @throws IOException if a chunk can't be read, is corrupted or contains
+	 * invalid records
+	 */
+	public static FigureStore read(ChunkedDrawingFile file) throws IOException
+	{
+		FigureStore store = new FigureStore(file.getFigureCount());
+		for (int chunk = 0; chunk < file.getChunkCount(); chunk++)
+		{
+			ByteBuffer buffer = file.readChunkBuffer(chunk);
+			try
+			{
+				store.addAll(buffer, buffer.remaining() / FigureRecord.BYTES);
+			}
+			catch (IllegalArgumentException e)
+			{
+				throw new IOException("invalid record in chunk " + chunk, e);
+			}
+		}
+		return store;
+	}
+
+	// -------------------------------------------------------------------------
+	// Rows management
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Number of rows
+	 * @return the number of rows in this store
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Indicates if this store is empty
+	 * @return true if this store has no rows
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Appends a row
+	 * @param record the record describing the row
+	 * @return the index of the new row
+	 */
+	public int add(FigureRecord record)
+	{
+		add(size, record);
+		return size - 1;
+	}
+
+	/**
+	 * Appends a row describing a figure (which becomes the handle of the row)
+	 * @param figure the figure to describe
+	 * @return the index of the new row
+	 */
+	public int add(Figure figure)
+	{
+		int row = add(FigureRecords.toRecord(figure));
+		handles[row] = figure;
+		return row;
+	}
+
+	/**
+	 * Appends rows from encoded records (see {@link FigureRecord}) without
+	 * creating {@link FigureRecord}s
+	 * @param buffer the buffer containing records (from its position)
+	 * @param count the number of records to read
+	 * @throws IllegalArgumentException if a record has an unknown figure
+	 * type (rows decoded before this record are kept)
+	 */
+	public void addAll(ByteBuffer buffer, int count) throws IllegalArgumentException
+	{
+		ensureCapacity(size + count);
+		for (int i = 0; i < count; i++)
+		{
+			decode(size, buffer);
+			size++;
+		}
+	}
+
+	/**
+	 * Inserts a row
+	 * @param row the index of the new row (following rows are shifted)
+	 * @param record the record describing the row
+	 * @throws IndexOutOfBoundsException if row is not in [0..size()]
+	 */
+	public void add(int row, FigureRecord record) throws IndexOutOfBoundsException
+	{
+		if ((row < 0) || (row > size))
+		{
+			throw new IndexOutOfBoundsException("row " + row + " out of [0.." + size + "]");
+		}
+		ensureCapacity(size + 1);
+		if (row < size)
+		{
+			shift(row, row + 1, size - row);
+		}
+		size++;
+		store(row, record);
+		handles[row] = null;
+	}
+
+	/**
+	 * Inserts a row describing a figure (which becomes the handle of the row)
+	 * @param row the index of the new row (following rows are shifted)
+	 * @param figure the figure to describe
+	 * @throws IndexOutOfBoundsException if row is not in [0..size()]
+	 */
+	public void add(int row, Figure figure) throws IndexOutOfBoundsException
+	{
+		add(row, FigureRecords.toRecord(figure));
+		handles[row] = figure;
+	}
+
+	/**
+	 * Replaces a row (and drops its handle)
+	 * @param row the index of the row
+	 * @param record the record describing the row
+	 * @throws IndexOutOfBoundsException if row is not in [0..size()[
+	 */
+	public void set(int row, FigureRecord record) throws IndexOutOfBoundsException
+	{
+		checkRow(row);
+		store(row, record);
+		handles[row] = null;
+	}
+
+	/**
+	 * Replaces a row with the description of a figure (which becomes the
+	 * handle of the row), e.g. to write back changes made to a handle
+	 * @param row the index of the row
+	 * @param figure the figure to describe
+	 * @throws IndexOutOfBoundsException if row is not in [0..size()[
+	 */
+	public void set(int row, Figure figure) throws IndexOutOfBoundsException
+	{
+		set(row, FigureRecords.toRecord(figure));
+		handles[row] = figure;
+	}
+
+	/**
+	 * Removes a row (following rows are shifted)
+	 * @param row the index of the row to remove
+	 * @throws IndexOutOfBoundsException if row is not in [0..size()[
+	 */
+	public void remove(int row) throws IndexOutOfBoundsException
+	{
+		checkRow(row);
+		shift(row + 1, row, size - row - 1);
+		size--;
+		handles[size] = null;
+	}
+
+	/**
+	 * Removes rows in a single pass (remaining rows keep their order)
+	 * @param rows the indices of the rows to remove
+	 * @return the number of removed rows
+	 */
+	public int removeAll(BitSet rows)
+	{
+		int kept = rows.nextSetBit(0);
+		if ((kept < 0) || (kept >= size))
+		{
+			return 0;
+		}
+		for (int row = kept; row < size; row++)
+		{
+			if (!rows.get(row))
+			{
+				shift(row, kept++, 1);
+			}
+		}
+		int removed = size - kept;
+		Arrays.fill(handles, kept, size, null);
+		size = kept;
+		return removed;
+	}
+
+	/**
+	 * Removes all rows
+	 */
+	public void clear()
+	{
+		Arrays.fill(handles, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Ensures this store can contain a number of rows without reallocating
+	 * its columns
+	 * @param capacity the required capacity
+	 */
+	public void ensureCapacity(int capacity)
+	{
+		if (capacity > types.length)
+		{
+			int newCapacity = Math.max(capacity, types.length + (types.length >> 1) + 1);
+			types = Arrays.copyOf(types, newCapacity);
+			fills = Arrays.copyOf(fills, newCapacity);
+			edges = Arrays.copyOf(edges, newCapacity);
+			lineWidths = Arrays.copyOf(lineWidths, newCapacity);
+			lineTypes = Arrays.copyOf(lineTypes, newCapacity);
+			flags = Arrays.copyOf(flags, newCapacity);
+			xs = Arrays.copyOf(xs, newCapacity);
+			ys = Arrays.copyOf(ys, newCapacity);
+			widths = Arrays.copyOf(widths, newCapacity);
+			heights = Arrays.copyOf(heights, newCapacity);
+			translateXs = Arrays.copyOf(translateXs, newCapacity);
+			translateYs = Arrays.copyOf(translateYs, newCapacity);
+			rotations = Arrays.copyOf(rotations, newCapacity);
+			scaleXs = Arrays.copyOf(scaleXs, newCapacity);
+			scaleYs = Arrays.copyOf(scaleYs, newCapacity);
+			handles = Arrays.copyOf(handles, newCapacity);
+		}
+	}
+
+	/**
+	 * Snapshot of this store (e.g. to save a state of a drawing)
+	 * @return a copy of all rows of this store (without handles)
+	 */
+	public FigureStore snapshot()
+	{
+		return new FigureStore(this);
+	}
+
+	/**
+	 * Copy of this store including handles (e.g. to hand the current state of
+	 * a store mirroring a drawing to a background task)
+	 * @return a copy of all rows of this store and their handles
+	 */
+	public FigureStore copy()
+	{
+		FigureStore copy = new FigureStore(this);
+		System.arraycopy(handles, 0, copy.handles, 0, size);
+		return copy;
+	}
+
+	// -------------------------------------------------------------------------
+	// Rows accessors
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Figure type of a row
+	 * @param row the index of the row
+	 * @return the figure type of the row
+	 */
+	public FigureType getType(int row)
+	{
+		return TYPES[types[row]];
+	}
+
+	/**
+	 * Figure type ordinal of a row
+	 * @param row the index of the row
+	 * @return the ordinal of the figure type of the row
+	 */
+	public int getTypeOrdinal(int row)
+	{
+		return types[row];
+	}
+
+	/**
+	 * Indicates if a row has a fill color
+	 * @param row the index of the row
+	 * @return true if the row has a fill color
+	 */
+	public boolean hasFill(int row)
+	{
+		return (flags[row] & FigureRecord.HAS_FILL) != 0;
+	}
+
+	/**
+	 * Fill color of a row
+	 * @param row the index of the row
+	 * @return the packed ARGB fill color (meaningless if the row has no fill
+	 * color)
+	 */
+	public int getFillArgb(int row)
+	{
+		return fills[row];
+	}
+
+	/**
+	 * Indicates if a row has an edge color
+	 * @param row the index of the row
+	 * @return true if the row has an edge color
+	 */
+	public boolean hasEdge(int row)
+	{
+		return (flags[row] & FigureRecord.HAS_EDGE) != 0;
+	}
+
+	/**
+	 * Edge color of a row
+	 * @param row the index of the row
+	 * @return the packed ARGB edge color (meaningless if the row has no edge
+	 * color)
+	 */
+	public int getEdgeArgb(int row)
+	{
+		return edges[row];
+	}
+
+	/**
+	 * Flags of a row
+	 * @param row the index of the row
+	 * @return the flags of the row ({@link FigureRecord#HAS_FILL} |
+	 * {@link FigureRecord#HAS_EDGE})
+	 */
+	public int getFlags(int row)
+	{
+		return flags[row];
+	}
+
+	/**
+	 * Line width of a row
+	 * @param row the index of the row
+	 * @return the line width of the row
+	 */
+	public float getLineWidth(int row)
+	{
+		return lineWidths[row];
+	}
+
+	/**
+	 * Line type of a row
+	 * @param row the index of the row
+	 * @return the line type of the row
+	 */
+	public LineType getLineType(int row)
+	{
+		return LineType.fromInteger(lineTypes[row]);
+	}
+
+	/**
+	 * Top left corner x coordinate of a row
+	 * @param row the index of the row
+	 * @return the x coordinate of the top left corner of the row's shape
+	 */
+	public double getX(int row)
+	{
+		return xs[row];
+	}
+
+	/**
+	 * Top left corner y coordinate of a row
+	 * @param row the index of the row
+	 * @return the y coordinate of the top left corner of the row's shape
+	 */
+	public double getY(int row)
+	{
+		return ys[row];
+	}
+
+	/**
+	 * Width of a row
+	 * @param row the index of the row
+	 * @return the width of the row's shape
+	 */
+	public double getWidth(int row)
+	{
+		return widths[row];
+	}
+
+	/**
+	 * Height of a row
+	 * @param row the index of the row
+	 * @return the height of the row's shape
+	 */
+	public double getHeight(int row)
+	{
+		return heights[row];
+	}
+
+	/**
+	 * Translation along x axis of a row
+	 * @param row the index of the row
+	 * @return the translation along x axis of the row
+	 */
+	public double getTranslateX(int row)
+	{
+		return translateXs[row];
+	}
+
+	/**
+	 * Translation along y axis of a row
+	 * @param row the index of the row
+	 * @return the translation along y axis of the row
+	 */
+	public double getTranslateY(int row)
+	{
+		return translateYs[row];
+	}
+
+	/**
+	 * Rotation of a row
+	 * @param row the index of the row
+	 * @return the rotation of the row (in degrees)
+	 */
+	public double getRotate(int row)
+	{
+		return rotations[row];
+	}
+
+	/**
+	 * Scale along x axis of a row
+	 * @param row the index of the row
+	 * @return the scale along x axis of the row
+	 */
+	public double getScaleX(int row)
+	{
+		return scaleXs[row];
+	}
+
+	/**
+	 * Scale along y axis of a row
+	 * @param row the index of the row
+	 * @return the scale along y axis of the row
+	 */
+	public double getScaleY(int row)
+	{
+		return scaleYs[row];
+	}
+
+	// -------------------------------------------------------------------------
+	// Rows mutators (dropping handles of modified rows)
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Sets the translation of a row
+	 * @param row the index of the row
+	 * @param translateX the translation along x axis
+	 * @param translateY the translation along y axis
+	 */
+	public void setTranslate(int row, double translateX, double translateY)
+	{
+		checkRow(row);
+		translateXs[row] = translateX;
+		translateYs[row] = translateY;
+		handles[row] = null;
+	}
+
+	/**
+	 * Sets the rotation of a row
+	 * @param row the index of the row
+	 * @param rotate the rotation (in degrees)
+	 */
+	public void setRotate(int row, double rotate)
+	{
+		checkRow(row);
+		rotations[row] = rotate;
+		handles[row] = null;
+	}
+
+	/**
+	 * Sets the scale of a row
+	 * @param row the index of the row
+	 * @param scaleX the scale along x axis
+	 * @param scaleY the scale along y axis
+	 */
+	public void setScale(int row, double scaleX, double scaleY)
+	{
+		checkRow(row);
+		scaleXs[row] = scaleX;
+		scaleYs[row] = scaleY;
+		handles[row] = null;
+	}
+
+	/**
+	 * Sets the style of a row
+	 * @param row the index of the row
+	 * @param flags the flags ({@link FigureRecord#HAS_FILL} |
+	 * {@link FigureRecord#HAS_EDGE})
+	 * @param fillArgb the packed ARGB fill color
+	 * @param edgeArgb the packed ARGB edge color
+	 * @param lineType the line type
+	 * @param lineWidth the line width
+	 * @throws IllegalStateException if flags contain neither fill nor edge
+	 */
+	public void setStyle(int row,
+	                     int flags,
+	                     int fillArgb,
+	                     int edgeArgb,
+	                     LineType lineType,
+	                     float lineWidth)
+	    throws IllegalStateException
+	{
+		checkRow(row);
+		if ((flags & (FigureRecord.HAS_FILL | FigureRecord.HAS_EDGE)) == 0)
+		{
+			throw new IllegalStateException("both fill & edge are null");
+		}
+		this.flags[row] = (byte) (flags & (FigureRecord.HAS_FILL | FigureRecord.HAS_EDGE));
+		fills[row] = fillArgb;
+		edges[row] = edgeArgb;
+		lineTypes[row] = (byte) lineType.intValue();
+		lineWidths[row] = lineWidth;
+		handles[row] = null;
+	}
+
+	// -------------------------------------------------------------------------
+	// Materialization
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Reusable view over a row
+	 * @param row the index of the row
+	 * @return a new view over the row
+	 * @throws IndexOutOfBoundsException if row is not in [0..size()[
+	 */
+	public FigureView view(int row) throws IndexOutOfBoundsException
+	{
+		checkRow(row);
+		return new FigureView(this, row);
+	}
+
+	/**
+	 * Record of a row
+	 * @param row the index of the row
+	 * @return a new record describing the row
+	 * @throws IndexOutOfBoundsException if row is not in [0..size()[
+	 */
+	public FigureRecord record(int row) throws IndexOutOfBoundsException
+	{
+		checkRow(row);
+		return new FigureRecord(TYPES[types[row]],
+		                        fills[row],
+		                        edges[row],
+		                        lineWidths[row],
+		                        LineType.fromInteger(lineTypes[row]),
+		                        flags[row],
+		                        xs[row],
+		                        ys[row],
+		                        widths[row],
+		                        heights[row],
+		                        translateXs[row],
+		                        translateYs[row],
+		                        rotations[row],
+		                        scaleXs[row],
+		                        scaleYs[row]);
+	}
+
+	/**
+	 * Records view of this store (e.g. to export rows with
+	 * {@link figures.render.TiledRasterizer} or
+	 * {@link figures.render.SvgRenderer}).
+	 * Records are created on each access.
+	 * @return an unmodifiable list of the records of all rows
+	 */
+	public List<FigureRecord> asRecords()
+	{
+		return new AbstractList<FigureRecord>()
+		{
+			@Override
+			public FigureRecord get(int index)
+			{
+				return record(index);
+			}
+
+			@Override
+			public int size()
+			{
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Figure (handle) of a row, created on first request
+	 * @param row the index of the row
+	 * @param parentLogger the parent logger of the figure if it needs to be
+	 * created
+	 * @return the figure of the row
+	 * @throws IndexOutOfBoundsException if row is not in [0..size()[
+	 * @throws IllegalArgumentException if the row's figure type can't be
+	 * created yet
+	 */
+	public Figure getFigure(int row, Logger parentLogger)
+	    throws IndexOutOfBoundsException, IllegalArgumentException
+	{
+		checkRow(row);
+		Figure figure = handles[row];
+		if (figure == null)
+		{
+			figure = FigureRecords.toFigure(record(row), parentLogger);
+			handles[row] = figure;
+		}
+		return figure;
+	}
+
+	/**
+	 * Indicates if the figure of a row has already been created
+	 * @param row the index of the row
+	 * @return true if the row has a figure
+	 */
+	public boolean hasFigure(int row)
+	{
+		return (row >= 0) && (row < size) && (handles[row] != null);
+	}
+
+	/**
+	 * Indicates if a row still holds a figure in its current state (e.g.
+	 * to check results computed from this store in background still apply
+	 * to the figures of a drawing which may have been edited meanwhile)
+	 * @param row the index of the row
+	 * @param figure the figure expected at this row
+	 * @return true if figure is the figure of the row and has not been
+	 * modified since the row was written
+	 */
+	public boolean matches(int row, Figure figure)
+	{
+		if (!hasFigure(row) || (handles[row] != figure))
+		{
+			return false;
+		}
+		ByteBuffer expected = ByteBuffer.allocate(FigureRecord.BYTES);
+		write(row, expected);
+		ByteBuffer actual = ByteBuffer.allocate(FigureRecord.BYTES);
+		FigureRecords.toRecord(figure).writeTo(actual);
+		return expected.flip().equals(actual.flip());
+	}
+
+	/**
+	 * Encodes a row (as {@link FigureRecord#writeTo(ByteBuffer)} does)
+	 * without creating a record
+	 * @param row the index of the row
+	 * @param buffer the buffer to write to (with at least
+	 * {@link FigureRecord#BYTES} remaining bytes)
+	 */
+	public void write(int row, ByteBuffer buffer)
+	{
+		buffer.putInt(types[row]);
+		buffer.putInt(fills[row]);
+		buffer.putInt(edges[row]);
+		buffer.putFloat(lineWidths[row]);
+		buffer.put(lineTypes[row]);
+		buffer.put(flags[row]);
+		buffer.putShort((short) 0);
+		buffer.putInt(0);
+		buffer.putDouble(xs[row]);
+		buffer.putDouble(ys[row]);
+		buffer.putDouble(widths[row]);
+		buffer.putDouble(heights[row]);
+		buffer.putDouble(translateXs[row]);
+		buffer.putDouble(translateYs[row]);
+		buffer.putDouble(rotations[row]);
+		buffer.putDouble(scaleXs[row]);
+		buffer.putDouble(scaleYs[row]);
+	}
+
+	// -------------------------------------------------------------------------
+	// Bulk operations
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Bounds of all rows once transformed, including their edges (the same
+	 * bounds as the union of {@link RecordRenderer#boundsOf(FigureRecord)}
+	 * of all rows)
+	 * @return the union of all rows bounds or an empty rectangle if this
+	 * store is empty
+	 */
+	public Rectangle2D bounds()
+	{
+		return bounds(null);
+	}
+
+	/**
+	 * Bounds of some rows once transformed, including their edges
+	 * @param rows the rows to bound (or null for all rows)
+	 * @return the union of these rows bounds or an empty rectangle if there
+	 * is no such rows
+	 */
+	public Rectangle2D bounds(BitSet rows)
+	{
+		double[] bounds = emptyBounds();
+		double[] extent = new double[4];
+		for (int row = (rows == null ? 0 : rows.nextSetBit(0));
+		     (row >= 0) && (row < size);
+		     row = (rows == null ? row + 1 : rows.nextSetBit(row + 1)))
+		{
+			extent(xs[row],
+			       ys[row],
+			       widths[row],
+			       heights[row],
+			       ((flags[row] & FigureRecord.HAS_EDGE) != 0 ? lineWidths[row] : 0.0f),
+			       translateXs[row],
+			       translateYs[row],
+			       rotations[row],
+			       scaleXs[row],
+			       scaleYs[row],
+			       extent);
+			union(bounds, extent);
+		}
+		return toRectangle(bounds);
+	}
+
+	/**
+	 * Transformed bounds of a row: bounds of its shape (including its edge)
+	 * rotated and scaled around its center and then translated
+	 * @param x the x coordinate of the top left corner of the shape
+	 * @param y the y coordinate of the top left corner of the shape
+	 * @param width the width of the shape
+	 * @param height the height of the shape
+	 * @param lineWidth the width of the edge (0 if the row has no edge)
+	 * @param translateX the translation along x axis
+	 * @param translateY the translation along y axis
+	 * @param rotate the rotation (in degrees)
+	 * @param scaleX the scale along x axis
+	 * @param scaleY the scale along y axis
+	 * @param extent the array receiving min x, min y, max x and max y of the
+	 * transformed bounds
+	 */
+	static void extent(double x,
+	                   double y,
+	                   double width,
+	                   double height,
+	                   float lineWidth,
+	                   double translateX,
+	                   double translateY,
+	                   double rotate,
+	                   double scaleX,
+	                   double scaleY,
+	                   double[] extent)
+	{
+		/*
+		 * Half extents are projected on both axes
+		 */
+		double half = lineWidth / 2.0;
+		double halfWidth = Math.abs(scaleX) * ((width / 2.0) + half);
+		double halfHeight = Math.abs(scaleY) * ((height / 2.0) + half);
+		double centerX = x + (width / 2.0) + translateX;
+		double centerY = y + (height / 2.0) + translateY;
+		double extentX = halfWidth;
+		double extentY = halfHeight;
+		if (rotate != 0.0)
+		{
+			double radians = Math.toRadians(rotate);
+			double cos = Math.abs(Math.cos(radians));
+			double sin = Math.abs(Math.sin(radians));
+			extentX = (cos * halfWidth) + (sin * halfHeight);
+			extentY = (sin * halfWidth) + (cos * halfHeight);
+		}
+		extent[0] = centerX - extentX;
+		extent[1] = centerY - extentY;
+		extent[2] = centerX + extentX;
+		extent[3] = centerY + extentY;
+	}
+
+	/**
+	 * Empty bounds to be extended with {@link #union(double[], double[])}
+	 * @return min x, min y, max x and max y of empty bounds
+	 */
+	static double[] emptyBounds()
+	{
+		return new double[] {
+			Double.POSITIVE_INFINITY,
+			Double.POSITIVE_INFINITY,
+			Double.NEGATIVE_INFINITY,
+			Double.NEGATIVE_INFINITY
+		};
+	}
+
+	/**
+	 * Extends bounds with an extent
+	 * @param bounds the min x, min y, max x and max y of the bounds to extend
+	 * @param extent the min x, min y, max x and max y of the extent to add
+	 */
+	static void union(double[] bounds, double[] extent)
+	{
+		bounds[0] = Math.min(bounds[0], extent[0]);
+		bounds[1] = Math.min(bounds[1], extent[1]);
+		bounds[2] = Math.max(bounds[2], extent[2]);
+		bounds[3] = Math.max(bounds[3], extent[3]);
+	}
+
+	/**
+	 * Rectangle of bounds
+	 * @param bounds the min x, min y, max x and max y of the bounds
+	 * @return the rectangle of the bounds or an empty rectangle if bounds are
+	 * empty
+	 */
+	static Rectangle2D toRectangle(double[] bounds)
+	{
+		if (bounds[0] > bounds[2])
+		{
+			return new Rectangle2D.Double();
+		}
+		return new Rectangle2D.Double(bounds[0],
+		                              bounds[1],
+		                              bounds[2] - bounds[0],
+		                              bounds[3] - bounds[1]);
+	}
+
+	/**
+	 * Selects rows satisfying a filter
+	 * @param filter the filter to apply on each row
+	 * @return the set of the indices of rows satisfying the filter
+	 */
+	public BitSet select(RowFilter filter)
+	{
+		BitSet selected = new BitSet(size);
+		for (int row = 0; row < size; row++)
+		{
+			if (filter.test(this, row))
+			{
+				selected.set(row);
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * Counts rows satisfying a filter
+	 * @param filter the filter to apply on each row
+	 * @return the number of rows satisfying the filter
+	 */
+	public int count(RowFilter filter)
+	{
+		int count = 0;
+		for (int row = 0; row < size; row++)
+		{
+			if (filter.test(this, row))
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Encodes rows into a buffer (as {@link ChunkedDrawingFile} chunks
+	 * contain them)
+	 * @param from the index of the first row to encode
+	 * @param to the index following the last row to encode
+	 * @param buffer the buffer to write to (with at least
+	 * (to - from) * {@link FigureRecord#BYTES} remaining bytes)
+	 */
+	public void write(int from, int to, ByteBuffer buffer)
+	{
+		for (int row = from; row < to; row++)
+		{
+			write(row, buffer);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return getClass().getSimpleName() + "[" + size + " rows]";
+	}
+
+	// -------------------------------------------------------------------------
+	// Internal methods
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Allocates all columns
+	 * @param capacity the capacity of columns
+	 */
+	private void allocate(int capacity)
+	{
+		types = new int[capacity];
+		fills = new int[capacity];
+		edges = new int[capacity];
+		lineWidths = new float[capacity];
+		lineTypes = new byte[capacity];
+		flags = new byte[capacity];
+		xs = new double[capacity];
+		ys = new double[capacity];
+		widths = new double[capacity];
+		heights = new double[capacity];
+		translateXs = new double[capacity];
+		translateYs = new double[capacity];
+		rotations = new double[capacity];
+		scaleXs = new double[capacity];
+		scaleYs = new double[capacity];
+		handles = new Figure[capacity];
+	}
+
+	/**
+	 * Stores a record into a row
+	 * @param row the index of the row
+	 * @param record the record to store
+	 */
+	private void store(int row, FigureRecord record)
+	{
+		types[row] = record.getType().ordinal();
+		fills[row] = record.getFillArgb();
+		edges[row] = record.getEdgeArgb();
+		lineWidths[row] = record.getLineWidth();
+		lineTypes[row] = (byte) record.getLineType().intValue();
+		flags[row] = (byte) record.getFlags();
+		xs[row] = record.getX();
+		ys[row] = record.getY();
+		widths[row] = record.getWidth();
+		heights[row] = record.getHeight();
+		translateXs[row] = record.getTranslateX();
+		translateYs[row] = record.getTranslateY();
+		rotations[row] = record.getRotate();
+		scaleXs[row] = record.getScaleX();
+		scaleYs[row] = record.getScaleY();
+	}
+
+	/**
+	 * Decodes an encoded record into a row
+	 * @param row the index of the row
+	 * @param buffer the buffer to read from
+	 * @throws IllegalArgumentException if the record has an unknown figure
+	 * type
+	 */
+	private void decode(int row, ByteBuffer buffer) throws IllegalArgumentException
+	{
+		int type = buffer.getInt();
+		if ((type < 0) || (type >= TYPES.length))
+		{
+			throw new IllegalArgumentException("unknown figure type " + type);
+		}
+		types[row] = type;
+		fills[row] = buffer.getInt();
+		edges[row] = buffer.getInt();
+		lineWidths[row] = buffer.getFloat();
+		lineTypes[row] = buffer.get();
+		flags[row] = (byte) (buffer.get() & (FigureRecord.HAS_FILL | FigureRecord.HAS_EDGE));
+		buffer.getShort();
+		buffer.getInt();
+		xs[row] = buffer.getDouble();
+		ys[row] = buffer.getDouble();
+		widths[row] = buffer.getDouble();
+		heights[row] = buffer.getDouble();
+		translateXs[row] = buffer.getDouble();
+		translateYs[row] = buffer.getDouble();
+		rotations[row] = buffer.getDouble();
+		scaleXs[row] = buffer.getDouble();
+		scaleYs[row] = buffer.getDouble();
+		handles[row] = null;
+	}
+
+	/**
+	 * Moves rows within all columns
+	 * @param from the index of the first row to move
+	 * @param to the index where the first row is moved
+	 * @param length the number of rows to move
+	 */
+	private void shift(int from, int to, int length)
+	{
+		System.arraycopy(types, from, types, to, length);
+		System.arraycopy(fills, from, fills, to, length);
+		System.arraycopy(edges, from, edges, to, length);
+		System.arraycopy(lineWidths, from, lineWidths, to, length);
+		System.arraycopy(lineTypes, from, lineTypes, to, length);
+		System.arraycopy(flags, from, flags, to, length);
+		System.arraycopy(xs, from, xs, to, length);
+		System.arraycopy(ys, from, ys, to, length);
+		System.arraycopy(widths, from, widths, to, length);
+		System.arraycopy(heights, from, heights, to, length);
+		System.arraycopy(translateXs, from, translateXs, to, length);
+		System.arraycopy(translateYs, from, translateYs, to, length);
+		System.arraycopy(rotations, from, rotations, to, length);
+		System.arraycopy(scaleXs, from, scaleXs, to, length);
+		System.arraycopy(scaleYs, from, scaleYs, to, length);
+		System.arraycopy(handles, from, handles, to, length);
+	}
+
+	/**
+	 * Checks a row index
+	 * @param row the index to check
+	 * @throws IndexOutOfBoundsException if row is not in [0..size()[
+	 */
+	private void checkRow(int row) throws IndexOutOfBoundsException
+	{
+		if ((row < 0) || (row >= size))
+		{
+			throw new IndexOutOfBoundsException("row " + row + " out of [0.." + size + "[");
+		}
+	}
+}
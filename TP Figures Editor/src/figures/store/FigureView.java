@@ -0,0 +1,254 @@
+package figures.store;
+
+import java.util.logging.Logger;
+
+import figures.Figure;
+import figures.enums.FigureType;
+import figures.enums.LineType;
+import figures.io.FigureRecord;
+
+/**
+ * Cheap view over a row of a {@link FigureStore}: a view only holds its
+ * store and row index, and reads (or writes) the store columns, so a single
+ * view can be moved over all rows to visit a store without allocation.
+ * Views are not updated when rows are inserted or removed before their row.
+ */
+public final class FigureView
+{
+	/**
+	 * The store containing the viewed row
+	 */
+	private final FigureStore store;
+
+	/**
+	 * The index of the viewed row
+	 */
+	private int row;
+
+	/**
+	 * Constructor
+	 * @param store the store containing the viewed row
+	 * @param row the index of the viewed row
+	 */
+	FigureView(FigureStore store, int row)
+	{
+		this.store = store;
+		this.row = row;
+	}
+
+	/**
+	 * Moves this view to another row
+	 * @param row the index of the row to view
+	 * @return this view
+	 * @throws IndexOutOfBoundsException if row is not a row of the store
+	 */
+	public FigureView moveTo(int row) throws IndexOutOfBoundsException
+	{
+		if ((row < 0) || (row >= store.size()))
+		{
+			throw new IndexOutOfBoundsException("row " + row + " out of [0.." + store.size() + "[");
+		}
+		this.row = row;
+		return this;
+	}
+
+	/**
+	 * Store accessor
+	 * @return the store containing the viewed row
+	 */
+	public FigureStore getStore()
+	{
+		return store;
+	}
+
+	/**
+	 * Row accessor
+	 * @return the index of the viewed row
+	 */
+	public int getRow()
+	{
+		return row;
+	}
+
+	/**
+	 * Figure type accessor
+	 * @return the figure type of the viewed row
+	 */
+	public FigureType getType()
+	{
+		return store.getType(row);
+	}
+
+	/**
+	 * Indicates if the viewed row has a fill color
+	 * @return true if the viewed row has a fill color
+	 */
+	public boolean hasFill()
+	{
+		return store.hasFill(row);
+	}
+
+	/**
+	 * Fill color accessor
+	 * @return the packed ARGB fill color of the viewed row
+	 */
+	public int getFillArgb()
+	{
+		return store.getFillArgb(row);
+	}
+
+	/**
+	 * Indicates if the viewed row has an edge color
+	 * @return true if the viewed row has an edge color
+	 */
+	public boolean hasEdge()
+	{
+		return store.hasEdge(row);
+	}
+
+	/**
+	 * Edge color accessor
+	 * @return the packed ARGB edge color of the viewed row
+	 */
+	public int getEdgeArgb()
+	{
+		return store.getEdgeArgb(row);
+	}
+
+	/**
+	 * Line type accessor
+	 * @return the line type of the viewed row
+	 */
+	public LineType getLineType()
+	{
+		return store.getLineType(row);
+	}
+
+	/**
+	 * Line width accessor
+	 * @return the line width of the viewed row
+	 */
+	public float getLineWidth()
+	{
+		return store.getLineWidth(row);
+	}
+
+	/**
+	 * X coordinate accessor
+	 * @return the x coordinate of the top left corner of the viewed row
+	 */
+	public double getX()
+	{
+		return store.getX(row);
+	}
+
+	/**
+	 * Y coordinate accessor
+	 * @return the y coordinate of the top left corner of the viewed row
+	 */
+	public double getY()
+	{
+		return store.getY(row);
+	}
+
+	/**
+	 * Width accessor
+	 * @return the width of the viewed row
+	 */
+	public double getWidth()
+	{
+		return store.getWidth(row);
+	}
+
+	/**
+	 * Height accessor
+	 * @return the height of the viewed row
+	 */
+	public double getHeight()
+	{
+		return store.getHeight(row);
+	}
+
+	/**
+	 * Translation along x axis accessor
+	 * @return the translation along x axis of the viewed row
+	 */
+	public double getTranslateX()
+	{
+		return store.getTranslateX(row);
+	}
+
+	/**
+	 * Translation along y axis accessor
+	 * @return the translation along y axis of the viewed row
+	 */
+	public double getTranslateY()
+	{
+		return store.getTranslateY(row);
+	}
+
+	/**
+	 * Rotation accessor
+	 * @return the rotation of the viewed row (in degrees)
+	 */
+	public double getRotate()
+	{
+		return store.getRotate(row);
+	}
+
+	/**
+	 * Scale along x axis accessor
+	 * @return the scale along x axis of the viewed row
+	 */
+	public double getScaleX()
+	{
+		return store.getScaleX(row);
+	}
+
+	/**
+	 * Scale along y axis accessor
+	 * @return the scale along y axis of the viewed row
+	 */
+	public double getScaleY()
+	{
+		return store.getScaleY(row);
+	}
+
+	/**
+	 * Translates the viewed row
+	 * @param dx the translation to add along x axis
+	 * @param dy the translation to add along y axis
+	 */
+	public void translate(double dx, double dy)
+	{
+		store.setTranslate(row, store.getTranslateX(row) + dx, store.getTranslateY(row) + dy);
+	}
+
+	/**
+	 * Record of the viewed row
+	 * @return a new record describing the viewed row
+	 */
+	public FigureRecord toRecord()
+	{
+		return store.record(row);
+	}
+
+	/**
+	 * Figure (handle) of the viewed row
+	 * @param parentLogger the parent logger of the figure if it needs to be
+	 * created
+	 * @return the figure of the viewed row (created on first request)
+	 * @see FigureStore#getFigure(int, Logger)
+	 */
+	public Figure toFigure(Logger parentLogger)
+	{
+		return store.getFigure(row, parentLogger);
+	}
+
+	@Override
+	public String toString()
+	{
+		return getType() + "#" + row + "[" + getX() + ", " + getY() + ", "
+		    + getWidth() + ", " + getHeight() + "]";
+	}
+}
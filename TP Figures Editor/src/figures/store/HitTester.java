@@ -0,0 +1,381 @@
+package figures.store;
+
+import java.awt.geom.Rectangle2D;
+import java.util.BitSet;
+
+import figures.enums.FigureType;
+import figures.io.FigureRecord;
+
+/**
+ * Bulk hit-testing of the rows of a {@link FigureStore}: finds the rows
+ * containing a point (e.g. under the mouse), intersecting or contained in
+ * a rectangle (e.g. a marquee selection) and computes bounds of all rows.
+ * The geometry needed by these queries is derived once from the store into
+ * primitive arrays (centers, rotation cosines and sines, half extents and
+ * transformed bounds) so that each query is a straight loop over arrays
+ * without branches nor method calls, which the JIT compiler can unroll and
+ * vectorize. Results are accumulated as bits in {@code long} words (64 rows
+ * per word) and returned as {@link BitSet}s.
+ * Kernels are protected methods working on ranges of rows so that subclasses
+ * can provide explicitly vectorized kernels (e.g. with the incubating Vector
+ * API) and use these scalar kernels for the remaining rows.
+ * Circles and ellipses are tested as ellipses, all other figures as
+ * rectangles (rounded corners are not taken into account). All tests
+ * include half of the edge width, as bounds do.
+ * @implNote This tester is a snapshot of the store: rows edited after its
+ * creation must be refreshed with {@link #update(FigureStore, int)}.
+ */
+public class HitTester
+{
+	/**
+	 * Number of rows
+	 */
+	protected final int size;
+
+	/**
+	 * Centers x coordinates (once translated)
+	 */
+	protected final double[] centerXs;
+
+	/**
+	 * Centers y coordinates (once translated)
+	 */
+	protected final double[] centerYs;
+
+	/**
+	 * Cosines of rotations
+	 */
+	protected final double[] cosines;
+
+	/**
+	 * Sines of rotations
+	 */
+	protected final double[] sines;
+
+	/**
+	 * Half widths (scaled, including half of the edge width)
+	 */
+	protected final double[] halfWidths;
+
+	/**
+	 * Half heights (scaled, including half of the edge width)
+	 */
+	protected final double[] halfHeights;
+
+	/**
+	 * Indicates rows tested as ellipses (others are tested as rectangles)
+	 */
+	protected final boolean[] ellipses;
+
+	/**
+	 * Transformed bounds min x coordinates
+	 */
+	protected final double[] minXs;
+
+	/**
+	 * Transformed bounds min y coordinates
+	 */
+	protected final double[] minYs;
+
+	/**
+	 * Transformed bounds max x coordinates
+	 */
+	protected final double[] maxXs;
+
+	/**
+	 * Transformed bounds max y coordinates
+	 */
+	protected final double[] maxYs;
+
+	/**
+	 * Constructor deriving the geometry of all rows of a store
+	 * @param store the store to hit-test
+	 */
+	public HitTester(FigureStore store)
+	{
+		size = store.size();
+		centerXs = new double[size];
+		centerYs = new double[size];
+		cosines = new double[size];
+		sines = new double[size];
+		halfWidths = new double[size];
+		halfHeights = new double[size];
+		ellipses = new boolean[size];
+		minXs = new double[size];
+		minYs = new double[size];
+		maxXs = new double[size];
+		maxYs = new double[size];
+		double[] extent = new double[4];
+		for (int row = 0; row < size; row++)
+		{
+			derive(store, row, extent);
+		}
+	}
+
+	/**
+	 * Number of rows
+	 * @return the number of hit-tested rows
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Refreshes the geometry of an edited row
+	 * @param store the store containing the row
+	 * @param row the index of the row
+	 * @throws IndexOutOfBoundsException if row is not in [0..size()[
+	 */
+	public void update(FigureStore store, int row) throws IndexOutOfBoundsException
+	{
+		if ((row < 0) || (row >= size))
+		{
+			throw new IndexOutOfBoundsException("row " + row + " out of [0.." + size + "[");
+		}
+		derive(store, row, new double[4]);
+	}
+
+	/**
+	 * Rows containing a point
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return the set of the indices of rows containing the point
+	 */
+	public BitSet hits(double x, double y)
+	{
+		long[] words = new long[words()];
+		hits(0, size, x, y, words);
+		return BitSet.valueOf(words);
+	}
+
+	/**
+	 * Topmost row containing a point (rows are drawn in order, so the last
+	 * row is on top)
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return the index of the topmost row containing the point or -1 if
+	 * there is no such row
+	 */
+	public int topmost(double x, double y)
+	{
+		return hits(x, y).previousSetBit(size - 1);
+	}
+
+	/**
+	 * Rows whose transformed bounds intersect a rectangle
+	 * @param marquee the rectangle
+	 * @return the set of the indices of rows intersecting the rectangle
+	 */
+	public BitSet intersecting(Rectangle2D marquee)
+	{
+		long[] words = new long[words()];
+		intersecting(0,
+		             size,
+		             marquee.getMinX(),
+		             marquee.getMinY(),
+		             marquee.getMaxX(),
+		             marquee.getMaxY(),
+		             words);
+		return BitSet.valueOf(words);
+	}
+
+	/**
+	 * Rows whose transformed bounds are contained in a rectangle
+	 * @param marquee the rectangle
+	 * @return the set of the indices of rows contained in the rectangle
+	 */
+	public BitSet containedIn(Rectangle2D marquee)
+	{
+		long[] words = new long[words()];
+		containedIn(0,
+		            size,
+		            marquee.getMinX(),
+		            marquee.getMinY(),
+		            marquee.getMaxX(),
+		            marquee.getMaxY(),
+		            words);
+		return BitSet.valueOf(words);
+	}
+
+	/**
+	 * Bounds of all rows once transformed, including their edges (the same
+	 * bounds as {@link FigureStore#bounds()} when rows are up to date)
+	 * @return the union of all rows bounds or an empty rectangle if there
+	 * is no rows
+	 */
+	public Rectangle2D bounds()
+	{
+		double[] bounds = FigureStore.emptyBounds();
+		bounds(0, size, bounds);
+		return FigureStore.toRectangle(bounds);
+	}
+
+	@Override
+	public String toString()
+	{
+		return getClass().getSimpleName() + "[" + size + " rows]";
+	}
+
+	// -------------------------------------------------------------------------
+	// Kernels
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Sets the bits of rows containing a point: the point is brought back
+	 * into the frame of each shape (relative to its center, before rotation)
+	 * and compared to its half extents
+	 * @param from the index of the first row to test
+	 * @param to the index following the last row to test
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param words the bits of rows (row i is bit i % 64 of word i / 64)
+	 */
+	protected void hits(int from, int to, double x, double y, long[] words)
+	{
+		for (int i = from; i < to; i++)
+		{
+			double dx = x - centerXs[i];
+			double dy = y - centerYs[i];
+			double localX = (dx * cosines[i]) + (dy * sines[i]);
+			double localY = (dy * cosines[i]) - (dx * sines[i]);
+			double a = halfWidths[i];
+			double b = halfHeights[i];
+			double a2 = a * a;
+			double b2 = b * b;
+			boolean inEllipse = ((localX * localX * b2) + (localY * localY * a2)) <= (a2 * b2);
+			boolean inBox = (Math.abs(localX) <= a) & (Math.abs(localY) <= b);
+			boolean hit = (ellipses[i] ? inEllipse : inBox);
+			words[i >>> 6] |= (hit ? 1L : 0L) << i;
+		}
+	}
+
+	/**
+	 * Sets the bits of rows whose transformed bounds intersect a rectangle
+	 * @param from the index of the first row to test
+	 * @param to the index following the last row to test
+	 * @param minX the min x coordinate of the rectangle
+	 * @param minY the min y coordinate of the rectangle
+	 * @param maxX the max x coordinate of the rectangle
+	 * @param maxY the max y coordinate of the rectangle
+	 * @param words the bits of rows (row i is bit i % 64 of word i / 64)
+	 */
+	protected void intersecting(int from,
+	                            int to,
+	                            double minX,
+	                            double minY,
+	                            double maxX,
+	                            double maxY,
+	                            long[] words)
+	{
+		for (int i = from; i < to; i++)
+		{
+			boolean hit = (minXs[i] <= maxX) & (maxXs[i] >= minX)
+			    & (minYs[i] <= maxY) & (maxYs[i] >= minY);
+			words[i >>> 6] |= (hit ? 1L : 0L) << i;
+		}
+	}
+
+	/**
+	 * Sets the bits of rows whose transformed bounds are contained in a
+	 * rectangle
+	 * @param from the index of the first row to test
+	 * @param to the index following the last row to test
+	 * @param minX the min x coordinate of the rectangle
+	 * @param minY the min y coordinate of the rectangle
+	 * @param maxX the max x coordinate of the rectangle
+	 * @param maxY the max y coordinate of the rectangle
+	 * @param words the bits of rows (row i is bit i % 64 of word i / 64)
+	 */
+	protected void containedIn(int from,
+	                           int to,
+	                           double minX,
+	                           double minY,
+	                           double maxX,
+	                           double maxY,
+	                           long[] words)
+	{
+		for (int i = from; i < to; i++)
+		{
+			boolean hit = (minXs[i] >= minX) & (maxXs[i] <= maxX)
+			    & (minYs[i] >= minY) & (maxYs[i] <= maxY);
+			words[i >>> 6] |= (hit ? 1L : 0L) << i;
+		}
+	}
+
+	/**
+	 * Extends bounds with transformed bounds of rows
+	 * @param from the index of the first row
+	 * @param to the index following the last row
+	 * @param bounds the min x, min y, max x and max y of the bounds to extend
+	 */
+	protected void bounds(int from, int to, double[] bounds)
+	{
+		double minX = bounds[0];
+		double minY = bounds[1];
+		double maxX = bounds[2];
+		double maxY = bounds[3];
+		for (int i = from; i < to; i++)
+		{
+			minX = Math.min(minX, minXs[i]);
+			minY = Math.min(minY, minYs[i]);
+			maxX = Math.max(maxX, maxXs[i]);
+			maxY = Math.max(maxY, maxYs[i]);
+		}
+		bounds[0] = minX;
+		bounds[1] = minY;
+		bounds[2] = maxX;
+		bounds[3] = maxY;
+	}
+
+	// -------------------------------------------------------------------------
+	// Internal methods
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Number of words required to contain a bit per row
+	 * @return the number of words of results
+	 */
+	private int words()
+	{
+		return (size + 63) >>> 6;
+	}
+
+	/**
+	 * Derives the geometry of a row
+	 * @param store the store containing the row
+	 * @param row the index of the row
+	 * @param extent a temporary array receiving the transformed bounds
+	 */
+	private void derive(FigureStore store, int row, double[] extent)
+	{
+		double width = store.getWidth(row);
+		double height = store.getHeight(row);
+		float lineWidth = ((store.getFlags(row) & FigureRecord.HAS_EDGE) != 0 ?
+		    store.getLineWidth(row) : 0.0f);
+		double radians = Math.toRadians(store.getRotate(row));
+		centerXs[row] = store.getX(row) + (width / 2.0) + store.getTranslateX(row);
+		centerYs[row] = store.getY(row) + (height / 2.0) + store.getTranslateY(row);
+		cosines[row] = Math.cos(radians);
+		sines[row] = Math.sin(radians);
+		halfWidths[row] = Math.abs(store.getScaleX(row)) * ((width + lineWidth) / 2.0);
+		halfHeights[row] = Math.abs(store.getScaleY(row)) * ((height + lineWidth) / 2.0);
+		FigureType type = store.getType(row);
+		ellipses[row] = (type == FigureType.CIRCLE) || (type == FigureType.ELLIPSE);
+		FigureStore.extent(store.getX(row),
+		                   store.getY(row),
+		                   width,
+		                   height,
+		                   lineWidth,
+		                   store.getTranslateX(row),
+		                   store.getTranslateY(row),
+		                   store.getRotate(row),
+		                   store.getScaleX(row),
+		                   store.getScaleY(row),
+		                   extent);
+		minXs[row] = extent[0];
+		minYs[row] = extent[1];
+		maxXs[row] = extent[2];
+		maxYs[row] = extent[3];
+	}
+}
@@ -0,0 +1,747 @@
+package figures.store;
+
+import java.awt.BasicStroke;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import figures.Figure;
+import figures.io.FigureRecord;
+import figures.render.RecordRenderer;
+import utils.StrokeStyle;
+
+/**
+ * Occlusion culling of the rows of a {@link FigureStore}: finds rows fully
+ * hidden by opaque rows above them (rows are drawn in order, so the last row
+ * is on top) so that renderers can skip them or users can delete them.
+ * A row is hidden when everything it draws (its fill if any and its edge if
+ * any, once transformed) is covered by the fills of the rows above it that
+ * are filled with a fully opaque color (edges are never considered as
+ * occluders):
+ * <ul>
+ * <li>a full pass ({@link #cull(FigureStore)}) finds candidate occluders of
+ * all rows with an {@link OverlapFinder} on bounds, then tests rows in
+ * parallel by subtracting the exact areas of their candidates from their own
+ * area until nothing is left</li>
+ * <li>an incremental pass ({@link #update(FigureStore)}) compares a new
+ * state of the drawing to the last culled one (matching rows by their figures
+ * so that inserted, removed or reordered rows don't shift all following rows):
+ * since a row can only be hidden by rows above it, only edited, inserted or
+ * moved rows and the rows below them whose bounds overlap their former or new
+ * bounds are tested again</li>
+ * </ul>
+ * Rows without shape (such as polygons) are never hidden nor occluders.
+ * @implNote This culler is not thread safe: passes must be serialized (e.g.
+ * run in a single background thread). The culler keeps the last culled store
+ * which must not be modified afterwards.
+ */
+public class OcclusionCuller
+{
+	/**
+	 * Number of rows below which rows are tested sequentially
+	 */
+	public static final int SEQUENTIAL_ROWS = 256;
+
+	/**
+	 * Max number of edited rows processed by an incremental pass: when more
+	 * rows have been edited, a full pass is performed
+	 */
+	public static final int MAX_INCREMENTAL_ROWS = 64;
+
+	/**
+	 * The pool running tasks
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * The last culled store (or null before first pass)
+	 */
+	private FigureStore store;
+
+	/**
+	 * Transformed bounds of rows of {@link #store} (including edges)
+	 */
+	private double[] minXs, minYs, maxXs, maxYs;
+
+	/**
+	 * Rows of {@link #store} filled with a fully opaque color
+	 */
+	private BitSet occluders;
+
+	/**
+	 * Hidden rows of {@link #store}
+	 */
+	private BitSet hidden;
+
+	/**
+	 * Number of rows tested by the last pass
+	 */
+	private int testedRows;
+
+	/**
+	 * Constructor
+	 * @param pool the pool running tasks
+	 */
+	public OcclusionCuller(ForkJoinPool pool)
+	{
+		this.pool = pool;
+		store = null;
+		minXs = new double[0];
+		minYs = new double[0];
+		maxXs = new double[0];
+		maxYs = new double[0];
+		occluders = new BitSet();
+		hidden = new BitSet();
+		testedRows = 0;
+	}
+
+	/**
+	 * Hidden rows of the last culled store
+	 * @return a copy of the set of hidden rows
+	 */
+	public BitSet hidden()
+	{
+		return (BitSet) hidden.clone();
+	}
+
+	/**
+	 * Indicates if a row of the last culled store is hidden
+	 * @param row the index of the row
+	 * @return true if the row is fully hidden by opaque rows above it
+	 */
+	public boolean isHidden(int row)
+	{
+		return hidden.get(row);
+	}
+
+	/**
+	 * Number of rows tested by the last pass
+	 * @return the number of rows tested by the last pass (all rows after a
+	 * full pass)
+	 */
+	public int getTestedRows()
+	{
+		return testedRows;
+	}
+
+	/**
+	 * Full pass finding all hidden rows of a store
+	 * @param store the store to cull (kept by this culler)
+	 * @return a copy of the set of hidden rows
+	 */
+	public BitSet cull(FigureStore store)
+	{
+		int size = store.size();
+		this.store = store;
+		minXs = new double[size];
+		minYs = new double[size];
+		maxXs = new double[size];
+		maxYs = new double[size];
+		occluders = new BitSet(size);
+		double[] extent = new double[4];
+		for (int row = 0; row < size; row++)
+		{
+			derive(row, extent);
+		}
+
+		/*
+		 * Candidate occluders of each row are the opaque rows above it whose
+		 * bounds overlap its bounds: pairs are sorted by lower row then
+		 * higher row, so candidates of each row are contiguous
+		 */
+		long[] pairs = new OverlapFinder(pool).find(store, false);
+		int[] offsets = new int[size + 1];
+		int[] candidates = new int[pairs.length];
+		int count = 0;
+		int pair = 0;
+		for (int row = 0; row < size; row++)
+		{
+			offsets[row] = count;
+			for (; (pair < pairs.length) && (OverlapFinder.first(pairs[pair]) == row); pair++)
+			{
+				int above = OverlapFinder.second(pairs[pair]);
+				if (occluders.get(above))
+				{
+					candidates[count++] = above;
+				}
+			}
+		}
+		offsets[size] = count;
+		int[] rows = new int[size];
+		Arrays.setAll(rows, row -> row);
+
+		hidden = new BitSet(size);
+		test(rows, offsets, candidates);
+		return hidden();
+	}
+
+	/**
+	 * Incremental pass finding all hidden rows of a new state of the last
+	 * culled store.
+	 * Rows of both states are matched by their handles (figures) when all
+	 * rows have handles (so figures may have been inserted, removed, moved in
+	 * z-order or edited anywhere), and by their indices otherwise (so rows
+	 * may only have been edited, appended or removed from the end).
+	 * Changed rows are the new rows, the moved rows (matched rows which are
+	 * not part of the longest sequence of matched rows keeping their order)
+	 * and the edited rows.
+	 * Changed rows and the rows below their former and new states whose
+	 * bounds overlap them are tested again (rows below removed hidden rows
+	 * are not, since whatever hidden rows covered is also covered by the
+	 * rows above them). When more than {@link #MAX_INCREMENTAL_ROWS} rows
+	 * have changed, a full pass is performed.
+	 * @param store the new state of the store to cull (kept by this culler)
+	 * @return a copy of the set of hidden rows
+	 */
+	public BitSet update(FigureStore store)
+	{
+		if (this.store == null)
+		{
+			return cull(store);
+		}
+		FigureStore former = this.store;
+		int formerSize = former.size();
+		int size = store.size();
+		int[] previous = match(former, store);
+		BitSet kept = ordered(previous);
+
+		/*
+		 * Changed rows (in new state) and former states of changed or
+		 * removed rows (in former state)
+		 */
+		BitSet changed = new BitSet(size);
+		BitSet formerChanged = new BitSet(formerSize);
+		formerChanged.set(0, formerSize);
+		for (int row = 0; row < size; row++)
+		{
+			int p = previous[row];
+			if ((p < 0) || !kept.get(row) || !sameGeometry(former, p, store, row))
+			{
+				changed.set(row);
+			}
+			else
+			{
+				formerChanged.clear(p);
+			}
+		}
+		int[] next = new int[formerSize];
+		Arrays.fill(next, -1);
+		for (int row = 0; row < size; row++)
+		{
+			if (previous[row] >= 0)
+			{
+				next[previous[row]] = row;
+			}
+		}
+		BitSet removedHidden = new BitSet(formerSize);
+		for (int p = formerChanged.nextSetBit(0); p >= 0; p = formerChanged.nextSetBit(p + 1))
+		{
+			if ((next[p] < 0) && hidden.get(p))
+			{
+				removedHidden.set(p);
+			}
+		}
+		formerChanged.andNot(removedHidden);
+		if ((changed.cardinality() + formerChanged.cardinality()) > MAX_INCREMENTAL_ROWS)
+		{
+			return cull(store);
+		}
+
+		/*
+		 * Rows below former states of changed rows overlapping their former
+		 * bounds may no longer be hidden (rows which are changed themselves
+		 * are tested anyway)
+		 */
+		BitSet affected = (BitSet) changed.clone();
+		for (int p = formerChanged.nextSetBit(0); p >= 0; p = formerChanged.nextSetBit(p + 1))
+		{
+			for (int q = 0; q < p; q++)
+			{
+				if ((next[q] >= 0) && !changed.get(next[q])
+				    && (minXs[q] <= maxXs[p]) && (maxXs[q] >= minXs[p])
+				    && (minYs[q] <= maxYs[p]) && (maxYs[q] >= minYs[p]))
+				{
+					affected.set(next[q]);
+				}
+			}
+		}
+
+		/*
+		 * New state: unchanged rows keep their bounds and hidden state,
+		 * changed rows are derived
+		 */
+		double[] formerMinXs = minXs;
+		double[] formerMinYs = minYs;
+		double[] formerMaxXs = maxXs;
+		double[] formerMaxYs = maxYs;
+		BitSet formerHidden = hidden;
+		this.store = store;
+		minXs = new double[size];
+		minYs = new double[size];
+		maxXs = new double[size];
+		maxYs = new double[size];
+		occluders = new BitSet(size);
+		hidden = new BitSet(size);
+		double[] extent = new double[4];
+		for (int row = 0; row < size; row++)
+		{
+			if (changed.get(row))
+			{
+				derive(row, extent);
+			}
+			else
+			{
+				int p = previous[row];
+				minXs[row] = formerMinXs[p];
+				minYs[row] = formerMinYs[p];
+				maxXs[row] = formerMaxXs[p];
+				maxYs[row] = formerMaxYs[p];
+				occluders.set(row, store.hasFill(row) && ((store.getFillArgb(row) >>> 24) == 0xFF));
+				hidden.set(row, formerHidden.get(p));
+			}
+		}
+
+		/*
+		 * Rows below changed rows overlapping their new bounds may be hidden
+		 */
+		for (int row = changed.nextSetBit(0); row >= 0; row = changed.nextSetBit(row + 1))
+		{
+			affected.or(below(row, row));
+		}
+		return retest(affected);
+	}
+
+	@Override
+	public String toString()
+	{
+		return getClass().getSimpleName() + "[" + hidden.cardinality() + " hidden rows of "
+		    + (store != null ? store.size() : 0) + "]";
+	}
+
+	// -------------------------------------------------------------------------
+	// Internal methods
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Matches rows of a new state of a store with rows of its former state:
+	 * by handles when all rows of both states have handles, by indices
+	 * otherwise
+	 * @param former the former state of the store
+	 * @param store the new state of the store
+	 * @return the index in former state of each row of the new state (or -1
+	 * for new rows)
+	 */
+	private static int[] match(FigureStore former, FigureStore store)
+	{
+		int formerSize = former.size();
+		int size = store.size();
+		int[] previous = new int[size];
+		if (!hasFigures(former) || !hasFigures(store))
+		{
+			Arrays.setAll(previous, row -> (row < formerSize ? row : -1));
+			return previous;
+		}
+		Map<Figure, Integer> rows = new IdentityHashMap<>(formerSize);
+		for (int p = 0; p < formerSize; p++)
+		{
+			rows.put(former.getFigure(p, null), p);
+		}
+		for (int row = 0; row < size; row++)
+		{
+			Integer p = rows.remove(store.getFigure(row, null));
+			previous[row] = (p != null ? p : -1);
+		}
+		return previous;
+	}
+
+	/**
+	 * Indicates if all rows of a store have handles
+	 * @param store the store
+	 * @return true if all rows of the store have handles
+	 */
+	private static boolean hasFigures(FigureStore store)
+	{
+		for (int row = 0; row < store.size(); row++)
+		{
+			if (!store.hasFigure(row))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Longest sequence of matched rows keeping their relative order
+	 * (patience sorting of former indices): rows out of this sequence have
+	 * moved in z-order
+	 * @param previous the index in former state of each row of the new state
+	 * (or -1 for new rows)
+	 * @return the set of rows of the new state which kept their order
+	 */
+	private static BitSet ordered(int[] previous)
+	{
+		int size = previous.length;
+		int[] tails = new int[size];
+		int[] links = new int[size];
+		int length = 0;
+		for (int row = 0; row < size; row++)
+		{
+			int p = previous[row];
+			if (p < 0)
+			{
+				continue;
+			}
+			int low = 0;
+			int high = length;
+			while (low < high)
+			{
+				int middle = (low + high) >>> 1;
+				if (previous[tails[middle]] < p)
+				{
+					low = middle + 1;
+				}
+				else
+				{
+					high = middle;
+				}
+			}
+			links[row] = (low > 0 ? tails[low - 1] : -1);
+			tails[low] = row;
+			if (low == length)
+			{
+				length++;
+			}
+		}
+		BitSet kept = new BitSet(size);
+		for (int row = (length > 0 ? tails[length - 1] : -1); row >= 0; row = links[row])
+		{
+			kept.set(row);
+		}
+		return kept;
+	}
+
+	/**
+	 * Derives bounds and occluder state of a row of {@link #store}
+	 * @param row the index of the row
+	 * @param extent a temporary array receiving the transformed bounds
+	 */
+	private void derive(int row, double[] extent)
+	{
+		FigureStore.extent(store.getX(row),
+		                   store.getY(row),
+		                   store.getWidth(row),
+		                   store.getHeight(row),
+		                   (store.hasEdge(row) ? store.getLineWidth(row) : 0.0f),
+		                   store.getTranslateX(row),
+		                   store.getTranslateY(row),
+		                   store.getRotate(row),
+		                   store.getScaleX(row),
+		                   store.getScaleY(row),
+		                   extent);
+		minXs[row] = extent[0];
+		minYs[row] = extent[1];
+		maxXs[row] = extent[2];
+		maxYs[row] = extent[3];
+		occluders.set(row, store.hasFill(row) && ((store.getFillArgb(row) >>> 24) == 0xFF));
+	}
+
+	/**
+	 * Rows below a row whose bounds overlap the current bounds of this row
+	 * @param row the index of the row
+	 * @param to the index following the last row to search
+	 * @return the set of rows in [0..to[ overlapping the row's bounds
+	 */
+	private BitSet below(int row, int to)
+	{
+		double minX = minXs[row];
+		double minY = minYs[row];
+		double maxX = maxXs[row];
+		double maxY = maxYs[row];
+		long[] words = new long[(to + 63) >>> 6];
+		for (int i = 0; i < to; i++)
+		{
+			boolean hit = (minXs[i] <= maxX) & (maxXs[i] >= minX)
+			    & (minYs[i] <= maxY) & (maxYs[i] >= minY);
+			words[i >>> 6] |= (hit ? 1L : 0L) << i;
+		}
+		return BitSet.valueOf(words);
+	}
+
+	/**
+	 * Tests again some rows of {@link #store} against the opaque rows above
+	 * them whose bounds overlap their bounds
+	 * @param rows the rows to test
+	 * @return a copy of the set of hidden rows
+	 */
+	private BitSet retest(BitSet rows)
+	{
+		int size = store.size();
+		int[] tested = rows.stream().filter(row -> row < size).toArray();
+		int[] offsets = new int[tested.length + 1];
+		int[] candidates = new int[16];
+		int count = 0;
+		for (int i = 0; i < tested.length; i++)
+		{
+			int row = tested[i];
+			offsets[i] = count;
+			double minX = minXs[row];
+			double minY = minYs[row];
+			double maxX = maxXs[row];
+			double maxY = maxYs[row];
+			for (int above = occluders.nextSetBit(row + 1); above >= 0; above = occluders.nextSetBit(above + 1))
+			{
+				if ((minXs[above] <= maxX) && (maxXs[above] >= minX)
+				    && (minYs[above] <= maxY) && (maxYs[above] >= minY))
+				{
+					if (count == candidates.length)
+					{
+						candidates = Arrays.copyOf(candidates, count * 2);
+					}
+					candidates[count++] = above;
+				}
+			}
+		}
+		offsets[tested.length] = count;
+		test(tested, offsets, candidates);
+		return hidden();
+	}
+
+	/**
+	 * Tests rows in parallel and updates {@link #hidden} accordingly
+	 * @param rows the rows to test
+	 * @param offsets the first index in candidates of the candidate occluders
+	 * of each row to test (followed by the number of candidates)
+	 * @param candidates the candidate occluders of all rows to test
+	 */
+	private void test(int[] rows, int[] offsets, int[] candidates)
+	{
+		boolean[] results = new boolean[rows.length];
+		pool.invoke(new TestTask(rows, offsets, candidates, results, 0, rows.length));
+		for (int i = 0; i < rows.length; i++)
+		{
+			hidden.set(rows[i], results[i]);
+		}
+		testedRows = rows.length;
+	}
+
+	/**
+	 * Exact occlusion test of a row
+	 * @param row the index of the row to test
+	 * @param candidates the candidate occluders of all rows
+	 * @param from the index in candidates of the first candidate of the row
+	 * @param to the index in candidates following the last candidate of the
+	 * row
+	 * @return true if everything the row draws is covered by the fills of its
+	 * candidates
+	 */
+	private boolean isCovered(int row, int[] candidates, int from, int to)
+	{
+		if (from == to)
+		{
+			return false;
+		}
+
+		/*
+		 * Candidates can't cover the row if their bounds don't
+		 */
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++)
+		{
+			int above = candidates[i];
+			minX = Math.min(minX, minXs[above]);
+			minY = Math.min(minY, minYs[above]);
+			maxX = Math.max(maxX, maxXs[above]);
+			maxY = Math.max(maxY, maxYs[above]);
+		}
+		if ((minX > minXs[row]) || (minY > minYs[row]) || (maxX < maxXs[row]) || (maxY < maxYs[row]))
+		{
+			return false;
+		}
+
+		Area area = areaOf(store.record(row));
+		if (area == null)
+		{
+			return false;
+		}
+		Rectangle2D bounds = area.getBounds2D();
+		Shape[] fills = new Shape[to - from];
+		for (int i = from; i < to; i++)
+		{
+			FigureRecord occluder = store.record(candidates[i]);
+			Shape shape = RecordRenderer.shapeOf(occluder);
+			if (shape != null)
+			{
+				shape = RecordRenderer.transformOf(occluder).createTransformedShape(shape);
+				if (shape.contains(bounds))
+				{
+					return true;
+				}
+				fills[i - from] = shape;
+			}
+		}
+		for (Shape fill : fills)
+		{
+			if (fill != null)
+			{
+				area.subtract(new Area(fill));
+				if (area.isEmpty())
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Area drawn by a record once transformed: its fill if any and its edge
+	 * if any
+	 * @param record the record
+	 * @return the area drawn by the record or null if it has no shape or
+	 * draws nothing
+	 */
+	private static Area areaOf(FigureRecord record)
+	{
+		Shape shape = RecordRenderer.shapeOf(record);
+		if (shape == null)
+		{
+			return null;
+		}
+		Area area = (record.hasFill() ? new Area(shape) : new Area());
+		if (record.hasEdge())
+		{
+			BasicStroke stroke = StrokeStyle.of(record.getLineType(),
+			                                    record.getLineWidth()).getAwtStroke();
+			if (stroke != null)
+			{
+				area.add(new Area(stroke.createStrokedShape(shape)));
+			}
+		}
+		if (area.isEmpty())
+		{
+			return null;
+		}
+		AffineTransform transform = RecordRenderer.transformOf(record);
+		area.transform(transform);
+		return area;
+	}
+
+	/**
+	 * Compares the geometry and opacity of rows in two stores
+	 * @param a the first store
+	 * @param i the index of the row in the first store
+	 * @param b the second store
+	 * @param j the index of the row in the second store
+	 * @return true if both rows draw the same area and occlude the same way
+	 */
+	private static boolean sameGeometry(FigureStore a, int i, FigureStore b, int j)
+	{
+		return (a.getTypeOrdinal(i) == b.getTypeOrdinal(j))
+		    && (a.getFlags(i) == b.getFlags(j))
+		    && ((a.getFillArgb(i) >>> 24) == (b.getFillArgb(j) >>> 24))
+		    && (a.getLineWidth(i) == b.getLineWidth(j))
+		    && (a.getLineType(i) == b.getLineType(j))
+		    && (a.getX(i) == b.getX(j))
+		    && (a.getY(i) == b.getY(j))
+		    && (a.getWidth(i) == b.getWidth(j))
+		    && (a.getHeight(i) == b.getHeight(j))
+		    && (a.getTranslateX(i) == b.getTranslateX(j))
+		    && (a.getTranslateY(i) == b.getTranslateY(j))
+		    && (a.getRotate(i) == b.getRotate(j))
+		    && (a.getScaleX(i) == b.getScaleX(j))
+		    && (a.getScaleY(i) == b.getScaleY(j));
+	}
+
+	/**
+	 * Task testing a range of rows
+	 */
+	private class TestTask extends RecursiveAction
+	{
+		/**
+		 * Serial version UID
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The rows to test
+		 */
+		private final int[] rows;
+
+		/**
+		 * Indices of the first candidate of each row in {@link #candidates}
+		 */
+		private final int[] offsets;
+
+		/**
+		 * Candidate occluders of all rows
+		 */
+		private final int[] candidates;
+
+		/**
+		 * Results of tests of rows
+		 */
+		private final boolean[] results;
+
+		/**
+		 * First index (inclusive) and last index (exclusive) of the range in
+		 * {@link #rows}
+		 */
+		private final int from, to;
+
+		/**
+		 * Constructor
+		 * @param rows the rows to test
+		 * @param offsets indices of the first candidate of each row
+		 * @param candidates candidate occluders of all rows
+		 * @param results the array receiving results of tests of rows
+		 * @param from the first index (inclusive) of the range
+		 * @param to the last index (exclusive) of the range
+		 */
+		public TestTask(int[] rows,
+		                int[] offsets,
+		                int[] candidates,
+		                boolean[] results,
+		                int from,
+		                int to)
+		{
+			this.rows = rows;
+			this.offsets = offsets;
+			this.candidates = candidates;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Tests rows in [from..to[ or split range
+		 */
+		@Override
+		protected void compute()
+		{
+			if ((to - from) <= SEQUENTIAL_ROWS)
+			{
+				for (int i = from; i < to; i++)
+				{
+					results[i] = isCovered(rows[i], candidates, offsets[i], offsets[i + 1]);
+				}
+			}
+			else
+			{
+				int middle = (from + to) >>> 1;
+				invokeAll(new TestTask(rows, offsets, candidates, results, from, middle),
+				          new TestTask(rows, offsets, candidates, results, middle, to));
+			}
+		}
+	}
+}
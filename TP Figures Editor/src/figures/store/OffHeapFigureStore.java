@@ -0,0 +1,679 @@
+package figures.store;
+
+import java.awt.geom.Rectangle2D;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import figures.enums.FigureType;
+import figures.enums.LineType;
+import figures.io.ChunkedDrawingFile;
+import figures.io.FigureRecord;
+
+/**
+ * Off-heap store of figures for drawings too large to be kept on the heap
+ * (millions of figures): rows are kept encoded as {@link FigureRecord}s in
+ * pages of {@link #PAGE_ROWS} rows allocated outside of the heap, either in
+ * direct memory ({@link #allocate()}) or in a memory mapped scratch file
+ * ({@link #mapped(Path)}) which lets the operating system page rows out to
+ * disk.
+ * Since the heap only contains a few page buffers whatever the number of
+ * rows, the garbage collector never traverses rows and GC pauses don't
+ * depend on the size of the drawing.
+ * Rows are read and written in place by accessors, and only a subset of rows
+ * (typically the rows visible through a viewport, see
+ * {@link #select(Rectangle2D)}) is loaded into an on heap {@link FigureStore}
+ * with {@link #load(BitSet)} to be materialized as figures, then written
+ * back with {@link #store(BitSet, FigureStore)}.
+ * Only the storage side of such a mode is provided: the editor does not use
+ * this store yet since its {@link figures.Drawing} still materializes all
+ * figures (and saves and undoes edits through them).
+ * @implNote This store is not thread safe: concurrent reads are safe as long
+ * as the store is not modified. Pages memory is released when pages are
+ * garbage collected (direct or mapped buffers can't be released explicitly),
+ * {@link #close()} only drops pages and closes the scratch file.
+ */
+public class OffHeapFigureStore implements Closeable
+{
+	/**
+	 * Number of rows per page
+	 */
+	public static final int PAGE_ROWS = 1 << 16;
+
+	/**
+	 * Number of bytes per page
+	 */
+	private static final int PAGE_BYTES = PAGE_ROWS * FigureRecord.BYTES;
+
+	/**
+	 * Offsets of fields within encoded records (see {@link FigureRecord})
+	 */
+	private static final int TYPE = 0, FILL = 4, EDGE = 8, LINE_WIDTH = 12,
+	    LINE_TYPE = 16, FLAGS = 17, X = 24, Y = 32, WIDTH = 40, HEIGHT = 48,
+	    TRANSLATE_X = 56, TRANSLATE_Y = 64, ROTATE = 72, SCALE_X = 80,
+	    SCALE_Y = 88;
+
+	/**
+	 * Figure types (indexed by ordinals)
+	 */
+	private static final FigureType[] TYPES = FigureType.values();
+
+	/**
+	 * The scratch file channel pages are mapped from (or null if pages are
+	 * allocated in direct memory)
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * Pages of encoded rows
+	 */
+	private final List<ByteBuffer> pages;
+
+	/**
+	 * Number of rows
+	 */
+	private int size;
+
+	/**
+	 * Constructor
+	 * @param channel the scratch file channel to map pages from or null to
+	 * allocate pages in direct memory
+	 */
+	private OffHeapFigureStore(FileChannel channel)
+	{
+		this.channel = channel;
+		pages = new ArrayList<>();
+		size = 0;
+	}
+
+	/**
+	 * Creates an empty store allocating its pages in direct memory (limited
+	 * by -XX:MaxDirectMemorySize)
+	 * @return a new empty store
+	 */
+	public static OffHeapFigureStore allocate()
+	{
+		return new OffHeapFigureStore(null);
+	}
+
+	/**
+	 * Creates an empty store mapping its pages from a scratch file (which is
+	 * created or truncated)
+	 * @param file the scratch file to map pages from
+	 * @return a new empty store
+	 * @throws IOException if the file can't be opened
+	 */
+	public static OffHeapFigureStore mapped(Path file) throws IOException
+	{
+		return new OffHeapFigureStore(FileChannel.open(file,
+		                                               StandardOpenOption.CREATE,
+		                                               StandardOpenOption.TRUNCATE_EXISTING,
+		                                               StandardOpenOption.READ,
+		                                               StandardOpenOption.WRITE));
+	}
+
+	/**
+	 * Appends all records of a drawing file to this store, one chunk at a
+	 * time, so heap usage is limited to a single chunk
+	 * @param file the drawing file to read
+	 * @return the number of appended rows
+	 * @throws IOException if a chunk can't be read, is corrupted or contains
+	 * invalid records
+	 */
+	public int addAll(ChunkedDrawingFile file) throws IOException
+	{
+		int count = 0;
+		for (int chunk = 0; chunk < file.getChunkCount(); chunk++)
+		{
+			ByteBuffer buffer = file.readChunkBuffer(chunk);
+			int records = buffer.remaining() / FigureRecord.BYTES;
+			for (int i = 0; i < records; i++)
+			{
+				int type = buffer.getInt(buffer.position() + (i * FigureRecord.BYTES) + TYPE);
+				if ((type < 0) || (type >= TYPES.length))
+				{
+					throw new IOException("invalid record in chunk " + chunk,
+					                      new IllegalArgumentException("unknown figure type " + type));
+				}
+			}
+			addAll(buffer, records);
+			count += records;
+		}
+		return count;
+	}
+
+	// -------------------------------------------------------------------------
+	// Rows management
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Number of rows
+	 * @return the number of rows in this store
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Indicates if this store is empty
+	 * @return true if this store has no rows
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Number of bytes used by rows outside of the heap
+	 * @return the number of bytes of all allocated pages
+	 */
+	public long getCapacityBytes()
+	{
+		return (long) pages.size() * PAGE_BYTES;
+	}
+
+	/**
+	 * Appends a row
+	 * @param record the record describing the row
+	 * @return the index of the new row
+	 * @throws UncheckedIOException if a new page can't be mapped
+	 */
+	public int add(FigureRecord record) throws UncheckedIOException
+	{
+		int row = size;
+		ByteBuffer page = pageForAppend(row);
+		record.writeTo(page.position(offset(row)));
+		size++;
+		return row;
+	}
+
+	/**
+	 * Appends encoded records (see {@link FigureRecord}) by copying their
+	 * bytes (records are not checked)
+	 * @param buffer the buffer containing records (from its position)
+	 * @param count the number of records to copy
+	 * @throws UncheckedIOException if a new page can't be mapped
+	 * @post buffer position has been advanced by count *
+	 * {@link FigureRecord#BYTES}
+	 */
+	public void addAll(ByteBuffer buffer, int count) throws UncheckedIOException
+	{
+		int limit = buffer.limit();
+		while (count > 0)
+		{
+			int row = size;
+			ByteBuffer page = pageForAppend(row);
+			int rows = Math.min(count, PAGE_ROWS - (row % PAGE_ROWS));
+			buffer.limit(buffer.position() + (rows * FigureRecord.BYTES));
+			page.position(offset(row)).put(buffer);
+			buffer.limit(limit);
+			size += rows;
+			count -= rows;
+		}
+	}
+
+	/**
+	 * Appends all rows of an on heap store
+	 * @param store the store containing the rows to append
+	 * @throws UncheckedIOException if a new page can't be mapped
+	 */
+	public void addAll(FigureStore store) throws UncheckedIOException
+	{
+		for (int i = 0; i < store.size(); i++)
+		{
+			int row = size;
+			store.write(i, pageForAppend(row).position(offset(row)));
+			size++;
+		}
+	}
+
+	/**
+	 * Replaces a row
+	 * @param row the index of the row
+	 * @param record the record describing the row
+	 * @throws IndexOutOfBoundsException if row is not in [0..size()[
+	 */
+	public void set(int row, FigureRecord record) throws IndexOutOfBoundsException
+	{
+		checkRow(row);
+		record.writeTo(page(row).position(offset(row)));
+	}
+
+	/**
+	 * Removes all rows (pages are kept to be reused)
+	 */
+	public void clear()
+	{
+		size = 0;
+	}
+
+	/**
+	 * Drops all pages and closes the scratch file (if any).
+	 * The scratch file is not deleted.
+	 * @throws IOException if the scratch file can't be closed
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		pages.clear();
+		size = 0;
+		if (channel != null)
+		{
+			channel.close();
+		}
+	}
+
+	// -------------------------------------------------------------------------
+	// Rows accessors
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Figure type of a row
+	 * @param row the index of the row
+	 * @return the figure type of the row
+	 */
+	public FigureType getType(int row)
+	{
+		return TYPES[getTypeOrdinal(row)];
+	}
+
+	/**
+	 * Figure type ordinal of a row
+	 * @param row the index of the row
+	 * @return the ordinal of the figure type of the row
+	 */
+	public int getTypeOrdinal(int row)
+	{
+		return page(row).getInt(offset(row) + TYPE);
+	}
+
+	/**
+	 * Packed ARGB fill color of a row
+	 * @param row the index of the row
+	 * @return the fill color of the row (meaningless if the row has no fill
+	 * color)
+	 */
+	public int getFillArgb(int row)
+	{
+		return page(row).getInt(offset(row) + FILL);
+	}
+
+	/**
+	 * Packed ARGB edge color of a row
+	 * @param row the index of the row
+	 * @return the edge color of the row (meaningless if the row has no edge
+	 * color)
+	 */
+	public int getEdgeArgb(int row)
+	{
+		return page(row).getInt(offset(row) + EDGE);
+	}
+
+	/**
+	 * Flags of a row
+	 * @param row the index of the row
+	 * @return {@link FigureRecord#HAS_FILL} | {@link FigureRecord#HAS_EDGE}
+	 */
+	public int getFlags(int row)
+	{
+		return page(row).get(offset(row) + FLAGS);
+	}
+
+	/**
+	 * Line width of a row
+	 * @param row the index of the row
+	 * @return the line width of the row
+	 */
+	public float getLineWidth(int row)
+	{
+		return page(row).getFloat(offset(row) + LINE_WIDTH);
+	}
+
+	/**
+	 * Line type of a row
+	 * @param row the index of the row
+	 * @return the line type of the row
+	 */
+	public LineType getLineType(int row)
+	{
+		return LineType.fromInteger(page(row).get(offset(row) + LINE_TYPE));
+	}
+
+	/**
+	 * Top left corner x coordinate of a row
+	 * @param row the index of the row
+	 * @return the x coordinate of the top left corner of the row's shape
+	 */
+	public double getX(int row)
+	{
+		return page(row).getDouble(offset(row) + X);
+	}
+
+	/**
+	 * Top left corner y coordinate of a row
+	 * @param row the index of the row
+	 * @return the y coordinate of the top left corner of the row's shape
+	 */
+	public double getY(int row)
+	{
+		return page(row).getDouble(offset(row) + Y);
+	}
+
+	/**
+	 * Width of a row
+	 * @param row the index of the row
+	 * @return the width of the row's shape
+	 */
+	public double getWidth(int row)
+	{
+		return page(row).getDouble(offset(row) + WIDTH);
+	}
+
+	/**
+	 * Height of a row
+	 * @param row the index of the row
+	 * @return the height of the row's shape
+	 */
+	public double getHeight(int row)
+	{
+		return page(row).getDouble(offset(row) + HEIGHT);
+	}
+
+	/**
+	 * Translation along x axis of a row
+	 * @param row the index of the row
+	 * @return the translation along x axis of the row
+	 */
+	public double getTranslateX(int row)
+	{
+		return page(row).getDouble(offset(row) + TRANSLATE_X);
+	}
+
+	/**
+	 * Translation along y axis of a row
+	 * @param row the index of the row
+	 * @return the translation along y axis of the row
+	 */
+	public double getTranslateY(int row)
+	{
+		return page(row).getDouble(offset(row) + TRANSLATE_Y);
+	}
+
+	/**
+	 * Rotation of a row
+	 * @param row the index of the row
+	 * @return the rotation of the row (in degrees)
+	 */
+	public double getRotate(int row)
+	{
+		return page(row).getDouble(offset(row) + ROTATE);
+	}
+
+	/**
+	 * Scale along x axis of a row
+	 * @param row the index of the row
+	 * @return the scale along x axis of the row
+	 */
+	public double getScaleX(int row)
+	{
+		return page(row).getDouble(offset(row) + SCALE_X);
+	}
+
+	/**
+	 * Scale along y axis of a row
+	 * @param row the index of the row
+	 * @return the scale along y axis of the row
+	 */
+	public double getScaleY(int row)
+	{
+		return page(row).getDouble(offset(row) + SCALE_Y);
+	}
+
+	/**
+	 * Sets the translation of a row
+	 * @param row the index of the row
+	 * @param translateX the translation along x axis
+	 * @param translateY the translation along y axis
+	 */
+	public void setTranslate(int row, double translateX, double translateY)
+	{
+		ByteBuffer page = page(row);
+		int offset = offset(row);
+		page.putDouble(offset + TRANSLATE_X, translateX);
+		page.putDouble(offset + TRANSLATE_Y, translateY);
+	}
+
+	/**
+	 * Record of a row
+	 * @param row the index of the row
+	 * @return a new record describing the row
+	 * @throws IndexOutOfBoundsException if row is not in [0..size()[
+	 */
+	public FigureRecord record(int row) throws IndexOutOfBoundsException
+	{
+		checkRow(row);
+		return FigureRecord.readFrom(page(row).slice(offset(row), FigureRecord.BYTES));
+	}
+
+	/**
+	 * Copies encoded rows into a buffer (as {@link ChunkedDrawingFile} chunks
+	 * contain them)
+	 * @param from the index of the first row to copy
+	 * @param to the index following the last row to copy
+	 * @param buffer the buffer to write to (with at least
+	 * (to - from) * {@link FigureRecord#BYTES} remaining bytes)
+	 */
+	public void write(int from, int to, ByteBuffer buffer)
+	{
+		int row = from;
+		while (row < to)
+		{
+			int rows = Math.min(to - row, PAGE_ROWS - (row % PAGE_ROWS));
+			buffer.put(page(row).slice(offset(row), rows * FigureRecord.BYTES));
+			row += rows;
+		}
+	}
+
+	// -------------------------------------------------------------------------
+	// Bulk operations
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Bounds of all rows once transformed, including their edges (the same
+	 * bounds as {@link FigureStore#bounds()} with the same rows)
+	 * @return the union of all rows bounds or an empty rectangle if this
+	 * store is empty
+	 */
+	public Rectangle2D bounds()
+	{
+		double[] bounds = FigureStore.emptyBounds();
+		double[] extent = new double[4];
+		for (int row = 0; row < size; row++)
+		{
+			extent(row, extent);
+			FigureStore.union(bounds, extent);
+		}
+		return FigureStore.toRectangle(bounds);
+	}
+
+	/**
+	 * Selects rows whose transformed bounds intersect a viewport (e.g. the
+	 * rows to materialize as figures when displaying this viewport)
+	 * @param viewport the viewport in drawing coordinates
+	 * @return the set of the indices of rows intersecting the viewport
+	 */
+	public BitSet select(Rectangle2D viewport)
+	{
+		double minX = viewport.getMinX();
+		double minY = viewport.getMinY();
+		double maxX = viewport.getMaxX();
+		double maxY = viewport.getMaxY();
+		double[] extent = new double[4];
+		BitSet selected = new BitSet();
+		for (int row = 0; row < size; row++)
+		{
+			extent(row, extent);
+			if ((extent[0] <= maxX) && (extent[2] >= minX)
+			    && (extent[1] <= maxY) && (extent[3] >= minY))
+			{
+				selected.set(row);
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * Loads rows into a new on heap store (e.g. to materialize them as
+	 * figures with {@link FigureStore#getFigure(int, java.util.logging.Logger)})
+	 * @param rows the indices of the rows to load
+	 * @return a new store whose i<sup>th</sup> row is the i<sup>th</sup> set
+	 * row of rows
+	 * @throws IndexOutOfBoundsException if rows contains rows out of
+	 * [0..size()[
+	 */
+	public FigureStore load(BitSet rows) throws IndexOutOfBoundsException
+	{
+		FigureStore store = new FigureStore(rows.cardinality());
+		for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1))
+		{
+			checkRow(row);
+			store.addAll(page(row).slice(offset(row), FigureRecord.BYTES), 1);
+		}
+		return store;
+	}
+
+	/**
+	 * Writes back rows loaded with {@link #load(BitSet)} (after their figures
+	 * have been written back into the loaded store with
+	 * {@link FigureStore#set(int, figures.Figure)})
+	 * @param rows the indices of the loaded rows
+	 * @param store the store the rows have been loaded into
+	 * @throws IndexOutOfBoundsException if rows contains rows out of
+	 * [0..size()[ or if store doesn't contain as many rows as rows
+	 */
+	public void store(BitSet rows, FigureStore store) throws IndexOutOfBoundsException
+	{
+		if (rows.cardinality() != store.size())
+		{
+			throw new IndexOutOfBoundsException(rows.cardinality()
+			    + " rows for a store of " + store.size() + " rows");
+		}
+		int i = 0;
+		for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1))
+		{
+			checkRow(row);
+			store.write(i++, page(row).position(offset(row)));
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return getClass().getSimpleName() + "[" + size + " rows, "
+		    + pages.size() + " " + (channel != null ? "mapped" : "direct")
+		    + " pages]";
+	}
+
+	// -------------------------------------------------------------------------
+	// Internal methods
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Transformed bounds of a row
+	 * @param row the index of the row
+	 * @param extent the array receiving min x, min y, max x and max y of the
+	 * transformed bounds
+	 * @see FigureStore#extent(double, double, double, double, float, double, double, double, double, double, double[])
+	 */
+	private void extent(int row, double[] extent)
+	{
+		ByteBuffer page = page(row);
+		int offset = offset(row);
+		FigureStore.extent(page.getDouble(offset + X),
+		                   page.getDouble(offset + Y),
+		                   page.getDouble(offset + WIDTH),
+		                   page.getDouble(offset + HEIGHT),
+		                   ((page.get(offset + FLAGS) & FigureRecord.HAS_EDGE) != 0 ?
+		                       page.getFloat(offset + LINE_WIDTH) : 0.0f),
+		                   page.getDouble(offset + TRANSLATE_X),
+		                   page.getDouble(offset + TRANSLATE_Y),
+		                   page.getDouble(offset + ROTATE),
+		                   page.getDouble(offset + SCALE_X),
+		                   page.getDouble(offset + SCALE_Y),
+		                   extent);
+	}
+
+	/**
+	 * Page containing a row
+	 * @param row the index of the row
+	 * @return the page containing the row
+	 */
+	private ByteBuffer page(int row)
+	{
+		return pages.get(row / PAGE_ROWS);
+	}
+
+	/**
+	 * Offset of a row within its page
+	 * @param row the index of the row
+	 * @return the offset of the row's record within its page
+	 */
+	private static int offset(int row)
+	{
+		return (row % PAGE_ROWS) * FigureRecord.BYTES;
+	}
+
+	/**
+	 * Page where a row can be appended (a new page is allocated or mapped if
+	 * needed)
+	 * @param row the index of the row to append
+	 * @return the page containing the row
+	 * @throws UncheckedIOException if a new page can't be mapped
+	 */
+	private ByteBuffer pageForAppend(int row) throws UncheckedIOException
+	{
+		int index = row / PAGE_ROWS;
+		if (index == pages.size())
+		{
+			if (channel == null)
+			{
+				pages.add(ByteBuffer.allocateDirect(PAGE_BYTES));
+			}
+			else
+			{
+				try
+				{
+					pages.add(channel.map(FileChannel.MapMode.READ_WRITE,
+					                      (long) index * PAGE_BYTES,
+					                      PAGE_BYTES));
+				}
+				catch (IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+		return pages.get(index);
+	}
+
+	/**
+	 * Checks a row index
+	 * @param row the index to check
+	 * @throws IndexOutOfBoundsException if row is not in [0..size()[
+	 */
+	private void checkRow(int row) throws IndexOutOfBoundsException
+	{
+		if ((row < 0) || (row >= size))
+		{
+			throw new IndexOutOfBoundsException("row " + row + " out of [0.." + size + "[");
+		}
+	}
+}
@@ -0,0 +1,434 @@
+package figures.store;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import figures.io.FigureRecord;
+import figures.render.RecordRenderer;
+
+/**
+ * Finder of all pairs of overlapping rows of a {@link FigureStore} (e.g. to
+ * clean up imported drawings) by sweep and prune:
+ * <ol>
+ * <li>transformed bounds of all rows are computed in parallel</li>
+ * <li>rows are sorted by the left side of their bounds (parallel sort)</li>
+ * <li>the sorted rows are split into ranges swept in parallel: each row is
+ * only compared to the following rows in sorted order until their left
+ * side is beyond its right side, so only rows overlapping along x axis are
+ * compared and then tested along y axis</li>
+ * <li>candidate pairs may then be tested against exact shapes (transformed
+ * ellipses, rectangles and rounded rectangles without their edges) in the
+ * same tasks</li>
+ * </ol>
+ * So finding pairs costs O(n log n + k) for k candidate pairs instead of the
+ * O(n<sup>2</sup>) of pairwise tests.
+ * Pairs are encoded as {@code long}s containing the lower row in high bits
+ * and the higher row in low bits (see {@link #first(long)} and
+ * {@link #second(long)}).
+ */
+public class OverlapFinder
+{
+	/**
+	 * Number of rows below which ranges are processed sequentially
+	 */
+	public static final int SEQUENTIAL_ROWS = 2048;
+
+	/**
+	 * The pool running tasks
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor
+	 * @param pool the pool running tasks
+	 */
+	public OverlapFinder(ForkJoinPool pool)
+	{
+		this.pool = pool;
+	}
+
+	/**
+	 * Finds all pairs of overlapping rows.
+	 * The store must not be modified during search.
+	 * @param store the store containing rows
+	 * @param exact whether overlapping bounds should then be tested against
+	 * exact shapes (rows without shape, such as polygons, are kept as soon as
+	 * their bounds overlap)
+	 * @return the sorted pairs of overlapping rows
+	 */
+	public long[] find(FigureStore store, boolean exact)
+	{
+		int size = store.size();
+		double[] minXs = new double[size];
+		double[] minYs = new double[size];
+		double[] maxXs = new double[size];
+		double[] maxYs = new double[size];
+		long[] order = new long[size];
+		return pool.invoke(new RecursiveTask<long[]>()
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected long[] compute()
+			{
+				new BoundsTask(store, minXs, minYs, maxXs, maxYs, order, 0, size).invoke();
+				Arrays.parallelSort(order);
+				long[] pairs = new SweepTask(store,
+				                             minXs,
+				                             minYs,
+				                             maxXs,
+				                             maxYs,
+				                             order,
+				                             exact,
+				                             0,
+				                             size).invoke();
+				Arrays.parallelSort(pairs);
+				return pairs;
+			}
+		});
+	}
+
+	/**
+	 * Lower row of a pair
+	 * @param pair the pair
+	 * @return the index of the lower row of the pair
+	 */
+	public static int first(long pair)
+	{
+		return (int) (pair >>> 32);
+	}
+
+	/**
+	 * Higher row of a pair
+	 * @param pair the pair
+	 * @return the index of the higher row of the pair
+	 */
+	public static int second(long pair)
+	{
+		return (int) pair;
+	}
+
+	/**
+	 * Rows involved in pairs
+	 * @param pairs the pairs
+	 * @return the set of the rows of all pairs
+	 */
+	public static BitSet rowsOf(long[] pairs)
+	{
+		BitSet rows = new BitSet();
+		for (long pair : pairs)
+		{
+			rows.set(first(pair));
+			rows.set(second(pair));
+		}
+		return rows;
+	}
+
+	/**
+	 * Sort key of a row: the largest float not greater than the left side of
+	 * its bounds (so keys are ordered as left sides are), mapped to an int
+	 * ordered as floats, in high bits and the row in low bits
+	 * @param minX the left side of the row's bounds
+	 * @param row the index of the row
+	 * @return the sort key of the row
+	 */
+	private static long key(double minX, int row)
+	{
+		float left = (float) minX;
+		if (left > minX)
+		{
+			left = Math.nextDown(left);
+		}
+		int bits = Float.floatToIntBits(left);
+		bits ^= (bits >> 31) & 0x7FFFFFFF;
+		return ((long) bits << 32) | row;
+	}
+
+	/**
+	 * Left side lower bound of the row of a sort key
+	 * @param key the sort key
+	 * @return the largest float not greater than the left side of the row's
+	 * bounds
+	 */
+	private static float left(long key)
+	{
+		int bits = (int) (key >> 32);
+		bits ^= (bits >> 31) & 0x7FFFFFFF;
+		return Float.intBitsToFloat(bits);
+	}
+
+	/**
+	 * Area of a row's transformed shape
+	 * @param record the row record
+	 * @return the area of the row's transformed shape or null if the row has
+	 * no shape
+	 */
+	private static Area areaOf(FigureRecord record)
+	{
+		Shape shape = RecordRenderer.shapeOf(record);
+		if (shape == null)
+		{
+			return null;
+		}
+		AffineTransform transform = RecordRenderer.transformOf(record);
+		return new Area(transform.createTransformedShape(shape));
+	}
+
+	/**
+	 * Exact overlapping test of two rows' transformed shapes
+	 * @param areaA the area of the first row (which is left unchanged) or
+	 * null if it has no shape
+	 * @param b the second row record
+	 * @return true if rows' shapes overlap or if any of them has no shape
+	 */
+	private static boolean overlap(Area areaA, FigureRecord b)
+	{
+		Area areaB;
+		if ((areaA == null) || ((areaB = areaOf(b)) == null))
+		{
+			return true;
+		}
+		areaB.intersect(areaA);
+		return !areaB.isEmpty();
+	}
+
+	/**
+	 * Task computing transformed bounds and sort keys of a range of rows
+	 */
+	private static class BoundsTask extends RecursiveAction
+	{
+		/**
+		 * Serial version UID
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The store containing rows
+		 */
+		private final FigureStore store;
+
+		/**
+		 * Bounds of rows
+		 */
+		private final double[] minXs, minYs, maxXs, maxYs;
+
+		/**
+		 * Sort keys of rows
+		 */
+		private final long[] keys;
+
+		/**
+		 * First row (inclusive) and last row (exclusive) of the range
+		 */
+		private final int from, to;
+
+		/**
+		 * Constructor
+		 * @param store the store containing rows
+		 * @param minXs the array receiving left sides of bounds
+		 * @param minYs the array receiving top sides of bounds
+		 * @param maxXs the array receiving right sides of bounds
+		 * @param maxYs the array receiving bottom sides of bounds
+		 * @param keys the array receiving sort keys
+		 * @param from the first row (inclusive) of the range
+		 * @param to the last row (exclusive) of the range
+		 */
+		public BoundsTask(FigureStore store,
+		                  double[] minXs,
+		                  double[] minYs,
+		                  double[] maxXs,
+		                  double[] maxYs,
+		                  long[] keys,
+		                  int from,
+		                  int to)
+		{
+			this.store = store;
+			this.minXs = minXs;
+			this.minYs = minYs;
+			this.maxXs = maxXs;
+			this.maxYs = maxYs;
+			this.keys = keys;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Computes bounds of rows in [from..to[ or split range
+		 */
+		@Override
+		protected void compute()
+		{
+			if ((to - from) <= SEQUENTIAL_ROWS)
+			{
+				double[] extent = new double[4];
+				for (int row = from; row < to; row++)
+				{
+					FigureStore.extent(store.getX(row),
+					                   store.getY(row),
+					                   store.getWidth(row),
+					                   store.getHeight(row),
+					                   (store.hasEdge(row) ? store.getLineWidth(row) : 0.0f),
+					                   store.getTranslateX(row),
+					                   store.getTranslateY(row),
+					                   store.getRotate(row),
+					                   store.getScaleX(row),
+					                   store.getScaleY(row),
+					                   extent);
+					minXs[row] = extent[0];
+					minYs[row] = extent[1];
+					maxXs[row] = extent[2];
+					maxYs[row] = extent[3];
+					keys[row] = key(extent[0], row);
+				}
+			}
+			else
+			{
+				int middle = (from + to) >>> 1;
+				invokeAll(new BoundsTask(store, minXs, minYs, maxXs, maxYs, keys, from, middle),
+				          new BoundsTask(store, minXs, minYs, maxXs, maxYs, keys, middle, to));
+			}
+		}
+	}
+
+	/**
+	 * Task sweeping a range of sorted rows: each row of the range is compared
+	 * to all following rows (in or beyond the range) whose left side is not
+	 * beyond its right side
+	 */
+	private static class SweepTask extends RecursiveTask<long[]>
+	{
+		/**
+		 * Serial version UID
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The store containing rows
+		 */
+		private final FigureStore store;
+
+		/**
+		 * Bounds of rows
+		 */
+		private final double[] minXs, minYs, maxXs, maxYs;
+
+		/**
+		 * Sort keys of rows in sorted order
+		 */
+		private final long[] order;
+
+		/**
+		 * Test candidate pairs against exact shapes
+		 */
+		private final boolean exact;
+
+		/**
+		 * First position (inclusive) and last position (exclusive) of the
+		 * range in sorted order
+		 */
+		private final int from, to;
+
+		/**
+		 * Constructor
+		 * @param store the store containing rows
+		 * @param minXs left sides of bounds
+		 * @param minYs top sides of bounds
+		 * @param maxXs right sides of bounds
+		 * @param maxYs bottom sides of bounds
+		 * @param order sort keys of rows in sorted order
+		 * @param exact test candidate pairs against exact shapes
+		 * @param from the first position (inclusive) of the range
+		 * @param to the last position (exclusive) of the range
+		 */
+		public SweepTask(FigureStore store,
+		                 double[] minXs,
+		                 double[] minYs,
+		                 double[] maxXs,
+		                 double[] maxYs,
+		                 long[] order,
+		                 boolean exact,
+		                 int from,
+		                 int to)
+		{
+			this.store = store;
+			this.minXs = minXs;
+			this.minYs = minYs;
+			this.maxXs = maxXs;
+			this.maxYs = maxYs;
+			this.order = order;
+			this.exact = exact;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Sweeps rows in [from..to[ or split range
+		 * @return the pairs found in range
+		 */
+		@Override
+		protected long[] compute()
+		{
+			if ((to - from) > SEQUENTIAL_ROWS)
+			{
+				int middle = (from + to) >>> 1;
+				SweepTask right = new SweepTask(store, minXs, minYs, maxXs, maxYs, order, exact, middle, to);
+				right.fork();
+				long[] leftPairs = new SweepTask(store, minXs, minYs, maxXs, maxYs, order, exact, from, middle).compute();
+				long[] rightPairs = right.join();
+				long[] pairs = Arrays.copyOf(leftPairs, leftPairs.length + rightPairs.length);
+				System.arraycopy(rightPairs, 0, pairs, leftPairs.length, rightPairs.length);
+				return pairs;
+			}
+
+			long[] pairs = new long[16];
+			int count = 0;
+			for (int i = from; i < to; i++)
+			{
+				int a = (int) order[i];
+				double minX = minXs[a];
+				double maxX = maxXs[a];
+				double minY = minYs[a];
+				double maxY = maxYs[a];
+				Area areaA = null;
+				boolean areaKnown = false;
+				for (int j = i + 1; (j < order.length) && (left(order[j]) <= maxX); j++)
+				{
+					int b = (int) order[j];
+					/*
+					 * Sort keys are rounded down to floats: bounds along x
+					 * axis are checked too
+					 */
+					if ((minXs[b] > maxX) || (maxXs[b] < minX)
+					    || (minYs[b] > maxY) || (maxYs[b] < minY))
+					{
+						continue;
+					}
+					if (exact)
+					{
+						if (!areaKnown)
+						{
+							areaA = areaOf(store.record(a));
+							areaKnown = true;
+						}
+						if (!overlap(areaA, store.record(b)))
+						{
+							continue;
+						}
+					}
+					if (count == pairs.length)
+					{
+						pairs = Arrays.copyOf(pairs, count * 2);
+					}
+					pairs[count++] = (a < b ? ((long) a << 32) | b : ((long) b << 32) | a);
+				}
+			}
+			return Arrays.copyOf(pairs, count);
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package figures.store;
+
+import figures.enums.FigureType;
+import figures.enums.LineType;
+import figures.io.FigureRecord;
+
+/**
+ * Filter of {@link FigureStore} rows (the columnar counterpart of
+ * {@link figures.filters.FigureFilter}s): filters only read primitive
+ * columns so filtering a store is a linear scan without allocation.
+ */
+@FunctionalInterface
+public interface RowFilter
+{
+	/**
+	 * Tests a row
+	 * @param store the store containing the row
+	 * @param row the index of the row
+	 * @return true if the row satisfies this filter
+	 */
+	public abstract boolean test(FigureStore store, int row);
+
+	/**
+	 * Conjunction of this filter and another filter
+	 * @param other the other filter
+	 * @return a filter satisfied by rows satisfying both filters
+	 */
+	public default RowFilter and(RowFilter other)
+	{
+		return (store, row) -> test(store, row) && other.test(store, row);
+	}
+
+	/**
+	 * Disjunction of this filter and another filter
+	 * @param other the other filter
+	 * @return a filter satisfied by rows satisfying any of both filters
+	 */
+	public default RowFilter or(RowFilter other)
+	{
+		return (store, row) -> test(store, row) || other.test(store, row);
+	}
+
+	/**
+	 * Negation of this filter
+	 * @return a filter satisfied by rows which do not satisfy this filter
+	 */
+	public default RowFilter negate()
+	{
+		return (store, row) -> !test(store, row);
+	}
+
+	/**
+	 * Filter of rows of a figure type
+	 * @param type the figure type
+	 * @return a filter satisfied by rows of this figure type
+	 */
+	public static RowFilter ofType(FigureType type)
+	{
+		int ordinal = type.ordinal();
+		return (store, row) -> store.getTypeOrdinal(row) == ordinal;
+	}
+
+	/**
+	 * Filter of rows with a fill color
+	 * @param argb the packed ARGB fill color
+	 * @return a filter satisfied by rows filled with this color
+	 */
+	public static RowFilter withFillColor(int argb)
+	{
+		return (store, row) -> ((store.getFlags(row) & FigureRecord.HAS_FILL) != 0)
+		    && (store.getFillArgb(row) == argb);
+	}
+
+	/**
+	 * Filter of rows with an edge color
+	 * @param argb the packed ARGB edge color
+	 * @return a filter satisfied by rows with edges of this color
+	 */
+	public static RowFilter withEdgeColor(int argb)
+	{
+		return (store, row) -> ((store.getFlags(row) & FigureRecord.HAS_EDGE) != 0)
+		    && (store.getEdgeArgb(row) == argb);
+	}
+
+	/**
+	 * Filter of rows with a line type
+	 * @param lineType the line type
+	 * @return a filter satisfied by rows with this line type
+	 */
+	public static RowFilter withLineType(LineType lineType)
+	{
+		return (store, row) -> store.getLineType(row) == lineType;
+	}
+
+	/**
+	 * Filter of rows with a line width
+	 * @param lineWidth the line width
+	 * @return a filter satisfied by rows with this line width
+	 */
+	public static RowFilter withLineWidth(float lineWidth)
+	{
+		return (store, row) -> store.getLineWidth(row) == lineWidth;
+	}
+}
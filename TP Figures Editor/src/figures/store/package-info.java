@@ -0,0 +1,11 @@
+/**
+ * Package containing the columnar {@link figures.store.FigureStore} of
+ * figures (one primitive array per figure property), its
+ * {@link figures.store.FigureView}s over rows and
+ * {@link figures.store.RowFilter}s and {@link figures.store.HitTester}s, for
+ * bulk operations on very large drawings, the {@link figures.store.OverlapFinder}
+ * finding overlapping rows, the {@link figures.store.OcclusionCuller} finding
+ * rows hidden by opaque rows above them and the {@link figures.store.OffHeapFigureStore} keeping rows
+ * outside of the heap for drawings too large to be kept on the heap
+ */
+package figures.store;
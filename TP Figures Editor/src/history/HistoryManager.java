@@ -1,5 +1,7 @@
 package history;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -7,6 +9,10 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import logger.LoggerFactory;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import metrics.jfr.Allocations;
+import metrics.jfr.HistoryEvent;
 
 /**
  * Undo / Redo manager for elements of type E
@@ -16,6 +22,27 @@ import logger.LoggerFactory;
  */
 public class HistoryManager<E extends Prototype<E>>
 {
+	/**
+	 * Latencies of states recording
+	 * @see #record()
+	 */
+	private static final LatencyHistogram RECORD_LATENCY =
+	    MetricsRegistry.histogram("history.record");
+
+	/**
+	 * Latencies of undos
+	 * @see #undo()
+	 */
+	private static final LatencyHistogram UNDO_LATENCY =
+	    MetricsRegistry.histogram("history.undo");
+
+	/**
+	 * Latencies of redos
+	 * @see #redo()
+	 */
+	private static final LatencyHistogram REDO_LATENCY =
+	    MetricsRegistry.histogram("history.redo");
+
 	/**
 	 * Maximum number of elements in {@link #undoStack} or {@link #redoStack}
 	 */
@@ -98,6 +125,45 @@ public class HistoryManager<E extends Prototype<E>>
 		return redoStack.size();
 	}
 
+	/**
+	 * Total number of elements in all states stored in {@link #undoStack} and
+	 * {@link #redoStack} (to estimate the memory used by this history)
+	 * @return the total number of elements in all stored states
+	 */
+	public int elementsCount()
+	{
+		int count = 0;
+		for (Memento<E> memento : undoStack)
+		{
+			count += memento.getState().size();
+		}
+		for (Memento<E> memento : redoStack)
+		{
+			count += memento.getState().size();
+		}
+		return count;
+	}
+
+	/**
+	 * Undo states accessor (e.g. to estimate the memory used by this history)
+	 * @return an unmodifiable view of the states in {@link #undoStack} (most
+	 * recent first)
+	 */
+	public Collection<Memento<E>> getUndoStates()
+	{
+		return Collections.unmodifiableCollection(undoStack);
+	}
+
+	/**
+	 * Redo states accessor
+	 * @return an unmodifiable view of the states in {@link #redoStack} (most
+	 * recent first)
+	 */
+	public Collection<Memento<E>> getRedoStates()
+	{
+		return Collections.unmodifiableCollection(redoStack);
+	}
+
 	/**
 	 * Current maximum size
 	 * @return the current maximum size
@@ -142,8 +208,13 @@ public class HistoryManager<E extends Prototype<E>>
 	public void record()
 	{
 		//DONE HistoryManager#record ...
-		pushUndo(originator.createMemento());
+		long start = System.nanoTime();
+		HistoryEvent event = beginEvent("record");
+		Memento<E> saved = originator.createMemento();
+		pushUndo(saved);
 		redoStack.clear();
+		commitEvent(event, saved);
+		RECORD_LATENCY.recordSince(start);
 	}
 
 	/**
@@ -158,12 +229,17 @@ public class HistoryManager<E extends Prototype<E>>
 	public void undo()
 	{
 		// DONE HistoryManager#undo ...
-		pushRedo(originator.createMemento());
+		long start = System.nanoTime();
+		HistoryEvent event = beginEvent("undo");
+		Memento<E> saved = originator.createMemento();
+		pushRedo(saved);
 		Memento<E> memento = popUndo();
 		if(memento != null)
 		{
 			originator.setMemento(memento);
 		}
+		commitEvent(event, saved);
+		UNDO_LATENCY.recordSince(start);
 	}
 
 	/**
@@ -189,12 +265,17 @@ public class HistoryManager<E extends Prototype<E>>
 	public void redo()
 	{
 		//DONE HistoryManager#redo ...
-		pushUndo(originator.createMemento());
+		long start = System.nanoTime();
+		HistoryEvent event = beginEvent("redo");
+		Memento<E> saved = originator.createMemento();
+		pushUndo(saved);
 		Memento<E> memento = popRedo();
 		if(memento != null)
 		{
 			originator.setMemento(memento);
 		}
+		commitEvent(event, saved);
+		REDO_LATENCY.recordSince(start);
 	}
 
 	/**
@@ -229,6 +310,47 @@ public class HistoryManager<E extends Prototype<E>>
 		return sb.toString();
 	}
 
+	/**
+	 * Begins a {@link HistoryEvent} if such events are recorded
+	 * @param operation the name of the operation
+	 * @return the begun event or null if history events are not recorded
+	 */
+	private HistoryEvent beginEvent(String operation)
+	{
+		HistoryEvent event = new HistoryEvent();
+		if (!event.isEnabled())
+		{
+			return null;
+		}
+		event.operation = operation;
+		event.allocated = Allocations.currentThreadAllocatedBytes();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends and commits a {@link HistoryEvent} begun by
+	 * {@link #beginEvent(String)}
+	 * @param event the event to commit (or null if events are not recorded)
+	 * @param saved the state saved during the operation
+	 */
+	private void commitEvent(HistoryEvent event, Memento<E> saved)
+	{
+		if (event == null)
+		{
+			return;
+		}
+		event.end();
+		if (event.shouldCommit())
+		{
+			event.allocated = Allocations.allocatedSince(event.allocated);
+			event.figures = (saved != null ? saved.getState().size() : 0);
+			event.undoSize = undoStack.size();
+			event.redoSize = redoStack.size();
+			event.commit();
+		}
+	}
+
 	/**
 	 * Push a new {@link Memento} (iff non null and not similar to last pushed
 	 * Memento) to the {@link #undoStack}
@@ -0,0 +1,384 @@
+package logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Asynchronous {@link Handler} publishing records to another (target) handler
+ * from a background writer thread so that logging threads (such as the
+ * JavaFX application thread) never wait for I/O.
+ * Records are queued in a bounded lock-free ring buffer (multiple producers,
+ * single consumer) which is drained by the writer thread in batches: all
+ * records of a batch are published to the target handler, which is then
+ * flushed once per batch.
+ * When the ring buffer is full, records are either dropped or the logging
+ * thread waits for some room depending on the {@link OverflowPolicy}.
+ * Counters of queued, written and dropped records are available.
+ */
+public class AsyncHandler extends Handler
+{
+	/**
+	 * What to do with records published when the ring buffer is full
+	 */
+	public enum OverflowPolicy
+	{
+		/**
+		 * Records are dropped (and counted in {@link AsyncHandler#getDropped()})
+		 */
+		DROP,
+		/**
+		 * Logging thread waits until there is room in the ring buffer
+		 */
+		BLOCK
+	}
+
+	/**
+	 * Default ring buffer capacity
+	 */
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	/**
+	 * Maximum number of records written before the target handler is flushed
+	 */
+	public static final int BATCH_SIZE = 256;
+
+	/**
+	 * Time the writer thread sleeps when there is nothing to write (in ns)
+	 */
+	private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	/**
+	 * The handler records are published to
+	 */
+	private final Handler target;
+
+	/**
+	 * Ring buffer slots (null when empty)
+	 */
+	private final AtomicReferenceArray<LogRecord> slots;
+
+	/**
+	 * Mask to obtain slot index from sequence number (capacity is a power of
+	 * two)
+	 */
+	private final int mask;
+
+	/**
+	 * Overflow policy
+	 */
+	private final OverflowPolicy policy;
+
+	/**
+	 * Sequence number of the next slot to claim by producers
+	 */
+	private final AtomicLong tail;
+
+	/**
+	 * Sequence number of the next slot to read by the writer thread
+	 */
+	private volatile long head;
+
+	/**
+	 * Number of records written to target handler
+	 */
+	private final LongAdder written;
+
+	/**
+	 * Number of dropped records
+	 */
+	private final LongAdder dropped;
+
+	/**
+	 * Flag indicating the writer thread is (about to be) parked and needs to
+	 * be unparked when records are queued
+	 */
+	private volatile boolean idle;
+
+	/**
+	 * Flag indicating this handler has been closed
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * The background writer thread
+	 */
+	private final Thread writer;
+
+	/**
+	 * Constructor
+	 * @param target the handler to publish records to (in the writer thread)
+	 * @param capacity the ring buffer capacity (rounded up to a power of two)
+	 * @param policy the policy to apply when the ring buffer is full
+	 * @throws NullPointerException if target is null
+	 * @throws IllegalArgumentException if capacity is not positive
+	 */
+	public AsyncHandler(Handler target, int capacity, OverflowPolicy policy)
+	    throws NullPointerException, IllegalArgumentException
+	{
+		if (target == null)
+		{
+			throw new NullPointerException("null target handler");
+		}
+		if (capacity <= 0)
+		{
+			throw new IllegalArgumentException("invalid capacity " + capacity);
+		}
+		this.target = target;
+		int size = Integer.highestOneBit(Math.min(capacity, 1 << 30));
+		if (size < capacity)
+		{
+			size <<= 1;
+		}
+		slots = new AtomicReferenceArray<LogRecord>(size);
+		mask = size - 1;
+		this.policy = policy;
+		tail = new AtomicLong(0L);
+		head = 0L;
+		written = new LongAdder();
+		dropped = new LongAdder();
+		idle = false;
+		closed = false;
+		setLevel(Level.ALL);
+		writer = new Thread(this::drain, "AsyncHandler writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Constructor with {@link #DEFAULT_CAPACITY} and
+	 * {@link OverflowPolicy#DROP} policy
+	 * @param target the handler to publish records to (in the writer thread)
+	 */
+	public AsyncHandler(Handler target)
+	{
+		this(target, DEFAULT_CAPACITY, OverflowPolicy.DROP);
+	}
+
+	/**
+	 * Queues a record to be published by the writer thread
+	 * @param record the record to publish
+	 */
+	@Override
+	public void publish(LogRecord record)
+	{
+		if (closed || !isLoggable(record))
+		{
+			return;
+		}
+		/*
+		 * Caller is inferred lazily from the current stack so it has to be
+		 * inferred before the record is handed to the writer thread
+		 */
+		record.getSourceClassName();
+
+		long sequence;
+		while (true)
+		{
+			sequence = tail.get();
+			if ((sequence - head) >= slots.length())
+			{
+				if ((policy == OverflowPolicy.DROP) || closed)
+				{
+					dropped.increment();
+					return;
+				}
+				wakeUp();
+				Thread.onSpinWait();
+				LockSupport.parkNanos(this, 50_000L);
+			}
+			else if (tail.compareAndSet(sequence, sequence + 1))
+			{
+				break;
+			}
+		}
+		slots.set((int) sequence & mask, record);
+		if (idle)
+		{
+			wakeUp();
+		}
+	}
+
+	/**
+	 * Waits (for at most one second) until all records queued before this call
+	 * have been written, then flushes target handler
+	 */
+	@Override
+	public void flush()
+	{
+		long until = tail.get();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+		while ((head < until) && writer.isAlive() && (System.nanoTime() < deadline))
+		{
+			wakeUp();
+			LockSupport.parkNanos(this, 100_000L);
+		}
+		target.flush();
+	}
+
+	/**
+	 * Writes all remaining records then closes the target handler
+	 * @throws SecurityException if target handler can't be closed
+	 */
+	@Override
+	public void close() throws SecurityException
+	{
+		if (closed)
+		{
+			return;
+		}
+		closed = true;
+		wakeUp();
+		try
+		{
+			writer.join(TimeUnit.SECONDS.toMillis(5));
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		target.close();
+	}
+
+	/**
+	 * Number of records currently queued (waiting to be written)
+	 * @return the number of queued records
+	 */
+	public long getQueued()
+	{
+		return Math.max(0L, tail.get() - head);
+	}
+
+	/**
+	 * Number of records written to the target handler so far
+	 * @return the number of written records
+	 */
+	public long getWritten()
+	{
+		return written.sum();
+	}
+
+	/**
+	 * Number of records dropped so far because the ring buffer was full
+	 * @return the number of dropped records
+	 */
+	public long getDropped()
+	{
+		return dropped.sum();
+	}
+
+	/**
+	 * Ring buffer capacity
+	 * @return the maximum number of queued records
+	 */
+	public int getCapacity()
+	{
+		return slots.length();
+	}
+
+	/**
+	 * Overflow policy accessor
+	 * @return the policy applied when the ring buffer is full
+	 */
+	public OverflowPolicy getPolicy()
+	{
+		return policy;
+	}
+
+	/**
+	 * Target handler accessor
+	 * @return the handler records are published to
+	 */
+	public Handler getTarget()
+	{
+		return target;
+	}
+
+	/**
+	 * Unparks the writer thread
+	 */
+	private void wakeUp()
+	{
+		idle = false;
+		LockSupport.unpark(writer);
+	}
+
+	/**
+	 * Writer thread loop: writes batches of queued records until this
+	 * handler is closed and all queued records have been written
+	 */
+	private void drain()
+	{
+		while (true)
+		{
+			int count = writeBatch();
+			if (count > 0)
+			{
+				try
+				{
+					target.flush();
+				}
+				catch (RuntimeException e)
+				{
+					reportError(null, e, ErrorManager.FLUSH_FAILURE);
+				}
+			}
+			else if (closed && (head == tail.get()))
+			{
+				return;
+			}
+			else if (count == 0)
+			{
+				idle = true;
+				/*
+				 * Checks again after having set idle so a record queued in
+				 * between is not left waiting for the idle delay
+				 */
+				if ((head == tail.get()) && !closed)
+				{
+					LockSupport.parkNanos(this, IDLE_NANOS);
+				}
+				idle = false;
+			}
+		}
+	}
+
+	/**
+	 * Writes at most {@link #BATCH_SIZE} queued records to target handler
+	 * @return the number of written records
+	 */
+	private int writeBatch()
+	{
+		int count = 0;
+		long sequence = head;
+		while (count < BATCH_SIZE)
+		{
+			int index = (int) sequence & mask;
+			LogRecord record = slots.get(index);
+			if (record == null)
+			{
+				break;	// empty or claimed but not yet set by producer
+			}
+			slots.lazySet(index, null);
+			sequence++;
+			head = sequence;
+			try
+			{
+				target.publish(record);
+				written.increment();
+			}
+			catch (RuntimeException e)
+			{
+				reportError(null, e, ErrorManager.WRITE_FAILURE);
+			}
+			count++;
+		}
+		return count;
+	}
+}
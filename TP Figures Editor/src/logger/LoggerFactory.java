@@ -1,6 +1,7 @@
 package logger;
 
 import java.io.IOException;
+import java.util.Locale;
 import java.util.logging.FileHandler;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -13,6 +14,112 @@ import java.util.logging.SimpleFormatter;
  */
 public class LoggerFactory
 {
+	/**
+	 * Indicates if file handlers are wrapped in {@link AsyncHandler}s so that
+	 * logging threads never wait for disk I/O (unless
+	 * {@code -Dlogger.async=false} is set)
+	 */
+	private static final boolean asyncFiles =
+	    Boolean.parseBoolean(System.getProperty("logger.async", "true"));
+
+	/**
+	 * Ring buffer capacity of {@link AsyncHandler}s (can be set with
+	 * {@code -Dlogger.async.capacity=<n>})
+	 */
+	private static final int asyncCapacity = readAsyncCapacity();
+
+	/**
+	 * Overflow policy of {@link AsyncHandler}s (can be set with
+	 * {@code -Dlogger.async.policy=DROP|BLOCK})
+	 */
+	private static final AsyncHandler.OverflowPolicy asyncPolicy = readAsyncPolicy();
+
+	/**
+	 * Loggers of client classes, resolved once per class (or null for classes
+	 * without canonical name) so that frequently instantiated clients (such as
+	 * figures which are cloned in each {@link history.Memento}) don't look up
+	 * their logger in the {@link java.util.logging.LogManager} (which requires
+	 * a global lock) each time.
+	 */
+	private static final ClassValue<Logger> classLoggers = new ClassValue<Logger>()
+	{
+		@Override
+		protected Logger computeValue(Class<?> type)
+		{
+			String canonicalName = type.getCanonicalName();
+			return (canonicalName != null ? Logger.getLogger(canonicalName) : null);
+		}
+	};
+
+	/**
+	 * Reads the {@code logger.async.capacity} property.
+	 * Invalid values are reported and replaced by the default capacity so
+	 * that a mistyped property never prevents this class from initializing.
+	 * @return the capacity set by the property if it is a positive integer,
+	 * {@link AsyncHandler#DEFAULT_CAPACITY} otherwise
+	 */
+	private static int readAsyncCapacity()
+	{
+		String value = System.getProperty("logger.async.capacity");
+		if (value == null)
+		{
+			return AsyncHandler.DEFAULT_CAPACITY;
+		}
+		try
+		{
+			int capacity = Integer.parseInt(value.trim());
+			if (capacity > 0)
+			{
+				return capacity;
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			// reported below
+		}
+		System.err.println("LoggerFactory: invalid logger.async.capacity " + value
+		    + ", using " + AsyncHandler.DEFAULT_CAPACITY);
+		return AsyncHandler.DEFAULT_CAPACITY;
+	}
+
+	/**
+	 * Reads the {@code logger.async.policy} property.
+	 * Invalid values are reported and replaced by
+	 * {@link AsyncHandler.OverflowPolicy#DROP} so that a mistyped property
+	 * never prevents this class from initializing.
+	 * @return the policy set by the property if it names a policy (ignoring
+	 * case), {@link AsyncHandler.OverflowPolicy#DROP} otherwise
+	 */
+	private static AsyncHandler.OverflowPolicy readAsyncPolicy()
+	{
+		String value = System.getProperty("logger.async.policy");
+		if (value == null)
+		{
+			return AsyncHandler.OverflowPolicy.DROP;
+		}
+		try
+		{
+			return AsyncHandler.OverflowPolicy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.err.println("LoggerFactory: invalid logger.async.policy " + value
+			    + ", using " + AsyncHandler.OverflowPolicy.DROP);
+			return AsyncHandler.OverflowPolicy.DROP;
+		}
+	}
+
+	/**
+	 * Logger of a client class (resolved only once per class)
+	 * @param client the logger's client class, used to provide name to logger
+	 * @return the logger named after the client class canonical name or null
+	 * if client class has no canonical name
+	 */
+	public static <E> Logger getClassLogger(Class<E> client)
+	{
+		return classLoggers.get(client);
+	}
+
 	/**
 	 * Factory method for a console logger
 	 * @param client the logger's client class, used to provide name to logger
@@ -44,6 +151,10 @@ public class LoggerFactory
 	 * @param level min log level (e.g. FINE, INFO, WARNING, SEVERE)
 	 * @return a child logger to the parent logger
 	 * @throws IOException if the getLogger operation fails
+	 * @implNote The client's logger is obtained from {@link #classLoggers} and
+	 * is only reparented (and its level only changed) if its parent (or
+	 * level) differs from the requested one, which only happens the first
+	 * time each client class requests its logger.
 	 */
 	public static <E> Logger getParentLogger(Class<E> client,
 	                                         Logger parentLogger,
@@ -53,12 +164,25 @@ public class LoggerFactory
 		Logger parent;
 		if (parentLogger == null)
 		{
-			parent  = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+			parent  = Logger.getGlobal();
 		}
 		else
 		{
 			parent = parentLogger;
 		}
+		logger = (client != null ? classLoggers.get(client) : null);
+		if (logger != null)
+		{
+			if (logger.getParent() != parent)
+			{
+				logger.setParent(parent);
+			}
+			if (logger.getLevel() != level)
+			{
+				logger.setLevel(level);
+			}
+			return logger;
+		}
 		try
 		{
 			logger = getLogger(client, true, null, false, parent, level);
@@ -101,6 +225,8 @@ public class LoggerFactory
 	 * @param level min log level (e.g. FINE, INFO, WARNING, SEVERE)
 	 * @return a general logger
 	 * @throws IOException if the file could not be opened
+	 * @implNote File handlers are wrapped in an {@link AsyncHandler} (unless
+	 * {@code logger.async} system property is false)
 	 */
 	public static <E> Logger getLogger(Class<E> client,
 	                                   boolean verbose,
@@ -158,6 +284,13 @@ public class LoggerFactory
 							handler.setFormatter(new SimpleFormatter());
 						}
 
+						if (asyncFiles)
+						{
+							handler = new AsyncHandler(handler,
+							                           asyncCapacity,
+							                           asyncPolicy);
+						}
+
 						// Adds filehandler to logger
 						logger.addHandler(handler);
 						logger.info("log file created");
@@ -0,0 +1,241 @@
+package logger;
+
+import java.lang.StackWalker.StackFrame;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Rate limiting wrapper around a {@link Logger} for messages which may be
+ * issued on hot paths (such as mouse events handlers or frequently called
+ * getters).
+ * Messages are identified by a key (a constant String such as the message
+ * itself or its template):
+ * <ul>
+ * <li>The first occurrence of a key is logged, then all occurrences of the
+ * same key are suppressed (and counted) during {@link #window}.</li>
+ * <li>Every {@link #sampling}th suppressed occurrence is nevertheless logged
+ * (sampled) with the number of occurrences so far.</li>
+ * <li>The first occurrence after the window has elapsed is logged with a
+ * summary of the occurrences suppressed during the previous window.</li>
+ * </ul>
+ * Messages are provided by {@link Supplier}s which are only called when a
+ * message is actually logged, so suppressed messages cost no String building.
+ * Logged messages keep the class and method which called this logger as
+ * their source (rather than this class), and the stack is only walked when
+ * a message is actually logged.
+ */
+public class ThrottledLogger
+{
+	/**
+	 * Default deduplication window (in ms)
+	 */
+	public static final long DEFAULT_WINDOW = 5000L;
+
+	/**
+	 * Default sampling rate of suppressed occurrences
+	 */
+	public static final int DEFAULT_SAMPLING = 1000;
+
+	/**
+	 * Stack walker finding callers of this logger
+	 */
+	private static final StackWalker WALKER = StackWalker.getInstance();
+
+	/**
+	 * The logger messages are logged to
+	 */
+	private final Logger logger;
+
+	/**
+	 * Deduplication window (in ns)
+	 */
+	private final long window;
+
+	/**
+	 * Sampling rate: every sampling-th suppressed occurrence is logged anyway
+	 * (0 to never log suppressed occurrences)
+	 */
+	private final int sampling;
+
+	/**
+	 * Occurrences of messages by key
+	 */
+	private final ConcurrentHashMap<String, Occurrences> occurrences;
+
+	/**
+	 * Occurrences of a message key
+	 */
+	private static class Occurrences
+	{
+		/**
+		 * Start of the current window (in ns)
+		 */
+		long windowStart;
+
+		/**
+		 * Number of occurrences in the current window (including the logged
+		 * first one)
+		 */
+		long count;
+	}
+
+	/**
+	 * Constructor
+	 * @param logger the logger to log messages to
+	 * @param window the deduplication window
+	 * @param unit the unit of window
+	 * @param sampling the sampling rate of suppressed occurrences (0 to never
+	 * log suppressed occurrences during a window)
+	 */
+	public ThrottledLogger(Logger logger, long window, TimeUnit unit, int sampling)
+	{
+		this.logger = logger;
+		this.window = unit.toNanos(window);
+		this.sampling = Math.max(0, sampling);
+		occurrences = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Constructor with {@link #DEFAULT_WINDOW} and {@link #DEFAULT_SAMPLING}
+	 * @param logger the logger to log messages to
+	 */
+	public ThrottledLogger(Logger logger)
+	{
+		this(logger, DEFAULT_WINDOW, TimeUnit.MILLISECONDS, DEFAULT_SAMPLING);
+	}
+
+	/**
+	 * Logs a message unless it is suppressed
+	 * @param level the level of the message
+	 * @param key the constant key identifying this message
+	 * @param message the supplier of the message (only called if the message
+	 * is logged)
+	 * @return true if the message has been logged
+	 */
+	public boolean log(Level level, String key, Supplier<String> message)
+	{
+		if ((logger == null) || !logger.isLoggable(level))
+		{
+			return false;
+		}
+		long now = System.nanoTime();
+		Occurrences entry = occurrences.computeIfAbsent(key, k -> new Occurrences());
+		long count;
+		long previous = 0L;
+		long elapsed = 0L;
+		synchronized (entry)
+		{
+			if ((entry.count == 0L) || ((now - entry.windowStart) >= window))
+			{
+				previous = entry.count - 1L;	// suppressed in previous window
+				entry.windowStart = now;
+				entry.count = 1L;
+				count = 1L;
+			}
+			else
+			{
+				count = ++entry.count;
+				if ((sampling == 0) || (((count - 1L) % sampling) != 0L))
+				{
+					return false;
+				}
+				elapsed = now - entry.windowStart;
+			}
+		}
+		String text = message.get();
+		if (count > 1L)
+		{
+			text += " [sampled: " + count + " occurrences in "
+			    + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms]";
+		}
+		else if (previous > 0L)
+		{
+			text += " [" + previous + " similar messages suppressed]";
+		}
+		Optional<StackFrame> caller = WALKER.walk(frames -> frames
+		    .dropWhile(frame -> frame.getClassName().equals(ThrottledLogger.class.getName()))
+		    .findFirst());
+		logger.logp(level,
+		            caller.map(StackFrame::getClassName).orElse(null),
+		            caller.map(StackFrame::getMethodName).orElse(null),
+		            text);
+		return true;
+	}
+
+	/**
+	 * Logs a constant message unless it is suppressed
+	 * @param level the level of the message
+	 * @param message the constant message (also used as key)
+	 * @return true if the message has been logged
+	 */
+	public boolean log(Level level, String message)
+	{
+		return log(level, message, () -> message);
+	}
+
+	/**
+	 * Logs a warning message unless it is suppressed
+	 * @param key the constant key identifying this message
+	 * @param message the supplier of the message (only called if the message
+	 * is logged)
+	 * @return true if the message has been logged
+	 */
+	public boolean warning(String key, Supplier<String> message)
+	{
+		return log(Level.WARNING, key, message);
+	}
+
+	/**
+	 * Logs a constant warning message unless it is suppressed
+	 * @param message the constant message (also used as key)
+	 * @return true if the message has been logged
+	 */
+	public boolean warning(String message)
+	{
+		return log(Level.WARNING, message);
+	}
+
+	/**
+	 * Logs an info message unless it is suppressed
+	 * @param key the constant key identifying this message
+	 * @param message the supplier of the message (only called if the message
+	 * is logged)
+	 * @return true if the message has been logged
+	 */
+	public boolean info(String key, Supplier<String> message)
+	{
+		return log(Level.INFO, key, message);
+	}
+
+	/**
+	 * Number of occurrences of a message key in the current window
+	 * @param key the key of the message
+	 * @return the number of occurrences of this key in the current window
+	 * (including the logged first one)
+	 */
+	public long getCount(String key)
+	{
+		Occurrences entry = occurrences.get(key);
+		if (entry == null)
+		{
+			return 0L;
+		}
+		synchronized (entry)
+		{
+			return entry.count;
+		}
+	}
+
+	/**
+	 * Logger accessor
+	 * @return the logger messages are logged to
+	 */
+	public Logger getLogger()
+	{
+		return logger;
+	}
+}
@@ -1,6 +1,7 @@
 /**
  * Simple package containing a Logger factory in order to simply create several
- * Loggers using either console or files
+ * Loggers using either console or files (written asynchronously by an
+ * {@link logger.AsyncHandler})
  * @author davidroussel
  */
 package logger;
\ No newline at end of file
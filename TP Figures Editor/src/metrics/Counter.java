@@ -0,0 +1,79 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter of occurrences (such as rejected figures).
+ * Counters are based on {@link LongAdder}s so they can be incremented
+ * concurrently with low contention.
+ * Counters should be obtained from {@link MetricsRegistry#counter(String)}
+ */
+public class Counter implements Metric, CounterMBean
+{
+	/**
+	 * Counter name
+	 */
+	private final String name;
+
+	/**
+	 * Count
+	 */
+	private final LongAdder count;
+
+	/**
+	 * Constructor
+	 * @param name the counter name
+	 */
+	Counter(String name)
+	{
+		this.name = name;
+		count = new LongAdder();
+	}
+
+	/**
+	 * Increments this counter
+	 */
+	public void increment()
+	{
+		count.increment();
+	}
+
+	/**
+	 * Adds a value to this counter
+	 * @param value the value to add
+	 */
+	public void add(long value)
+	{
+		count.add(value);
+	}
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+	@Override
+	public long getCount()
+	{
+		return count.sum();
+	}
+
+	@Override
+	public void reset()
+	{
+		count.reset();
+	}
+
+	@Override
+	public String summary()
+	{
+		return "count=" + getCount();
+	}
+
+	@Override
+	public String toString()
+	{
+		return name + " " + summary();
+	}
+}
@@ -0,0 +1,24 @@
+package metrics;
+
+/**
+ * JMX management interface of {@link Counter}s
+ */
+public interface CounterMBean
+{
+	/**
+	 * Metric name
+	 * @return the name of the counter
+	 */
+	public abstract String getName();
+
+	/**
+	 * Current count
+	 * @return the current count
+	 */
+	public abstract long getCount();
+
+	/**
+	 * Resets the count to 0
+	 */
+	public abstract void reset();
+}
@@ -0,0 +1,70 @@
+package metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Instantaneous value (such as a cache size) sampled from a
+ * {@link DoubleSupplier} whenever it is read, so gauges cost nothing until
+ * they are read.
+ * Gauges should be obtained from
+ * {@link MetricsRegistry#gauge(String, DoubleSupplier)}
+ */
+public class Gauge implements Metric, GaugeMBean
+{
+	/**
+	 * Gauge name
+	 */
+	private final String name;
+
+	/**
+	 * Supplier of the gauge's value
+	 */
+	private final DoubleSupplier supplier;
+
+	/**
+	 * Constructor
+	 * @param name the gauge name
+	 * @param supplier the supplier of the gauge's value
+	 */
+	Gauge(String name, DoubleSupplier supplier)
+	{
+		this.name = name;
+		this.supplier = supplier;
+	}
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+	@Override
+	public double getValue()
+	{
+		try
+		{
+			return supplier.getAsDouble();
+		}
+		catch (RuntimeException e)
+		{
+			return Double.NaN;
+		}
+	}
+
+	@Override
+	public String summary()
+	{
+		double value = getValue();
+		if (value == Math.rint(value) && !Double.isInfinite(value))
+		{
+			return "value=" + (long) value;
+		}
+		return String.format("value=%.3f", value);
+	}
+
+	@Override
+	public String toString()
+	{
+		return name + " " + summary();
+	}
+}
@@ -0,0 +1,19 @@
+package metrics;
+
+/**
+ * JMX management interface of {@link Gauge}s
+ */
+public interface GaugeMBean
+{
+	/**
+	 * Metric name
+	 * @return the name of the gauge
+	 */
+	public abstract String getName();
+
+	/**
+	 * Current value
+	 * @return the current value of the gauge
+	 */
+	public abstract double getValue();
+}
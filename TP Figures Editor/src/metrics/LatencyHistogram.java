@@ -0,0 +1,370 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations (in ns) with HDR-like log-linear buckets:
+ * <ul>
+ * <li>Durations below {@link #SUB_BUCKETS} ns have their own bucket</li>
+ * <li>Then each power of two range is divided into {@link #SUB_BUCKETS}
+ * linear sub-buckets so percentiles are obtained with a relative error
+ * below 1 / {@link #SUB_BUCKETS} (about 3%) over the whole range</li>
+ * <li>Durations above {@link #MAX_VALUE} (about 18 min) are recorded in the
+ * last bucket</li>
+ * </ul>
+ * Recording a duration is lock free (a bucket index computation and a few
+ * atomic increments) and allocates nothing, so histograms can be used around
+ * operations performed on the JavaFX application thread.
+ * Typical use:
+ * <pre>{@code
+ * long start = System.nanoTime();
+ * try
+ * {
+ * 	// operation to measure
+ * }
+ * finally
+ * {
+ * 	histogram.recordSince(start);
+ * }
+ * }</pre>
+ * Histograms should be obtained from
+ * {@link MetricsRegistry#histogram(String)}
+ */
+public class LatencyHistogram implements Metric, LatencyHistogramMBean
+{
+	/**
+	 * Number of bits of sub-buckets index
+	 */
+	private static final int SUB_BUCKET_BITS = 5;
+
+	/**
+	 * Number of linear sub-buckets per power of two
+	 */
+	public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Highest power of two of distinct buckets
+	 */
+	private static final int MAX_EXPONENT = 40;
+
+	/**
+	 * Maximum duration (in ns) having a distinct bucket
+	 */
+	public static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1L;
+
+	/**
+	 * Number of buckets
+	 */
+	private static final int BUCKETS = bucketIndex(MAX_VALUE) + 1;
+
+	/**
+	 * Histogram name
+	 */
+	private final String name;
+
+	/**
+	 * Count of durations per bucket
+	 */
+	private final AtomicLongArray buckets;
+
+	/**
+	 * Number of recorded durations
+	 */
+	private final LongAdder count;
+
+	/**
+	 * Sum of recorded durations (in ns)
+	 */
+	private final LongAdder sum;
+
+	/**
+	 * Minimum recorded duration (in ns)
+	 */
+	private final LongAccumulator min;
+
+	/**
+	 * Maximum recorded duration (in ns)
+	 */
+	private final LongAccumulator max;
+
+	/**
+	 * Last recorded duration (in ns)
+	 */
+	private volatile long last;
+
+	/**
+	 * Time of the last recording (as returned by {@link System#nanoTime()})
+	 * or 0 if nothing has been recorded
+	 */
+	private volatile long lastTime;
+
+	/**
+	 * Constructor
+	 * @param name the histogram name
+	 */
+	LatencyHistogram(String name)
+	{
+		this.name = name;
+		buckets = new AtomicLongArray(BUCKETS);
+		count = new LongAdder();
+		sum = new LongAdder();
+		min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+		max = new LongAccumulator(Math::max, 0L);
+		last = 0L;
+		lastTime = 0L;
+	}
+
+	/**
+	 * Records a duration
+	 * @param nanos the duration to record (in ns). Negative durations are
+	 * recorded as 0.
+	 */
+	public void record(long nanos)
+	{
+		long value = Math.max(0L, nanos);
+		buckets.incrementAndGet(bucketIndex(Math.min(value, MAX_VALUE)));
+		count.increment();
+		sum.add(value);
+		min.accumulate(value);
+		max.accumulate(value);
+		last = value;
+		lastTime = System.nanoTime();
+	}
+
+	/**
+	 * Records the duration elapsed since start
+	 * @param startNanos the start time as returned by {@link System#nanoTime()}
+	 * @return the recorded duration (in ns)
+	 */
+	public long recordSince(long startNanos)
+	{
+		long elapsed = System.nanoTime() - startNanos;
+		record(elapsed);
+		return elapsed;
+	}
+
+	/**
+	 * Records the duration of an operation
+	 * @param operation the operation to measure
+	 */
+	public void time(Runnable operation)
+	{
+		long start = System.nanoTime();
+		try
+		{
+			operation.run();
+		}
+		finally
+		{
+			recordSince(start);
+		}
+	}
+
+	/**
+	 * Value at a given percentile
+	 * @param percentile the percentile (between 0 and 100)
+	 * @return the (highest equivalent) duration (in ns) below which the
+	 * requested percentage of recorded durations fall, or 0 if nothing has
+	 * been recorded
+	 */
+	public long getValueAtPercentile(double percentile)
+	{
+		long[] counts = new long[BUCKETS];
+		long total = 0L;
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if (total == 0L)
+		{
+			return 0L;
+		}
+		double ratio = Math.min(Math.max(percentile, 0.0), 100.0) / 100.0;
+		long rank = Math.max(1L, (long) Math.ceil(ratio * total));
+		long cumulated = 0L;
+		int index = 0;
+		for (; index < BUCKETS; index++)
+		{
+			cumulated += counts[index];
+			if (cumulated >= rank)
+			{
+				break;
+			}
+		}
+		long highest = (index + 1 < BUCKETS ? lowestValue(index + 1) - 1L : MAX_VALUE);
+		return Math.min(highest, max.get());
+	}
+
+	/**
+	 * Number of recorded durations
+	 * @return the number of recorded durations
+	 */
+	@Override
+	public long getCount()
+	{
+		return count.sum();
+	}
+
+	/**
+	 * Last recorded duration
+	 * @return the last recorded duration (in ns)
+	 */
+	public long getLastNanos()
+	{
+		return last;
+	}
+
+	/**
+	 * Time of the last recording
+	 * @return the time of the last recording (as returned by
+	 * {@link System#nanoTime()}) or 0 if nothing has been recorded
+	 */
+	public long getLastTime()
+	{
+		return lastTime;
+	}
+
+	/**
+	 * Sum of recorded durations
+	 * @return the sum of recorded durations (in ns)
+	 */
+	public long getTotalNanos()
+	{
+		return sum.sum();
+	}
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+	@Override
+	public double getMin()
+	{
+		return (getCount() > 0L ? toMicros(min.get()) : 0.0);
+	}
+
+	@Override
+	public double getMax()
+	{
+		return toMicros(max.get());
+	}
+
+	@Override
+	public double getMean()
+	{
+		long n = getCount();
+		return (n > 0L ? toMicros(sum.sum()) / n : 0.0);
+	}
+
+	@Override
+	public double getP50()
+	{
+		return toMicros(getValueAtPercentile(50.0));
+	}
+
+	@Override
+	public double getP90()
+	{
+		return toMicros(getValueAtPercentile(90.0));
+	}
+
+	@Override
+	public double getP99()
+	{
+		return toMicros(getValueAtPercentile(99.0));
+	}
+
+	@Override
+	public double getP999()
+	{
+		return toMicros(getValueAtPercentile(99.9));
+	}
+
+	/**
+	 * Clears all recorded durations.
+	 * @implNote durations recorded concurrently with a reset might be
+	 * partially cleared
+	 */
+	@Override
+	public void reset()
+	{
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			buckets.set(i, 0L);
+		}
+		count.reset();
+		sum.reset();
+		min.reset();
+		max.reset();
+		last = 0L;
+		lastTime = 0L;
+	}
+
+	@Override
+	public String summary()
+	{
+		return String.format("count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+		                     getCount(),
+		                     getMean(),
+		                     getP50(),
+		                     getP90(),
+		                     getP99(),
+		                     getP999(),
+		                     getMax());
+	}
+
+	@Override
+	public String toString()
+	{
+		return name + " " + summary();
+	}
+
+	/**
+	 * Index of the bucket containing a value
+	 * @param value the value (between 0 and {@link #MAX_VALUE})
+	 * @return the index of the bucket containing this value
+	 */
+	private static int bucketIndex(long value)
+	{
+		if (value < SUB_BUCKETS)
+		{
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+		return ((shift + 1) << SUB_BUCKET_BITS) + subBucket;
+	}
+
+	/**
+	 * Lowest value of a bucket
+	 * @param index the bucket index
+	 * @return the lowest value recorded in this bucket
+	 */
+	private static long lowestValue(int index)
+	{
+		if (index < SUB_BUCKETS)
+		{
+			return index;
+		}
+		int shift = (index >>> SUB_BUCKET_BITS) - 1;
+		long subBucket = index & (SUB_BUCKETS - 1);
+		return (SUB_BUCKETS + subBucket) << shift;
+	}
+
+	/**
+	 * Converts nanoseconds to microseconds
+	 * @param nanos the duration in ns
+	 * @return the duration in µs
+	 */
+	private static double toMicros(long nanos)
+	{
+		return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+	}
+}
@@ -0,0 +1,68 @@
+package metrics;
+
+/**
+ * JMX management interface of {@link LatencyHistogram}s.
+ * All durations are expressed in microseconds
+ */
+public interface LatencyHistogramMBean
+{
+	/**
+	 * Metric name
+	 * @return the name of the histogram
+	 */
+	public abstract String getName();
+
+	/**
+	 * Number of recorded durations
+	 * @return the number of recorded durations
+	 */
+	public abstract long getCount();
+
+	/**
+	 * Minimum recorded duration
+	 * @return the minimum recorded duration (in µs) or 0 if nothing has been
+	 * recorded
+	 */
+	public abstract double getMin();
+
+	/**
+	 * Maximum recorded duration
+	 * @return the maximum recorded duration (in µs)
+	 */
+	public abstract double getMax();
+
+	/**
+	 * Mean of recorded durations
+	 * @return the mean of recorded durations (in µs)
+	 */
+	public abstract double getMean();
+
+	/**
+	 * Median of recorded durations
+	 * @return the 50th percentile of recorded durations (in µs)
+	 */
+	public abstract double getP50();
+
+	/**
+	 * 90th percentile of recorded durations
+	 * @return the 90th percentile of recorded durations (in µs)
+	 */
+	public abstract double getP90();
+
+	/**
+	 * 99th percentile of recorded durations
+	 * @return the 99th percentile of recorded durations (in µs)
+	 */
+	public abstract double getP99();
+
+	/**
+	 * 99.9th percentile of recorded durations
+	 * @return the 99.9th percentile of recorded durations (in µs)
+	 */
+	public abstract double getP999();
+
+	/**
+	 * Clears all recorded durations
+	 */
+	public abstract void reset();
+}
@@ -0,0 +1,564 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.Buffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import javafx.scene.Scene;
+import javafx.stage.Window;
+
+/**
+ * Estimation of the heap retained by object graphs, obtained by walking the
+ * graphs reachable from roots (through instance fields and array elements)
+ * and summing the estimated shallow size of each reached object.
+ * Each object is counted once per footprint, so that measuring N similar
+ * roots in the same footprint and dividing by N amortizes objects they
+ * share (such as default values or empty collections).
+ * Walks stop at objects which are shared with the rest of the application
+ * rather than retained by the measured roots:
+ * <ul>
+ * <li>classes, class loaders, modules, threads, loggers and handlers,
+ * enum constants, scenes and windows (always)</li>
+ * <li>objects explicitly excluded with {@link #exclude(Object)} or
+ * {@link #excludeReachable(Object)} (e.g. flyweight caches and their
+ * elements) or matching the exclusion predicate provided to
+ * {@link #MemoryFootprint(Predicate)} (e.g. nodes outside of a drawing)</li>
+ * </ul>
+ * Objects whose fields can't be read by reflection (classes of modules not
+ * opened to this module, such as {@code java.util} collections) are
+ * estimated from their public API when they are collections, maps, strings
+ * or buffers (and the referents of weak or soft references are not walked
+ * since they are not retained), and only counted for their shallow size
+ * otherwise (see {@link #getOpaqueObjects()}). Running with
+ * {@code --add-opens java.base/java.util=ALL-UNNAMED} (and other packages as
+ * needed) makes estimations more precise.
+ * @implNote Shallow sizes are computed from the fields declared by classes
+ * (object header, fields sizes and alignment according to the compressed
+ * oops settings of the running VM) without field packing: estimations might
+ * slightly exceed actual sizes.
+ */
+public class MemoryFootprint
+{
+	/**
+	 * Size of a reference (in bytes)
+	 */
+	public static final int REFERENCE_SIZE;
+
+	/**
+	 * Size of an object header (in bytes)
+	 */
+	public static final int OBJECT_HEADER;
+
+	/**
+	 * Size of an array header including its length (in bytes)
+	 */
+	public static final int ARRAY_HEADER;
+
+	/**
+	 * Alignment of objects (in bytes)
+	 */
+	public static final int ALIGNMENT;
+
+	static
+	{
+		boolean compressedOops = true;
+		boolean compressedClasses = true;
+		int alignment = 8;
+		try
+		{
+			HotSpotDiagnosticMXBean hotspot =
+			    ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+			compressedOops = Boolean.parseBoolean(hotspot.getVMOption("UseCompressedOops").getValue());
+			compressedClasses = Boolean.parseBoolean(hotspot.getVMOption("UseCompressedClassPointers").getValue());
+			alignment = Integer.parseInt(hotspot.getVMOption("ObjectAlignmentInBytes").getValue());
+		}
+		catch (RuntimeException e)
+		{
+			// Not a HotSpot VM: keeps 64 bits VM defaults
+		}
+		REFERENCE_SIZE = (compressedOops ? 4 : 8);
+		OBJECT_HEADER = (compressedClasses ? 12 : 16);
+		ARRAY_HEADER = OBJECT_HEADER + 4;
+		ALIGNMENT = alignment;
+	}
+
+	/**
+	 * Estimated shallow size of an entry of a hash map (hash, key, value and
+	 * next entry)
+	 */
+	private static final long MAP_ENTRY_SIZE = align(OBJECT_HEADER + 4 + (3L * REFERENCE_SIZE));
+
+	/**
+	 * Layout of instances of a class
+	 */
+	private static class Layout
+	{
+		/**
+		 * Shallow size of instances (in bytes)
+		 */
+		final long size;
+
+		/**
+		 * Readable reference fields of instances (from all classes of the
+		 * hierarchy)
+		 */
+		final Field[] references;
+
+		/**
+		 * Indicates if some reference fields of instances can't be read
+		 */
+		final boolean opaque;
+
+		/**
+		 * Constructor
+		 * @param type the class of instances
+		 */
+		Layout(Class<?> type)
+		{
+			long fieldsSize = 0L;
+			List<Field> readable = new ArrayList<>();
+			boolean unreadable = false;
+			for (Class<?> c = type; c != null; c = c.getSuperclass())
+			{
+				for (Field field : c.getDeclaredFields())
+				{
+					if (Modifier.isStatic(field.getModifiers()))
+					{
+						continue;
+					}
+					Class<?> fieldType = field.getType();
+					fieldsSize += sizeOf(fieldType);
+					if (!fieldType.isPrimitive())
+					{
+						if (field.trySetAccessible())
+						{
+							readable.add(field);
+						}
+						else
+						{
+							unreadable = true;
+						}
+					}
+				}
+			}
+			size = align(OBJECT_HEADER + fieldsSize);
+			references = readable.toArray(new Field[readable.size()]);
+			opaque = unreadable;
+		}
+	}
+
+	/**
+	 * Layouts of already walked classes
+	 */
+	private static final Map<Class<?>, Layout> layouts = new ConcurrentHashMap<>();
+
+	/**
+	 * Objects already counted or excluded
+	 */
+	private final Set<Object> visited;
+
+	/**
+	 * Predicate indicating objects to exclude from walks (or null)
+	 */
+	private final Predicate<Object> excluded;
+
+	/**
+	 * Number of counted objects and their total size (in bytes) by class
+	 */
+	private final Map<Class<?>, long[]> classes;
+
+	/**
+	 * Total number of counted objects
+	 */
+	private long objects;
+
+	/**
+	 * Total size of counted objects (in bytes)
+	 */
+	private long bytes;
+
+	/**
+	 * Number of counted objects whose references couldn't all be walked
+	 */
+	private long opaqueObjects;
+
+	/**
+	 * Constructor
+	 * @param excluded predicate indicating objects which should neither be
+	 * counted nor walked (in addition to always excluded objects), or null
+	 */
+	public MemoryFootprint(Predicate<Object> excluded)
+	{
+		visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		this.excluded = excluded;
+		classes = new HashMap<>();
+		objects = 0L;
+		bytes = 0L;
+		opaqueObjects = 0L;
+	}
+
+	/**
+	 * Default constructor (only excluding always excluded objects)
+	 */
+	public MemoryFootprint()
+	{
+		this(null);
+	}
+
+	/**
+	 * Excludes an object (but not the objects it references) from this
+	 * footprint
+	 * @param object the object to exclude
+	 */
+	public void exclude(Object object)
+	{
+		if (object != null)
+		{
+			visited.add(object);
+		}
+	}
+
+	/**
+	 * Excludes all objects reachable from a root (which are not already
+	 * counted) from this footprint
+	 * @param root the root of the objects to exclude
+	 */
+	public void excludeReachable(Object root)
+	{
+		walk(root, false);
+	}
+
+	/**
+	 * Adds all objects reachable from a root (which are neither already
+	 * counted nor excluded) to this footprint
+	 * @param root the root of the objects to add
+	 * @return the size of the added objects (in bytes)
+	 */
+	public long add(Object root)
+	{
+		long before = bytes;
+		walk(root, true);
+		return bytes - before;
+	}
+
+	/**
+	 * Total size accessor
+	 * @return the estimated total size of counted objects (in bytes)
+	 */
+	public long getBytes()
+	{
+		return bytes;
+	}
+
+	/**
+	 * Objects count accessor
+	 * @return the number of counted objects
+	 */
+	public long getObjects()
+	{
+		return objects;
+	}
+
+	/**
+	 * Opaque objects count accessor
+	 * @return the number of counted objects whose fields couldn't all be
+	 * walked (and whose referenced objects might be missing from this
+	 * footprint)
+	 */
+	public long getOpaqueObjects()
+	{
+		return opaqueObjects;
+	}
+
+	/**
+	 * Summary of this footprint
+	 * @param topClasses the maximum number of classes to detail
+	 * @return a summary containing total size and number of objects followed
+	 * by the classes of counted objects with the largest total sizes
+	 */
+	public String summary(int topClasses)
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%s in %d objects", formatBytes(bytes), objects));
+		if (opaqueObjects > 0L)
+		{
+			sb.append(String.format(" (%d opaque)", opaqueObjects));
+		}
+		List<Map.Entry<Class<?>, long[]>> entries = new ArrayList<>(classes.entrySet());
+		entries.sort((e1, e2) -> Long.compare(e2.getValue()[1], e1.getValue()[1]));
+		for (int i = 0; (i < topClasses) && (i < entries.size()); i++)
+		{
+			Map.Entry<Class<?>, long[]> entry = entries.get(i);
+			sb.append(String.format("%n  %10s %8d x %s",
+			                        formatBytes(entry.getValue()[1]),
+			                        entry.getValue()[0],
+			                        entry.getKey().getTypeName()));
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString()
+	{
+		return summary(0);
+	}
+
+	/**
+	 * Formats a size in bytes with a binary unit
+	 * @param bytes the size to format
+	 * @return the formatted size (e.g. "12.3 KiB")
+	 */
+	public static String formatBytes(long bytes)
+	{
+		if (bytes < 1024L)
+		{
+			return bytes + " B";
+		}
+		if (bytes < (1024L * 1024L))
+		{
+			return String.format("%.1f KiB", bytes / 1024.0);
+		}
+		return String.format("%.1f MiB", bytes / (1024.0 * 1024.0));
+	}
+
+	/**
+	 * Estimated shallow size of an object (not including the objects it
+	 * references)
+	 * @param object the object to estimate
+	 * @return the estimated shallow size of object (in bytes)
+	 */
+	public static long shallowSize(Object object)
+	{
+		Class<?> type = object.getClass();
+		if (type.isArray())
+		{
+			return align(ARRAY_HEADER + ((long) Array.getLength(object) * sizeOf(type.getComponentType())));
+		}
+		return layouts.computeIfAbsent(type, Layout::new).size;
+	}
+
+	/**
+	 * Indicates if an object is always excluded from footprints because it
+	 * is shared with the rest of the application
+	 * @param object the object to test
+	 * @return true if object is a class, class loader, module, thread,
+	 * logger, handler, enum constant, scene or window
+	 */
+	public static boolean isShared(Object object)
+	{
+		return (object instanceof Class<?>)
+		    || (object instanceof ClassLoader)
+		    || (object instanceof Module)
+		    || (object instanceof Thread)
+		    || (object instanceof ThreadGroup)
+		    || (object instanceof Logger)
+		    || (object instanceof Handler)
+		    || (object instanceof Enum<?>)
+		    || (object instanceof Scene)
+		    || (object instanceof Window);
+	}
+
+	/**
+	 * Walks all objects reachable from a root
+	 * @param root the root to walk from
+	 * @param count true to count walked objects, false to only exclude them
+	 */
+	private void walk(Object root, boolean count)
+	{
+		Deque<Object> pending = new ArrayDeque<>();
+		push(pending, root);
+		while (!pending.isEmpty())
+		{
+			Object object = pending.pop();
+			Class<?> type = object.getClass();
+			long size;
+			boolean opaque = false;
+			if (type.isArray())
+			{
+				size = shallowSize(object);
+				if (!type.getComponentType().isPrimitive())
+				{
+					for (Object element : (Object[]) object)
+					{
+						push(pending, element);
+					}
+				}
+			}
+			else
+			{
+				Layout layout = layouts.computeIfAbsent(type, Layout::new);
+				size = layout.size;
+				for (Field field : layout.references)
+				{
+					try
+					{
+						push(pending, field.get(object));
+					}
+					catch (IllegalAccessException e)
+					{
+						opaque = true;
+					}
+				}
+				if (layout.opaque || opaque)
+				{
+					long estimated = walkOpaque(object, pending);
+					if (estimated < 0L)
+					{
+						opaque = true;
+					}
+					else
+					{
+						size += estimated;
+						opaque = false;
+					}
+				}
+			}
+			if (count)
+			{
+				long[] stats = classes.computeIfAbsent(type, c -> new long[2]);
+				stats[0]++;
+				stats[1] += size;
+				objects++;
+				bytes += size;
+				if (opaque)
+				{
+					opaqueObjects++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Walks an object whose fields can't be read through its public API
+	 * @param object the opaque object
+	 * @param pending the objects to walk (where objects referenced by the
+	 * opaque object are pushed)
+	 * @return the estimated size of the (unwalkable) internal objects of the
+	 * opaque object (such as the array of an {@link ArrayList} or the entries
+	 * of a {@link HashMap}), or -1 if object could not be walked
+	 */
+	private long walkOpaque(Object object, Deque<Object> pending)
+	{
+		try
+		{
+			if (object instanceof Reference<?>)
+			{
+				// Referents of weak and soft references are not retained
+				return 0L;
+			}
+			if (object instanceof EnumSet<?>)
+			{
+				// Elements are stored as bits (in a single long for most sets)
+				return 0L;
+			}
+			if (object instanceof Collection<?>)
+			{
+				Collection<?> collection = (Collection<?>) object;
+				for (Object element : collection)
+				{
+					push(pending, element);
+				}
+				return align(ARRAY_HEADER + ((long) collection.size() * REFERENCE_SIZE));
+			}
+			if (object instanceof Map<?, ?>)
+			{
+				Map<?, ?> map = (Map<?, ?>) object;
+				for (Map.Entry<?, ?> entry : map.entrySet())
+				{
+					push(pending, entry.getKey());
+					push(pending, entry.getValue());
+				}
+				long table = Integer.highestOneBit(Math.max(1, (map.size() * 4) / 3) * 2 - 1);
+				return (map.size() * MAP_ENTRY_SIZE) + align(ARRAY_HEADER + (table * REFERENCE_SIZE));
+			}
+			if (object instanceof String)
+			{
+				return align(ARRAY_HEADER + ((String) object).length());
+			}
+			if ((object instanceof Buffer) && ((Buffer) object).hasArray())
+			{
+				return shallowSize(((Buffer) object).array());
+			}
+		}
+		catch (RuntimeException e)
+		{
+			// Concurrently modified or unsupported views: can't be walked
+		}
+		return -1L;
+	}
+
+	/**
+	 * Pushes an object to walk unless it is null, already visited or
+	 * excluded
+	 * @param pending the objects to walk
+	 * @param object the object to push
+	 */
+	private void push(Deque<Object> pending, Object object)
+	{
+		if ((object == null)
+		    || isShared(object)
+		    || ((excluded != null) && excluded.test(object))
+		    || !visited.add(object))
+		{
+			return;
+		}
+		pending.push(object);
+	}
+
+	/**
+	 * Size of a field or array element of a type
+	 * @param type the type of the field or array element
+	 * @return the size of the field (in bytes)
+	 */
+	private static long sizeOf(Class<?> type)
+	{
+		if (!type.isPrimitive())
+		{
+			return REFERENCE_SIZE;
+		}
+		if ((type == long.class) || (type == double.class))
+		{
+			return 8L;
+		}
+		if ((type == int.class) || (type == float.class))
+		{
+			return 4L;
+		}
+		if ((type == short.class) || (type == char.class))
+		{
+			return 2L;
+		}
+		return 1L;
+	}
+
+	/**
+	 * Aligns a size on {@link #ALIGNMENT}
+	 * @param size the size to align
+	 * @return the smallest multiple of {@link #ALIGNMENT} greater or equal to
+	 * size
+	 */
+	private static long align(long size)
+	{
+		return ((size + ALIGNMENT - 1) / ALIGNMENT) * ALIGNMENT;
+	}
+}
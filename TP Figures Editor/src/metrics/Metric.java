@@ -0,0 +1,19 @@
+package metrics;
+
+/**
+ * Common interface of all metrics held by the {@link MetricsRegistry}
+ */
+public interface Metric
+{
+	/**
+	 * Metric name
+	 * @return the name of this metric (such as "drawing.add")
+	 */
+	public abstract String getName();
+
+	/**
+	 * Short (one line) textual summary of this metric's current value(s)
+	 * @return a one line summary of this metric
+	 */
+	public abstract String summary();
+}
@@ -0,0 +1,227 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registry of named {@link Metric}s.
+ * Metrics are created once per name (typically in static or final fields of
+ * the measured classes) and then shared:
+ * <ul>
+ * <li>{@link #counter(String)} for {@link Counter}s</li>
+ * <li>{@link #gauge(String, DoubleSupplier)} for {@link Gauge}s</li>
+ * <li>{@link #histogram(String)} for {@link LatencyHistogram}s</li>
+ * </ul>
+ * Once {@link #registerMBeans()} has been called, all metrics (already
+ * created or created later) are exported as MBeans of the platform
+ * {@link MBeanServer} (under the {@value #DOMAIN} domain) so they can be
+ * browsed with jconsole or VisualVM.
+ * All metrics can also be dumped to a file with {@link #dump(Path)} (on exit
+ * for instance).
+ */
+public class MetricsRegistry
+{
+	/**
+	 * JMX domain of exported MBeans
+	 */
+	public static final String DOMAIN = "FiguresEditor";
+
+	/**
+	 * Metrics by name
+	 */
+	private static final ConcurrentHashMap<String, Metric> metrics =
+	    new ConcurrentHashMap<>();
+
+	/**
+	 * The MBean server metrics are exported to (or null if metrics are not
+	 * exported)
+	 */
+	private static volatile MBeanServer server = null;
+
+	/**
+	 * Private constructor to avoid instanciation
+	 */
+	private MetricsRegistry()
+	{
+		// Empty
+	}
+
+	/**
+	 * Gets or creates a {@link Counter}
+	 * @param name the counter name
+	 * @return the counter with this name
+	 * @throws IllegalArgumentException if another kind of metric already has
+	 * this name
+	 */
+	public static Counter counter(String name) throws IllegalArgumentException
+	{
+		return get(name, Counter.class, Counter::new);
+	}
+
+	/**
+	 * Gets or creates a {@link Gauge}
+	 * @param name the gauge name
+	 * @param supplier the supplier of gauge's value (ignored if the gauge
+	 * already exists)
+	 * @return the gauge with this name
+	 * @throws IllegalArgumentException if another kind of metric already has
+	 * this name
+	 */
+	public static Gauge gauge(String name, DoubleSupplier supplier)
+	    throws IllegalArgumentException
+	{
+		return get(name, Gauge.class, n -> new Gauge(n, supplier));
+	}
+
+	/**
+	 * Gets or creates a {@link LatencyHistogram}
+	 * @param name the histogram name
+	 * @return the histogram with this name
+	 * @throws IllegalArgumentException if another kind of metric already has
+	 * this name
+	 */
+	public static LatencyHistogram histogram(String name)
+	    throws IllegalArgumentException
+	{
+		return get(name, LatencyHistogram.class, LatencyHistogram::new);
+	}
+
+	/**
+	 * Gets a metric by name
+	 * @param name the name of the metric
+	 * @return the metric with this name or null if there is no such metric
+	 */
+	public static Metric getMetric(String name)
+	{
+		return metrics.get(name);
+	}
+
+	/**
+	 * All metrics sorted by name
+	 * @return a new list containing all metrics sorted by name
+	 */
+	public static List<Metric> getMetrics()
+	{
+		List<Metric> list = new ArrayList<>(metrics.values());
+		list.sort(Comparator.comparing(Metric::getName));
+		return list;
+	}
+
+	/**
+	 * Exports all metrics (already created or to be created) as MBeans of the
+	 * platform {@link MBeanServer}
+	 */
+	public static synchronized void registerMBeans()
+	{
+		if (server != null)
+		{
+			return;
+		}
+		server = ManagementFactory.getPlatformMBeanServer();
+		for (Metric metric : metrics.values())
+		{
+			register(metric);
+		}
+	}
+
+	/**
+	 * Writes all metrics to a print writer (one metric per line)
+	 * @param writer the writer to write to
+	 */
+	public static void dump(PrintWriter writer)
+	{
+		writer.println("# Metrics dumped " + LocalDateTime.now());
+		for (Metric metric : getMetrics())
+		{
+			writer.printf("%-40s %s%n", metric.getName(), metric.summary());
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Writes all metrics to a file (one metric per line)
+	 * @param path the path of the file to write (replaced if it exists)
+	 * @throws IOException if the file can't be written
+	 */
+	public static void dump(Path path) throws IOException
+	{
+		try (PrintWriter writer =
+		    new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8)))
+		{
+			dump(writer);
+		}
+	}
+
+	/**
+	 * Gets or creates a metric
+	 * @param <M> the type of metric
+	 * @param name the name of the metric
+	 * @param type the class of the metric
+	 * @param factory the factory creating the metric if it doesn't exist yet
+	 * @return the metric with this name
+	 * @throws IllegalArgumentException if another kind of metric already has
+	 * this name
+	 */
+	private static <M extends Metric> M get(String name,
+	                                        Class<M> type,
+	                                        Function<String, M> factory)
+	    throws IllegalArgumentException
+	{
+		Metric metric = metrics.get(name);
+		if (metric == null)
+		{
+			metric = metrics.computeIfAbsent(name, n -> {
+				M created = factory.apply(n);
+				if (server != null)
+				{
+					register(created);
+				}
+				return created;
+			});
+		}
+		if (!type.isInstance(metric))
+		{
+			throw new IllegalArgumentException(name + " is already a "
+			    + metric.getClass().getSimpleName());
+		}
+		return type.cast(metric);
+	}
+
+	/**
+	 * Registers a metric as an MBean of {@link #server}
+	 * @param metric the metric to register
+	 */
+	private static void register(Metric metric)
+	{
+		try
+		{
+			ObjectName objectName = new ObjectName(DOMAIN
+			    + ":type=" + metric.getClass().getSimpleName()
+			    + ",name=" + ObjectName.quote(metric.getName()));
+			if (!server.isRegistered(objectName))
+			{
+				server.registerMBean(metric, objectName);
+			}
+		}
+		catch (JMException e)
+		{
+			System.err.println("Can't register metric " + metric.getName()
+			    + " : " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,442 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the time spent in each phase of the application startup (such as
+ * logger setup, FXML loading, controller initialization, icons loading or
+ * first pulse) so that a report of the startup can be written.
+ * Phases are delimited by {@link #begin(String)} and {@link #end(String)}
+ * (possibly from different threads, and possibly nested), repeated short
+ * operations (such as decoding an icon) are summed with
+ * {@link #accumulate(String, long)}, and instant events (such as first
+ * frame) are recorded with {@link #mark(String)}.
+ * Startup can be repeated several times within the same JVM: the first run
+ * is cold (its times are relative to JVM start) and each {@link #newRun()}
+ * starts a warm run (whose times are relative to the beginning of this run).
+ * Recording stops with {@link #finish()} so that operations also performed
+ * after startup are not recorded.
+ * @implNote Recording costs a few {@link System#nanoTime()} calls and a lock
+ * per phase, which is negligible during startup, so phases are always
+ * recorded (only reports are optional).
+ */
+public class StartupProfiler
+{
+	/**
+	 * Name of the phase from JVM start to the first recorded phase
+	 */
+	public static final String JVM_STARTUP = "JVM to first phase";
+
+	/**
+	 * A recorded phase
+	 */
+	private static class Phase
+	{
+		/**
+		 * Run of this phase (0 for the cold run)
+		 */
+		final int run;
+
+		/**
+		 * Name of this phase
+		 */
+		final String name;
+
+		/**
+		 * Thread which began this phase
+		 */
+		final String thread;
+
+		/**
+		 * Start of this phase (as returned by {@link System#nanoTime()})
+		 */
+		final long start;
+
+		/**
+		 * Duration of this phase (in ns) or -1 if this phase has not ended
+		 */
+		long duration;
+
+		/**
+		 * Number of accumulated operations (0 for phases delimited by
+		 * {@link #begin(String)} and {@link #end(String)})
+		 */
+		int count;
+
+		/**
+		 * Constructor
+		 * @param run the run of this phase
+		 * @param name the name of this phase
+		 * @param start the start of this phase
+		 */
+		Phase(int run, String name, long start)
+		{
+			this.run = run;
+			this.name = name;
+			thread = Thread.currentThread().getName();
+			this.start = start;
+			duration = -1L;
+			count = 0;
+		}
+	}
+
+	/**
+	 * Time of class initialization (as returned by {@link System#nanoTime()})
+	 */
+	private static final long initNanos = System.nanoTime();
+
+	/**
+	 * Time of class initialization (as returned by
+	 * {@link System#currentTimeMillis()}) used to relate
+	 * {@link #initNanos} to JVM start time
+	 */
+	private static final long initMillis = System.currentTimeMillis();
+
+	/**
+	 * Recorded phases (in recording order)
+	 */
+	private static final List<Phase> phases = new ArrayList<>();
+
+	/**
+	 * Phases of the current run by name
+	 */
+	private static final Map<String, Phase> current = new HashMap<>();
+
+	/**
+	 * Origins of runs (as returned by {@link System#nanoTime()}) or
+	 * {@link Long#MIN_VALUE} for the cold run whose origin is JVM start
+	 */
+	private static final List<Long> origins = new ArrayList<>(List.of(Long.MIN_VALUE));
+
+	/**
+	 * Indicates if phases are still recorded
+	 */
+	private static volatile boolean recording = true;
+
+	/**
+	 * Private constructor to avoid instanciation
+	 */
+	private StartupProfiler()
+	{
+		// Empty
+	}
+
+	/**
+	 * Begins a phase of the current run
+	 * @param phase the name of the phase
+	 */
+	public static void begin(String phase)
+	{
+		if (!recording)
+		{
+			return;
+		}
+		long now = System.nanoTime();
+		synchronized (phases)
+		{
+			Phase begun = new Phase(origins.size() - 1, phase, now);
+			phases.add(begun);
+			current.put(phase, begun);
+		}
+	}
+
+	/**
+	 * Ends a phase of the current run
+	 * @param phase the name of the phase (which should have been begun)
+	 */
+	public static void end(String phase)
+	{
+		if (!recording)
+		{
+			return;
+		}
+		long now = System.nanoTime();
+		synchronized (phases)
+		{
+			Phase begun = current.get(phase);
+			if ((begun != null) && (begun.duration < 0L))
+			{
+				begun.duration = now - begun.start;
+			}
+		}
+	}
+
+	/**
+	 * Records a phase of the current run which began at a known time and
+	 * ends now
+	 * @param phase the name of the phase
+	 * @param startNanos the start of the phase (as returned by
+	 * {@link System#nanoTime()})
+	 */
+	public static void record(String phase, long startNanos)
+	{
+		if (!recording)
+		{
+			return;
+		}
+		long now = System.nanoTime();
+		synchronized (phases)
+		{
+			Phase recorded = new Phase(origins.size() - 1, phase, startNanos);
+			recorded.duration = now - startNanos;
+			phases.add(recorded);
+			current.put(phase, recorded);
+		}
+	}
+
+	/**
+	 * Adds the duration of an operation to the total of a phase of the
+	 * current run (starting at the first accumulated operation)
+	 * @param phase the name of the phase
+	 * @param nanos the duration of the operation (in ns)
+	 */
+	public static void accumulate(String phase, long nanos)
+	{
+		if (!recording)
+		{
+			return;
+		}
+		long now = System.nanoTime();
+		synchronized (phases)
+		{
+			Phase total = current.get(phase);
+			if ((total == null) || (total.count == 0))
+			{
+				total = new Phase(origins.size() - 1, phase, now - nanos);
+				total.duration = 0L;
+				phases.add(total);
+				current.put(phase, total);
+			}
+			total.duration += nanos;
+			total.count++;
+		}
+	}
+
+	/**
+	 * Records an instant event of the current run
+	 * @param event the name of the event
+	 */
+	public static void mark(String event)
+	{
+		record(event, System.nanoTime());
+	}
+
+	/**
+	 * Starts a new (warm) run
+	 */
+	public static void newRun()
+	{
+		if (!recording)
+		{
+			return;
+		}
+		long now = System.nanoTime();
+		synchronized (phases)
+		{
+			origins.add(now);
+			current.clear();
+		}
+	}
+
+	/**
+	 * Stops recording phases
+	 */
+	public static void finish()
+	{
+		recording = false;
+	}
+
+	/**
+	 * Indicates if phases are still recorded
+	 * @return true until {@link #finish()} is called
+	 */
+	public static boolean isRecording()
+	{
+		return recording;
+	}
+
+	/**
+	 * Number of recorded runs
+	 * @return the number of runs (1 + number of calls to {@link #newRun()})
+	 */
+	public static int getRuns()
+	{
+		synchronized (phases)
+		{
+			return origins.size();
+		}
+	}
+
+	/**
+	 * Time elapsed from the origin of a run to the end of one of its phases
+	 * @param run the run (0 for the cold run)
+	 * @param phase the name of the phase
+	 * @return the time from the origin of the run to the end of the phase
+	 * (in ms) or -1 if there is no such ended phase in this run
+	 */
+	public static double getElapsed(int run, String phase)
+	{
+		synchronized (phases)
+		{
+			long origin = origin(run);
+			for (Phase recorded : phases)
+			{
+				if ((recorded.run == run) && recorded.name.equals(phase)
+				    && (recorded.duration >= 0L))
+				{
+					return (recorded.start + recorded.duration - origin) / 1e6;
+				}
+			}
+		}
+		return -1.0;
+	}
+
+	/**
+	 * One line summary of a run
+	 * @param run the run (0 for the cold run)
+	 * @param lastPhase the phase ending startup (e.g. the first frame)
+	 * @return a summary containing the time to the end of lastPhase and the
+	 * duration of each top level phase of the run
+	 */
+	public static String summary(int run, String lastPhase)
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("startup run %d (%s): %s at %.1f ms",
+		                        run,
+		                        (run == 0 ? "cold" : "warm"),
+		                        lastPhase,
+		                        getElapsed(run, lastPhase)));
+		synchronized (phases)
+		{
+			for (Phase phase : sorted(run))
+			{
+				if ((phase.duration > 0L) && !phase.name.equals(lastPhase))
+				{
+					sb.append(String.format(", %s %.1f ms", phase.name, phase.duration / 1e6));
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes a report of all runs: for each phase its start and end relative
+	 * to the origin of its run, its duration and the thread which began it
+	 * @param writer the writer to write the report to
+	 */
+	public static void report(PrintWriter writer)
+	{
+		writer.println("# Startup profile " + LocalDateTime.now());
+		synchronized (phases)
+		{
+			for (int run = 0; run < origins.size(); run++)
+			{
+				writer.println();
+				writer.printf("run %d (%s, times relative to %s)%n",
+				              run,
+				              (run == 0 ? "cold" : "warm"),
+				              (run == 0 ? "JVM start" : "run start"));
+				writer.printf("  %-40s %10s %10s %10s  %s%n",
+				              "phase", "start ms", "end ms", "duration", "thread");
+				long origin = origin(run);
+				List<Phase> runPhases = sorted(run);
+				if ((run == 0) && !runPhases.isEmpty())
+				{
+					writer.printf("  %-40s %10.1f %10.1f %10.1f  %s%n",
+					              JVM_STARTUP,
+					              0.0,
+					              (runPhases.get(0).start - origin) / 1e6,
+					              (runPhases.get(0).start - origin) / 1e6,
+					              "");
+				}
+				for (Phase phase : runPhases)
+				{
+					String name = (phase.count > 0 ?
+					    phase.name + " (" + phase.count + " x)" : phase.name);
+					if (phase.duration < 0L)
+					{
+						writer.printf("  %-40s %10.1f %10s %10s  %s%n",
+						              name,
+						              (phase.start - origin) / 1e6,
+						              "-",
+						              "not ended",
+						              phase.thread);
+					}
+					else
+					{
+						writer.printf("  %-40s %10.1f %10.1f %10.1f  %s%n",
+						              name,
+						              (phase.start - origin) / 1e6,
+						              (phase.start + phase.duration - origin) / 1e6,
+						              phase.duration / 1e6,
+						              phase.thread);
+					}
+				}
+			}
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Writes a report of all runs to a file
+	 * @param path the path of the file to write (replaced if it exists)
+	 * @throws IOException if the file can't be written
+	 */
+	public static void report(Path path) throws IOException
+	{
+		try (PrintWriter writer =
+		    new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8)))
+		{
+			report(writer);
+		}
+	}
+
+	/**
+	 * Origin of a run
+	 * @param run the run
+	 * @return the origin of the run (as returned by {@link System#nanoTime()})
+	 * @implNote JVM start time is only obtained (from the runtime MXBean)
+	 * when the cold run origin is required, so that management classes are
+	 * not loaded during startup
+	 */
+	private static long origin(int run)
+	{
+		long origin = origins.get(run);
+		if (origin == Long.MIN_VALUE)
+		{
+			long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+			origin = initNanos - ((initMillis - jvmStart) * 1_000_000L);
+		}
+		return origin;
+	}
+
+	/**
+	 * Phases of a run sorted by start time
+	 * @param run the run
+	 * @return the phases of the run sorted by start time
+	 */
+	private static List<Phase> sorted(int run)
+	{
+		List<Phase> runPhases = new ArrayList<>();
+		for (Phase phase : phases)
+		{
+			if (phase.run == run)
+			{
+				runPhases.add(phase);
+			}
+		}
+		runPhases.sort(Comparator.comparingLong(phase -> phase.start));
+		return runPhases;
+	}
+}
@@ -0,0 +1,76 @@
+package metrics.jfr;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Access to the number of bytes allocated by the current thread (when
+ * supported by the JVM) so events can report allocations of the operations
+ * they measure
+ */
+public class Allocations
+{
+	/**
+	 * The JVM specific thread MX bean providing allocated bytes (or null if
+	 * not supported)
+	 */
+	private static final com.sun.management.ThreadMXBean threads = allocationBean();
+
+	/**
+	 * Private constructor to avoid instanciation
+	 */
+	private Allocations()
+	{
+		// Empty
+	}
+
+	/**
+	 * Number of bytes allocated so far by the current thread
+	 * @return the number of bytes allocated by the current thread or -1 if
+	 * not supported
+	 */
+	public static long currentThreadAllocatedBytes()
+	{
+		if (threads == null)
+		{
+			return -1L;
+		}
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Number of bytes allocated by the current thread since a previous count
+	 * @param since the number of allocated bytes previously obtained with
+	 * {@link #currentThreadAllocatedBytes()}
+	 * @return the number of bytes allocated since then or -1 if not supported
+	 */
+	public static long allocatedSince(long since)
+	{
+		if (since < 0L)
+		{
+			return -1L;
+		}
+		long now = currentThreadAllocatedBytes();
+		return (now >= 0L ? now - since : -1L);
+	}
+
+	/**
+	 * Obtains the thread MX bean if it supports allocated bytes measurement
+	 * @return the thread MX bean or null if allocation measurement is not
+	 * supported
+	 */
+	private static com.sun.management.ThreadMXBean allocationBean()
+	{
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean)
+		{
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (sunBean.isThreadAllocatedMemorySupported()
+			    && sunBean.isThreadAllocatedMemoryEnabled())
+			{
+				return sunBean;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,49 @@
+package metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event emitted by {@link figures.Drawing} for each change notified to
+ * its listeners (a single add or remove, or a batch such as addAll, setAll or
+ * clear)
+ */
+@Name("figures.DrawingChange")
+@Label("Drawing Change")
+@Category({"Figures Editor", "Drawing"})
+@Description("Batch of figures added to, removed from or permuted in the drawing")
+public class DrawingChangeEvent extends Event
+{
+	/**
+	 * Number of added figures
+	 */
+	@Label("Added")
+	public int added;
+
+	/**
+	 * Number of removed figures
+	 */
+	@Label("Removed")
+	public int removed;
+
+	/**
+	 * Number of permuted or updated ranges
+	 */
+	@Label("Permuted or Updated")
+	public int permuted;
+
+	/**
+	 * Number of sub changes of this change
+	 */
+	@Label("Sub Changes")
+	public int subChanges;
+
+	/**
+	 * Number of figures in the drawing after this change
+	 */
+	@Label("Size")
+	public int size;
+}
@@ -0,0 +1,38 @@
+package metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event emitted by {@link figures.Drawing#filtered(java.util.function.Predicate)}
+ * for each filter applied to the drawing's figures
+ */
+@Name("figures.Filter")
+@Label("Filter Application")
+@Category({"Figures Editor", "Drawing"})
+@Description("Figures filter applied to the drawing")
+@StackTrace(false)
+public class FilterEvent extends Event
+{
+	/**
+	 * Description of the applied filter
+	 */
+	@Label("Filter")
+	public String filter;
+
+	/**
+	 * Number of tested figures
+	 */
+	@Label("Figures")
+	public int figures;
+
+	/**
+	 * Number of figures matching the filter
+	 */
+	@Label("Matches")
+	public int matches;
+}
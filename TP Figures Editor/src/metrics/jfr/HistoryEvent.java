@@ -0,0 +1,53 @@
+package metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event emitted by {@link history.HistoryManager} for each record, undo
+ * or redo operation
+ */
+@Name("figures.History")
+@Label("History Operation")
+@Category({"Figures Editor", "History"})
+@Description("Record, undo or redo of the drawing state")
+@StackTrace(false)
+public class HistoryEvent extends Event
+{
+	/**
+	 * The operation: "record", "undo" or "redo"
+	 */
+	@Label("Operation")
+	public String operation;
+
+	/**
+	 * Number of figures in the state saved by this operation
+	 */
+	@Label("Figures")
+	public int figures;
+
+	/**
+	 * Number of states in undo stack after this operation
+	 */
+	@Label("Undo Size")
+	public int undoSize;
+
+	/**
+	 * Number of states in redo stack after this operation
+	 */
+	@Label("Redo Size")
+	public int redoSize;
+
+	/**
+	 * Bytes allocated by the current thread during this operation (mostly
+	 * the cloned figures of the saved state), or -1 if not available
+	 */
+	@Label("Allocated")
+	@DataAmount(DataAmount.BYTES)
+	public long allocated;
+}
@@ -0,0 +1,39 @@
+package metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event emitted by {@link tools.AbstractTool} for each gesture, from mouse
+ * press to mouse release
+ */
+@Name("figures.ToolGesture")
+@Label("Tool Gesture")
+@Category({"Figures Editor", "Tools"})
+@Description("Mouse gesture handled by a tool, from press to release")
+@StackTrace(false)
+public class ToolGestureEvent extends Event
+{
+	/**
+	 * Simple name of the tool class
+	 */
+	@Label("Tool")
+	public String tool;
+
+	/**
+	 * Mouse button used during the gesture
+	 */
+	@Label("Button")
+	public String button;
+
+	/**
+	 * Number of mouse events handled by the tool during the gesture
+	 * (including press and release)
+	 */
+	@Label("Events")
+	public int events;
+}
@@ -0,0 +1,11 @@
+/**
+ * Package containing Java Flight Recorder events of editor level operations
+ * (history, drawing changes, filters and tools gestures) so these operations
+ * can be correlated with GC pauses and allocations in the same recording,
+ * e.g. by starting the editor with
+ * {@code -XX:StartFlightRecording=filename=editor.jfr,settings=profile}.
+ * Events are cheap when not recorded: values are only computed when
+ * {@link jdk.jfr.Event#isEnabled()} or {@link jdk.jfr.Event#shouldCommit()}
+ * is true.
+ */
+package metrics.jfr;
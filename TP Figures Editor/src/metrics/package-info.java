@@ -0,0 +1,6 @@
+/**
+ * Package containing low overhead operation metrics ({@link metrics.Counter}s,
+ * {@link metrics.Gauge}s and {@link metrics.LatencyHistogram}s) created and
+ * exported as JMX MBeans by the {@link metrics.MetricsRegistry}
+ */
+package metrics;
@@ -110,4 +110,13 @@ public class AbstractDrawingTool<T extends Node> extends AbstractTool<T>
 	{
 		this(root, model, eventsMask, false, false, parentLogger);
 	}
+
+	/**
+	 * Drawing model accessor
+	 * @return the drawing model this tool operates on
+	 */
+	public Drawing getDrawingModel()
+	{
+		return drawingModel;
+	}
 }
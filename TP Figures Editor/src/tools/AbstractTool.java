@@ -10,6 +10,11 @@ import javafx.event.EventType;
 import javafx.scene.Node;
 import javafx.scene.input.MouseEvent;
 import logger.LoggerFactory;
+import logger.ThrottledLogger;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import metrics.jfr.ToolGestureEvent;
+import tools.replay.SessionRecorder;
 
 /**
  * Base class of all tools intercepting {@link MouseEvent}s either as an Event
@@ -34,6 +39,27 @@ public class AbstractTool<T extends Node> implements EventHandler<MouseEvent>
 	 */
 	protected Logger logger;
 
+	/**
+	 * Rate limited logger (on top of {@link #logger}) to use for messages
+	 * issued by mouse events handlers which could otherwise flood the logs
+	 */
+	protected ThrottledLogger throttledLogger;
+
+	/**
+	 * Latencies of mouse events handling by this kind of tool (shared by all
+	 * instances of the same tool class)
+	 * @see #handle(MouseEvent)
+	 */
+	private final LatencyHistogram handleLatency =
+	    MetricsRegistry.histogram("tools." + getClass().getSimpleName() + ".handle");
+
+	/**
+	 * The JFR event of the gesture in progress (from mouse press to mouse
+	 * release) or null if there is no gesture in progress or if such events
+	 * are not recorded
+	 */
+	private ToolGestureEvent gesture = null;
+
 	/**
 	 * Boolean flag indicating if this {@link EventHandler} should capture events
 	 * during events capture phase (faster) or during events bubbling phase
@@ -234,6 +260,7 @@ public class AbstractTool<T extends Node> implements EventHandler<MouseEvent>
 		                                       parentLogger,
 		                                       (parentLogger == null ?
 		                                    	Level.INFO : null)); // null level to inherite parent's logger's level
+		throttledLogger = new ThrottledLogger(logger);
 	}
 
 	/**
@@ -308,12 +335,25 @@ public class AbstractTool<T extends Node> implements EventHandler<MouseEvent>
 	 * @see #mouseExited(MouseEvent)
 	 * @see #mouseEnteredTarget(MouseEvent)
 	 * @see #mouseExitedTarget(MouseEvent)
+	 * @see SessionRecorder
 	 */
 	@Override
 	public final void handle(MouseEvent event)
 	{
+		long start = System.nanoTime();
 		EventType<? extends MouseEvent> eventType = event.getEventType();
 
+		SessionRecorder.record(this, event);
+
+		if (eventType == MouseEvent.MOUSE_PRESSED)
+		{
+			beginGesture(event);
+		}
+		if (gesture != null)
+		{
+			gesture.events++;
+		}
+
 		if (listenPressedEvents() && (eventType == MouseEvent.MOUSE_PRESSED))
 		{
 			mousePressed(event);
@@ -364,9 +404,46 @@ public class AbstractTool<T extends Node> implements EventHandler<MouseEvent>
 			event.consume();
 		}
 
+		if ((gesture != null) && (eventType == MouseEvent.MOUSE_RELEASED))
+		{
+			commitGesture();
+		}
+
+		handleLatency.recordSince(start);
+
 //		logger.info(event.toString());
 	}
 
+	/**
+	 * Begins a new {@link ToolGestureEvent} (if such events are recorded)
+	 * @param event the mouse pressed event starting the gesture
+	 */
+	private void beginGesture(MouseEvent event)
+	{
+		gesture = new ToolGestureEvent();
+		if (!gesture.isEnabled())
+		{
+			gesture = null;
+			return;
+		}
+		gesture.tool = getClass().getSimpleName();
+		gesture.button = event.getButton().name();
+		gesture.begin();
+	}
+
+	/**
+	 * Ends and commits the {@link #gesture} in progress
+	 */
+	private void commitGesture()
+	{
+		gesture.end();
+		if (gesture.shouldCommit())
+		{
+			gesture.commit();
+		}
+		gesture = null;
+	}
+
 	/**
 	 * Indicates if this tool should listen to {@link MouseEvent#MOUSE_PRESSED} events
 	 * @return true if this tool should listen to {@link MouseEvent#MOUSE_PRESSED} events
@@ -489,6 +566,7 @@ public class AbstractTool<T extends Node> implements EventHandler<MouseEvent>
 	 */
 	public void unregister()
 	{
+		SessionRecorder.unregistered(this);
 		if (listenPressedEvents())
 		{
 			unregister(MouseEvent.MOUSE_PRESSED);
@@ -254,7 +254,9 @@ public class TransformTool extends FocusedFigureTool
 					break;
 				}
 				default:
-					logger.warning("unkown motion type " + motionType);
+					Motion motion = motionType;
+					throttledLogger.warning("unknown dragged motion type",
+					                        () -> "unkown motion type " + motion);
 					break;
 			}
 			event.consume();
@@ -276,9 +278,12 @@ public class TransformTool extends FocusedFigureTool
 
 		if (step == 1)
 		{
+			if (focusedFigure != null)
+			{
+				drawingModel.markDirty(focusedFigure);
+			}
 			step = 0;
 			figureRoot = null;
-			motionType = Motion.NONE;
 
 			switch (motionType)
 			{
@@ -296,9 +301,12 @@ public class TransformTool extends FocusedFigureTool
 					initialScale = null;
 					break;
 				default:
-					logger.warning("unknown motion type " + motionType);
+					Motion motion = motionType;
+					throttledLogger.warning("unknown released motion type",
+					                        () -> "unknown motion type " + motion);
 					break;
 			}
+			motionType = Motion.NONE;
 			if (messageLabel != null)
 			{
 				messageLabel.setText("");
@@ -89,8 +89,10 @@ public class RectangularShapeCreationTool extends AbstractCreationTool
 	{
 		if (currentStep != 0)
 		{
-			logger.warning("Received Mouse pressed event in phase "
-			    + String.valueOf(currentStep));
+			int step = currentStep;
+			throttledLogger.warning("Received Mouse pressed event in phase",
+			                        () -> "Received Mouse pressed event in phase "
+			                            + String.valueOf(step));
 			return;
 		}
 
@@ -127,8 +129,10 @@ public class RectangularShapeCreationTool extends AbstractCreationTool
 	{
 		if (currentStep != 1)
 		{
-			logger.warning("Received mouse dragged event at step "
-			    + currentStep);
+			int step = currentStep;
+			throttledLogger.warning("Received mouse dragged event at step",
+			                        () -> "Received mouse dragged event at step "
+			                            + step);
 			return;
 		}
 
@@ -155,8 +159,10 @@ public class RectangularShapeCreationTool extends AbstractCreationTool
 	{
 		if (currentStep != 1)
 		{
-			logger.warning("received mouse release event at step "
-			    + currentStep);
+			int step = currentStep;
+			throttledLogger.warning("received mouse release event at step",
+			                        () -> "received mouse release event at step "
+			                            + step);
 			return;
 		}
 
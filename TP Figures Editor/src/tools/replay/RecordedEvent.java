@@ -0,0 +1,348 @@
+package tools.replay;
+
+import java.util.Arrays;
+
+import figures.enums.FigureType;
+import javafx.event.EventTarget;
+import javafx.event.EventType;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+
+/**
+ * A mouse event recorded at the {@link tools.AbstractTool#handle(MouseEvent)}
+ * boundary together with the tools which received it.
+ * Coordinates are relative to the tools root node (the drawing pane) and the
+ * target of the event is recorded as the index of the figure whose shape was
+ * targeted (or {@link #ROOT_TARGET} for any other node) so that it can be
+ * resolved again in the replayed drawing.
+ */
+public class RecordedEvent
+{
+	/**
+	 * Target index of events whose target is not a figure's shape
+	 */
+	public static final int ROOT_TARGET = -1;
+
+	/**
+	 * Mouse event types which can be recorded (and their codes in session
+	 * files)
+	 */
+	static final EventType<?>[] TYPES = new EventType<?>[] {
+		MouseEvent.MOUSE_PRESSED,
+		MouseEvent.MOUSE_RELEASED,
+		MouseEvent.MOUSE_CLICKED,
+		MouseEvent.MOUSE_MOVED,
+		MouseEvent.MOUSE_DRAGGED,
+		MouseEvent.MOUSE_ENTERED,
+		MouseEvent.MOUSE_EXITED,
+		MouseEvent.MOUSE_ENTERED_TARGET,
+		MouseEvent.MOUSE_EXITED_TARGET
+	};
+
+	/**
+	 * Flag of shift key down
+	 */
+	static final int SHIFT = 1;
+
+	/**
+	 * Flag of control key down
+	 */
+	static final int CONTROL = 2;
+
+	/**
+	 * Flag of alt key down
+	 */
+	static final int ALT = 4;
+
+	/**
+	 * Flag of meta key down
+	 */
+	static final int META = 8;
+
+	/**
+	 * Flag of primary button down
+	 */
+	static final int PRIMARY = 16;
+
+	/**
+	 * Flag of middle button down
+	 */
+	static final int MIDDLE = 32;
+
+	/**
+	 * Flag of secondary button down
+	 */
+	static final int SECONDARY = 64;
+
+	/**
+	 * Flag of mouse still since press
+	 */
+	static final int STILL_SINCE_PRESS = 128;
+
+	/**
+	 * Flag of popup trigger event
+	 */
+	static final int POPUP_TRIGGER = 256;
+
+	/**
+	 * Flag of synthesized event
+	 */
+	static final int SYNTHESIZED = 512;
+
+	/**
+	 * Time of the event since the beginning of the session (in ns)
+	 */
+	final long time;
+
+	/**
+	 * Code of the event type (index in {@link #TYPES})
+	 */
+	final int type;
+
+	/**
+	 * x coordinate relative to the tools root node
+	 */
+	final double x;
+
+	/**
+	 * y coordinate relative to the tools root node
+	 */
+	final double y;
+
+	/**
+	 * The button responsible for the event
+	 */
+	final MouseButton button;
+
+	/**
+	 * Number of clicks
+	 */
+	final int clickCount;
+
+	/**
+	 * Modifiers and buttons states flags
+	 */
+	final int flags;
+
+	/**
+	 * Index of the targeted figure or {@link #ROOT_TARGET}
+	 */
+	final int target;
+
+	/**
+	 * Figure type of the drawing model when the event occurred (or null if
+	 * the event was not received by a drawing tool).
+	 * Determines the figures created by creation tools when replayed.
+	 */
+	final FigureType figureType;
+
+	/**
+	 * Ids of the tools which received this event (in reception order)
+	 */
+	int[] tools;
+
+	/**
+	 * Constructor
+	 * @param time the time since the beginning of the session (in ns)
+	 * @param type the event type code
+	 * @param x the x coordinate relative to the tools root node
+	 * @param y the y coordinate relative to the tools root node
+	 * @param button the button responsible for the event
+	 * @param clickCount the number of clicks
+	 * @param flags the modifiers and buttons states flags
+	 * @param target the index of the targeted figure or {@link #ROOT_TARGET}
+	 * @param figureType the figure type of the drawing model or null
+	 * @param tools the ids of the tools which received this event
+	 */
+	RecordedEvent(long time,
+	              int type,
+	              double x,
+	              double y,
+	              MouseButton button,
+	              int clickCount,
+	              int flags,
+	              int target,
+	              FigureType figureType,
+	              int[] tools)
+	{
+		this.time = time;
+		this.type = type;
+		this.x = x;
+		this.y = y;
+		this.button = button;
+		this.clickCount = clickCount;
+		this.flags = flags;
+		this.target = target;
+		this.figureType = figureType;
+		this.tools = tools;
+	}
+
+	/**
+	 * Code of a mouse event type
+	 * @param eventType the event type
+	 * @return the index of eventType in {@link #TYPES} or -1 if this type
+	 * of event is not recorded
+	 */
+	static int typeCode(EventType<?> eventType)
+	{
+		for (int i = 0; i < TYPES.length; i++)
+		{
+			if (TYPES[i] == eventType)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Modifiers and buttons states flags of a mouse event
+	 * @param event the mouse event
+	 * @return the flags of event
+	 */
+	static int flagsOf(MouseEvent event)
+	{
+		int flags = 0;
+		flags |= (event.isShiftDown() ? SHIFT : 0);
+		flags |= (event.isControlDown() ? CONTROL : 0);
+		flags |= (event.isAltDown() ? ALT : 0);
+		flags |= (event.isMetaDown() ? META : 0);
+		flags |= (event.isPrimaryButtonDown() ? PRIMARY : 0);
+		flags |= (event.isMiddleButtonDown() ? MIDDLE : 0);
+		flags |= (event.isSecondaryButtonDown() ? SECONDARY : 0);
+		flags |= (event.isStillSincePress() ? STILL_SINCE_PRESS : 0);
+		flags |= (event.isPopupTrigger() ? POPUP_TRIGGER : 0);
+		flags |= (event.isSynthesized() ? SYNTHESIZED : 0);
+		return flags;
+	}
+
+	/**
+	 * Indicates if this event has the same characteristics as another
+	 * event (i.e. the other event is the same event received by another tool)
+	 * @param other the other recorded event
+	 * @return true if both events have the same type, coordinates, button,
+	 * click count, flags and target
+	 */
+	boolean sameAs(RecordedEvent other)
+	{
+		return (type == other.type)
+		    && (x == other.x)
+		    && (y == other.y)
+		    && (button == other.button)
+		    && (clickCount == other.clickCount)
+		    && (flags == other.flags)
+		    && (target == other.target);
+	}
+
+	/**
+	 * Indicates if this event has been received by a tool
+	 * @param toolId the id of the tool
+	 * @return true if toolId is in {@link #tools}
+	 */
+	boolean receivedBy(int toolId)
+	{
+		for (int id : tools)
+		{
+			if (id == toolId)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds a tool to the tools which received this event
+	 * @param toolId the id of the tool
+	 */
+	void addTool(int toolId)
+	{
+		tools = Arrays.copyOf(tools, tools.length + 1);
+		tools[tools.length - 1] = toolId;
+	}
+
+	/**
+	 * Creates a new mouse event corresponding to this recorded event
+	 * @param source the source of the new event (the tools root node or null
+	 * if the event is to be dispatched through the scene graph, in which case
+	 * coordinates are considered as scene coordinates)
+	 * @param eventTarget the target of the new event
+	 * @return a new mouse event
+	 */
+	@SuppressWarnings("unchecked")
+	public MouseEvent toMouseEvent(Object source, EventTarget eventTarget)
+	{
+		return new MouseEvent(source,
+		                      eventTarget,
+		                      (EventType<MouseEvent>) TYPES[type],
+		                      x,
+		                      y,
+		                      x,
+		                      y,
+		                      button,
+		                      clickCount,
+		                      (flags & SHIFT) != 0,
+		                      (flags & CONTROL) != 0,
+		                      (flags & ALT) != 0,
+		                      (flags & META) != 0,
+		                      (flags & PRIMARY) != 0,
+		                      (flags & MIDDLE) != 0,
+		                      (flags & SECONDARY) != 0,
+		                      (flags & SYNTHESIZED) != 0,
+		                      (flags & POPUP_TRIGGER) != 0,
+		                      (flags & STILL_SINCE_PRESS) != 0,
+		                      null);
+	}
+
+	/**
+	 * Time accessor
+	 * @return the time of this event since the beginning of the session
+	 * (in ns)
+	 */
+	public long getTime()
+	{
+		return time;
+	}
+
+	/**
+	 * Event type accessor
+	 * @return the type of this event
+	 */
+	public EventType<?> getEventType()
+	{
+		return TYPES[type];
+	}
+
+	/**
+	 * Target accessor
+	 * @return the index of the targeted figure or {@link #ROOT_TARGET}
+	 */
+	public int getTarget()
+	{
+		return target;
+	}
+
+	/**
+	 * Figure type accessor
+	 * @return the figure type of the drawing model when this event occurred
+	 * or null
+	 */
+	public FigureType getFigureType()
+	{
+		return figureType;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%s(%.1f, %.1f) %s x%d target %d tools %s at %.3f ms",
+		                     TYPES[type].getName(),
+		                     x,
+		                     y,
+		                     button,
+		                     clickCount,
+		                     target,
+		                     Arrays.toString(tools),
+		                     time / 1e6);
+	}
+}
@@ -0,0 +1,349 @@
+package tools.replay;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import figures.enums.FigureType;
+import javafx.scene.input.MouseButton;
+
+/**
+ * A recorded mouse session: the tools which received events (identified by
+ * ids and their class names), the recorded events and the times at which
+ * tools have been unregistered.
+ * Session files are gzipped sequences of:
+ * <ul>
+ * <li>a header: {@link #MAGIC}, {@link #VERSION} and the number of figures
+ * of the drawing when recording started</li>
+ * <li>{@link #TAG_TOOL} entries: a tool id and its class simple name (written
+ * before the first event received by this tool)</li>
+ * <li>{@link #TAG_UNREGISTER} entries: the id of an unregistered tool</li>
+ * <li>{@link #TAG_EVENT} entries: time delta since previous event (in µs),
+ * type, coordinates, button, click count, flags, target, figure type and ids
+ * of the tools which received the event. Integers are written as variable
+ * length quantities so most events fit in about 20 bytes before
+ * compression</li>
+ * <li>a final {@link #TAG_END}</li>
+ * </ul>
+ * @see SessionRecorder
+ * @see SessionPlayer
+ */
+public class Session
+{
+	/**
+	 * Magic number of session files ("FESR")
+	 */
+	static final int MAGIC = 0x46455352;
+
+	/**
+	 * Version of session files format
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * Tag of the end of a session
+	 */
+	static final int TAG_END = 0;
+
+	/**
+	 * Tag of a tool declaration
+	 */
+	static final int TAG_TOOL = 1;
+
+	/**
+	 * Tag of a tool unregistration
+	 */
+	static final int TAG_UNREGISTER = 2;
+
+	/**
+	 * Tag of an event
+	 */
+	static final int TAG_EVENT = 3;
+
+	/**
+	 * Number of figures in the drawing when recording started
+	 */
+	private final int initialFigures;
+
+	/**
+	 * Class simple names of tools (indexed by tool ids)
+	 */
+	private final List<String> tools;
+
+	/**
+	 * Index of the first event following the unregistration of each tool
+	 * (indexed by tool ids) or {@link Integer#MAX_VALUE} if the tool has
+	 * never been unregistered
+	 */
+	private int[] unregistrations;
+
+	/**
+	 * The recorded events
+	 */
+	private final List<RecordedEvent> events;
+
+	/**
+	 * Constructor of an empty session
+	 * @param initialFigures the number of figures in the drawing when
+	 * recording started
+	 */
+	private Session(int initialFigures)
+	{
+		this.initialFigures = initialFigures;
+		tools = new ArrayList<>();
+		unregistrations = new int[0];
+		events = new ArrayList<>();
+	}
+
+	/**
+	 * Reads a session file
+	 * @param path the path of the session file
+	 * @return the session read from the file
+	 * @throws IOException if the file can't be read or is not a valid
+	 * session file
+	 */
+	public static Session read(Path path) throws IOException
+	{
+		try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path))))
+		{
+			return read(new DataInputStream(in));
+		}
+	}
+
+	/**
+	 * Reads a session
+	 * @param in the input to read from
+	 * @return the session read from in
+	 * @throws IOException if the session can't be read or is invalid
+	 */
+	private static Session read(DataInput in) throws IOException
+	{
+		if (in.readInt() != MAGIC)
+		{
+			throw new IOException("not a session file");
+		}
+		int version = in.readUnsignedByte();
+		if (version != VERSION)
+		{
+			throw new IOException("unsupported session version " + version);
+		}
+		Session session = new Session(readVarInt(in));
+		MouseButton[] buttons = MouseButton.values();
+		FigureType[] figureTypes = FigureType.values();
+		long time = 0L;
+		try
+		{
+			for (int tag = in.readUnsignedByte(); tag != TAG_END; tag = in.readUnsignedByte())
+			{
+				switch (tag)
+				{
+					case TAG_TOOL:
+					{
+						int id = readVarInt(in);
+						if (id != session.tools.size())
+						{
+							throw new IOException("unexpected tool id " + id);
+						}
+						session.tools.add(in.readUTF());
+						session.unregistrations = Arrays.copyOf(session.unregistrations, id + 1);
+						session.unregistrations[id] = Integer.MAX_VALUE;
+						break;
+					}
+					case TAG_UNREGISTER:
+					{
+						session.unregistrations[session.checkTool(readVarInt(in))] = session.events.size();
+						break;
+					}
+					case TAG_EVENT:
+					{
+						time += readVarLong(in) * 1000L;
+						int type = in.readUnsignedByte();
+						if (type >= RecordedEvent.TYPES.length)
+						{
+							throw new IOException("unknown event type " + type);
+						}
+						double x = in.readFloat();
+						double y = in.readFloat();
+						MouseButton button = buttons[Math.min(in.readUnsignedByte(), buttons.length - 1)];
+						int clickCount = readVarInt(in);
+						int flags = readVarInt(in);
+						int target = readVarInt(in) - 1;
+						int figureType = in.readUnsignedByte();
+						int[] eventTools = new int[readVarInt(in)];
+						for (int i = 0; i < eventTools.length; i++)
+						{
+							eventTools[i] = session.checkTool(readVarInt(in));
+						}
+						session.events.add(new RecordedEvent(time,
+						                                     type,
+						                                     x,
+						                                     y,
+						                                     button,
+						                                     clickCount,
+						                                     flags,
+						                                     target,
+						                                     (figureType < figureTypes.length ?
+						                                      figureTypes[figureType] : null),
+						                                     eventTools));
+						break;
+					}
+					default:
+						throw new IOException("unknown session entry " + tag);
+				}
+			}
+		}
+		catch (EOFException e)
+		{
+			/*
+			 * Sessions of an application which has not been properly
+			 * stopped have no end: keeps events read so far
+			 */
+		}
+		return session;
+	}
+
+	/**
+	 * Checks a tool id
+	 * @param id the tool id to check
+	 * @return the tool id
+	 * @throws IOException if id has not been declared
+	 */
+	private int checkTool(int id) throws IOException
+	{
+		if ((id < 0) || (id >= tools.size()))
+		{
+			throw new IOException("undeclared tool id " + id);
+		}
+		return id;
+	}
+
+	/**
+	 * Initial figures accessor
+	 * @return the number of figures in the drawing when recording started
+	 */
+	public int getInitialFigures()
+	{
+		return initialFigures;
+	}
+
+	/**
+	 * Tools accessor
+	 * @return the class simple names of the tools which received events
+	 * (indexed by tool ids)
+	 */
+	public List<String> getTools()
+	{
+		return Collections.unmodifiableList(tools);
+	}
+
+	/**
+	 * Index of the first event following the unregistration of a tool
+	 * @param id the tool id
+	 * @return the index of the first event following the unregistration of
+	 * the tool or {@link Integer#MAX_VALUE} if it has never been unregistered
+	 */
+	public int getUnregistration(int id)
+	{
+		return unregistrations[id];
+	}
+
+	/**
+	 * Events accessor
+	 * @return the recorded events
+	 */
+	public List<RecordedEvent> getEvents()
+	{
+		return Collections.unmodifiableList(events);
+	}
+
+	/**
+	 * Duration of the session
+	 * @return the time of the last event (in ns)
+	 */
+	public long getDuration()
+	{
+		return (events.isEmpty() ? 0L : events.get(events.size() - 1).time);
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d events, %d tools %s, %.1f s, %d initial figures",
+		                     events.size(),
+		                     tools.size(),
+		                     tools,
+		                     getDuration() / 1e9,
+		                     initialFigures);
+	}
+
+	/**
+	 * Writes a positive long as a variable length quantity (7 bits per byte,
+	 * least significant first)
+	 * @param out the output to write to
+	 * @param value the value to write
+	 * @throws IOException if the value can't be written
+	 */
+	static void writeVarLong(DataOutput out, long value) throws IOException
+	{
+		while ((value & ~0x7FL) != 0L)
+		{
+			out.writeByte((int) ((value & 0x7FL) | 0x80L));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	/**
+	 * Writes a positive int as a variable length quantity
+	 * @param out the output to write to
+	 * @param value the value to write
+	 * @throws IOException if the value can't be written
+	 */
+	static void writeVarInt(DataOutput out, int value) throws IOException
+	{
+		writeVarLong(out, value & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Reads a variable length quantity
+	 * @param in the input to read from
+	 * @return the value read
+	 * @throws IOException if the value can't be read
+	 */
+	static long readVarLong(DataInput in) throws IOException
+	{
+		long value = 0L;
+		for (int shift = 0; shift < 64; shift += 7)
+		{
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+			{
+				return value;
+			}
+		}
+		throw new IOException("malformed variable length quantity");
+	}
+
+	/**
+	 * Reads a variable length int
+	 * @param in the input to read from
+	 * @return the value read
+	 * @throws IOException if the value can't be read
+	 */
+	static int readVarInt(DataInput in) throws IOException
+	{
+		return (int) readVarLong(in);
+	}
+}
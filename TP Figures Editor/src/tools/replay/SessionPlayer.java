@@ -0,0 +1,321 @@
+package tools.replay;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import figures.Drawing;
+import figures.Figure;
+import figures.enums.FigureType;
+import history.HistoryManager;
+import javafx.beans.property.ObjectProperty;
+import javafx.event.Event;
+import javafx.event.EventTarget;
+import javafx.scene.Parent;
+import javafx.scene.control.Label;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Pane;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import tools.AbstractTool;
+import tools.CursorTool;
+import tools.SelectionTool;
+import tools.TransformTool;
+
+/**
+ * Deterministic replay of a recorded {@link Session} against tools and a
+ * {@link Drawing} model.
+ * Tools are created (by a {@link ToolFactory}) when they receive their first
+ * recorded event and unregistered when they have been unregistered during
+ * recording, so that tool switches are replayed as well.
+ * Events are replayed as fast as possible (recorded times are ignored) either:
+ * <ul>
+ * <li>detached from the UI: each recorded event is directly handled by the
+ * tools which received it, so only tools and drawing model are
+ * measured</li>
+ * <li>attached to the UI: each recorded event is dispatched through the scene
+ * graph from its target, then CSS and layout passes of the scene are
+ * performed (as they would be during the next pulse), so that event dispatch
+ * and scene graph updates are also measured. The drawing pane should be the
+ * root of a shown scene so that recorded coordinates are also scene
+ * coordinates.</li>
+ * </ul>
+ * Latencies of each replayed event are recorded in {@link MetricsRegistry}
+ * histograms named {@link #LATENCIES_PREFIX} followed by the event type name
+ * (and {@link #ALL_LATENCIES} for all events).
+ */
+public class SessionPlayer
+{
+	/**
+	 * Prefix of the names of replayed events latencies histograms
+	 */
+	public static final String LATENCIES_PREFIX = "replay.";
+
+	/**
+	 * Name of the histogram of all replayed events latencies
+	 */
+	public static final String ALL_LATENCIES = LATENCIES_PREFIX + "ALL";
+
+	/**
+	 * Factory of the tools to replay events against
+	 */
+	@FunctionalInterface
+	public interface ToolFactory
+	{
+		/**
+		 * Creates (and registers) a new tool
+		 * @param toolClass the class simple name of the tool to create
+		 * @param figureType the figure type of the drawing model when the
+		 * tool received its first event (or null)
+		 * @return a new tool registered on the drawing pane
+		 * @throws IllegalArgumentException if toolClass is unknown
+		 */
+		public abstract AbstractTool<?> create(String toolClass,
+		                                       FigureType figureType)
+		    throws IllegalArgumentException;
+	}
+
+	/**
+	 * The session to replay
+	 */
+	private final Session session;
+
+	/**
+	 * The drawing model to replay events against
+	 */
+	private final Drawing drawing;
+
+	/**
+	 * The property bound to the drawing model figure type (set to the
+	 * recorded figure type before each event) or null
+	 */
+	private final ObjectProperty<FigureType> figureTypeProperty;
+
+	/**
+	 * The factory of tools
+	 */
+	private final ToolFactory factory;
+
+	/**
+	 * Indicates if events are dispatched through the scene graph
+	 */
+	private final boolean attached;
+
+	/**
+	 * Ids of tools sorted by unregistration index
+	 */
+	private final Integer[] unregistrationOrder;
+
+	/**
+	 * Latencies of all replayed events
+	 */
+	private final LatencyHistogram allLatencies;
+
+	/**
+	 * Latencies of replayed events by event type code
+	 */
+	private final LatencyHistogram[] typeLatencies;
+
+	/**
+	 * Constructor
+	 * @param session the session to replay
+	 * @param drawing the drawing model to replay events against
+	 * @param figureTypeProperty the property bound to the drawing model
+	 * figure type (or null if figure type should not be set)
+	 * @param factory the factory of the tools to replay events against
+	 * @param attached true to dispatch events through the scene graph and
+	 * perform CSS and layout passes after each event, false to directly
+	 * handle events by tools
+	 * @throws IllegalStateException if attached is true and the drawing pane
+	 * does not belong to a scene
+	 */
+	public SessionPlayer(Session session,
+	                     Drawing drawing,
+	                     ObjectProperty<FigureType> figureTypeProperty,
+	                     ToolFactory factory,
+	                     boolean attached)
+	    throws IllegalStateException
+	{
+		if (attached && (drawing.getRoot().getScene() == null))
+		{
+			throw new IllegalStateException("drawing pane is not attached to a scene");
+		}
+		this.session = session;
+		this.drawing = drawing;
+		this.figureTypeProperty = figureTypeProperty;
+		this.factory = factory;
+		this.attached = attached;
+		unregistrationOrder = new Integer[session.getTools().size()];
+		for (int i = 0; i < unregistrationOrder.length; i++)
+		{
+			unregistrationOrder[i] = i;
+		}
+		Arrays.sort(unregistrationOrder, Comparator.comparingInt(session::getUnregistration));
+		allLatencies = MetricsRegistry.histogram(ALL_LATENCIES);
+		typeLatencies = new LatencyHistogram[RecordedEvent.TYPES.length];
+		for (int i = 0; i < typeLatencies.length; i++)
+		{
+			typeLatencies[i] = MetricsRegistry.histogram(LATENCIES_PREFIX
+			    + RecordedEvent.TYPES[i].getName());
+		}
+	}
+
+	/**
+	 * Default factory creating tools as {@link application.Controller} does
+	 * @param pane the drawing pane to register tools on
+	 * @param drawing the drawing model
+	 * @param messages the label to display tools messages
+	 * @param history the history manager to record drawing states (or null)
+	 * @param parentLogger the parent logger of tools
+	 * @return a factory of {@link CursorTool}s, {@link SelectionTool}s,
+	 * {@link TransformTool}s and creation tools (according to the recorded
+	 * figure type)
+	 */
+	public static ToolFactory defaultToolFactory(Pane pane,
+	                                             Drawing drawing,
+	                                             Label messages,
+	                                             HistoryManager<Figure> history,
+	                                             Logger parentLogger)
+	{
+		return (toolClass, figureType) -> {
+			switch (toolClass)
+			{
+				case "CursorTool":
+					return new CursorTool(pane, new Label(), new Label(), parentLogger);
+				case "SelectionTool":
+					return new SelectionTool(pane, drawing, parentLogger);
+				case "TransformTool":
+					return new TransformTool(pane, drawing, messages, history, parentLogger);
+				default:
+					if (figureType == null)
+					{
+						throw new IllegalArgumentException("unknown tool " + toolClass);
+					}
+					return figureType.getCreationTool(pane, drawing, messages, history, parentLogger);
+			}
+		};
+	}
+
+	/**
+	 * Replays all events of the session then unregisters all remaining tools
+	 * @throws IllegalArgumentException if a recorded tool can't be created
+	 * by the factory
+	 */
+	public void replay() throws IllegalArgumentException
+	{
+		Pane root = drawing.getRoot();
+		List<String> toolClasses = session.getTools();
+		AbstractTool<?>[] tools = new AbstractTool<?>[toolClasses.size()];
+		boolean[] unregistered = new boolean[tools.length];
+		int nextUnregistration = 0;
+		List<RecordedEvent> events = session.getEvents();
+
+		for (int i = 0; i < events.size(); i++)
+		{
+			RecordedEvent recorded = events.get(i);
+			while ((nextUnregistration < unregistrationOrder.length)
+			    && (session.getUnregistration(unregistrationOrder[nextUnregistration]) <= i))
+			{
+				int id = unregistrationOrder[nextUnregistration++];
+				unregistered[id] = true;
+				if (tools[id] != null)
+				{
+					tools[id].unregister();
+				}
+			}
+			if ((recorded.figureType != null) && (figureTypeProperty != null))
+			{
+				figureTypeProperty.set(recorded.figureType);
+			}
+			for (int id : recorded.tools)
+			{
+				if ((tools[id] == null) && !unregistered[id])
+				{
+					tools[id] = factory.create(toolClasses.get(id), recorded.figureType);
+				}
+			}
+			EventTarget target = root;
+			if ((recorded.target >= 0) && (recorded.target < drawing.size()))
+			{
+				target = drawing.get(recorded.target).getShape();
+			}
+
+			long start;
+			if (attached)
+			{
+				MouseEvent event = recorded.toMouseEvent(null, target);
+				Parent sceneRoot = root.getScene().getRoot();
+				start = System.nanoTime();
+				Event.fireEvent(target, event);
+				sceneRoot.applyCss();
+				sceneRoot.layout();
+			}
+			else
+			{
+				MouseEvent event = recorded.toMouseEvent(root, target);
+				start = System.nanoTime();
+				for (int id : recorded.tools)
+				{
+					if (tools[id] != null)
+					{
+						tools[id].handle(event);
+					}
+				}
+			}
+			long elapsed = System.nanoTime() - start;
+			allLatencies.record(elapsed);
+			typeLatencies[recorded.type].record(elapsed);
+		}
+
+		for (int id = 0; id < tools.length; id++)
+		{
+			if ((tools[id] != null) && !unregistered[id])
+			{
+				tools[id].unregister();
+			}
+		}
+	}
+
+	/**
+	 * Resets all latencies histograms (e.g. after warmup replays)
+	 */
+	public void resetLatencies()
+	{
+		allLatencies.reset();
+		for (LatencyHistogram histogram : typeLatencies)
+		{
+			histogram.reset();
+		}
+	}
+
+	/**
+	 * Latencies of replayed events
+	 * @return a map of latencies histograms (all events first, then each
+	 * replayed type of event) by name
+	 */
+	public Map<String, LatencyHistogram> getLatencies()
+	{
+		Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+		latencies.put(allLatencies.getName(), allLatencies);
+		for (LatencyHistogram histogram : typeLatencies)
+		{
+			if (histogram.getCount() > 0L)
+			{
+				latencies.put(histogram.getName(), histogram);
+			}
+		}
+		return latencies;
+	}
+
+	/**
+	 * Session accessor
+	 * @return the replayed session
+	 */
+	public Session getSession()
+	{
+		return session;
+	}
+}
@@ -0,0 +1,389 @@
+package tools.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import figures.Drawing;
+import figures.Figure;
+import javafx.event.EventTarget;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.shape.Shape;
+import logger.LoggerFactory;
+import tools.AbstractDrawingTool;
+import tools.AbstractTool;
+
+/**
+ * Records mouse events received by tools into a {@link Session} file.
+ * Tools report each handled event with {@link #record(AbstractTool, MouseEvent)}
+ * and their unregistration with {@link #unregistered(AbstractTool)}, which
+ * both cost a single volatile read when no session is being recorded.
+ * The same event is usually received by several tools (e.g. a
+ * {@link tools.CursorTool} filter and a {@link tools.TransformTool} handler):
+ * consecutive identical events received by distinct tools are merged into a
+ * single {@link RecordedEvent} so that it can be dispatched once when
+ * replayed through the scene graph.
+ * @implNote Recording assumes all tools are registered on the same root node
+ * (the drawing pane) so that events coordinates relative to their source are
+ * also relative to this root node.
+ */
+public class SessionRecorder
+{
+	/**
+	 * The session recorder currently recording (or null)
+	 */
+	private static volatile SessionRecorder active = null;
+
+	/**
+	 * The output session events are written to
+	 */
+	private final DataOutputStream out;
+
+	/**
+	 * Path of the session file
+	 */
+	private final Path path;
+
+	/**
+	 * Ids of tools which received events (tools are not retained by the
+	 * recorder)
+	 */
+	private final Map<AbstractTool<?>, Integer> toolIds;
+
+	/**
+	 * Next tool id
+	 */
+	private int nextToolId;
+
+	/**
+	 * Start time of the session (as returned by {@link System#nanoTime()})
+	 */
+	private final long start;
+
+	/**
+	 * Time of the last written event since start (in µs)
+	 */
+	private long lastWritten;
+
+	/**
+	 * The last recorded event (not yet written since it may still be
+	 * received by other tools)
+	 */
+	private RecordedEvent pending;
+
+	/**
+	 * Last resolved target shape (to avoid searching the drawing again for
+	 * successive events targeting the same shape)
+	 */
+	private Shape lastShape;
+
+	/**
+	 * Index of the figure of {@link #lastShape}
+	 */
+	private int lastShapeIndex;
+
+	/**
+	 * Number of recorded events
+	 */
+	private long count;
+
+	/**
+	 * Logger to issue messages
+	 */
+	private final Logger logger;
+
+	/**
+	 * Constructor
+	 * @param path the path of the session file to create
+	 * @param initialFigures the number of figures in the drawing when
+	 * recording starts
+	 * @param logger the logger to issue messages
+	 * @throws IOException if the session file can't be created
+	 */
+	private SessionRecorder(Path path, int initialFigures, Logger logger)
+	    throws IOException
+	{
+		this.path = path;
+		this.logger = logger;
+		out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(path))));
+		out.writeInt(Session.MAGIC);
+		out.writeByte(Session.VERSION);
+		Session.writeVarInt(out, initialFigures);
+		toolIds = new WeakHashMap<>();
+		nextToolId = 0;
+		start = System.nanoTime();
+		lastWritten = 0L;
+		pending = null;
+		lastShape = null;
+		lastShapeIndex = RecordedEvent.ROOT_TARGET;
+		count = 0L;
+	}
+
+	/**
+	 * Starts recording a session (stopping the session currently recorded
+	 * if any)
+	 * @param path the path of the session file to create
+	 * @param initialFigures the number of figures in the drawing when
+	 * recording starts
+	 * @param parentLogger the parent logger
+	 * @throws IOException if the session file can't be created
+	 */
+	public static synchronized void start(Path path,
+	                                      int initialFigures,
+	                                      Logger parentLogger)
+	    throws IOException
+	{
+		stop();
+		Logger logger = LoggerFactory.getParentLogger(SessionRecorder.class,
+		                                              parentLogger,
+		                                              (parentLogger == null ?
+		                                               Level.INFO : null));
+		active = new SessionRecorder(path, initialFigures, logger);
+		logger.info("Recording mouse session to " + path.toAbsolutePath());
+	}
+
+	/**
+	 * Stops recording the current session (if any) and closes its file
+	 */
+	public static synchronized void stop()
+	{
+		SessionRecorder recorder = active;
+		if (recorder != null)
+		{
+			active = null;
+			recorder.close();
+		}
+	}
+
+	/**
+	 * Indicates if a session is being recorded
+	 * @return true if a session is being recorded
+	 */
+	public static boolean isRecording()
+	{
+		return active != null;
+	}
+
+	/**
+	 * Records an event received by a tool (if a session is being recorded)
+	 * @param tool the tool which received the event
+	 * @param event the received event
+	 */
+	public static void record(AbstractTool<?> tool, MouseEvent event)
+	{
+		SessionRecorder recorder = active;
+		if (recorder != null)
+		{
+			recorder.recordEvent(tool, event);
+		}
+	}
+
+	/**
+	 * Records the unregistration of a tool (if a session is being recorded)
+	 * @param tool the unregistered tool
+	 */
+	public static void unregistered(AbstractTool<?> tool)
+	{
+		SessionRecorder recorder = active;
+		if (recorder != null)
+		{
+			recorder.recordUnregistration(tool);
+		}
+	}
+
+	/**
+	 * Records an event received by a tool
+	 * @param tool the tool which received the event
+	 * @param event the received event
+	 */
+	private synchronized void recordEvent(AbstractTool<?> tool, MouseEvent event)
+	{
+		int type = RecordedEvent.typeCode(event.getEventType());
+		if (type < 0)
+		{
+			return;
+		}
+		Drawing drawing = null;
+		if (tool instanceof AbstractDrawingTool<?>)
+		{
+			drawing = ((AbstractDrawingTool<?>) tool).getDrawingModel();
+		}
+		try
+		{
+			int toolId = toolId(tool);
+			RecordedEvent recorded = new RecordedEvent(System.nanoTime() - start,
+			                                           type,
+			                                           event.getX(),
+			                                           event.getY(),
+			                                           event.getButton(),
+			                                           event.getClickCount(),
+			                                           RecordedEvent.flagsOf(event),
+			                                           targetIndex(drawing, event.getTarget()),
+			                                           (drawing != null ? drawing.getFigureType() : null),
+			                                           new int[] {toolId});
+			if ((pending != null) && pending.sameAs(recorded) && !pending.receivedBy(toolId))
+			{
+				pending.addTool(toolId);
+			}
+			else
+			{
+				writePending();
+				pending = recorded;
+			}
+		}
+		catch (IOException e)
+		{
+			fail(e);
+		}
+	}
+
+	/**
+	 * Records the unregistration of a tool
+	 * @param tool the unregistered tool
+	 */
+	private synchronized void recordUnregistration(AbstractTool<?> tool)
+	{
+		Integer id = toolIds.remove(tool);
+		if (id == null)
+		{
+			return;	// tool did not receive any event
+		}
+		try
+		{
+			writePending();
+			out.writeByte(Session.TAG_UNREGISTER);
+			Session.writeVarInt(out, id);
+		}
+		catch (IOException e)
+		{
+			fail(e);
+		}
+	}
+
+	/**
+	 * Id of a tool (declared in the session file when a tool receives its
+	 * first event)
+	 * @param tool the tool
+	 * @return the id of the tool
+	 * @throws IOException if the declaration of a new tool can't be written
+	 */
+	private int toolId(AbstractTool<?> tool) throws IOException
+	{
+		Integer id = toolIds.get(tool);
+		if (id == null)
+		{
+			/*
+			 * Declaration is written before the pending event which may
+			 * still be received by this new tool
+			 */
+			id = nextToolId++;
+			toolIds.put(tool, id);
+			out.writeByte(Session.TAG_TOOL);
+			Session.writeVarInt(out, id);
+			out.writeUTF(tool.getClass().getSimpleName());
+		}
+		return id;
+	}
+
+	/**
+	 * Index of the figure targeted by an event
+	 * @param drawing the drawing model of the tool which received the event
+	 * (or null)
+	 * @param target the target of the event
+	 * @return the index of the figure whose shape is target in drawing or
+	 * {@link RecordedEvent#ROOT_TARGET}
+	 */
+	private int targetIndex(Drawing drawing, EventTarget target)
+	{
+		if ((drawing == null) || !(target instanceof Shape))
+		{
+			return RecordedEvent.ROOT_TARGET;
+		}
+		Shape shape = (Shape) target;
+		if ((shape == lastShape)
+		    && (lastShapeIndex < drawing.size())
+		    && (drawing.get(lastShapeIndex).getShape() == shape))
+		{
+			return lastShapeIndex;
+		}
+		Figure figure = drawing.fromShape(shape);
+		int index = (figure != null ? drawing.indexOf(figure) : RecordedEvent.ROOT_TARGET);
+		if (index >= 0)
+		{
+			lastShape = shape;
+			lastShapeIndex = index;
+		}
+		return index;
+	}
+
+	/**
+	 * Writes the {@link #pending} event (if any)
+	 * @throws IOException if the event can't be written
+	 */
+	private void writePending() throws IOException
+	{
+		if (pending == null)
+		{
+			return;
+		}
+		long time = pending.time / 1000L;
+		out.writeByte(Session.TAG_EVENT);
+		Session.writeVarLong(out, Math.max(0L, time - lastWritten));
+		out.writeByte(pending.type);
+		out.writeFloat((float) pending.x);
+		out.writeFloat((float) pending.y);
+		out.writeByte(pending.button.ordinal());
+		Session.writeVarInt(out, pending.clickCount);
+		Session.writeVarInt(out, pending.flags);
+		Session.writeVarInt(out, pending.target + 1);
+		out.writeByte(pending.figureType != null ? pending.figureType.ordinal() : 0xFF);
+		Session.writeVarInt(out, pending.tools.length);
+		for (int id : pending.tools)
+		{
+			Session.writeVarInt(out, id);
+		}
+		lastWritten = Math.max(lastWritten, time);
+		pending = null;
+		count++;
+	}
+
+	/**
+	 * Stops recording after a write failure
+	 * @param e the write failure
+	 */
+	private void fail(IOException e)
+	{
+		logger.severe("Can't record mouse session to " + path + " : "
+		    + e.getMessage());
+		active = null;
+		pending = null;
+		close();
+	}
+
+	/**
+	 * Writes the pending event and the end of the session then closes the
+	 * session file
+	 */
+	private synchronized void close()
+	{
+		try
+		{
+			writePending();
+			out.writeByte(Session.TAG_END);
+			out.close();
+			logger.info(count + " mouse events recorded to " + path.toAbsolutePath());
+		}
+		catch (IOException e)
+		{
+			logger.severe("Can't close mouse session " + path + " : "
+			    + e.getMessage());
+		}
+	}
+}
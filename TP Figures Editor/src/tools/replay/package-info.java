@@ -0,0 +1,9 @@
+/**
+ * Package containing the recording of mouse sessions at the
+ * {@link tools.AbstractTool#handle(javafx.scene.input.MouseEvent)} boundary
+ * into compact session files ({@link tools.replay.SessionRecorder}) and their
+ * deterministic replay against tools and {@link figures.Drawing} model
+ * ({@link tools.replay.SessionPlayer}) in order to measure per event latencies
+ * on realistic workloads.
+ */
+package tools.replay;
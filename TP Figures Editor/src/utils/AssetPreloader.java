@@ -0,0 +1,290 @@
+package utils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import metrics.StartupProfiler;
+
+/**
+ * Background preloader of the icons used by the application.
+ * {@link #start()} decodes all {@link #ICON_NAMES} icons concurrently (in
+ * the common fork join pool) while the rest of the application (such as the
+ * FXML file) is loading, then packs them into a single atlas image in which
+ * each icon can be found through its viewport (see
+ * {@link #getViewport(String)} and {@link #createImageView(String)}).
+ * {@link IconFactory#getIcon(String)} obtains preloaded icons from this
+ * preloader (waiting for them to be decoded if needed) rather than decoding
+ * them again on the JavaFX application thread.
+ * @implNote Requires the JavaFX toolkit to be started (which is the case in
+ * {@link javafx.application.Application#init()}).
+ */
+public class AssetPreloader
+{
+	/**
+	 * Names of icons requested through {@link IconFactory} by the application
+	 */
+	public static final String[] ICON_NAMES = {
+		"Circle",
+		"Ellipse",
+		"Rectangle",
+		"Rounded_Rectangle",
+		"Polygon",
+		"Ngon",
+		"Star",
+		"Stroke_Solid",
+		"Stroke_Dashed",
+		"Stroke_None",
+		"clock",
+		"create_new",
+		"edit",
+		"empty_filter",
+		"filled_filter"
+	};
+
+	/**
+	 * Icons being (or already) decoded by name (in {@link #ICON_NAMES}
+	 * order)
+	 */
+	private static final Map<String, CompletableFuture<Image>> icons =
+		Collections.synchronizedMap(new LinkedHashMap<>());
+
+	/**
+	 * Atlas being (or already) built from all decoded icons
+	 */
+	private static volatile CompletableFuture<Atlas> atlas = null;
+
+	/**
+	 * Time at which preloading started (in ns)
+	 */
+	private static volatile long startTime = 0L;
+
+	/**
+	 * Time taken to decode all icons and build the atlas (in ns) or -1 if
+	 * preloading is not finished yet
+	 */
+	private static volatile long preloadTime = -1L;
+
+	/**
+	 * Atlas image containing all icons and the viewport of each icon within
+	 * this image
+	 */
+	private static class Atlas
+	{
+		/**
+		 * The atlas image
+		 */
+		final Image image;
+
+		/**
+		 * Viewports of icons in {@link #image} by name
+		 */
+		final Map<String, Rectangle2D> viewports;
+
+		/**
+		 * Constructor
+		 * @param image the atlas image
+		 * @param viewports the viewports of icons in the atlas image
+		 */
+		Atlas(Image image, Map<String, Rectangle2D> viewports)
+		{
+			this.image = image;
+			this.viewports = viewports;
+		}
+	}
+
+	/**
+	 * Private constructor to prevent instantiation
+	 */
+	private AssetPreloader()
+	{
+	}
+
+	/**
+	 * Starts decoding all {@link #ICON_NAMES} icons concurrently and building
+	 * the atlas. Does nothing if preloading has already been started.
+	 */
+	public static synchronized void start()
+	{
+		if (atlas != null)
+		{
+			return;
+		}
+		startTime = System.nanoTime();
+		for (String name : ICON_NAMES)
+		{
+			icons.put(name, CompletableFuture.supplyAsync(() -> IconFactory.loadIcon(name)));
+		}
+		CompletableFuture<?>[] all;
+		synchronized (icons)
+		{
+			all = icons.values().toArray(new CompletableFuture<?>[0]);
+		}
+		atlas = CompletableFuture.allOf(all).thenApply(v -> {
+			Atlas result = buildAtlas();
+			preloadTime = System.nanoTime() - startTime;
+			StartupProfiler.record("icons preload (background)", startTime);
+			return result;
+		});
+	}
+
+	/**
+	 * Indicates if preloading has been started
+	 * @return true if {@link #start()} has been called
+	 */
+	public static boolean isStarted()
+	{
+		return atlas != null;
+	}
+
+	/**
+	 * Preloaded icon accessor (waiting for this icon to be decoded if
+	 * needed)
+	 * @param name the name of the icon
+	 * @return the decoded icon or null if this icon is not preloaded (or
+	 * could not be decoded)
+	 */
+	public static Image getIcon(String name)
+	{
+		CompletableFuture<Image> icon = icons.get(name);
+		return (icon != null ? join(icon) : null);
+	}
+
+	/**
+	 * Atlas image accessor (waiting for the atlas to be built if needed)
+	 * @return the image containing all preloaded icons or null if preloading
+	 * has not been started
+	 */
+	public static Image getAtlas()
+	{
+		CompletableFuture<Atlas> current = atlas;
+		Atlas result = (current != null ? join(current) : null);
+		return (result != null ? result.image : null);
+	}
+
+	/**
+	 * Viewport of an icon within the {@link #getAtlas()} image (waiting for
+	 * the atlas to be built if needed)
+	 * @param name the name of the icon
+	 * @return the viewport of this icon within the atlas image or null if
+	 * this icon is not part of the atlas
+	 */
+	public static Rectangle2D getViewport(String name)
+	{
+		CompletableFuture<Atlas> current = atlas;
+		Atlas result = (current != null ? join(current) : null);
+		return (result != null ? result.viewports.get(name) : null);
+	}
+
+	/**
+	 * Creates an image view showing an icon.
+	 * The view shows the atlas image through the icon's viewport if this icon
+	 * is part of the atlas, or the icon from {@link IconFactory} otherwise.
+	 * @param name the name of the icon
+	 * @return a new image view showing this icon
+	 */
+	public static ImageView createImageView(String name)
+	{
+		Rectangle2D viewport = getViewport(name);
+		if (viewport != null)
+		{
+			ImageView view = new ImageView(getAtlas());
+			view.setViewport(viewport);
+			return view;
+		}
+		return new ImageView(IconFactory.getIcon(name));
+	}
+
+	/**
+	 * Time taken to decode all icons and build the atlas
+	 * @return the preloading time (in ms) or -1 if preloading is not
+	 * finished yet
+	 */
+	public static double getPreloadTime()
+	{
+		long time = preloadTime;
+		return (time >= 0 ? time / 1e6 : -1.0);
+	}
+
+	/**
+	 * Packs all decoded icons into a single atlas image (in a square grid of
+	 * cells as large as the largest icon)
+	 * @return the atlas containing all successfully decoded icons
+	 */
+	private static Atlas buildAtlas()
+	{
+		Map<String, Image> decoded = new LinkedHashMap<>();
+		synchronized (icons)
+		{
+			for (Map.Entry<String, CompletableFuture<Image>> entry : icons.entrySet())
+			{
+				Image icon = join(entry.getValue());
+				if ((icon != null) && (icon.getPixelReader() != null))
+				{
+					decoded.put(entry.getKey(), icon);
+				}
+			}
+		}
+		Map<String, Rectangle2D> viewports = new LinkedHashMap<>();
+		if (decoded.isEmpty())
+		{
+			return new Atlas(null, viewports);
+		}
+		int cellWidth = 1;
+		int cellHeight = 1;
+		for (Image icon : decoded.values())
+		{
+			cellWidth = Math.max(cellWidth, (int) icon.getWidth());
+			cellHeight = Math.max(cellHeight, (int) icon.getHeight());
+		}
+		int columns = (int) Math.ceil(Math.sqrt(decoded.size()));
+		int rows = (decoded.size() + columns - 1) / columns;
+		WritableImage image = new WritableImage(columns * cellWidth, rows * cellHeight);
+		PixelWriter writer = image.getPixelWriter();
+		int index = 0;
+		for (Map.Entry<String, Image> entry : decoded.entrySet())
+		{
+			Image icon = entry.getValue();
+			int width = (int) icon.getWidth();
+			int height = (int) icon.getHeight();
+			int x = (index % columns) * cellWidth;
+			int y = (index / columns) * cellHeight;
+			PixelReader reader = icon.getPixelReader();
+			writer.setPixels(x, y, width, height, reader, 0, 0);
+			viewports.put(entry.getKey(), new Rectangle2D(x, y, width, height));
+			index++;
+		}
+		return new Atlas(image, Collections.unmodifiableMap(viewports));
+	}
+
+	/**
+	 * Waits for a future value
+	 * @param <T> the type of value
+	 * @param future the future value
+	 * @return the value or null if it could not be computed
+	 */
+	private static <T> T join(CompletableFuture<T> future)
+	{
+		try
+		{
+			return future.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		catch (ExecutionException e)
+		{
+			return null;
+		}
+	}
+}
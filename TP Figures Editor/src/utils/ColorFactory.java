@@ -20,10 +20,10 @@ public class ColorFactory
 	private static final Map<String, Color> standardColors = standardColorsMap();
 
 	/**
-	 * Flyweight factory containing all requested colors
+	 * Interning cache containing all requested colors
 	 */
-	private static FlyweightFactory<Color> colorFactory =
-		new FlyweightFactory<Color>();
+	private static final InterningCache<Color> colorFactory =
+		new InterningCache<Color>();
 
 	/**
 	 * Simple Colors construction
@@ -60,7 +60,7 @@ public class ColorFactory
 		{
 			return null;
 		}
-		return colorFactory.get(color);
+		return colorFactory.intern(color);
 	}
 
 	/**
@@ -76,6 +76,15 @@ public class ColorFactory
 		{
 			return null;
 		}
-		return colorFactory.get(standardColors.get(colorName));
+		return colorFactory.intern(standardColors.get(colorName));
+	}
+
+	/**
+	 * Colors cache accessor (e.g. to obtain its statistics)
+	 * @return the cache containing all requested colors
+	 */
+	public static ConcurrentCache<Color, Color> getCache()
+	{
+		return colorFactory;
 	}
 }
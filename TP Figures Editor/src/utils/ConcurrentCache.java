@@ -0,0 +1,366 @@
+package utils;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Thread safe cache of values associated to keys compared with
+ * {@link Object#equals(Object)} (and not only with their hash codes as in
+ * {@link FlyweightFactory}).
+ * Values are stored in a {@link ConcurrentHashMap} so reads never lock and
+ * writes only lock the bin of the written key. Values can be referenced
+ * strongly, weakly or softly (see {@link References}) so that unused values
+ * can be reclaimed by the garbage collector.
+ * The cache also counts hits and misses.
+ * @param <K> the type of keys
+ * @param <V> the type of cached values
+ * @see InterningCache
+ */
+public class ConcurrentCache<K, V>
+{
+	/**
+	 * How values are referenced by the cache
+	 */
+	public enum References
+	{
+		/**
+		 * Values are never reclaimed (until removed or cleared)
+		 */
+		STRONG,
+		/**
+		 * Values are reclaimed as soon as they are not used anymore
+		 */
+		WEAK,
+		/**
+		 * Values are reclaimed when memory runs low
+		 */
+		SOFT
+	}
+
+	/**
+	 * Reference to a value also remembering its key so the entry can be
+	 * removed when value is reclaimed
+	 * @param <K> the type of keys
+	 */
+	private interface ValueReference<K>
+	{
+		/**
+		 * Key of the referenced value
+		 * @return the key of the referenced value
+		 */
+		K getKey();
+	}
+
+	/**
+	 * Weak reference to a value
+	 * @param <K> the type of keys
+	 * @param <V> the type of values
+	 */
+	private static class WeakValue<K, V> extends WeakReference<V>
+	    implements ValueReference<K>
+	{
+		/**
+		 * Key of the referenced value
+		 */
+		private final K key;
+
+		/**
+		 * Constructor
+		 * @param key the key of the value
+		 * @param value the referenced value
+		 * @param queue the queue where reclaimed values are enqueued
+		 */
+		WeakValue(K key, V value, ReferenceQueue<? super V> queue)
+		{
+			super(value, queue);
+			this.key = key;
+		}
+
+		@Override
+		public K getKey()
+		{
+			return key;
+		}
+	}
+
+	/**
+	 * Soft reference to a value
+	 * @param <K> the type of keys
+	 * @param <V> the type of values
+	 */
+	private static class SoftValue<K, V> extends SoftReference<V>
+	    implements ValueReference<K>
+	{
+		/**
+		 * Key of the referenced value
+		 */
+		private final K key;
+
+		/**
+		 * Constructor
+		 * @param key the key of the value
+		 * @param value the referenced value
+		 * @param queue the queue where reclaimed values are enqueued
+		 */
+		SoftValue(K key, V value, ReferenceQueue<? super V> queue)
+		{
+			super(value, queue);
+			this.key = key;
+		}
+
+		@Override
+		public K getKey()
+		{
+			return key;
+		}
+	}
+
+	/**
+	 * Cached values (or references to values when {@link #references} is not
+	 * {@link References#STRONG})
+	 */
+	private final ConcurrentHashMap<K, Object> map;
+
+	/**
+	 * How values are referenced
+	 */
+	private final References references;
+
+	/**
+	 * Queue receiving references of reclaimed values
+	 */
+	private final ReferenceQueue<V> queue;
+
+	/**
+	 * Number of requests finding their value in the cache
+	 */
+	private final LongAdder hits;
+
+	/**
+	 * Number of requests not finding their value in the cache
+	 */
+	private final LongAdder misses;
+
+	/**
+	 * Constructor
+	 * @param references how values are referenced by this cache
+	 */
+	public ConcurrentCache(References references)
+	{
+		map = new ConcurrentHashMap<>();
+		this.references = references;
+		queue = new ReferenceQueue<>();
+		hits = new LongAdder();
+		misses = new LongAdder();
+	}
+
+	/**
+	 * Default constructor with {@link References#STRONG} references
+	 */
+	public ConcurrentCache()
+	{
+		this(References.STRONG);
+	}
+
+	/**
+	 * Value accessor
+	 * @param key the key of the value
+	 * @return the value associated to key or null if there is no such value
+	 * in the cache
+	 */
+	public V getIfPresent(K key)
+	{
+		Object stored = map.get(key);
+		V value = (stored != null ? unwrap(stored) : null);
+		if (value != null)
+		{
+			hits.increment();
+		}
+		else
+		{
+			misses.increment();
+		}
+		return value;
+	}
+
+	/**
+	 * Value accessor loading missing values.
+	 * When two threads miss the same key concurrently the loader might be
+	 * called by both, but both obtain the same (first stored) value.
+	 * @param key the key of the value
+	 * @param loader the function creating the value of a missing key (which
+	 * may return null, in which case nothing is stored)
+	 * @return the value associated to key in the cache or the value created
+	 * by loader (or null if loader returned null)
+	 */
+	public V get(K key, Function<? super K, ? extends V> loader)
+	{
+		Object stored = map.get(key);
+		V value = (stored != null ? unwrap(stored) : null);
+		if (value != null)
+		{
+			hits.increment();
+			return value;
+		}
+		misses.increment();
+		expunge();
+		V created = loader.apply(key);
+		if (created == null)
+		{
+			return null;
+		}
+		Object wrapped = wrap(key, created);
+		while (true)
+		{
+			Object current = map.putIfAbsent(key, wrapped);
+			if (current == null)
+			{
+				return created;
+			}
+			V existing = unwrap(current);
+			if (existing != null)
+			{
+				return existing;
+			}
+			// Current value has been reclaimed: replace it
+			if (map.replace(key, current, wrapped))
+			{
+				return created;
+			}
+		}
+	}
+
+	/**
+	 * Removes the value associated to a key
+	 * @param key the key of the value to remove
+	 */
+	public void remove(K key)
+	{
+		map.remove(key);
+	}
+
+	/**
+	 * Removes all values
+	 */
+	public void clear()
+	{
+		map.clear();
+		expunge();
+	}
+
+	/**
+	 * Number of entries in this cache (including entries whose values have
+	 * been reclaimed but not yet removed)
+	 * @return the number of entries in this cache
+	 */
+	public int size()
+	{
+		expunge();
+		return map.size();
+	}
+
+	/**
+	 * Number of requests which found their value in the cache
+	 * @return the number of hits
+	 */
+	public long getHits()
+	{
+		return hits.sum();
+	}
+
+	/**
+	 * Number of requests which did not find their value in the cache
+	 * @return the number of misses
+	 */
+	public long getMisses()
+	{
+		return misses.sum();
+	}
+
+	/**
+	 * Ratio of requests which found their value in the cache
+	 * @return the hit ratio in [0..1] (or 0 if there was no request yet)
+	 */
+	public double getHitRatio()
+	{
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return (total > 0 ? (double) h / total : 0.0);
+	}
+
+	/**
+	 * Resets hits and misses counters
+	 */
+	public void resetStatistics()
+	{
+		hits.reset();
+		misses.reset();
+	}
+
+	/**
+	 * String representation of this cache statistics
+	 * @return a String containing size, hits, misses and hit ratio of this
+	 * cache
+	 */
+	@Override
+	public String toString()
+	{
+		return new String(getClass().getSimpleName() + "[" + references
+		    + ", size=" + size() + ", hits=" + getHits() + ", misses="
+		    + getMisses() + String.format(", ratio=%.3f", getHitRatio()) + "]");
+	}
+
+	/**
+	 * Wraps a value according to {@link #references}
+	 * @param key the key of the value
+	 * @param value the value to wrap
+	 * @return the object to store in {@link #map}
+	 */
+	private Object wrap(K key, V value)
+	{
+		switch (references)
+		{
+			case WEAK:
+				return new WeakValue<K, V>(key, value, queue);
+			case SOFT:
+				return new SoftValue<K, V>(key, value, queue);
+			default:
+			case STRONG:
+				return value;
+		}
+	}
+
+	/**
+	 * Unwraps a stored object
+	 * @param stored the object stored in {@link #map}
+	 * @return the value or null if value has been reclaimed
+	 */
+	@SuppressWarnings("unchecked")
+	private V unwrap(Object stored)
+	{
+		if (stored instanceof ValueReference<?>)
+		{
+			return ((Reference<V>) stored).get();
+		}
+		return (V) stored;
+	}
+
+	/**
+	 * Removes entries whose values have been reclaimed
+	 */
+	@SuppressWarnings("unchecked")
+	private void expunge()
+	{
+		for (Reference<? extends V> reference = queue.poll();
+		     reference != null;
+		     reference = queue.poll())
+		{
+			map.remove(((ValueReference<K>) reference).getKey(), reference);
+		}
+	}
+}
@@ -18,7 +18,11 @@ import logger.LoggerFactory;
  * to {@link #map} then returned from {@link #map}.
  * @author davidroussel
  * @param <T> The type of elements stored in this factory
+ * @deprecated elements are only compared by hash codes (so colliding
+ * elements are confused) and this factory is not thread safe: use
+ * {@link InterningCache} or {@link ConcurrentCache} instead.
  */
+@Deprecated
 public class FlyweightFactory<T>
 {
 	/**
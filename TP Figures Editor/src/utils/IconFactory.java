@@ -5,9 +5,12 @@ import java.util.logging.Logger;
 
 import javafx.scene.image.Image;
 import logger.LoggerFactory;
+import metrics.StartupProfiler;
 
 /**
- * Factory providing {@link Image} icons in order to reuse frequently used images
+ * Factory providing {@link Image} icons in order to reuse frequently used images.
+ * Icons preloaded by {@link AssetPreloader} are obtained from the preloader
+ * instead of being decoded again.
  * @author davidroussel
  */
 public class IconFactory
@@ -23,19 +26,20 @@ public class IconFactory
 	private final static String ImagePostfix = "-32.png";
 
 	/**
-	 * La factory stockant et fournissant les icônes
+	 * The cache storing and providing icons by name.
+	 * Icons are softly referenced so they can be reclaimed when memory runs
+	 * low (and reloaded when needed again)
 	 */
-	static private FlyweightFactory<Image> iconFactory =
-		new FlyweightFactory<Image>();
+	static private final ConcurrentCache<String, Image> iconFactory =
+		new ConcurrentCache<String, Image>(ConcurrentCache.References.SOFT);
 
 	/**
-	 * Logger from {@link #iconFactory}
+	 * Logger to display messages
 	 */
 	static private Logger logger = LoggerFactory
 	    .getParentLogger(IconFactory.class,
-	                     iconFactory.getLogger(),
-	                     (iconFactory .getLogger() == null ?
-	                      Level.INFO : null)); // null level to inherit parent logger's level
+	                     null,
+	                     Level.INFO);
 
 	/**
 	 * Factory method retrieving an Image icon based on a provided icon name
@@ -52,28 +56,48 @@ public class IconFactory
 			return null;
 		}
 
-		int hash = name.hashCode();
-		Image icon = iconFactory.get(hash);
+		return iconFactory.get(name, n -> {
+			Image preloaded = AssetPreloader.getIcon(n);
+			return (preloaded != null ? preloaded : loadIcon(n));
+		});
+	}
 
-		if (icon == null)
+	/**
+	 * Loads an icon from its name
+	 * @param name the name of the icon to load
+	 * @return the loaded image or null if it can't be loaded
+	 * @implNote Also used by {@link AssetPreloader} to decode icons in
+	 * background
+	 */
+	static Image loadIcon(String name)
+	{
+		long start = System.nanoTime();
+		String fileName = new String(ImagePrefix + name + ImagePostfix);
+		Image icon = null;
+		try
 		{
-			String fileName = new String(ImagePrefix + name + ImagePostfix);
-			try
-			{
-				icon = new Image(fileName);
-			}
-			catch (IllegalArgumentException iae)
-			{
-				logger.severe(name + ": couldn't load file " + fileName);
-			}
+			icon = new Image(fileName);
+		}
+		catch (IllegalArgumentException iae)
+		{
+			logger.severe(name + ": couldn't load file " + fileName);
+		}
+		StartupProfiler.accumulate("icons decoding", System.nanoTime() - start);
 
-			if ((icon != null) && !icon.isError())
-			{
-				iconFactory.put(hash, icon);
-			}
-			icon = iconFactory.get(hash);
+		if ((icon != null) && !icon.isError())
+		{
+			return icon;
 		}
-		return icon;
+		return null;
+	}
+
+	/**
+	 * Icons cache accessor (e.g. to obtain its statistics)
+	 * @return the cache containing all loaded icons
+	 */
+	public static ConcurrentCache<String, Image> getCache()
+	{
+		return iconFactory;
 	}
 
 	/**
@@ -0,0 +1,38 @@
+package utils;
+
+/**
+ * Thread safe interning cache providing a unique instance of equal elements
+ * (according to {@link Object#equals(Object)}): the first interned instance
+ * of each value is returned for all subsequent equal elements.
+ * @implNote Interned elements are their own keys and are therefore always
+ * strongly referenced.
+ * @param <T> the type of interned elements (which should be immutable and
+ * provide consistent {@link Object#equals(Object)} and
+ * {@link Object#hashCode()} methods)
+ */
+public class InterningCache<T> extends ConcurrentCache<T, T>
+{
+	/**
+	 * Default constructor
+	 */
+	public InterningCache()
+	{
+		super(References.STRONG);
+	}
+
+	/**
+	 * Unique instance of an element
+	 * @param element the element to intern
+	 * @return the unique instance equal to element (which is element itself
+	 * if no equal element has been interned before) or null if element is
+	 * null
+	 */
+	public T intern(T element)
+	{
+		if (element == null)
+		{
+			return null;
+		}
+		return get(element, e -> e);
+	}
+}
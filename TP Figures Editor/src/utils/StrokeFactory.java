@@ -5,57 +5,51 @@ import java.awt.BasicStroke;
 import figures.enums.LineType;
 
 /**
- * Classe contenant une FlyweightFactory pour les {@link BasicStroke} afin de pouvoir
+ * Classe contenant un cache d'internement pour les {@link BasicStroke} afin de pouvoir
  * réutiliser un même {@link BasicStroke} à plusieurs endroits du programme
  * @author davidroussel
  */
 public class StrokeFactory
 {
 	/**
-	 * Flyweight factory stockant tous les {@link BasicStroke} déjà requis
+	 * Cache d'internement stockant tous les {@link BasicStroke} déjà requis
 	 */
-	private static FlyweightFactory<BasicStroke> strokeFactory =
-		new FlyweightFactory<BasicStroke>();
+	private static final InterningCache<BasicStroke> strokeFactory =
+		new InterningCache<BasicStroke>();
 
 	/**
 	 * Obtention d'un {@link BasicStroke} de la factory
 	 * @param stroke le paint recherché
 	 * @return le stroke recherché
+	 * @implNote thread safe since strokes can be requested concurrently by
+	 * {@link figures.render.TiledRasterizer} tiles rendering tasks
 	 */
 	public static BasicStroke getStroke(BasicStroke stroke)
 	{
-		if (stroke != null)
-		{
-			return strokeFactory.get(stroke);
-		}
+		return strokeFactory.intern(stroke);
+	}
 
-		return null;
+	/**
+	 * Accès au cache des {@link BasicStroke} (pour obtenir ses statistiques)
+	 * @return le cache contenant tous les {@link BasicStroke} déjà requis
+	 */
+	public static ConcurrentCache<BasicStroke, BasicStroke> getCache()
+	{
+		return strokeFactory;
 	}
+
 	/**
 	 * Obtention d'un {@link BasicStroke} à partir d'un type de trait et
 	 * d'une épaisseur de trait
 	 * @param type le type de trait (NONE, SOLID ou DASHED)
 	 * @param width l'épaisseur du trait
 	 * @return une {@link BasicStroke} correspondant au type et à l'épaisseur
-	 * de trait en provenance de la factory
+	 * de trait en provenance de la factory (ou null si le type est NONE)
+	 * @implNote les pointillés sont ceux du {@link StrokeStyle} correspondant
+	 * afin que les rendus JavaFX et Java2D soient identiques
 	 */
 	public static BasicStroke getStroke(LineType type, float width)
 	{
-		switch (type)
-		{
-			default:
-			case NONE:
-				return null;
-			case SOLID:
-				return getStroke(new BasicStroke(width,
-				                                 BasicStroke.CAP_ROUND,
-				                                 BasicStroke.JOIN_ROUND));
-			case DASHED:
-				final float dash1[] = { 2 * width };
-				return getStroke(new BasicStroke(width,
-				                                 BasicStroke.CAP_ROUND,
-				                                 BasicStroke.JOIN_ROUND,
-				                                 width, dash1, 0.0f));
-		}
+		return StrokeStyle.of(type, width).getAwtStroke();
 	}
 }
@@ -0,0 +1,239 @@
+package utils;
+
+import java.awt.BasicStroke;
+import java.util.List;
+
+import figures.enums.LineType;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.Shape;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.shape.StrokeLineJoin;
+
+/**
+ * Immutable and shared stroke style (dash pattern, caps, joins and width) for
+ * a given {@link LineType} and line width.
+ * Stroke styles are obtained from {@link #of(LineType, double)} which interns
+ * them so the dash pattern of each (line type, width) pair is only computed
+ * once. Each stroke style can be applied to JavaFX {@link Shape}s with
+ * {@link #applyTo(Shape, Color)} and provides the equivalent AWT
+ * {@link BasicStroke} (see {@link #getAwtStroke()}) so that both JavaFX and
+ * Java2D renderers draw the same strokes.
+ */
+public final class StrokeStyle
+{
+	/**
+	 * Interned stroke styles
+	 */
+	private static final InterningCache<StrokeStyle> styles = new InterningCache<>();
+
+	/**
+	 * Line type
+	 */
+	private final LineType lineType;
+
+	/**
+	 * Line width
+	 */
+	private final double width;
+
+	/**
+	 * Dash pattern (alternating dash and gap lengths), empty for solid lines
+	 */
+	private final List<Double> dashes;
+
+	/**
+	 * Equivalent AWT stroke (from {@link StrokeFactory}) or null if
+	 * {@link #lineType} is {@link LineType#NONE}
+	 */
+	private final BasicStroke awtStroke;
+
+	/**
+	 * Private constructor (stroke styles are obtained from
+	 * {@link #of(LineType, double)})
+	 * @param lineType the line type
+	 * @param width the line width
+	 */
+	private StrokeStyle(LineType lineType, double width)
+	{
+		this.lineType = lineType;
+		this.width = width;
+		double dash = 2.0 * width;
+		if ((lineType == LineType.DASHED) && (dash > 0.0))
+		{
+			dashes = List.of(Double.valueOf(dash), Double.valueOf(dash));
+		}
+		else
+		{
+			dashes = List.of();
+		}
+		awtStroke = null;
+	}
+
+	/**
+	 * Copy constructor adding the AWT stroke (only called on interned
+	 * stroke styles)
+	 * @param style the stroke style to copy
+	 * @param awtStroke the equivalent AWT stroke
+	 */
+	private StrokeStyle(StrokeStyle style, BasicStroke awtStroke)
+	{
+		lineType = style.lineType;
+		width = style.width;
+		dashes = style.dashes;
+		this.awtStroke = awtStroke;
+	}
+
+	/**
+	 * Obtains the unique stroke style for a line type and width
+	 * @param lineType the line type
+	 * @param width the line width
+	 * @return the unique stroke style for this line type and width
+	 */
+	public static StrokeStyle of(LineType lineType, double width)
+	{
+		StrokeStyle key = new StrokeStyle(lineType, Math.abs(width));
+		return styles.get(key, s -> new StrokeStyle(s, s.createAwtStroke()));
+	}
+
+	/**
+	 * Line type accessor
+	 * @return the line type
+	 */
+	public LineType getLineType()
+	{
+		return lineType;
+	}
+
+	/**
+	 * Line width accessor
+	 * @return the line width
+	 */
+	public double getWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * Dash pattern accessor
+	 * @return the (unmodifiable) list of alternating dash and gap lengths or
+	 * an empty list for solid lines
+	 */
+	public List<Double> getDashes()
+	{
+		return dashes;
+	}
+
+	/**
+	 * Equivalent AWT stroke accessor
+	 * @return the AWT stroke equivalent to this stroke style or null if line
+	 * type is {@link LineType#NONE}
+	 */
+	public BasicStroke getAwtStroke()
+	{
+		return awtStroke;
+	}
+
+	/**
+	 * Applies this stroke style (stroke paint, dashes, caps, joins and width)
+	 * to a JavaFX shape.
+	 * The shape's dash array is only modified if it differs from
+	 * {@link #dashes} so that no change event is fired for unchanged dashes.
+	 * @param shape the shape to apply this stroke style to
+	 * @param edgeColor the edge color to apply (or null if there is no edge
+	 * color, in which case as well as with {@link LineType#NONE} the stroke is
+	 * set to {@link Color#TRANSPARENT})
+	 */
+	public void applyTo(Shape shape, Color edgeColor)
+	{
+		Paint stroke = ((edgeColor == null) || (lineType == LineType.NONE) ?
+		    Color.TRANSPARENT : edgeColor);
+		shape.setStroke(stroke);
+		if (!shape.getStrokeDashArray().equals(dashes))
+		{
+			shape.getStrokeDashArray().setAll(dashes);
+		}
+		shape.setStrokeLineJoin(StrokeLineJoin.ROUND);
+		shape.setStrokeLineCap(StrokeLineCap.ROUND);
+		shape.setStrokeWidth(width);
+	}
+
+	/**
+	 * Creates the AWT stroke equivalent to this stroke style
+	 * @return the AWT stroke from {@link StrokeFactory} or null if line type
+	 * is {@link LineType#NONE}
+	 */
+	private BasicStroke createAwtStroke()
+	{
+		if (lineType == LineType.NONE)
+		{
+			return null;
+		}
+		float awtWidth = (float) width;
+		if (dashes.isEmpty())
+		{
+			return StrokeFactory.getStroke(new BasicStroke(awtWidth,
+			                                               BasicStroke.CAP_ROUND,
+			                                               BasicStroke.JOIN_ROUND));
+		}
+		float[] awtDashes = new float[dashes.size()];
+		for (int i = 0; i < awtDashes.length; i++)
+		{
+			awtDashes[i] = dashes.get(i).floatValue();
+		}
+		return StrokeFactory.getStroke(new BasicStroke(awtWidth,
+		                                               BasicStroke.CAP_ROUND,
+		                                               BasicStroke.JOIN_ROUND,
+		                                               Math.max(1.0f, awtWidth),
+		                                               awtDashes,
+		                                               0.0f));
+	}
+
+	/**
+	 * Hash code based on line type and width
+	 * @return a hash code for this stroke style
+	 */
+	@Override
+	public int hashCode()
+	{
+		final int prime = 31;
+		int result = 1;
+		result = (prime * result) + lineType.hashCode();
+		long temp = Double.doubleToLongBits(width);
+		result = (prime * result) + (int) (temp ^ (temp >>> 32));
+		return result;
+	}
+
+	/**
+	 * Comparison with another object (only used for interning: interned
+	 * stroke styles can be compared with ==)
+	 * @param obj the object to compare
+	 * @return true if obj is a stroke style with the same line type and width
+	 */
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj == this)
+		{
+			return true;
+		}
+		if (!(obj instanceof StrokeStyle))
+		{
+			return false;
+		}
+		StrokeStyle other = (StrokeStyle) obj;
+		return (lineType == other.lineType)
+		    && (Double.doubleToLongBits(width) == Double.doubleToLongBits(other.width));
+	}
+
+	/**
+	 * String representation of this stroke style
+	 * @return a String representing this stroke style
+	 */
+	@Override
+	public String toString()
+	{
+		return new String("Stroke[" + lineType + ", " + width + ", dashes="
+		    + dashes + "]");
+	}
+}